@@ -0,0 +1,30 @@
+package benchmark;
+
+/**
+ * One benchmark, measured by Jharness.
+ *
+ * run is the measured operation. If the operation changes the state, which the next operation needs,
+ * reset restores it. The harness measures reset alone too and subtracts it,
+ * so the result is the time of run only.
+ */
+public abstract class Jbenchmark {
+	public final String name;
+	//
+	protected Jbenchmark(final String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Restores the state before the operation.
+	 * @return true if the benchmark has a reset, false by default
+	 */
+	public boolean reset() {
+		return false;
+	}
+
+	/**
+	 * The measured operation.
+	 * @return any result of the operation, it is consumed by the harness, so the JIT does not remove the code
+	 */
+	public abstract int run();
+}
@@ -0,0 +1,248 @@
+package benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import libmp3lame.Jlame;
+import libmp3lame.Jlame_global_flags;
+import libmpghip.Jlayer12_stream;
+import libmpghip.Jmpg123;
+import libmpghip.Jmpstr_tag;
+
+/**
+ * End to end benchmarks of the decoder: Jmpstr_tag.decodeMP3, Jmpstr_tag.decodeMP3_unclipped,
+ * decodeMP3 with a ByteBuffer and Jmpg123.read.
+ *
+ * The Layer III streams are encoded by the encoder of the repository at the start,
+ * the Layer I and Layer II streams are generated by Jlayer12_stream.
+ * An operation decodes the whole stream of two seconds. decodeMP3 gets the stream in chunks,
+ * which are not aligned to the frames, the decoder is reinitialized by InitMP3 before the operation.
+ * Jmpg123.read reads the stream from a ByteArrayInputStream, the decoder is created and opened before the operation.
+ * The reinitialization and the opening are not included in the result, see Jbenchmark.
+ *
+ * Options: see Jharness.
+ */
+public final class Jdecoder_bench {
+	/** Layer III: sample rate, mode, vbr mode, quality, bitrate (or VBR quality), see Jencoder_bench */
+	public static final int LAYER3[][] = {
+			{ 44100, Jlame.JOINT_STEREO, Jlame.vbr_off, 5, 128 },
+			{ 44100, Jlame.JOINT_STEREO, Jlame.vbr_off, 2, 320 },
+			{ 44100, Jlame.MONO, Jlame.vbr_off, 5, 64 },
+			{ 44100, Jlame.JOINT_STEREO, Jlame.vbr_mtrh, 2, 2 },
+			{ 48000, Jlame.MONO, Jlame.vbr_mtrh, 5, 4 },
+			{ 22050, Jlame.JOINT_STEREO, Jlame.vbr_off, 5, 64 },
+			{ 22050, Jlame.JOINT_STEREO, Jlame.vbr_mtrh, 5, 4 },
+			{ 11025, Jlame.MONO, Jlame.vbr_off, 5, 24 },
+			{ 12000, Jlame.JOINT_STEREO, Jlame.vbr_mtrh, 5, 4 }
+		};
+	/** Layer I and Layer II: layer, sample rate, mode, bitrate */
+	public static final int LAYER12[][] = {
+			{ 1, 44100, Jlame.JOINT_STEREO, 384 },
+			{ 1, 48000, Jlame.MONO, 192 },
+			{ 1, 22050, Jlame.JOINT_STEREO, 192 },
+			{ 2, 44100, Jlame.JOINT_STEREO, 192 },
+			{ 2, 48000, Jlame.MONO, 96 },
+			{ 2, 22050, Jlame.JOINT_STEREO, 96 },
+			{ 2, 24000, Jlame.MONO, 48 }
+		};
+	private static final int SECONDS = 2;
+	/** the input is passed in chunks, which are not aligned to the frames */
+	private static final int CHUNK_SIZE = 1024;
+
+	private static final String[] MODE_NAMES = { "stereo", "joint_stereo", "dual_channel", "mono" };
+
+	/**
+	 * Encodes the test signal.
+	 * @return the Layer III stream without the VBR tag
+	 */
+	public static final byte[] encode(final int[] settings, final int seconds) {
+		final Jlame_global_flags gf = Jencoder_bench.create( settings );
+		final int n = settings[0] * seconds;
+		final short[][] pcm = Jsignal.generate( settings[0], n );
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		final byte[] mp3buf = new byte[(int)(1.25 * n) + 7200];
+		int size = Jlame.lame_encode_buffer( gf, pcm[0], pcm[1], n, mp3buf, 0, mp3buf.length );
+		if( size < 0 ) {
+			throw new IllegalStateException("lame_encode_buffer failed: " + Jencoder_bench.name( settings ) );
+		}
+		out.write( mp3buf, 0, size );
+		size = Jlame.lame_encode_flush( gf, mp3buf, mp3buf.length );
+		if( size < 0 ) {
+			throw new IllegalStateException("lame_encode_flush failed: " + Jencoder_bench.name( settings ) );
+		}
+		out.write( mp3buf, 0, size );
+		Jlame.lame_close( gf );
+		return out.toByteArray();
+	}
+
+	/** @return the stream of the Layer I or Layer II settings */
+	private static final byte[] generate(final int[] settings) {
+		final int samples = settings[0] == 1 ? 384 : 1152;
+		return Jlayer12_stream.generate( settings[0], settings[1], settings[2], settings[3], settings[1] * SECONDS / samples );
+	}
+
+	private static final String name12(final int[] settings) {
+		return "layer" + settings[0] + " " + settings[3] + " " + settings[1] + " " + MODE_NAMES[settings[2]];
+	}
+
+	/** decodes the stream by decodeMP3 or decodeMP3_unclipped */
+	private static final class Jdecode extends Jbenchmark {
+		private final byte[] mp3;
+		private final boolean unclipped;
+		private final Jmpstr_tag decoder = new Jmpstr_tag();
+		private final byte[] in = new byte[CHUNK_SIZE];
+		private final short[] out = new short[1152 * 2];
+		private final float[] out_unclipped = new float[1152 * 2];
+		private final int[] done = new int[1];
+		//
+		private Jdecode(final String name, final byte[] mp3, final boolean unclipped) {
+			super( (unclipped ? "decodeMP3_unclipped " : "decodeMP3 ") + name + " /" + SECONDS + "s");
+			this.mp3 = mp3;
+			this.unclipped = unclipped;
+		}
+
+		@Override
+		public boolean reset() {
+			this.decoder.InitMP3();
+			return true;
+		}
+
+		@Override
+		public int run() {
+			final Jmpstr_tag d = this.decoder;// java
+			final byte[] buf = this.in;// java
+			int samples = 0;
+			for( int offset = 0; offset < this.mp3.length; offset += CHUNK_SIZE ) {
+				final int size = Math.min( CHUNK_SIZE, this.mp3.length - offset );
+				System.arraycopy( this.mp3, offset, buf, 0, size );
+				int ret = this.unclipped ?
+						d.decodeMP3_unclipped( buf, size, this.out_unclipped, this.out_unclipped.length, this.done ) :
+						d.decodeMP3( buf, size, this.out, this.out.length, this.done );
+				while( ret == Jmpg123.MP3_OK ) {
+					samples += this.done[0];
+					ret = this.unclipped ?
+							d.decodeMP3_unclipped( null, 0, this.out_unclipped, this.out_unclipped.length, this.done ) :
+							d.decodeMP3( null, 0, this.out, this.out.length, this.done );
+				}
+				if( ret == Jmpg123.MP3_ERR ) {
+					throw new IllegalStateException("decodeMP3 failed: " + this.name );
+				}
+			}
+			return samples;
+		}
+	}
+
+	/** decodes the stream from a direct ByteBuffer by decodeMP3( ByteBuffer ), the whole stream is added at once */
+	private static final class Jdecode_buffer extends Jbenchmark {
+		private final ByteBuffer mp3;
+		private final Jmpstr_tag decoder = new Jmpstr_tag();
+		private final short[] out = new short[1152 * 2];
+		private final int[] done = new int[1];
+		//
+		private Jdecode_buffer(final String name, final byte[] mp3) {
+			super("decodeMP3 ByteBuffer " + name + " /" + SECONDS + "s");
+			this.mp3 = ByteBuffer.allocateDirect( mp3.length );
+			this.mp3.put( mp3 );
+		}
+
+		@Override
+		public boolean reset() {
+			this.decoder.InitMP3();
+			this.mp3.clear();
+			return true;
+		}
+
+		@Override
+		public int run() {
+			final Jmpstr_tag d = this.decoder;// java
+			int samples = 0;
+			int position = -1;
+			int ret = d.decodeMP3( this.mp3, this.out, this.out.length, this.done );
+			while( ret == Jmpg123.MP3_OK || (ret == Jmpg123.MP3_NEED_MORE && position != this.mp3.position()) ) {
+				if( ret == Jmpg123.MP3_OK ) {
+					samples += this.done[0];
+				}
+				position = this.mp3.position();
+				ret = d.decodeMP3( null, this.out, this.out.length, this.done );
+			}
+			if( ret == Jmpg123.MP3_ERR ) {
+				throw new IllegalStateException("decodeMP3 failed: " + this.name );
+			}
+			return samples;
+		}
+	}
+
+	/** reads the stream by Jmpg123 as 16 bit signed little endian pcm */
+	private static final class Jread extends Jbenchmark {
+		private final byte[] mp3;
+		private final byte[] pcm = new byte[8192];
+		private Jmpg123 decoder;
+		//
+		private Jread(final String name, final byte[] mp3) {
+			super("Jmpg123.read " + name + " /" + SECONDS + "s");
+			this.mp3 = mp3;
+		}
+
+		@Override
+		public boolean reset() {
+			this.decoder = new Jmpg123( 16, true, false );
+			this.decoder.InitMP3();
+			if( this.decoder.open( new ByteArrayInputStream( this.mp3 ) ) < 0 ) {
+				throw new IllegalStateException("Jmpg123.open failed: " + this.name );
+			}
+			return true;
+		}
+
+		@Override
+		public int run() {
+			int bytes = 0;
+			try {
+				int n;
+				while( (n = this.decoder.read( this.pcm, 0, this.pcm.length )) >= 0 ) {
+					bytes += n;
+				}
+			} catch(final IOException e) {
+				throw new IllegalStateException( e );
+			}
+			return bytes;
+		}
+	}
+
+	private static final void measure(final Jharness harness, final String name, final byte[] mp3) {
+		harness.measure( new Jdecode( name, mp3, false ) );
+		harness.measure( new Jdecode( name, mp3, true ) );
+		harness.measure( new Jdecode_buffer( name, mp3 ) );
+		harness.measure( new Jread( name, mp3 ) );
+	}
+
+	/** @return true if one of the benchmarks of the stream is selected */
+	private static final boolean matches(final Jharness harness, final String name) {
+		final String suffix = " " + name + " /" + SECONDS + "s";
+		return harness.matches("decodeMP3" + suffix ) || harness.matches("decodeMP3_unclipped" + suffix )
+				|| harness.matches("decodeMP3 ByteBuffer" + suffix )
+				|| harness.matches("Jmpg123.read" + suffix );
+	}
+
+	/**
+	 * main.
+	 * @param args options of Jharness
+	 */
+	public static final void main(final String[] args) {
+		final Jharness harness = new Jharness( args );
+		harness.header();
+		for( final int[] settings : LAYER3 ) {
+			final String name = "layer3 " + Jencoder_bench.name( settings );
+			if( matches( harness, name ) ) {
+				measure( harness, name, encode( settings, SECONDS ) );
+			}
+		}
+		for( final int[] settings : LAYER12 ) {
+			final String name = name12( settings );
+			if( matches( harness, name ) ) {
+				measure( harness, name, generate( settings ) );
+			}
+		}
+	}
+}
@@ -0,0 +1,127 @@
+package benchmark;
+
+import libmp3lame.Jlame;
+import libmp3lame.Jlame_global_flags;
+
+/**
+ * End to end benchmarks of the encoder, Jlame.lame_encode_buffer.
+ *
+ * An operation encodes one second of the test signal. The encoder is not closed between the operations,
+ * the signal is passed again and again, so the benchmark measures the steady state of a long stream.
+ * The VBR tag is not written, the seek table of the tag is not needed for an endless stream.
+ *
+ * Options: see Jharness.
+ */
+public final class Jencoder_bench {
+	/** sample rate, mode, vbr mode, quality, bitrate (or VBR quality) */
+	public static final int SETTINGS[][] = {
+			{ 44100, Jlame.JOINT_STEREO, Jlame.vbr_off, 7, 128 },
+			{ 44100, Jlame.JOINT_STEREO, Jlame.vbr_off, 5, 128 },
+			{ 44100, Jlame.JOINT_STEREO, Jlame.vbr_off, 2, 128 },
+			{ 44100, Jlame.JOINT_STEREO, Jlame.vbr_off, 0, 320 },
+			{ 44100, Jlame.STEREO, Jlame.vbr_off, 5, 192 },
+			{ 48000, Jlame.MONO, Jlame.vbr_off, 5, 64 },
+			{ 32000, Jlame.JOINT_STEREO, Jlame.vbr_off, 5, 96 },
+			{ 22050, Jlame.JOINT_STEREO, Jlame.vbr_off, 5, 64 },
+			{ 11025, Jlame.MONO, Jlame.vbr_off, 5, 24 },
+			{ 44100, Jlame.JOINT_STEREO, Jlame.vbr_abr, 5, 160 },
+			{ 48000, Jlame.STEREO, Jlame.vbr_abr, 2, 192 },
+			{ 44100, Jlame.JOINT_STEREO, Jlame.vbr_mtrh, 5, 5 },
+			{ 44100, Jlame.JOINT_STEREO, Jlame.vbr_mtrh, 2, 2 },
+			{ 44100, Jlame.JOINT_STEREO, Jlame.vbr_mtrh, 0, 0 },
+			{ 44100, Jlame.JOINT_STEREO, Jlame.vbr_rh, 2, 4 },
+			{ 48000, Jlame.MONO, Jlame.vbr_mtrh, 5, 4 },
+			{ 22050, Jlame.JOINT_STEREO, Jlame.vbr_mtrh, 5, 4 }
+		};
+	/** length of the test signal, it is repeated */
+	private static final int SECONDS = 5;
+
+	private static final String[] MODE_NAMES = { "stereo", "joint_stereo", "dual_channel", "mono" };
+
+	/** @return name of the settings */
+	public static final String name(final int[] settings) {
+		final StringBuilder sb = new StringBuilder();
+		switch( settings[2] ) {
+		case Jlame.vbr_off: sb.append("cbr ").append( settings[4] ); break;
+		case Jlame.vbr_abr: sb.append("abr ").append( settings[4] ); break;
+		case Jlame.vbr_rh: sb.append("vbr_rh V").append( settings[4] ); break;
+		default: sb.append("vbr_mtrh V").append( settings[4] ); break;
+		}
+		sb.append(" q").append( settings[3] ).append(' ').append( settings[0] ).append(' ').append( MODE_NAMES[settings[1]] );
+		return sb.toString();
+	}
+
+	/**
+	 * Creates and initializes an encoder.
+	 * @throws IllegalStateException if lame_init_params fails
+	 */
+	public static final Jlame_global_flags create(final int[] settings) {
+		final Jlame_global_flags gf = Jlame.lame_init();
+		gf.lame_set_num_channels( settings[1] == Jlame.MONO ? 1 : 2 );
+		gf.lame_set_out_samplerate( settings[0] );
+		gf.lame_set_mode( settings[1] );
+		gf.lame_set_VBR( settings[2] );
+		if( settings[2] == Jlame.vbr_off ) {
+			gf.lame_set_brate( settings[4] );
+		} else if( settings[2] == Jlame.vbr_abr ) {
+			gf.lame_set_VBR_mean_bitrate_kbps( settings[4] );
+		} else {
+			gf.lame_set_VBR_quality( settings[4] );
+		}
+		gf.lame_set_quality( settings[3] );
+		gf.lame_set_bWriteVbrTag( false );
+		if( Jlame.lame_init_params( gf ) < 0 ) {
+			throw new IllegalStateException("lame_init_params failed: " + name( settings ) );
+		}
+		return gf;
+	}
+
+	/** encodes one second of the signal per operation */
+	private static final class Jencode extends Jbenchmark {
+		private final Jlame_global_flags gf;
+		private final short[][] pcm;
+		private final int chunk;
+		private final short[] left;
+		private final short[] right;
+		private final byte[] mp3buf;
+		private int offset;
+		//
+		private Jencode(final int[] settings) {
+			super("encode " + name( settings ) + " /1s");
+			this.gf = create( settings );
+			this.pcm = Jsignal.generate( settings[0], settings[0] * SECONDS );
+			this.chunk = settings[0];
+			this.left = new short[this.chunk];
+			this.right = new short[this.chunk];
+			this.mp3buf = new byte[(int)(1.25 * this.chunk) + 7200];
+		}
+
+		@Override
+		public int run() {
+			System.arraycopy( this.pcm[0], this.offset, this.left, 0, this.chunk );
+			System.arraycopy( this.pcm[1], this.offset, this.right, 0, this.chunk );
+			this.offset += this.chunk;
+			if( this.offset >= this.pcm[0].length ) {
+				this.offset = 0;
+			}
+			return Jlame.lame_encode_buffer( this.gf, this.left, this.right, this.chunk, this.mp3buf, 0, this.mp3buf.length );
+		}
+	}
+
+	/**
+	 * main.
+	 * @param args options of Jharness
+	 */
+	public static final void main(final String[] args) {
+		final Jharness harness = new Jharness( args );
+		harness.header();
+		for( final int[] settings : SETTINGS ) {
+			final String name = "encode " + name( settings ) + " /1s";
+			if( harness.matches( name ) ) {
+				final Jencode b = new Jencode( settings );
+				harness.measure( b );
+				Jlame.lame_close( b.gf );
+			}
+		}
+	}
+}
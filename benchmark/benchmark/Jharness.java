@@ -0,0 +1,137 @@
+package benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.util.regex.Pattern;
+
+/**
+ * Benchmark harness.
+ *
+ * Every benchmark is warmed up by time, then measured by iterations with a fixed number of operations.
+ * The result is the mean time per operation with the standard deviation of the iterations,
+ * operations per second and bytes allocated per operation by the benchmark thread.
+ * Needs a JVM with com.sun.management.ThreadMXBean.
+ *
+ * Options: [-wi warmup iterations] [-i iterations] [-r iteration time, ms] [regex filter of the names]
+ */
+public final class Jharness {
+	private int warmup_iterations = 3;
+	private int iterations = 5;
+	private long iteration_time = 500;
+	private Pattern filter;
+	private final com.sun.management.ThreadMXBean mx = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+	private final long thread = Thread.currentThread().getId();
+	/** results of the operations */
+	private volatile int sink;
+	//
+	/**
+	 * @param args options
+	 * @throws IllegalArgumentException if an option is wrong
+	 */
+	public Jharness(final String[] args) {
+		for( int i = 0; i < args.length; i++ ) {
+			final String arg = args[i];
+			if( arg.equals("-wi") || arg.equals("-i") || arg.equals("-r") ) {
+				if( ++i >= args.length ) {
+					throw new IllegalArgumentException("no value of the option " + arg );
+				}
+				final int v = Integer.parseInt( args[i] );
+				if( v < (arg.equals("-wi") ? 0 : 1) ) {
+					throw new IllegalArgumentException("wrong value of the option " + arg + ": " + v );
+				}
+				if( arg.equals("-wi") ) {
+					this.warmup_iterations = v;
+				} else if( arg.equals("-i") ) {
+					this.iterations = v;
+				} else {
+					this.iteration_time = v;
+				}
+			} else {
+				this.filter = Pattern.compile( arg );
+			}
+		}
+		if( ! this.mx.isThreadAllocatedMemorySupported() ) {
+			throw new IllegalArgumentException("the JVM does not support the thread allocated memory");
+		}
+		this.mx.setThreadAllocatedMemoryEnabled( true );
+	}
+
+	/** @return true if the benchmark is selected by the filter */
+	public final boolean matches(final String name) {
+		return this.filter == null || this.filter.matcher( name ).find();
+	}
+
+	public final void header() {
+		System.out.printf("warmup: %d x %d ms, measurement: %d x %d ms\n",
+				this.warmup_iterations, this.iteration_time, this.iterations, this.iteration_time );
+		System.out.printf("%-64s %12s %10s %14s %12s\n", "Benchmark", "us/op", "error", "ops/s", "B/op");
+	}
+
+	/**
+	 * Measures the benchmark and prints the result, if it is selected by the filter.
+	 * @return the mean time of an operation, ns, or 0 if the benchmark is not selected
+	 */
+	public final double measure(final Jbenchmark b) {
+		if( ! matches( b.name ) ) {
+			return 0;
+		}
+		final boolean has_reset = b.reset();
+		final long time = this.iteration_time * 1000000L;
+		/* warmup by time, the last iteration gives the number of the operations of an iteration */
+		long ops = 0;
+		int result = 0;
+		for( int w = 0; w < this.warmup_iterations || ops == 0; w++ ) {
+			ops = 0;
+			final long start = System.nanoTime();
+			do {
+				b.reset();
+				result += b.run();
+				ops++;
+			} while( System.nanoTime() - start < time );
+		}
+
+		final double[] ns = new double[this.iterations];
+		double bytes = 0;
+		for( int i = 0; i < this.iterations; i++ ) {
+			final long a0 = this.mx.getThreadAllocatedBytes( this.thread );
+			final long t0 = System.nanoTime();
+			for( long n = 0; n < ops; n++ ) {
+				b.reset();
+				result += b.run();
+			}
+			final long t1 = System.nanoTime();
+			final long a1 = this.mx.getThreadAllocatedBytes( this.thread );
+			long elapsed = t1 - t0;
+			long allocated = a1 - a0;
+			if( has_reset ) {
+				for( long n = 0; n < ops; n++ ) {
+					b.reset();
+				}
+				final long t2 = System.nanoTime();
+				final long a2 = this.mx.getThreadAllocatedBytes( this.thread );
+				elapsed -= t2 - t1;
+				allocated -= a2 - a1;
+			}
+			ns[i] = (double)elapsed / ops;
+			bytes += (double)allocated / ops;
+		}
+		this.sink = result;
+
+		double mean = 0;
+		for( int i = 0; i < ns.length; i++ ) {
+			mean += ns[i];
+		}
+		mean /= ns.length;
+		double error = 0;
+		if( ns.length > 1 ) {
+			for( int i = 0; i < ns.length; i++ ) {
+				final double d = ns[i] - mean;
+				error += d * d;
+			}
+			error = Math.sqrt( error / (ns.length - 1) );
+		}
+		bytes /= this.iterations;
+		System.out.printf("%-64s %12.3f %10.3f %14.1f %12.1f\n",
+				b.name, mean / 1000., error / 1000., mean > 0 ? 1e9 / mean : 0., bytes < 0 ? 0. : bytes );
+		return mean;
+	}
+}
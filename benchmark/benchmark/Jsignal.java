@@ -0,0 +1,49 @@
+package benchmark;
+
+/**
+ * Deterministic test signal of the benchmarks.
+ *
+ * Tones with a slow modulation, a noise floor and decaying noise bursts every half second,
+ * so the encoder uses long and short blocks. The channels are partly correlated,
+ * so the encoder chooses both MS and LR stereo.
+ * The noise comes from a fixed linear congruential generator, the signal is the same on every run.
+ */
+public final class Jsignal {
+	private Jsignal() {
+	}
+
+	/**
+	 * @param sample_rate sample rate
+	 * @param samples number of the samples per channel
+	 * @return pcm[2][samples]
+	 */
+	public static final short[][] generate(final int sample_rate, final int samples) {
+		final short[][] pcm = new short[2][samples];
+		final int burst_period = sample_rate / 2;
+		int seed = 0x12345678;
+		for( int i = 0; i < samples; i++ ) {
+			final double t = (double)i / sample_rate;
+			seed = seed * 1103515245 + 12345;
+			final double noise = (double)(seed >> 8) / (1 << 23);
+			final int b = i % burst_period;
+			final double burst = b < 2048 ? noise * 9000. * Math.exp( -b / 300. ) : 0.;
+			final double env = 0.5 + 0.5 * Math.sin( 2 * Math.PI * 0.7 * t );
+			final double common = 6000. * env * Math.sin( 2 * Math.PI * 440. * t + 0.3 * Math.sin( 2 * Math.PI * 5. * t ) )
+					+ 1500. * Math.sin( 2 * Math.PI * 1320. * t )
+					+ 300. * noise + burst;
+			pcm[0][i] = clip( common + 2000. * Math.sin( 2 * Math.PI * 3000. * t ) );
+			pcm[1][i] = clip( 0.8 * common + 2500. * Math.sin( 2 * Math.PI * 660. * t ) + 150. * noise );
+		}
+		return pcm;
+	}
+
+	private static final short clip(final double v) {
+		if( v > Short.MAX_VALUE ) {
+			return Short.MAX_VALUE;
+		}
+		if( v < Short.MIN_VALUE ) {
+			return Short.MIN_VALUE;
+		}
+		return (short)v;
+	}
+}
@@ -0,0 +1,355 @@
+package libmp3lame;
+
+import benchmark.Jbenchmark;
+import benchmark.Jencoder_bench;
+import benchmark.Jharness;
+import benchmark.Jsignal;
+
+/**
+ * Benchmarks of the encoder stages in isolation.
+ *
+ * Every benchmark gets an encoder, which has encoded two seconds of the test signal,
+ * and the next frame, analysed by the psy model. The stages, which change the encoding state,
+ * restore it before every operation, the restore is not included in the result, see Jbenchmark.
+ * The granule benchmarks (calc_xmin, outer_loop, count_bits, best_huffman_divide)
+ * use the first granule of the first channel of the frame.
+ *
+ * Options: see Jharness.
+ */
+public final class Jencoder_stages_bench {
+	/** sample rate, mode, vbr mode, quality, bitrate (or VBR quality), see Jencoder_bench */
+	private static final int SETTINGS[][] = {
+			{ 44100, Jlame.JOINT_STEREO, Jlame.vbr_off, 5, 128 },
+			{ 44100, Jlame.JOINT_STEREO, Jlame.vbr_off, 0, 320 },
+			{ 22050, Jlame.JOINT_STEREO, Jlame.vbr_off, 5, 64 },
+			{ 44100, Jlame.JOINT_STEREO, Jlame.vbr_abr, 5, 160 },
+			{ 44100, Jlame.JOINT_STEREO, Jlame.vbr_mtrh, 2, 2 },
+			{ 48000, Jlame.MONO, Jlame.vbr_mtrh, 5, 4 },
+			{ 44100, Jlame.JOINT_STEREO, Jlame.vbr_rh, 2, 4 }
+		};
+	private static final String STAGES[] = {
+			"mdct_sub48", "fft_long", "fft_short", "L3psycho_anal_vbr", "encode_frame_analysis",
+			"encode_frame_iteration", "calc_xmin", "outer_loop", "count_bits", "best_huffman_divide",
+			"VBR_encode_frame", "format_bitstream"
+		};
+	private static final int PRIME_SECONDS = 2;
+
+	/** the encoding state, which is changed by the quantization and the bitstream formatting */
+	private static final class Jstate {
+		private final JEncStateVar sv_enc = new JEncStateVar();
+		private final JEncResult ov_enc = new JEncResult();
+		private final JQntStateVar sv_qnt = new JQntStateVar();
+		private final JIII_side_info l3_side = new JIII_side_info();
+		private final float pe[][] = new float[2][2];
+		private final float pe_MS[][] = new float[2][2];
+		/* bitstream */
+		private final int write_timing[] = new int[JEncStateVar.MAX_HEADER_BUF];
+		private final int ptr[] = new int[JEncStateVar.MAX_HEADER_BUF];
+		private int h_ptr, w_ptr;
+		private boolean ancillary_flag;
+		private int ResvSize;
+		private int main_data_begin;
+		private int totbit, buf_byte_idx, buf_bit_idx;
+		//
+		private Jstate(final Jlame_internal_flags gfc, final JEncFrameData f) {
+			this.sv_enc.copyFrom( gfc.sv_enc );
+			this.ov_enc.copyFrom( gfc.ov_enc );
+			this.sv_qnt.copyFrom( gfc.sv_qnt );
+			this.l3_side.copyFrom( gfc.l3_side );
+			for( int gr = 0; gr < 2; gr++ ) {
+				System.arraycopy( f.pe[gr], 0, this.pe[gr], 0, 2 );
+				System.arraycopy( f.pe_MS[gr], 0, this.pe_MS[gr], 0, 2 );
+			}
+			final JEncStateVar esv = gfc.sv_enc;
+			for( int i = 0; i < JEncStateVar.MAX_HEADER_BUF; i++ ) {
+				this.write_timing[i] = esv.header[i].write_timing;
+				this.ptr[i] = esv.header[i].ptr;
+			}
+			this.h_ptr = esv.h_ptr;
+			this.w_ptr = esv.w_ptr;
+			this.ancillary_flag = esv.ancillary_flag;
+			this.ResvSize = esv.ResvSize;
+			this.main_data_begin = gfc.l3_side.main_data_begin;
+			this.totbit = gfc.bs.totbit;
+			this.buf_byte_idx = gfc.bs.buf_byte_idx;
+			this.buf_bit_idx = gfc.bs.buf_bit_idx;
+		}
+
+		/** restores the state of the quantization */
+		private final void restore(final Jlame_internal_flags gfc, final JEncFrameData f) {
+			gfc.sv_enc.copyFrom( this.sv_enc );
+			gfc.ov_enc.copyFrom( this.ov_enc );
+			gfc.sv_qnt.copyFrom( this.sv_qnt );
+			gfc.l3_side.copyFrom( this.l3_side );
+			for( int gr = 0; gr < 2; gr++ ) {
+				System.arraycopy( this.pe[gr], 0, f.pe[gr], 0, 2 );
+				System.arraycopy( this.pe_MS[gr], 0, f.pe_MS[gr], 0, 2 );
+			}
+			restore_bitstream( gfc );
+		}
+
+		/** restores the state of the bitstream formatting */
+		private final void restore_bitstream(final Jlame_internal_flags gfc) {
+			final JEncStateVar esv = gfc.sv_enc;
+			for( int i = 0; i < JEncStateVar.MAX_HEADER_BUF; i++ ) {
+				esv.header[i].write_timing = this.write_timing[i];
+				esv.header[i].ptr = this.ptr[i];
+			}
+			esv.h_ptr = this.h_ptr;
+			esv.w_ptr = this.w_ptr;
+			esv.ancillary_flag = this.ancillary_flag;
+			esv.ResvSize = this.ResvSize;
+			gfc.l3_side.main_data_begin = this.main_data_begin;
+			gfc.bs.totbit = this.totbit;
+			gfc.bs.buf_byte_idx = this.buf_byte_idx;
+			gfc.bs.buf_bit_idx = this.buf_bit_idx;
+		}
+	}
+
+	/** primed encoder with an analysed frame */
+	private static final class Jframe {
+		private final Jlame_internal_flags gfc;
+		private final JEncFrameData f;
+		private final float inbuf[][];
+		/** state after the analysis */
+		private final Jstate analysed;
+		/** state after the quantization */
+		private final Jstate quantized;
+		/* the first granule of the first channel */
+		/** after init_outer_loop */
+		private final Jgr_info gi_init;
+		private final float xrpow_init[] = new float[576];
+		private final float l3_xmin[] = new float[Jencoder.SFBMAX];
+		private final int targ_bits;
+		/** after outer_loop */
+		private final Jgr_info gi_quantized;
+		private final float xrpow_quantized[] = new float[576];
+		/* VBR_encode_frame */
+		private final float vbr_l3_xmin[][][] = new float[2][2][Jencoder.SFBMAX];
+		private final int vbr_max_bits[][] = new int[2][2];
+		//
+		private Jframe(final int[] settings) {
+			final Jlame_global_flags gf = Jencoder_bench.create( settings );
+			final int n = settings[0] * PRIME_SECONDS;
+			final short[][] pcm = Jsignal.generate( settings[0], n );
+			final byte[] mp3buf = new byte[(int)(1.25 * n) + 7200];
+			if( Jlame.lame_encode_buffer( gf, pcm[0], pcm[1], n, mp3buf, 0, mp3buf.length ) < 0 ) {
+				throw new IllegalStateException("lame_encode_buffer failed");
+			}
+			this.gfc = gf.internal_flags;
+			this.f = this.gfc.frame_data;
+			this.inbuf = new float[][] { this.gfc.sv_enc.mfbuf[0], this.gfc.sv_enc.mfbuf[1] };
+			if( analyse() != 0 ) {
+				throw new IllegalStateException("encode_frame_analysis failed");
+			}
+			this.analysed = new Jstate( this.gfc, this.f );
+			Jencoder.encode_frame_iteration( this.gfc, this.f );
+			this.quantized = new Jstate( this.gfc, this.f );
+			final JQntWorkspace wk = this.gfc.wk_qnt;
+			for( int gr = 0; gr < 2; gr++ ) {
+				for( int ch = 0; ch < 2; ch++ ) {
+					System.arraycopy( wk.l3_xmin[gr][ch], 0, this.vbr_l3_xmin[gr][ch], 0, Jencoder.SFBMAX );
+				}
+				System.arraycopy( wk.max_bits[gr], 0, this.vbr_max_bits[gr], 0, 2 );
+			}
+			final int bits = this.gfc.l3_side.tt[0][0].part2_3_length;
+			this.targ_bits = bits > 100 ? bits : 100;
+
+			this.analysed.restore( this.gfc, this.f );
+			this.gi_init = new Jgr_info( this.f.tt[0][0] );
+			Jquantize.init_outer_loop( this.gfc, this.gi_init, 0 );
+			Jquantize.init_xrpow( this.gfc, this.gi_init, this.xrpow_init, 0 );
+			Jquantize_pvt.calc_xmin( this.gfc, this.f.masking_LR[0][0], this.gi_init, this.l3_xmin );
+			this.gi_quantized = new Jgr_info( this.gi_init );
+			System.arraycopy( this.xrpow_init, 0, this.xrpow_quantized, 0, 576 );
+			Jquantize.outer_loop( this.gfc, this.gi_quantized, this.l3_xmin, this.xrpow_quantized, 0, this.targ_bits );
+		}
+
+		private final int analyse() {
+			this.gfc.sv_psy.masking_lower = this.gfc.sv_qnt.masking_lower;
+			return Jencoder.encode_frame_analysis( this.gfc, this.inbuf[0], this.inbuf[1], this.f );
+		}
+	}
+
+	private static final int bits(final float v) {
+		return Float.floatToRawIntBits( v );
+	}
+
+	/** @return the benchmark of the stage, or null if the stage is not used by the settings */
+	private static final Jbenchmark create(final int stage, final String name, final int[] settings) {
+		if( stage == 10 && settings[2] != Jlame.vbr_mt && settings[2] != Jlame.vbr_mtrh ) {
+			return null;
+		}
+		final Jframe s = new Jframe( settings );
+		final Jlame_internal_flags gfc = s.gfc;
+		final JEncFrameData f = s.f;
+		final int bufp = 576 - Jencoder.FFTOFFSET;
+		switch( stage ) {
+		case 0:
+			return new Jbenchmark( name ) {
+				@Override
+				public int run() {
+					Jnewmdct.mdct_sub48( gfc, s.inbuf[0], s.inbuf[1], f.tt );
+					return bits( f.tt[0][0].xr[1] );
+				}
+			};
+		case 1:
+			return new Jbenchmark( name ) {
+				private final float x[] = new float[Jencoder.BLKSIZE];
+				@Override
+				public int run() {
+					Jfft.fft_long( gfc, this.x, 0, s.inbuf, bufp );
+					return bits( this.x[1] );
+				}
+			};
+		case 2:
+			return new Jbenchmark( name ) {
+				private final float x[][] = new float[3][Jencoder.BLKSIZE_s];
+				@Override
+				public int run() {
+					Jfft.fft_short( gfc, this.x, 0, s.inbuf, bufp );
+					return bits( this.x[0][1] );
+				}
+			};
+		case 3:
+			return new Jbenchmark( name ) {
+				@Override
+				public int run() {
+					return Jpsymodel.L3psycho_anal_vbr( gfc, s.inbuf, bufp, 0, f.masking_LR, f.masking_MS,
+							f.pe[0], f.pe_MS[0], f.tot_ener[0], gfc.wk_psy.blocktype ) + bits( f.pe[0][0] );
+				}
+			};
+		case 4:
+			return new Jbenchmark( name ) {
+				@Override
+				public int run() {
+					return s.analyse() + bits( f.pe[0][0] );
+				}
+			};
+		case 5:
+			return new Jbenchmark( name ) {
+				@Override
+				public boolean reset() {
+					s.analysed.restore( gfc, f );
+					return true;
+				}
+				@Override
+				public int run() {
+					Jencoder.encode_frame_iteration( gfc, f );
+					return gfc.l3_side.tt[0][0].part2_3_length;
+				}
+			};
+		case 6:
+			return new Jbenchmark( name ) {
+				private final float l3_xmin[] = new float[Jencoder.SFBMAX];
+				@Override
+				public int run() {
+					return Jquantize_pvt.calc_xmin( gfc, f.masking_LR[0][0], s.gi_init, this.l3_xmin ) + bits( this.l3_xmin[0] );
+				}
+			};
+		case 7:
+			return new Jbenchmark( name ) {
+				private final Jgr_info gi = new Jgr_info();
+				private final float xrpow[] = new float[576];
+				@Override
+				public boolean reset() {
+					this.gi.copyFrom( s.gi_init );
+					System.arraycopy( s.xrpow_init, 0, this.xrpow, 0, 576 );
+					return true;
+				}
+				@Override
+				public int run() {
+					return Jquantize.outer_loop( gfc, this.gi, s.l3_xmin, this.xrpow, 0, s.targ_bits );
+				}
+			};
+		case 8:
+			return new Jbenchmark( name ) {
+				private final Jgr_info gi = new Jgr_info( s.gi_quantized );
+				@Override
+				public int run() {
+					return Jtakehiro.count_bits( gfc, s.xrpow_quantized, this.gi, 0, null );
+				}
+			};
+		case 9:
+			return new Jbenchmark( name ) {
+				private final Jgr_info gi = new Jgr_info();
+				@Override
+				public boolean reset() {
+					this.gi.copyFrom( s.gi_quantized );
+					return true;
+				}
+				@Override
+				public int run() {
+					Jtakehiro.best_huffman_divide( gfc, this.gi, 0 );
+					return this.gi.part2_3_length;
+				}
+			};
+		case 10:
+			return new Jbenchmark( name ) {
+				private final float xrpow[][][] = new float[2][2][576];
+				/** the same preparation as in JVBR_new_iteration_loop.iteration */
+				@Override
+				public boolean reset() {
+					final JSessionConfig cfg = gfc.cfg;
+					final Jgr_info[][] tt = gfc.l3_side.tt;
+					for( int gr = 0; gr < cfg.mode_gr; gr++ ) {
+						for( int ch = 0; ch < cfg.channels_out; ch++ ) {
+							tt[gr][ch].copyFrom( s.analysed.l3_side.tt[gr][ch] );
+						}
+						if( f.mode_ext == Jencoder.MPG_MD_MS_LR ) {
+							gfc.l3_side.ms_convert( gr );
+						}
+						for( int ch = 0; ch < cfg.channels_out; ch++ ) {
+							final float[] buf = this.xrpow[gr][ch];
+							for( int i = 0; i < 576; i++ ) {
+								buf[i] = 0;
+							}
+							Jquantize.init_outer_loop( gfc, tt[gr][ch], ch );
+							Jquantize.init_xrpow( gfc, tt[gr][ch], buf, ch );
+						}
+					}
+					return true;
+				}
+				@Override
+				public int run() {
+					return Jvbrquantize.VBR_encode_frame( gfc, this.xrpow, s.vbr_l3_xmin, s.vbr_max_bits );
+				}
+			};
+		case 11:
+			/* format_bitstream does not change the granules and the bitrate */
+			s.quantized.restore( gfc, f );
+			return new Jbenchmark( name ) {
+				@Override
+				public boolean reset() {
+					s.quantized.restore_bitstream( gfc );
+					return true;
+				}
+				@Override
+				public int run() {
+					return Jbitstream.format_bitstream( gfc ) + gfc.bs.buf_byte_idx;
+				}
+			};
+		}
+		return null;
+	}
+
+	/**
+	 * main.
+	 * @param args options of Jharness
+	 */
+	public static final void main(final String[] args) {
+		final Jharness harness = new Jharness( args );
+		harness.header();
+		for( final int[] settings : SETTINGS ) {
+			for( int stage = 0; stage < STAGES.length; stage++ ) {
+				final String name = STAGES[stage] + " " + Jencoder_bench.name( settings );
+				if( harness.matches( name ) ) {
+					final Jbenchmark b = create( stage, name, settings );
+					if( b != null ) {
+						harness.measure( b );
+					}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,219 @@
+package libmpghip;
+
+import benchmark.Jbenchmark;
+import benchmark.Jdecoder_bench;
+import benchmark.Jencoder_bench;
+import benchmark.Jharness;
+
+import libmp3lame.Jlame;
+
+/**
+ * Benchmarks of the Layer III decoder stages in isolation.
+ *
+ * Every benchmark gets a decoder, which has decoded the stream up to a frame
+ * with the needed block type of the first granule of the first channel, and this frame.
+ * III_dequantize_sample reads the scalefactors and the Huffman codes of the granule from the main data,
+ * the bit pointer is set to the start of the main data and the scalefactors are read before every operation,
+ * it is not included in the result, see Jbenchmark.
+ * III_hybrid transforms the dequantized and antialiased granule: dct36 for the long blocks, dct12 for the short blocks.
+ * synth_1to1 synthesizes a granule of the two channels by synth_1to1_granule, as decode_layer3_frame does.
+ *
+ * Options: see Jharness.
+ */
+public final class Jdecoder_stages_bench {
+	/** sample rate, mode, vbr mode, quality, bitrate (or VBR quality), see Jencoder_bench */
+	private static final int SETTINGS[][] = {
+			{ 44100, Jlame.JOINT_STEREO, Jlame.vbr_off, 5, 128 },
+			{ 44100, Jlame.JOINT_STEREO, Jlame.vbr_off, 2, 320 },
+			{ 44100, Jlame.JOINT_STEREO, Jlame.vbr_mtrh, 2, 2 },
+			{ 22050, Jlame.JOINT_STEREO, Jlame.vbr_off, 5, 64 },
+			{ 11025, Jlame.MONO, Jlame.vbr_off, 5, 24 }
+		};
+	private static final String STAGES[] = {
+			"III_dequantize_sample long", "III_dequantize_sample short", "III_hybrid long", "III_hybrid short"
+		};
+	private static final int SECONDS = 2;
+	/** the frames before, the bit reservoir is used */
+	private static final int SKIP_FRAMES = 10;
+
+	/** the decoder state at the first granule of the first channel of a frame */
+	private static final class Jgranule {
+		private final Jmpstr_tag mp;
+		private final Jgr_info gr_infos;
+		/** the start of the main data in mp.wordbuf */
+		private final int main_data;
+		private final int scf[] = new int[39];
+		private final float xr[] = new float[Jmpg123.SBLIMIT * Jmpg123.SSLIMIT];
+		private int part2bits;
+		//
+		/**
+		 * Decodes the stream up to the frame.
+		 * @return null if the stream has no frame with the block type
+		 */
+		private static final Jgranule create(final byte[] mp3, final boolean short_blocks) {
+			final Jmpstr_tag mp = new Jmpstr_tag();
+			mp.InitMP3();
+			final Jframe header = new Jframe();
+			final byte[] in = new byte[Jmpg123.MAXFRAMESIZE + 4];
+			final short[] out = new short[1152 * 2];
+			final int[] done = new int[1];
+			for( int offset = 0, frame = 0; offset + 4 <= mp3.length; frame++ ) {
+				final int head = ((mp3[offset] & 0xff) << 24) | ((mp3[offset + 1] & 0xff) << 16)
+						| ((mp3[offset + 2] & 0xff) << 8) | (mp3[offset + 3] & 0xff);
+				if( ! header.decode_header( mp, head ) ) {
+					return null;
+				}
+				final int size = Math.min( header.framesize + 4, mp3.length - offset );
+				int n = size;
+				if( frame >= SKIP_FRAMES ) {
+					/* the header and the side information only */
+					n = 4 + (header.lsf != 0 ? (header.stereo == 1 ? 9 : 17) : (header.stereo == 1 ? 17 : 32));
+				}
+				System.arraycopy( mp3, offset, in, 0, n );
+				int ret = mp.decodeMP3( in, n, out, out.length, done );
+				final boolean found = n < size && ret == Jmpg123.MP3_NEED_MORE && mp.side_parsed && mp.dsize > 0
+						&& (mp.sideinfo.ch[0].gr[0].block_type == 2) == short_blocks;
+				final int main_data = mp.wordpointer - mp.sideinfo.main_data_begin;
+				if( n < size ) {
+					System.arraycopy( mp3, offset + n, in, 0, size - n );
+					ret = mp.decodeMP3( in, size - n, out, out.length, done );
+				}
+				while( ret == Jmpg123.MP3_OK ) {
+					ret = mp.decodeMP3( null, 0, out, out.length, done );
+				}
+				if( ret == Jmpg123.MP3_ERR ) {
+					throw new IllegalStateException("decodeMP3 failed");
+				}
+				if( found ) {
+					return new Jgranule( mp, main_data );
+				}
+				offset += size;
+			}
+			return null;
+		}
+
+		private Jgranule(final Jmpstr_tag mp, final int main_data) {
+			this.mp = mp;
+			this.gr_infos = mp.sideinfo.ch[0].gr[0];
+			this.main_data = main_data;
+		}
+
+		/** sets the bit pointer to the start of the main data and reads the scalefactors */
+		private final void scale_factors() {
+			final Jmpstr_tag m = this.mp;// java
+			m.wordbuf = m.bsspace[m.bsnum];
+			m.wordpointer = this.main_data;
+			m.bitindex = 0;
+			this.part2bits = m.fr.lsf != 0 ?
+					Jlayer3.III_get_scale_factors_2( m, this.scf, this.gr_infos, false ) :
+					Jlayer3.III_get_scale_factors_1( m, this.scf, this.gr_infos );
+		}
+
+		private final boolean dequantize() {
+			return Jlayer3.III_dequantize_sample( this.mp, this.xr, this.scf, this.gr_infos, this.mp.fr.sampling_frequency, this.part2bits );
+		}
+	}
+
+	private static final int bits(final float v) {
+		return Float.floatToRawIntBits( v );
+	}
+
+	/** @return the benchmark of the stage, or null if the stream has no frame for the stage */
+	private static final Jbenchmark create(final int stage, final String name, final byte[] mp3) {
+		final Jgranule s = Jgranule.create( mp3, (stage & 1) != 0 );
+		if( s == null ) {
+			return null;
+		}
+		switch( stage ) {
+		case 0:
+		case 1:
+			return new Jbenchmark( name ) {
+				@Override
+				public boolean reset() {
+					s.scale_factors();
+					return true;
+				}
+				@Override
+				public int run() {
+					return (s.dequantize() ? 1 : 0) + s.gr_infos.maxb + bits( s.xr[0] );
+				}
+			};
+		case 2:
+		case 3:
+			s.scale_factors();
+			s.dequantize();
+			Jlayer3.III_antialias( s.xr, s.gr_infos );
+			return new Jbenchmark( name ) {
+				private final float out[] = new float[Jmpg123.SSLIMIT * Jmpg123.SBLIMIT];
+				@Override
+				public int run() {
+					Jlayer3.III_hybrid( s.mp, s.xr, this.out, 0, s.gr_infos );
+					return bits( this.out[Jmpg123.SBLIMIT + 1] );
+				}
+			};
+		}
+		return null;
+	}
+
+	/** synthesis of a granule of the two channels, as decode_layer3_frame does */
+	private static final class Jsynth extends Jbenchmark {
+		private final Jmpstr_tag mp = new Jmpstr_tag();
+		private final Isynth synth;
+		private final Object out;
+		private final float band[][] = new float[2][Jmpg123.SSLIMIT * Jmpg123.SBLIMIT];
+		private final int pnt[] = new int[1];
+		private final int p1[] = new int[1];
+		//
+		private Jsynth(final String name, final boolean unclipped) {
+			super( name );
+			this.mp.InitMP3();
+			this.synth = unclipped ? new DecodeUnclipped() : new Decode();
+			this.out = unclipped ? (Object)new float[1152 * 2] : (Object)new short[1152 * 2];
+			int seed = 0x12345678;
+			for( int ch = 0; ch < 2; ch++ ) {
+				final float[] b = this.band[ch];
+				for( int i = 0; i < b.length; i++ ) {/* falls with the subband */
+					seed = seed * 1103515245 + 12345;
+					b[i] = (float)(seed >> 8) / (1 << 23) * 8000.f / (1 + (i % Jmpg123.SBLIMIT));
+				}
+			}
+		}
+
+		@Override
+		public int run() {
+			final int[] p = this.pnt;// java
+			p[0] = 0;
+			int clip = 0;
+			this.p1[0] = p[0];
+			clip += this.synth.synth_1to1_granule( this.mp, this.band[0], 0, this.out, this.p1 );
+			clip += this.synth.synth_1to1_granule( this.mp, this.band[1], 1, this.out, p );
+			return clip + p[0];
+		}
+	}
+
+	/**
+	 * main.
+	 * @param args options of Jharness
+	 */
+	public static final void main(final String[] args) {
+		final Jharness harness = new Jharness( args );
+		harness.header();
+		for( final int[] settings : SETTINGS ) {
+			byte[] mp3 = null;
+			for( int stage = 0; stage < STAGES.length; stage++ ) {
+				final String name = STAGES[stage] + " " + Jencoder_bench.name( settings );
+				if( harness.matches( name ) ) {
+					if( mp3 == null ) {
+						mp3 = Jdecoder_bench.encode( settings, SECONDS );
+					}
+					final Jbenchmark b = create( stage, name, mp3 );
+					if( b != null ) {
+						harness.measure( b );
+					}
+				}
+			}
+		}
+		harness.measure( new Jsynth("synth_1to1 /granule", false ) );
+		harness.measure( new Jsynth("synth_1to1 unclipped /granule", true ) );
+	}
+}
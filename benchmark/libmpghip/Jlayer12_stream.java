@@ -0,0 +1,309 @@
+package libmpghip;
+
+/**
+ * Generator of the Layer I and Layer II test streams.
+ *
+ * The repository has no Layer I and Layer II encoder, so the decoder benchmarks use the streams
+ * with the valid syntax and pseudo random content. The bit allocation falls with the subband
+ * and is reduced until the frame fits the bitrate, the scalefactors and the samples come from
+ * a fixed linear congruential generator, the stream is the same on every run.
+ * The sound is noise, but the decoder does the same work per frame as with an encoded stream.
+ * No CRC, no padding, the rest of the frame is filled by zero bits.
+ */
+public final class Jlayer12_stream {
+	/** Layer I, 4 + mode_ext * 4 subbands are coded in stereo */
+	private static final int MODE_EXT = 2;
+	/** number of the scalefactors for the scfsi values */
+	private static final int SCF_COUNT[] = { 3, 2, 1, 2 };
+	//
+	private final Jframe fr = new Jframe();
+	private final int jsbound;
+	private final byte[] buf;
+	private int bitpos;
+	private int seed = 0x2545F491;
+	private final int alloc[][] = new int[Jmpg123.SBLIMIT][2];
+	private final int scfsi[][] = new int[Jmpg123.SBLIMIT][2];
+	//
+	private Jlayer12_stream(final int layer, final int sfreq, final int bitrate_index, final int mode, final byte[] buf) {
+		final Jframe frame = this.fr;
+		frame.lay = layer;
+		frame.lsf = sfreq >= 3 ? 1 : 0;
+		frame.sampling_frequency = sfreq;
+		frame.bitrate_index = bitrate_index;
+		frame.mode = mode;
+		frame.mode_ext = mode == Jmpg123.MPG_MD_JOINT_STEREO ? MODE_EXT : 0;
+		frame.stereo = mode == Jmpg123.MPG_MD_MONO ? 1 : 2;
+		int bound = Jmpg123.SBLIMIT;
+		if( layer == 2 ) {
+			Jlayer2.II_select_table( frame );
+			bound = frame.II_sblimit;
+		}
+		if( mode == Jmpg123.MPG_MD_JOINT_STEREO ) {
+			final int b = (frame.mode_ext << 2) + 4;
+			bound = b < bound ? b : bound;
+		}
+		this.jsbound = bound;
+		this.buf = buf;
+	}
+
+	/**
+	 * @param layer 1 or 2
+	 * @param sample_rate MPEG-1 or MPEG-2 sample rate
+	 * @param mode the header mode: 0 stereo, 1 joint stereo, 2 dual channel, 3 mono. The same as Jlame.MPEG_mode
+	 * @param bitrate kbps, one of the bitrates of the layer
+	 * @param frames number of the frames
+	 * @return the stream
+	 * @throws IllegalArgumentException if the parameters are not valid for the layer
+	 */
+	public static final byte[] generate(final int layer, final int sample_rate, final int mode, final int bitrate, final int frames) {
+		if( layer != 1 && layer != 2 ) {
+			throw new IllegalArgumentException("layer " + layer );
+		}
+		if( mode < 0 || mode > Jmpg123.MPG_MD_MONO ) {
+			throw new IllegalArgumentException("mode " + mode );
+		}
+		int sfreq = 0;
+		while( sfreq < 6 && Jmpstr_tag.freqs[sfreq] != sample_rate ) {
+			sfreq++;
+		}
+		if( sfreq == 6 ) {/* MPEG-2.5 is Layer III only */
+			throw new IllegalArgumentException("sample rate " + sample_rate );
+		}
+		final int lsf = sfreq >= 3 ? 1 : 0;
+		final int[] rates = Jmpstr_tag.tabsel_123[lsf][layer - 1];
+		int bitrate_index = 1;
+		while( bitrate_index < rates.length && rates[bitrate_index] != bitrate ) {
+			bitrate_index++;
+		}
+		if( bitrate_index == rates.length ) {
+			throw new IllegalArgumentException("bitrate " + bitrate );
+		}
+		final int frame_bytes = layer == 1 ?
+				(rates[bitrate_index] * 12000 / sample_rate) << 2 :
+				rates[bitrate_index] * 144000 / sample_rate;
+
+		final Jlayer12_stream s = new Jlayer12_stream( layer, sfreq, bitrate_index, mode, new byte[frame_bytes * frames] );
+		final int header = 0xffe00000 | (1 << 20) | ((1 - lsf) << 19) | ((4 - layer) << 17)
+				| (1 << 16)/* no CRC */ | (bitrate_index << 12) | ((sfreq % 3) << 10)
+				| (mode << 6) | (s.fr.mode_ext << 4) | (1 << 2)/* original */;
+		final int budget = (frame_bytes << 3) - 32;
+		for( int i = 0; i < frames; i++ ) {
+			s.bitpos = (i * frame_bytes) << 3;
+			s.putbits( header, 32 );
+			if( layer == 1 ) {
+				s.write_layer1( budget );
+			} else {
+				s.write_layer2( budget );
+			}
+		}
+		return s.buf;
+	}
+
+	private final void putbits(final int val, int nbits) {
+		final byte[] b = this.buf;// java
+		while( nbits > 0 ) {
+			final int pos = this.bitpos >> 3;
+			final int free = 8 - (this.bitpos & 7);
+			final int n = nbits < free ? nbits : free;
+			nbits -= n;
+			b[pos] |= (byte)(((val >>> nbits) & ((1 << n) - 1)) << (free - n));
+			this.bitpos += n;
+		}
+	}
+
+	/** @return a pseudo random value 0 .. n - 1 */
+	private final int random(final int n) {
+		this.seed = this.seed * 1103515245 + 12345;
+		return (this.seed >>> 8) % n;
+	}
+
+	/** louder low subbands */
+	private final int scalefactor(final int sb) {
+		return 8 + (sb >> 1) + random( 12 );
+	}
+
+	/**
+	 * Decrements the largest allocation, the higher subband on ties.
+	 * The subbands above jsbound share the allocation of the first channel.
+	 * @return false if nothing is allocated
+	 */
+	private final boolean reduce(final int sblimit) {
+		int max = 0, max_sb = -1, max_ch = 0;
+		for( int sb = 0; sb < sblimit; sb++ ) {
+			final int nch = sb < this.jsbound ? this.fr.stereo : 1;
+			for( int ch = 0; ch < nch; ch++ ) {
+				if( this.alloc[sb][ch] >= max && this.alloc[sb][ch] > 0 ) {
+					max = this.alloc[sb][ch];
+					max_sb = sb;
+					max_ch = ch;
+				}
+			}
+		}
+		if( max_sb < 0 ) {
+			return false;
+		}
+		this.alloc[max_sb][max_ch]--;
+		if( max_sb >= this.jsbound ) {
+			this.alloc[max_sb][1] = this.alloc[max_sb][0];
+		}
+		return true;
+	}
+
+	private final int layer1_bits() {
+		final int nch = this.fr.stereo;
+		int bits = 0;
+		for( int sb = 0; sb < Jmpg123.SBLIMIT; sb++ ) {
+			if( sb < this.jsbound ) {
+				for( int ch = 0; ch < nch; ch++ ) {
+					final int a = this.alloc[sb][ch];
+					bits += a != 0 ? 4 + 6 + 12 * (a + 1) : 4;
+				}
+			} else {
+				final int a = this.alloc[sb][0];
+				bits += a != 0 ? 4 + 6 * nch + 12 * (a + 1) : 4;
+			}
+		}
+		return bits;
+	}
+
+	private final void write_layer1(final int budget) {
+		final int nch = this.fr.stereo;
+		final int[][] a = this.alloc;// java
+		for( int sb = 0; sb < Jmpg123.SBLIMIT; sb++ ) {
+			for( int ch = 0; ch < nch; ch++ ) {
+				final int v = 14 - (sb >> 1) - random( 3 );
+				a[sb][ch] = v > 0 ? v : 0;
+			}
+			if( sb >= this.jsbound ) {
+				a[sb][1] = a[sb][0];
+			}
+		}
+		while( layer1_bits() > budget && reduce( Jmpg123.SBLIMIT ) ) {
+		}
+
+		for( int sb = 0; sb < Jmpg123.SBLIMIT; sb++ ) {
+			if( sb < this.jsbound ) {
+				for( int ch = 0; ch < nch; ch++ ) {
+					putbits( a[sb][ch], 4 );
+				}
+			} else {
+				putbits( a[sb][0], 4 );
+			}
+		}
+		for( int sb = 0; sb < Jmpg123.SBLIMIT; sb++ ) {
+			for( int ch = 0; ch < nch; ch++ ) {
+				if( a[sb][ch] != 0 ) {
+					putbits( scalefactor( sb ), 6 );
+				}
+			}
+		}
+		for( int s = 0; s < Jmpg123.SCALE_BLOCK; s++ ) {
+			for( int sb = 0; sb < Jmpg123.SBLIMIT; sb++ ) {
+				final int n = sb < this.jsbound ? nch : 1;
+				for( int ch = 0; ch < n; ch++ ) {
+					final int v = a[sb][ch];
+					if( v != 0 ) {/* n + 1 bits, all ones is not allowed */
+						putbits( random( (1 << (v + 1)) - 1 ), v + 1 );
+					}
+				}
+			}
+		}
+	}
+
+	/** @return bits of the 3 samples */
+	private static final int sample_bits(final Jal_table2 q) {
+		return q.d < 0 ? 3 * q.bits : q.bits;
+	}
+
+	private final int layer2_bits() {
+		final Jal_table2[] fr_alloc = this.fr.alloc;
+		final int nch = this.fr.stereo;
+		int bits = 0;
+		int alloc1 = 0;
+		for( int sb = 0; sb < this.fr.II_sblimit; sb++ ) {
+			final int step = fr_alloc[alloc1].bits;
+			final int n = sb < this.jsbound ? nch : 1;
+			for( int ch = 0; ch < n; ch++ ) {
+				bits += step;
+				final int a = this.alloc[sb][ch];
+				if( a != 0 ) {
+					bits += Jmpg123.SCALE_BLOCK * sample_bits( fr_alloc[alloc1 + a] );
+				}
+			}
+			for( int ch = 0; ch < nch; ch++ ) {
+				if( this.alloc[sb][ch] != 0 ) {
+					bits += 2 + 6 * SCF_COUNT[this.scfsi[sb][ch]];
+				}
+			}
+			alloc1 += 1 << step;
+		}
+		return bits;
+	}
+
+	private final void write_layer2(final int budget) {
+		final Jal_table2[] fr_alloc = this.fr.alloc;
+		final int sblimit = this.fr.II_sblimit;
+		final int nch = this.fr.stereo;
+		final int[][] a = this.alloc;// java
+		for( int sb = 0, alloc1 = 0; sb < sblimit; sb++ ) {
+			final int step = fr_alloc[alloc1].bits;
+			for( int ch = 0; ch < nch; ch++ ) {
+				final int v = (1 << step) - 1 - (sb >> 2) - random( 2 );
+				a[sb][ch] = v > 0 ? v : 0;
+				this.scfsi[sb][ch] = random( 4 );
+			}
+			if( sb >= this.jsbound ) {
+				a[sb][1] = a[sb][0];
+			}
+			alloc1 += 1 << step;
+		}
+		while( layer2_bits() > budget && reduce( sblimit ) ) {
+		}
+
+		for( int sb = 0, alloc1 = 0; sb < sblimit; sb++ ) {
+			final int step = fr_alloc[alloc1].bits;
+			final int n = sb < this.jsbound ? nch : 1;
+			for( int ch = 0; ch < n; ch++ ) {
+				putbits( a[sb][ch], step );
+			}
+			alloc1 += 1 << step;
+		}
+		for( int sb = 0; sb < sblimit; sb++ ) {
+			for( int ch = 0; ch < nch; ch++ ) {
+				if( a[sb][ch] != 0 ) {
+					putbits( this.scfsi[sb][ch], 2 );
+				}
+			}
+		}
+		for( int sb = 0; sb < sblimit; sb++ ) {
+			for( int ch = 0; ch < nch; ch++ ) {
+				if( a[sb][ch] != 0 ) {
+					for( int i = SCF_COUNT[this.scfsi[sb][ch]]; i > 0; i-- ) {
+						putbits( scalefactor( sb ), 6 );
+					}
+				}
+			}
+		}
+		for( int gr = 0; gr < Jmpg123.SCALE_BLOCK; gr++ ) {
+			for( int sb = 0, alloc1 = 0; sb < sblimit; sb++ ) {
+				final int step = fr_alloc[alloc1].bits;
+				final int n = sb < this.jsbound ? nch : 1;
+				for( int ch = 0; ch < n; ch++ ) {
+					final int v = a[sb][ch];
+					if( v != 0 ) {
+						final Jal_table2 q = fr_alloc[alloc1 + v];
+						if( q.d < 0 ) {/* all ones is not allowed */
+							final int max = (1 << q.bits) - 1;
+							putbits( random( max ), q.bits );
+							putbits( random( max ), q.bits );
+							putbits( random( max ), q.bits );
+						} else {/* grouped samples */
+							putbits( random( q.d * q.d * q.d ), q.bits );
+						}
+					}
+				}
+				alloc1 += 1 << step;
+			}
+		}
+	}
+}
@@ -0,0 +1,110 @@
+package examples;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Random;
+
+import libmp3lame.Jlame;
+import libmp3lame.Jlame_global_flags;
+
+/**
+ * Allocation check of the encoder.
+ * Encodes a generated signal with several settings and measures the memory, allocated by the encoding thread,
+ * after the encoder is warmed up. A steady-state encode must not allocate memory per frame.
+ * Needs a JVM with com.sun.management.ThreadMXBean.
+ */
+public final class Jalloc {
+	/** sample rate, channels, vbr mode, quality, bitrate */
+	private static final int SETTINGS[][] = {
+			{ 44100, 2, Jlame.vbr_off, 5, 128 },
+			{ 44100, 2, Jlame.vbr_off, 2, 320 },
+			{ 44100, 2, Jlame.vbr_abr, 3, 160 },
+			{ 44100, 2, Jlame.vbr_mtrh, 0, 0 },
+			{ 44100, 2, Jlame.vbr_mtrh, 4, 0 },
+			{ 44100, 2, Jlame.vbr_rh, 3, 0 },
+			{ 48000, 1, Jlame.vbr_mtrh, 2, 0 },
+			{ 32000, 2, Jlame.vbr_off, 7, 96 }
+		};
+	private static final int SECONDS = 5;
+	private static final int FRAME_SIZE = 1152;
+
+	private static final short[][] createSignal(final int sampleRate) {
+		final int n = sampleRate * SECONDS;
+		final short[][] s = new short[2][n];
+		final Random r = new Random( sampleRate );
+		for( int i = 0; i < n; i++ ) {
+			final double t = (double)i / sampleRate;
+			final double env = 0.5 + 0.5 * Math.sin( 2 * Math.PI * 0.7 * t );
+			final double a = 8000 * Math.sin( 2 * Math.PI * 440 * t ) * env + 1500 * r.nextGaussian();
+			final double b = 7000 * Math.sin( 2 * Math.PI * 660 * t ) + 2500 * Math.sin( 2 * Math.PI * 3000 * t ) * env;
+			s[0][i] = (short)Math.max( -32768, Math.min( 32767, a ) );
+			s[1][i] = (short)Math.max( -32768, Math.min( 32767, b ) );
+		}
+		return s;
+	}
+
+	private static final Jlame_global_flags init(final int[] settings) {
+		final Jlame_global_flags gf = Jlame.lame_init();
+		gf.lame_set_num_channels( settings[1] );
+		gf.lame_set_out_samplerate( settings[0] );
+		gf.lame_set_VBR( settings[2] );
+		if( settings[2] == Jlame.vbr_off ) {
+			gf.lame_set_brate( settings[4] );
+		} else if( settings[2] == Jlame.vbr_abr ) {
+			gf.lame_set_VBR_mean_bitrate_kbps( settings[4] );
+		} else {
+			gf.lame_set_VBR_quality( settings[3] );
+		}
+		gf.lame_set_quality( settings[3] );
+		gf.lame_set_write_id3tag_automatic( false );
+		if( Jlame.lame_init_params( gf ) < 0 ) {
+			throw new IllegalStateException("lame_init_params failed");
+		}
+		return gf;
+	}
+
+	/**
+	 * main.
+	 * @param args [rounds]
+	 */
+	public static final void main(final String[] args) {
+		final int rounds = args.length > 0 ? Integer.parseInt( args[0] ) : 5;
+		final com.sun.management.ThreadMXBean mx = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+		final long thread = Thread.currentThread().getId();
+		final byte[] mp3buffer = new byte[16384];
+		final short[] l = new short[FRAME_SIZE];
+		final short[] r = new short[FRAME_SIZE];
+		int errors = 0;
+		for( final int[] settings : SETTINGS ) {
+			final short[][] pcm = createSignal( settings[0] );
+			final Jlame_global_flags gf = init( settings );
+			final int n = pcm[0].length;
+			/* the first round warms up, the minimum of the others is taken to skip the JIT noise */
+			long min = Long.MAX_VALUE;
+			int frames = 0;
+			for( int round = 0; round <= rounds; round++ ) {
+				final long before = mx.getThreadAllocatedBytes( thread );
+				frames = 0;
+				for( int offset = 0; offset + FRAME_SIZE <= n; offset += FRAME_SIZE ) {
+					System.arraycopy( pcm[0], offset, l, 0, FRAME_SIZE );
+					System.arraycopy( pcm[1], offset, r, 0, FRAME_SIZE );
+					if( Jlame.lame_encode_buffer( gf, l, r, FRAME_SIZE, mp3buffer, 0, mp3buffer.length ) < 0 ) {
+						throw new IllegalStateException("lame_encode_buffer failed");
+					}
+					frames++;
+				}
+				final long bytes = mx.getThreadAllocatedBytes( thread ) - before;
+				if( round > 0 && bytes < min ) {
+					min = bytes;
+				}
+			}
+			Jlame.lame_close( gf );
+			System.out.printf("%s: %d bytes per %d frames\n", Arrays.toString( settings ), min, frames );
+			if( min != 0 ) {
+				errors++;
+			}
+		}
+		System.out.println( errors == 0 ? "Done. No allocations in the steady state." : "Failed: " + errors + " settings allocate memory." );
+		System.exit( errors == 0 ? 0 : 1 );
+	}
+}
@@ -0,0 +1,240 @@
+package examples;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+import libmp3lame.Jlame;
+import libmp3lame.Jlame_global_flags;
+import libmpghip.Jmpg123;
+import libmpghip.Jmpstr_tag;
+
+/**
+ * Allocation check of the decoder.
+ * Encodes a generated signal with several settings, generates Layer I and Layer II streams,
+ * then decodes the streams by Jmpstr_tag.decodeMP3
+ * and Jmpstr_tag.decodeMP3_unclipped and measures the memory, allocated by the decoding thread,
+ * after the decoder is warmed up. The stream is passed again and again to the same decoder,
+ * so every round decodes the same frames in the steady state. It must not allocate memory.
+ * Needs a JVM with com.sun.management.ThreadMXBean.
+ */
+public final class Jalloc_decoder {
+	/** Layer III: sample rate, channels, vbr mode, quality, bitrate */
+	private static final int SETTINGS[][] = {
+			{ 44100, 2, Jlame.vbr_off, 5, 128 },
+			{ 44100, 2, Jlame.vbr_off, 2, 320 },
+			{ 44100, 1, Jlame.vbr_mtrh, 2, 0 },
+			{ 48000, 2, Jlame.vbr_mtrh, 0, 0 },
+			{ 32000, 2, Jlame.vbr_abr, 5, 96 },
+			{ 48000, 1, Jlame.vbr_off, 7, 64 }
+		};
+	/** layer, channels, bitrate of the generated Layer I and Layer II streams, 48 kHz */
+	private static final int LAYER12[][] = {
+			{ 1, 2, 384 },
+			{ 1, 1, 192 },
+			{ 2, 2, 384 },
+			{ 2, 1, 192 }
+		};
+	private static final int SECONDS = 5;
+	/** the input is passed in chunks, which are not aligned to the frames */
+	private static final int CHUNK_SIZE = 417;
+
+	private static final byte[] encode(final int[] settings) {
+		final int n = settings[0] * SECONDS;
+		final short[][] pcm = new short[2][n];
+		for( int i = 0; i < n; i++ ) {
+			final double t = (double)i / settings[0];
+			pcm[0][i] = (short)(8000 * Math.sin( 2 * Math.PI * 440 * t ) * (0.5 + 0.5 * Math.sin( 2 * Math.PI * 0.7 * t )));
+			pcm[1][i] = (short)(7000 * Math.sin( 2 * Math.PI * 660 * t ) + 2500 * Math.sin( 2 * Math.PI * 3000 * t ));
+		}
+		final Jlame_global_flags gf = Jlame.lame_init();
+		gf.lame_set_num_channels( settings[1] );
+		gf.lame_set_out_samplerate( settings[0] );
+		gf.lame_set_VBR( settings[2] );
+		if( settings[2] == Jlame.vbr_off ) {
+			gf.lame_set_brate( settings[4] );
+		} else if( settings[2] == Jlame.vbr_abr ) {
+			gf.lame_set_VBR_mean_bitrate_kbps( settings[4] );
+		} else {
+			gf.lame_set_VBR_quality( settings[3] );
+		}
+		gf.lame_set_quality( settings[3] );
+		/* no Xing frame, the stream is repeated */
+		gf.lame_set_bWriteVbrTag( false );
+		if( Jlame.lame_init_params( gf ) < 0 ) {
+			throw new IllegalStateException("lame_init_params failed");
+		}
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		final byte[] mp3buffer = new byte[(int)(1.25 * n) + 7200];
+		int size = Jlame.lame_encode_buffer( gf, pcm[0], pcm[1], n, mp3buffer, 0, mp3buffer.length );
+		out.write( mp3buffer, 0, size );
+		size = Jlame.lame_encode_flush( gf, mp3buffer, mp3buffer.length );
+		out.write( mp3buffer, 0, size );
+		Jlame.lame_close( gf );
+		return out.toByteArray();
+	}
+
+	/** the bit writer of generate */
+	private static final class Jbits {
+		private final byte[] buf;
+		private int pos;
+		private int seed = 0x2545F491;
+		private Jbits(final byte[] buf) {
+			this.buf = buf;
+		}
+		private final void put(final int val, int nbits) {
+			while( nbits > 0 ) {
+				final int free = 8 - (this.pos & 7);
+				final int n = nbits < free ? nbits : free;
+				nbits -= n;
+				this.buf[this.pos >> 3] |= (byte)(((val >>> nbits) & ((1 << n) - 1)) << (free - n));
+				this.pos += n;
+			}
+		}
+		/** @return a pseudo random value 0 .. n - 1 */
+		private final int random(final int n) {
+			this.seed = this.seed * 1103515245 + 12345;
+			return (this.seed >>> 8) % n;
+		}
+	}
+
+	/**
+	 * Generates a Layer I or Layer II stream, 48 kHz, stereo or mono, no CRC.
+	 * The repository has no Layer I and Layer II encoder, the samples are pseudo random.
+	 * Layer I: 16 subbands with 4 bit samples. Layer II: the table of 27 subbands
+	 * of the 48 kHz bitrates, every subband has the allocation 1, grouped samples of 3 levels, 5 bits.
+	 */
+	private static final byte[] generate(final int[] settings) {
+		final int layer = settings[0];
+		final int channels = settings[1];
+		final int bitrate = settings[2];
+		final int frame_bytes = layer == 1 ? (bitrate * 12000 / 48000) << 2 : bitrate * 144000 / 48000;
+		final int frames = 48000 * SECONDS / (layer == 1 ? 384 : 1152);
+		final int bitrate_index = Arrays.binarySearch( layer == 1 ?
+				new int[] { 0, 32, 64, 96, 128, 160, 192, 224, 256, 288, 320, 352, 384, 416, 448 } :
+				new int[] { 0, 32, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320, 384 }, bitrate );
+		/* sync, MPEG-1, layer, no CRC, bitrate, 48 kHz, stereo or mono */
+		final int header = 0xfff00000 | (1 << 19) | ((4 - layer) << 17) | (1 << 16)
+				| (bitrate_index << 12) | (1 << 10) | ((channels == 1 ? 3 : 0) << 6);
+		final Jbits b = new Jbits( new byte[frame_bytes * frames] );
+		for( int f = 0; f < frames; f++ ) {
+			b.pos = (f * frame_bytes) << 3;
+			b.put( header, 32 );
+			if( layer == 1 ) {
+				for( int sb = 0; sb < 32; sb++ ) {
+					for( int ch = 0; ch < channels; ch++ ) {
+						b.put( sb < 16 ? 3 : 0, 4 );
+					}
+				}
+				for( int sb = 0; sb < 16; sb++ ) {
+					for( int ch = 0; ch < channels; ch++ ) {
+						b.put( 10 + b.random( 40 ), 6 );
+					}
+				}
+				for( int s = 0; s < 12; s++ ) {
+					for( int sb = 0; sb < 16; sb++ ) {
+						for( int ch = 0; ch < channels; ch++ ) {
+							b.put( b.random( 15 ), 4 );
+						}
+					}
+				}
+			} else {
+				/* the allocation bits of the subbands of the table */
+				for( int sb = 0; sb < 27; sb++ ) {
+					for( int ch = 0; ch < channels; ch++ ) {
+						b.put( 1, sb < 11 ? 4 : (sb < 23 ? 3 : 2) );
+					}
+				}
+				/* scfsi 0: 3 scalefactors */
+				b.pos += 27 * channels * 2;
+				for( int sb = 0; sb < 27; sb++ ) {
+					for( int ch = 0; ch < channels; ch++ ) {
+						for( int i = 0; i < 3; i++ ) {
+							b.put( 10 + b.random( 40 ), 6 );
+						}
+					}
+				}
+				for( int s = 0; s < 12; s++ ) {
+					for( int sb = 0; sb < 27; sb++ ) {
+						for( int ch = 0; ch < channels; ch++ ) {
+							b.put( b.random( 27 ), 5 );
+						}
+					}
+				}
+			}
+		}
+		return b.buf;
+	}
+
+	/**
+	 * Passes the stream to the decoder.
+	 * @return number of the decoded frames
+	 */
+	private static final int decode(final Jmpstr_tag decoder, final byte[] mp3, final boolean unclipped,
+			final byte[] in, final short[] out, final float[] out_unclipped, final int[] done)
+	{
+		int frames = 0;
+		for( int offset = 0; offset < mp3.length; offset += CHUNK_SIZE ) {
+			final int size = Math.min( CHUNK_SIZE, mp3.length - offset );
+			System.arraycopy( mp3, offset, in, 0, size );
+			int ret = unclipped ?
+					decoder.decodeMP3_unclipped( in, size, out_unclipped, out_unclipped.length, done ) :
+					decoder.decodeMP3( in, size, out, out.length, done );
+			while( ret == Jmpg123.MP3_OK ) {
+				frames++;
+				ret = unclipped ?
+						decoder.decodeMP3_unclipped( null, 0, out_unclipped, out_unclipped.length, done ) :
+						decoder.decodeMP3( null, 0, out, out.length, done );
+			}
+			if( ret == Jmpg123.MP3_ERR ) {
+				throw new IllegalStateException("decodeMP3 failed");
+			}
+		}
+		return frames;
+	}
+
+	/**
+	 * main.
+	 * @param args [rounds]
+	 */
+	public static final void main(final String[] args) {
+		final int rounds = args.length > 0 ? Integer.parseInt( args[0] ) : 5;
+		final com.sun.management.ThreadMXBean mx = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+		final long thread = Thread.currentThread().getId();
+		final byte[] in = new byte[CHUNK_SIZE];
+		final short[] out = new short[1152 * 2];
+		final float[] out_unclipped = new float[1152 * 2];
+		final int[] done = new int[1];
+		int errors = 0;
+		final int count = SETTINGS.length + LAYER12.length;
+		for( int k = 0; k < count; k++ ) {
+			final boolean is_layer3 = k < SETTINGS.length;
+			final int[] settings = is_layer3 ? SETTINGS[k] : LAYER12[k - SETTINGS.length];
+			final byte[] mp3 = is_layer3 ? encode( settings ) : generate( settings );
+			final String name = (is_layer3 ? "" : "layer" + settings[0] + " ") + Arrays.toString( settings );
+			for( int u = 0; u < 2; u++ ) {
+				final boolean unclipped = u != 0;
+				final Jmpstr_tag decoder = new Jmpstr_tag();
+				decoder.InitMP3();
+				/* the first round warms up, the minimum of the others is taken to skip the JIT noise */
+				long min = Long.MAX_VALUE;
+				int frames = 0;
+				for( int round = 0; round <= rounds; round++ ) {
+					final long before = mx.getThreadAllocatedBytes( thread );
+					frames = decode( decoder, mp3, unclipped, in, out, out_unclipped, done );
+					final long bytes = mx.getThreadAllocatedBytes( thread ) - before;
+					if( round > 0 && bytes < min ) {
+						min = bytes;
+					}
+				}
+				decoder.ExitMP3();
+				System.out.printf("%s%s: %d bytes per %d frames\n", name, unclipped ? " unclipped" : "", min, frames );
+				if( min != 0 ) {
+					errors++;
+				}
+			}
+		}
+		System.out.println( errors == 0 ? "Done. No allocations in the steady state." : "Failed: " + errors + " settings allocate memory." );
+		System.exit( errors == 0 ? 0 : 1 );
+	}
+}
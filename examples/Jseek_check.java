@@ -0,0 +1,171 @@
+package examples;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Random;
+
+import libmp3lame.Jlame;
+import libmp3lame.Jlame_global_flags;
+import libmpghip.Jmpg123;
+
+/**
+ * Seek check of the decoder.
+ * Encodes a generated signal with several settings, CBR, VBR and ABR, with and without the Xing frame,
+ * decodes the whole stream, then seeks by Jmpg123.seekFast and Jmpg123.seekToSample to a set of samples.
+ * The position, returned by the seek, must not be after the sample and not before the frame of the sample,
+ * and the output after the seek must be the same as the output of the decoding from the start at this position.
+ */
+public final class Jseek_check {
+	/** sample rate, channels, vbr mode, quality, bitrate, Xing frame */
+	private static final int SETTINGS[][] = {
+			{ 44100, 2, Jlame.vbr_off, 5, 128, 1 },
+			{ 44100, 2, Jlame.vbr_off, 5, 128, 0 },
+			{ 22050, 1, Jlame.vbr_off, 5, 64, 1 },
+			{ 44100, 2, Jlame.vbr_mtrh, 2, 0, 1 },
+			{ 44100, 2, Jlame.vbr_mtrh, 2, 0, 0 },
+			{ 32000, 2, Jlame.vbr_mtrh, 5, 0, 1 },
+			{ 24000, 1, Jlame.vbr_mtrh, 4, 0, 1 },
+			{ 48000, 2, Jlame.vbr_abr, 5, 96, 1 }
+		};
+	private static final int SECONDS = 12;
+	/** random samples to seek, the start, the end and after the end are checked too */
+	private static final int SEEKS = 40;
+
+	private static final File encode(final int[] settings) throws IOException {
+		final int n = settings[0] * SECONDS;
+		final short[][] pcm = new short[2][n];
+		for( int i = 0; i < n; i++ ) {
+			final double t = (double)i / settings[0];
+			/* the bitrate of a VBR stream changes with the level */
+			final double level = 0.1 + 0.9 * Math.abs( Math.sin( 2 * Math.PI * 0.3 * t ) );
+			pcm[0][i] = (short)(level * (8000 * Math.sin( 2 * Math.PI * 440 * t ) + 2000 * Math.sin( 2 * Math.PI * 5100 * t )));
+			pcm[1][i] = (short)(level * (7000 * Math.sin( 2 * Math.PI * 660 * t ) + 2500 * Math.sin( 2 * Math.PI * 3000 * t )));
+		}
+		final Jlame_global_flags gf = Jlame.lame_init();
+		gf.lame_set_num_channels( settings[1] );
+		gf.lame_set_out_samplerate( settings[0] );
+		gf.lame_set_VBR( settings[2] );
+		if( settings[2] == Jlame.vbr_off ) {
+			gf.lame_set_brate( settings[4] );
+		} else if( settings[2] == Jlame.vbr_abr ) {
+			gf.lame_set_VBR_mean_bitrate_kbps( settings[4] );
+		} else {
+			gf.lame_set_VBR_quality( settings[3] );
+		}
+		gf.lame_set_quality( settings[3] );
+		gf.lame_set_bWriteVbrTag( settings[5] != 0 );
+		if( Jlame.lame_init_params( gf ) < 0 ) {
+			throw new IllegalStateException("lame_init_params failed");
+		}
+		final File file = File.createTempFile( "seek", ".mp3" );
+		file.deleteOnExit();
+		final RandomAccessFile f = new RandomAccessFile( file, "rw" );
+		try {
+			final byte[] mp3buffer = new byte[(int)(1.25 * n) + 7200];
+			int size = Jlame.lame_encode_buffer( gf, pcm[0], settings[1] == 1 ? null : pcm[1], n, mp3buffer, 0, mp3buffer.length );
+			f.write( mp3buffer, 0, size );
+			size = Jlame.lame_encode_flush( gf, mp3buffer, mp3buffer.length );
+			f.write( mp3buffer, 0, size );
+			if( settings[5] != 0 ) {
+				Jlame.lame_mp3_tags_fid( gf, f );
+			}
+		} finally {
+			f.close();
+		}
+		Jlame.lame_close( gf );
+		return file;
+	}
+
+	/** @return the 16 bit samples of the output */
+	private static final byte[] read(final Jmpg123 decoder) throws IOException {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		final byte[] buf = new byte[8192];
+		int n;
+		while( (n = decoder.read( buf, 0, buf.length )) > 0 ) {
+			out.write( buf, 0, n );
+		}
+		return out.toByteArray();
+	}
+
+	/** @return the number of the errors */
+	private static final int check(final Jmpg123 decoder, final boolean fast, final long sample,
+			final byte[] pcm, final int frame_size, final int block_align) throws IOException {
+		final long total = pcm.length / block_align;
+		final long position = fast ? decoder.seekFast( sample ) : decoder.seekToSample( sample );
+		final byte[] out = read( decoder );
+		final String name = (fast ? "seekFast(" : "seekToSample(") + sample + ") = " + position;
+		if( sample >= total ) {
+			if( position != total || out.length != 0 ) {
+				System.out.println( name + ": the end is " + total + ", " + out.length / block_align + " samples after it" );
+				return 1;
+			}
+			return 0;
+		}
+		if( position > sample || sample - position >= (fast ? frame_size : 1) ) {
+			System.out.println( name + ": not at the " + (fast ? "frame of the sample" : "sample") );
+			return 1;
+		}
+		final int from = (int)position * block_align;
+		if( out.length != pcm.length - from || ! Arrays.equals( out, Arrays.copyOfRange( pcm, from, pcm.length ) ) ) {
+			System.out.println( name + ": the output differs from the decoding from the start at the position" );
+			return 1;
+		}
+		return 0;
+	}
+
+	public static final void main(final String[] args) throws IOException {
+		final Random random = new Random( 1 );
+		int errors = 0;
+		for( int k = 0; k < SETTINGS.length; k++ ) {
+			final int[] settings = SETTINGS[k];
+			final File file = encode( settings );
+			final int block_align = settings[1] * 2;
+			final int frame_size = settings[0] >= 32000 ? 1152 : 576;
+			final RandomAccessFile f = new RandomAccessFile( file, "r" );
+			try {
+				Jmpg123 decoder = new Jmpg123( 16, true, false );
+				decoder.InitMP3();
+				if( decoder.open( f.getChannel() ) != 0 ) {
+					throw new IOException("open failed");
+				}
+				final byte[] pcm = read( decoder );
+				final long total = pcm.length / block_align;
+				final long[] samples = new long[SEEKS + 5];
+				samples[0] = 0;
+				samples[1] = frame_size - 1;
+				samples[2] = total - 1;
+				samples[3] = total;
+				samples[4] = total + 1000;
+				for( int i = 5; i < samples.length; i++ ) {
+					samples[i] = (long)(random.nextDouble() * total);
+				}
+				int failed = 0;
+				/* a new decoder: seekFast without the index, then the same decoder with the index */
+				decoder = new Jmpg123( 16, true, false );
+				decoder.InitMP3();
+				f.getChannel().position( 0 );
+				if( decoder.open( f.getChannel() ) != 0 ) {
+					throw new IOException("open failed");
+				}
+				for( int i = 0; i < samples.length; i++ ) {
+					failed += check( decoder, true, samples[i], pcm, frame_size, block_align );
+				}
+				for( int i = 0; i < samples.length; i++ ) {
+					failed += check( decoder, false, samples[i], pcm, frame_size, block_align );
+				}
+				for( int i = 0; i < samples.length; i++ ) {
+					failed += check( decoder, true, samples[i], pcm, frame_size, block_align );
+				}
+				System.out.printf("%s: %d samples, %d seeks failed\n", Arrays.toString( settings ), total, failed );
+				errors += failed;
+			} finally {
+				f.close();
+			}
+		}
+		System.out.println( errors == 0 ? "Done. The seeks continue the output of the decoding from the start." : "Failed: " + errors + " seeks." );
+		System.exit( errors == 0 ? 0 : 1 );
+	}
+}
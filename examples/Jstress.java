@@ -0,0 +1,198 @@
+package examples;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import libmp3lame.Jlame;
+import libmp3lame.Jlame_global_flags;
+import libmpghip.Jmpg123;
+
+/**
+ * Concurrency stress test.
+ * Encodes and decodes a generated signal with several settings on many threads at once,
+ * and compares the results with a single-threaded run.
+ * The concurrent run goes first, so the static tables are initialized under contention.
+ */
+public final class Jstress {
+	/** sample rate, channels, vbr mode, quality, bitrate */
+	private static final int SETTINGS[][] = {
+			{ 44100, 2, Jlame.vbr_off, 5, 128 },
+			{ 44100, 2, Jlame.vbr_mtrh, 2, 0 },
+			{ 44100, 2, Jlame.vbr_abr, 3, 160 },
+			{ 48000, 1, Jlame.vbr_mtrh, 4, 0 },
+			{ 32000, 2, Jlame.vbr_off, 7, 96 },
+			{ 22050, 2, Jlame.vbr_off, 5, 64 },
+			{ 8000, 1, Jlame.vbr_off, 5, 16 }
+		};
+	private static final int SECONDS = 3;
+
+	/** result of one encoding and decoding */
+	private static final class Jresult {
+		private final byte[] mp3;
+		private final byte[] pcm;
+		//
+		private Jresult(final byte[] mp3, final byte[] pcm) {
+			this.mp3 = mp3;
+			this.pcm = pcm;
+		}
+		private final boolean equals(final Jresult r) {
+			return Arrays.equals( this.mp3, r.mp3 ) && Arrays.equals( this.pcm, r.pcm );
+		}
+	}
+
+	private static final short[][] createSignal(final int sampleRate) {
+		final int n = sampleRate * SECONDS;
+		final short[][] s = new short[2][n];
+		final Random r = new Random( sampleRate );
+		for( int i = 0; i < n; i++ ) {
+			final double t = (double)i / sampleRate;
+			final double env = 0.5 + 0.5 * Math.sin( 2 * Math.PI * 0.7 * t );
+			final double a = 8000 * Math.sin( 2 * Math.PI * 440 * t ) * env + 1500 * r.nextGaussian();
+			final double b = 7000 * Math.sin( 2 * Math.PI * 660 * t ) + 2500 * Math.sin( 2 * Math.PI * 3000 * t ) * env;
+			s[0][i] = (short)Math.max( -32768, Math.min( 32767, a ) );
+			s[1][i] = (short)Math.max( -32768, Math.min( 32767, b ) );
+		}
+		return s;
+	}
+
+	private static final byte[] encode(final int[] settings, final short[][] pcm) {
+		final Jlame_global_flags gf = Jlame.lame_init();
+		gf.lame_set_num_channels( settings[1] );
+		gf.lame_set_out_samplerate( settings[0] );
+		gf.lame_set_VBR( settings[2] );
+		if( settings[2] == Jlame.vbr_off ) {
+			gf.lame_set_brate( settings[4] );
+		} else if( settings[2] == Jlame.vbr_abr ) {
+			gf.lame_set_VBR_mean_bitrate_kbps( settings[4] );
+		} else {
+			gf.lame_set_VBR_quality( settings[3] );
+		}
+		gf.lame_set_quality( settings[3] );
+		gf.lame_set_write_id3tag_automatic( false );
+		if( Jlame.lame_init_params( gf ) < 0 ) {
+			throw new IllegalStateException("lame_init_params failed");
+		}
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		final byte[] mp3buffer = new byte[16384];
+		final int n = pcm[0].length;
+		final int chunk = 1152;
+		for( int offset = 0; offset < n; offset += chunk ) {
+			final int k = Math.min( chunk, n - offset );
+			final short[] l = Arrays.copyOfRange( pcm[0], offset, offset + k );
+			final short[] r = Arrays.copyOfRange( pcm[1], offset, offset + k );
+			final int imp3 = Jlame.lame_encode_buffer( gf, l, r, k, mp3buffer, 0, mp3buffer.length );
+			if( imp3 < 0 ) {
+				throw new IllegalStateException("lame_encode_buffer failed: " + imp3);
+			}
+			out.write( mp3buffer, 0, imp3 );
+		}
+		final int imp3 = Jlame.lame_encode_flush( gf, mp3buffer, mp3buffer.length );
+		if( imp3 < 0 ) {
+			throw new IllegalStateException("lame_encode_flush failed: " + imp3);
+		}
+		out.write( mp3buffer, 0, imp3 );
+		Jlame.lame_close( gf );
+		return out.toByteArray();
+	}
+
+	private static final byte[] decode(final byte[] mp3) throws IOException {
+		final Jmpg123 decoder = new Jmpg123( 16, true, false );
+		decoder.InitMP3();
+		try {
+			if( decoder.open( new ByteArrayInputStream( mp3 ) ) < 0 ) {
+				throw new IOException("can't open the stream");
+			}
+			final ByteArrayOutputStream out = new ByteArrayOutputStream();
+			final byte[] buff = new byte[4096];
+			int read;
+			while( (read = decoder.read( buff, 0, buff.length )) >= 0 ) {
+				out.write( buff, 0, read );
+			}
+			return out.toByteArray();
+		} finally {
+			decoder.ExitMP3();
+		}
+	}
+
+	private static final Jresult run(final int[] settings, final short[][] pcm) throws IOException {
+		final byte[] mp3 = encode( settings, pcm );
+		return new Jresult( mp3, decode( mp3 ) );
+	}
+
+	/**
+	 * main.
+	 * @param args [threads] [rounds]
+	 */
+	public static final void main(final String[] args) {
+		final int threads = args.length > 0 ? Integer.parseInt( args[0] ) : Runtime.getRuntime().availableProcessors() * 2;
+		final int rounds = args.length > 1 ? Integer.parseInt( args[1] ) : 3;
+		final short[][][] signals = new short[SETTINGS.length][][];
+		for( int i = 0; i < SETTINGS.length; i++ ) {
+			signals[i] = createSignal( SETTINGS[i][0] );
+		}
+		System.out.printf("Threads: %d, rounds: %d, settings: %d\n", threads, rounds, SETTINGS.length );
+
+		final ExecutorService executor = Executors.newFixedThreadPool( threads );
+		try {
+			final List<List<Future<Jresult>>> concurrent = new ArrayList<List<Future<Jresult>>>();
+			for( int round = 0; round < rounds; round++ ) {
+				final CountDownLatch start = new CountDownLatch( 1 );
+				final List<Future<Jresult>> futures = new ArrayList<Future<Jresult>>();
+				for( int t = 0; t < threads; t++ ) {
+					final int i = (t + round) % SETTINGS.length;
+					futures.add( executor.submit( new Callable<Jresult>() {
+						@Override
+						public Jresult call() throws Exception {
+							start.await();
+							return run( SETTINGS[i], signals[i] );
+						}
+					} ) );
+				}
+				start.countDown();
+				for( final Future<Jresult> f : futures ) {
+					f.get();
+				}
+				concurrent.add( futures );
+			}
+
+			final Jresult reference[] = new Jresult[SETTINGS.length];
+			for( int i = 0; i < SETTINGS.length; i++ ) {
+				reference[i] = run( SETTINGS[i], signals[i] );
+			}
+
+			int errors = 0;
+			for( int round = 0; round < rounds; round++ ) {
+				final List<Future<Jresult>> futures = concurrent.get( round );
+				for( int t = 0; t < threads; t++ ) {
+					final int i = (t + round) % SETTINGS.length;
+					if( ! futures.get( t ).get().equals( reference[i] ) ) {
+						System.err.printf("Mismatch: round %d, thread %d, settings %s\n", round, t, Arrays.toString( SETTINGS[i] ) );
+						errors++;
+					}
+				}
+			}
+			System.out.println( errors == 0 ? "Done. All results are equal." : "Failed: " + errors + " mismatches." );
+			executor.shutdown();
+			System.exit( errors == 0 ? 0 : 1 );
+		} catch(final InterruptedException e) {
+			e.printStackTrace();
+		} catch(final ExecutionException e) {
+			e.getCause().printStackTrace();
+		} catch(final IOException e) {
+			e.printStackTrace();
+		}
+		executor.shutdown();
+		System.exit( 1 );
+	}
+}
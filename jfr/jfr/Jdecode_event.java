@@ -0,0 +1,51 @@
+package jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR event of a batch of the frames, decoded by a decoder, see Jdecode_recorder.
+ * The duration of the event is the wall clock time from the first to the last frame of the batch.
+ */
+@Name("mp3_codec.Decode")
+@Label("MP3 Decode")
+@Category({ "MP3 codec" })
+@Description("A batch of the frames decoded by decodeMP3, decodeMP3_unclipped and Jmpg123.read")
+public final class Jdecode_event extends Event {
+	@Label("Frames")
+	int frames;
+
+	@Label("MP3 Bytes")
+	@DataAmount(DataAmount.BYTES)
+	long mp3_bytes;
+
+	@Label("Samples")
+	@Description("PCM samples per channel")
+	long samples;
+
+	@Label("Channels")
+	int channels;
+
+	@Label("Layer")
+	int layer;
+
+	@Label("Sample Rate")
+	int sample_rate;
+
+	@Label("Average Bitrate")
+	@Description("kbps, 0 for a free format stream")
+	int bitrate;
+
+	@Label("Mode")
+	String mode;
+
+	@Label("Codec Time")
+	@Description("Time of the frame decoding and the synthesis")
+	@Timespan(Timespan.NANOSECONDS)
+	long codec_time;
+}
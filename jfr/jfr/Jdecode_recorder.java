@@ -0,0 +1,113 @@
+package jfr;
+
+import libmpghip.Jdecoder_listener;
+import libmpghip.Jframe;
+import libmpghip.Jmpstr_tag;
+
+/**
+ * Emits a Jdecode_event per batch of the decoded frames.
+ *
+ * Usage:
+ * <pre>
+ * final Jdecode_recorder recorder = new Jdecode_recorder( Jdecode_recorder.DEFAULT_BATCH, decoder.get_frame_listener() );
+ * decoder.set_frame_listener( recorder );
+ * ... decodeMP3 or Jmpg123.read ...
+ * recorder.flush();
+ * </pre>
+ * The recorder is used by the decoding thread only, as the decoder.
+ * A frame costs some additions, the event is created and committed once per batch.
+ * The decoder has one listener: the recorder passes every frame on to the listener, which was set before it.
+ */
+public final class Jdecode_recorder implements Jdecoder_listener {
+	public static final int DEFAULT_BATCH = 100;
+	private static final String MODE_NAMES[] = { "stereo", "joint stereo", "dual channel", "mono" };
+	//
+	private final int batch;
+	/** the listener, which was set before the recorder, null if none */
+	private final Jdecoder_listener next;
+	private Jdecode_event event;
+	private int frames;
+	private long mp3_bytes;
+	private long samples;
+	private long bitrate_sum;
+	private long codec_ns;
+	private int channels;
+	private int layer;
+	private int sample_rate;
+	private int mode;
+	//
+	public Jdecode_recorder() {
+		this( DEFAULT_BATCH, null );
+	}
+
+	/**
+	 * @param batch frames per event
+	 * @throws IllegalArgumentException if batch is less than 1
+	 */
+	public Jdecode_recorder(final int batch) {
+		this( batch, null );
+	}
+
+	/**
+	 * @param batch frames per event
+	 * @param next the listener to pass the frames on, e.g. decoder.get_frame_listener(), null if none
+	 * @throws IllegalArgumentException if batch is less than 1
+	 */
+	public Jdecode_recorder(final int batch, final Jdecoder_listener next) {
+		if( batch < 1 ) {
+			throw new IllegalArgumentException("batch < 1");
+		}
+		this.batch = batch;
+		this.next = next;
+	}
+
+	@Override
+	public void frame_decoded(final Jframe fr, final int frame_bytes, final int decoded_samples, final long decode_ns) {
+		if( this.frames == 0 ) {
+			this.event = new Jdecode_event();
+			this.event.begin();
+		}
+		this.frames++;
+		this.mp3_bytes += frame_bytes;
+		this.samples += decoded_samples / fr.stereo;
+		this.bitrate_sum += Jmpstr_tag.tabsel_123[fr.lsf][fr.lay - 1][fr.bitrate_index];
+		this.codec_ns += decode_ns;
+		this.channels = fr.stereo;
+		this.layer = fr.lay;
+		this.sample_rate = Jmpstr_tag.freqs[fr.sampling_frequency];
+		this.mode = fr.mode;
+		if( this.frames >= this.batch ) {
+			flush();
+		}
+		if( this.next != null ) {
+			this.next.frame_decoded( fr, frame_bytes, decoded_samples, decode_ns );
+		}
+	}
+
+	/** commits the event of the started batch. Must be called at the end of the stream. */
+	public void flush() {
+		if( this.frames == 0 ) {
+			return;
+		}
+		final Jdecode_event e = this.event;
+		e.end();
+		if( e.shouldCommit() ) {
+			e.frames = this.frames;
+			e.mp3_bytes = this.mp3_bytes;
+			e.samples = this.samples;
+			e.channels = this.channels;
+			e.layer = this.layer;
+			e.sample_rate = this.sample_rate;
+			e.bitrate = (int)(this.bitrate_sum / this.frames);
+			e.mode = MODE_NAMES[this.mode & 3];
+			e.codec_time = this.codec_ns;
+			e.commit();
+		}
+		this.event = null;
+		this.frames = 0;
+		this.mp3_bytes = 0;
+		this.samples = 0;
+		this.bitrate_sum = 0;
+		this.codec_ns = 0;
+	}
+}
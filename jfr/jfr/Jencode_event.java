@@ -0,0 +1,45 @@
+package jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR event of a batch of the frames, encoded by an encoder, see Jencode_recorder.
+ * The duration of the event is the wall clock time from the first to the last frame of the batch.
+ */
+@Name("mp3_codec.Encode")
+@Label("MP3 Encode")
+@Category({ "MP3 codec" })
+@Description("A batch of the frames encoded by lame_encode_buffer and lame_encode_flush")
+public final class Jencode_event extends Event {
+	@Label("Frames")
+	int frames;
+
+	@Label("Samples")
+	@Description("PCM samples per channel")
+	long samples;
+
+	@Label("Channels")
+	int channels;
+
+	@Label("MP3 Bytes")
+	@DataAmount(DataAmount.BYTES)
+	long mp3_bytes;
+
+	@Label("Average Bitrate")
+	@Description("kbps")
+	int bitrate;
+
+	@Label("Mode")
+	String mode;
+
+	@Label("Codec Time")
+	@Description("Time of the psychoacoustic model, the MDCT, the quantization and the bitstream formatting")
+	@Timespan(Timespan.NANOSECONDS)
+	long codec_time;
+}
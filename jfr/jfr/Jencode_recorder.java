@@ -0,0 +1,107 @@
+package jfr;
+
+import libmp3lame.Jframe_listener;
+import libmp3lame.Jframe_stats;
+
+/**
+ * Emits a Jencode_event per batch of the encoded frames.
+ *
+ * Usage:
+ * <pre>
+ * final Jencode_recorder recorder = new Jencode_recorder( Jencode_recorder.DEFAULT_BATCH, gfp.lame_get_frame_listener() );
+ * gfp.lame_set_frame_listener( recorder );
+ * ... lame_init_params, lame_encode_buffer, lame_encode_flush ...
+ * recorder.flush();
+ * </pre>
+ * The recorder is used by the encoding thread only, as the encoder.
+ * A frame costs some additions, the event is created and committed once per batch,
+ * so the recording is cheap with the default batch size, even if JFR is enabled.
+ * The encoder has one listener: the recorder passes every frame on to the listener, which was set before it.
+ */
+public final class Jencode_recorder implements Jframe_listener {
+	public static final int DEFAULT_BATCH = 100;
+	private static final String MODE_NAMES[] = { "stereo", "joint stereo", "dual channel", "mono" };
+	//
+	private final int batch;
+	/** the listener, which was set before the recorder, null if none */
+	private final Jframe_listener next;
+	private Jencode_event event;
+	private int frames;
+	private long samples;
+	private long mp3_bytes;
+	private long bitrate_sum;
+	private long codec_ns;
+	private int channels;
+	private int mode;
+	//
+	public Jencode_recorder() {
+		this( DEFAULT_BATCH, null );
+	}
+
+	/**
+	 * @param batch frames per event
+	 * @throws IllegalArgumentException if batch is less than 1
+	 */
+	public Jencode_recorder(final int batch) {
+		this( batch, null );
+	}
+
+	/**
+	 * @param batch frames per event
+	 * @param next the listener to pass the frames on, e.g. gfp.lame_get_frame_listener(), null if none
+	 * @throws IllegalArgumentException if batch is less than 1
+	 */
+	public Jencode_recorder(final int batch, final Jframe_listener next) {
+		if( batch < 1 ) {
+			throw new IllegalArgumentException("batch < 1");
+		}
+		this.batch = batch;
+		this.next = next;
+	}
+
+	@Override
+	public void frame_encoded(final Jframe_stats stats) {
+		if( this.frames == 0 ) {
+			this.event = new Jencode_event();
+			this.event.begin();
+		}
+		this.frames++;
+		this.samples += stats.granules * 576;
+		this.mp3_bytes += stats.frame_bytes;
+		this.bitrate_sum += stats.bitrate;
+		this.codec_ns += stats.psymodel_ns + stats.mdct_ns + stats.quantize_ns + stats.bitstream_ns;
+		this.channels = stats.channels;
+		this.mode = stats.mode;
+		if( this.frames >= this.batch ) {
+			flush();
+		}
+		if( this.next != null ) {
+			this.next.frame_encoded( stats );
+		}
+	}
+
+	/** commits the event of the started batch. Must be called at the end of the stream. */
+	public void flush() {
+		if( this.frames == 0 ) {
+			return;
+		}
+		final Jencode_event e = this.event;
+		e.end();
+		if( e.shouldCommit() ) {
+			e.frames = this.frames;
+			e.samples = this.samples;
+			e.channels = this.channels;
+			e.mp3_bytes = this.mp3_bytes;
+			e.bitrate = (int)(this.bitrate_sum / this.frames);
+			e.mode = MODE_NAMES[this.mode & 3];
+			e.codec_time = this.codec_ns;
+			e.commit();
+		}
+		this.event = null;
+		this.frames = 0;
+		this.samples = 0;
+		this.mp3_bytes = 0;
+		this.bitrate_sum = 0;
+		this.codec_ns = 0;
+	}
+}
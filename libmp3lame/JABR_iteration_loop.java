@@ -168,9 +168,8 @@ final class JABR_iteration_loop extends Jquantize/* implements Jiteration_loop *
 	{
 		final JSessionConfig cfg = gfc.cfg;
 		final JEncResult eov = gfc.ov_enc;
-		final float l3_xmin[] = new float[Jencoder.SFBMAX];
-		final float xrpow[] = new float[576];
-		final int targ_bits[][] = new int[2][2];
+		final int targ_bits[][] = gfc.wk_qnt.targ_bits;
+		final Jouter_loop_task tasks[] = gfc.wk_qnt.tasks;
 		final Jgr_info[][] tt = gfc.l3_side.tt;
 
 		int mean_bits = 0;
@@ -204,21 +203,17 @@ final class JABR_iteration_loop extends Jquantize/* implements Jiteration_loop *
 				}
 				gfc.sv_qnt.masking_lower = (float)Math.pow( 10.0, (double)(masking_lower_db * 0.1f) );
 
+				/*  cod_info, scalefac and xrpow get initialized in init_outer_loop,
+				 *  analog silent granules get analog_silence_bits
+				 */
+				tasks[ch].set( gfc, cod_info, pratio_gr[ch], ch, targ_bits_gr[ch], analog_silence_bits );
+			} while( ++ch < channels_out );              /* ch */
 
-				/*  cod_info, scalefac and xrpow get initialized in init_outer_loop */
-				init_outer_loop( gfc, cod_info );
-				if( init_xrpow( gfc, cod_info, xrpow ) ) {
-					/*  xr contains energy we will have to encode
-					 *  calculate the masking abilities
-					 *  find some good quantization in outer_loop
-					 */
-					final int ath_over = Jquantize_pvt.calc_xmin( gfc, pratio_gr[ch], cod_info, l3_xmin );
-					if( 0 == ath_over ) {
-						targ_bits_gr[ch] = analog_silence_bits;
-					}
+			/* java: the channels are quantized in parallel, if the quantization pool is set */
+			invoke_all( gfc, tasks, channels_out );
 
-					outer_loop( gfc, cod_info, l3_xmin, xrpow, ch, targ_bits_gr[ch] );
-				}
+			ch = 0;
+			do {
 				iteration_finish_one( gfc, gr, ch );
 			} while( ++ch < channels_out );              /* ch */
 		}                   /* gr */
@@ -5,6 +5,8 @@ package libmp3lame;
  *  please plugg it here into the ATH_t struct
  */
 final class JATH {
+	/* java: the tables are shared by the encoders with the same settings, see JTableCache.
+	 * They must not be changed after the initialization. */
 	/** method for the auto adjustment  */
 	int   use_adjust;
 	/** factor for tuning the (sample power)
@@ -20,17 +22,34 @@ final class JATH {
 	/** lowest ATH value */
 	float floor;
 	/** ATH for sfbs in long blocks */
-	final float l[] = new float[Jencoder.SBMAX_l];
+	float l[] = new float[Jencoder.SBMAX_l];
 	/** ATH for sfbs in short blocks */
-	final float s[] = new float[Jencoder.SBMAX_s];
+	float s[] = new float[Jencoder.SBMAX_s];
 	/** ATH for partitionned sfb21 in long blocks */
-	final float psfb21[] = new float[Jencoder.PSFB21];
+	float psfb21[] = new float[Jencoder.PSFB21];
 	/** ATH for partitionned sfb12 in short blocks */
-	final float psfb12[] = new float[Jencoder.PSFB12];
+	float psfb12[] = new float[Jencoder.PSFB12];
 	/** ATH for long block convolution bands */
-	final float cb_l[] = new float[Jencoder.CBANDS];
+	float cb_l[] = new float[Jencoder.CBANDS];
 	/** ATH for short block convolution bands */
-	final float cb_s[] = new float[Jencoder.CBANDS];
+	float cb_s[] = new float[Jencoder.CBANDS];
 	/** equal loudness weights (based on ATH) */
-	final float eql_w[] = new float[Jencoder.BLKSIZE / 2];
+	float eql_w[] = new float[Jencoder.BLKSIZE / 2];
+	//
+	/** java: copies all fields, the tables are shared, used by lame_clone */
+	final void copyFrom(final JATH a) {
+		this.use_adjust = a.use_adjust;
+		this.aa_sensitivity_p = a.aa_sensitivity_p;
+		this.adjust_factor = a.adjust_factor;
+		this.adjust_limit = a.adjust_limit;
+		this.decay = a.decay;
+		this.floor = a.floor;
+		this.l = a.l;
+		this.s = a.s;
+		this.psfb21 = a.psfb21;
+		this.psfb12 = a.psfb12;
+		this.cb_l = a.cb_l;
+		this.cb_s = a.cb_s;
+		this.eql_w = a.eql_w;
+	}
 }
@@ -18,9 +18,8 @@ final class JCBR_iteration_loop extends Jquantize/* implements Jiteration_loop *
 			final float ms_ener_ratio[]/*[2]*/, final JIII_psy_ratio ratio[][]/*[2][2]*/)
 	{
 		final JSessionConfig cfg = gfc.cfg;
-		final float l3_xmin[] = new float[Jencoder.SFBMAX];
-		final float xrpow[] = new float[576];
-		final int targ_bits[] = new int[2];
+		final int targ_bits[] = gfc.wk_qnt.targ_bits[0];
+		final Jouter_loop_task tasks[] = gfc.wk_qnt.tasks;
 		final Jgr_info[][] tt = gfc.l3_side.tt;
 
 		final int mean_bits = (int)(Jreservoir.ResvFrameBegin( gfc/*, &mean_bits*/ ) >> 32);
@@ -57,17 +56,14 @@ final class JCBR_iteration_loop extends Jquantize/* implements Jiteration_loop *
 				}
 				sv_qnt.masking_lower = (float)Math.pow( 10.0, (double)(masking_lower_db * 0.1f) );
 
-				/*  init_outer_loop sets up cod_info, scalefac and xrpow */
-				init_outer_loop( gfc, cod_info );
-				if( init_xrpow( gfc, cod_info, xrpow ) ) {
-					/*  xr contains energy we will have to encode
-					 *  calculate the masking abilities
-					 *  find some good quantization in outer_loop
-					 */
-					Jquantize_pvt.calc_xmin( gfc, ratio[gr][ch], cod_info, l3_xmin );
-					outer_loop( gfc, cod_info, l3_xmin, xrpow, ch, targ_bits[ch] );
-				}
+				tasks[ch].set( gfc, cod_info, ratio[gr][ch], ch, targ_bits[ch], -1 );
+			} while( ++ch < channels_out );  /* for ch */
 
+			/* java: the channels are quantized in parallel, if the quantization pool is set */
+			invoke_all( gfc, tasks, channels_out );
+
+			ch = 0;
+			do {
 				iteration_finish_one( gfc, gr, ch );
 			} while( ++ch < channels_out );  /* for ch */
 		} while( ++gr < mode_gr );   /* for gr */
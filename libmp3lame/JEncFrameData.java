@@ -0,0 +1,35 @@
+package libmp3lame;
+
+/** java: results of the frame analysis (psy model, MDCT, MS/LR decision), input of the quantization */
+final class JEncFrameData {
+	/** LR masking & energy */
+	final JIII_psy_ratio masking_LR[][] = new JIII_psy_ratio[2][2];
+	/** MS masking & energy */
+	final JIII_psy_ratio masking_MS[][] = new JIII_psy_ratio[2][2];
+	final float tot_ener[][] = new float[2][4];
+	final float ms_ener_ratio[] = { .5f, .5f };
+	final float pe[][] = new float[2][2];
+	final float pe_MS[][] = new float[2][2];
+	/** granule info with xr, block_type and mixed_block_flag set */
+	final Jgr_info tt[][];
+	/** number of the frame */
+	int     frame_number;
+	int     mode_ext;
+	/** ATH adjust factor of the frame */
+	float   ATH_adjust_factor;
+	/** times of the psy model and the MDCT, ns, measured for Jframe_listener only */
+	long    psymodel_ns;
+	long    mdct_ns;
+	//
+	JEncFrameData(final Jgr_info[][] tt) {
+		this.tt = tt;
+		masking_LR[0][0] = new JIII_psy_ratio();
+		masking_LR[0][1] = new JIII_psy_ratio();
+		masking_LR[1][0] = new JIII_psy_ratio();
+		masking_LR[1][1] = new JIII_psy_ratio();
+		masking_MS[0][0] = new JIII_psy_ratio();
+		masking_MS[0][1] = new JIII_psy_ratio();
+		masking_MS[1][0] = new JIII_psy_ratio();
+		masking_MS[1][1] = new JIII_psy_ratio();
+	}
+}
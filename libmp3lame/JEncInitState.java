@@ -0,0 +1,56 @@
+package libmp3lame;
+
+/**
+ * java: the encoding state after lame_init_params.
+ *
+ * lame_reset and lame_clone restore it to start a new stream
+ * without a new initialization of the tables. The state is never changed after the creation,
+ * so the clones of an encoder share it.
+ */
+final class JEncInitState {
+	private final JPsyStateVar sv_psy = new JPsyStateVar();
+	private final JPsyResult ov_psy = new JPsyResult();
+	private final JEncStateVar sv_enc = new JEncStateVar();
+	private final JEncResult ov_enc = new JEncResult();
+	private final JQntStateVar sv_qnt = new JQntStateVar();
+	private final JIII_side_info l3_side = new JIII_side_info();
+	private final JVBR_seek_info VBR_seek_table = new JVBR_seek_info();
+	private final float ATH_adjust_factor;
+	private final float ATH_adjust_limit;
+	private final char nMusicCRC;
+	private final boolean lame_encode_frame_init;
+	//
+	JEncInitState(final Jlame_internal_flags gfc) {
+		this.sv_psy.copyFrom( gfc.sv_psy );
+		this.ov_psy.copyFrom( gfc.ov_psy );
+		this.sv_enc.copyFrom( gfc.sv_enc );
+		this.ov_enc.copyFrom( gfc.ov_enc );
+		this.sv_qnt.copyFrom( gfc.sv_qnt );
+		this.l3_side.copyFrom( gfc.l3_side );
+		this.VBR_seek_table.copyFrom( gfc.VBR_seek_table );
+		this.ATH_adjust_factor = gfc.ATH.adjust_factor;
+		this.ATH_adjust_limit = gfc.ATH.adjust_limit;
+		this.nMusicCRC = gfc.nMusicCRC;
+		this.lame_encode_frame_init = gfc.lame_encode_frame_init;
+	}
+
+	/**
+	 * Restores the state. The bitstream must be initialized after it,
+	 * see init_bit_stream_w and lame_init_bitstream.
+	 *
+	 * @param gfc the encoder, initialized by lame_init_params or a copy of it
+	 */
+	final void restore(final Jlame_internal_flags gfc) {
+		gfc.sv_psy.copyFrom( this.sv_psy );
+		gfc.ov_psy.copyFrom( this.ov_psy );
+		gfc.sv_enc.copyFrom( this.sv_enc );
+		gfc.ov_enc.copyFrom( this.ov_enc );
+		gfc.sv_qnt.copyFrom( this.sv_qnt );
+		gfc.l3_side.copyFrom( this.l3_side );
+		gfc.VBR_seek_table.copyFrom( this.VBR_seek_table );
+		gfc.ATH.adjust_factor = this.ATH_adjust_factor;
+		gfc.ATH.adjust_limit = this.ATH_adjust_limit;
+		gfc.nMusicCRC = this.nMusicCRC;
+		gfc.lame_encode_frame_init = this.lame_encode_frame_init;
+	}
+}
@@ -0,0 +1,181 @@
+package libmp3lame;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * java: pipelined frame encoding.
+ *
+ * The analysis of the frame N (psy model, MDCT, MS/LR decision) runs in the calling thread,
+ * while the frame N-1 is quantized and written to the bit buffer by the pipeline thread.
+ * The psy model of the frame N needs masking_lower after the quantization of the frame N-1,
+ * it is calculated from the analysis of the frame N-1, see Jencoder.next_masking_lower.
+ * The output is the same as of the serial encoder.
+ *
+ * The pipeline has two stages, not three: the quantization and the bitstream formatting
+ * of a frame run in one task, the Huffman coding of the frame N-1 is not overlapped with the quantization
+ * of the frame N. format_bitstream reads the side info of the frame in gfc.l3_side and the bit reservoir state
+ * after its quantization (main_data_begin, resvDrain_pre, resvDrain_post, ResvSize),
+ * and the quantization of the next frame overwrites them. A third stage would need a copy of this state
+ * for every frame in flight, and a further frame of latency, so it is not done.
+ * The stages are handed over by a FutureTask per frame, not by a queue: one frame is in the quantization at most.
+ *
+ * The throughput is traded for one frame of latency: the frame N can't be returned by its own call,
+ * the analysis of the frame N+1 needs the samples of the next call. So a call returns the bytes
+ * of the frame N-1, the first call returns nothing, the last frame is returned by the flush.
+ *
+ * The quantization runs in the executor of lame_set_pipeline_executor, or in a pool shared by the encoders.
+ * The threads of the shared pool are daemon threads and end after a minute without work,
+ * so an encoder, which is not closed, holds no thread.
+ */
+final class JEncPipeline {
+	/** the pool of the encoders without own executor, created by the first pipeline */
+	private static final class Jshared {
+		private static final Executor POOL = Executors.newCachedThreadPool( new ThreadFactory() {
+			@Override
+			public Thread newThread(final Runnable r) {
+				final Thread t = new Thread( r, "lame-pipeline" );
+				t.setDaemon( true );
+				return t;
+			}
+		} );
+	}
+
+	/** quantization and bitstream formatting of one frame */
+	private static final class Jquantize_task implements Callable<Void> {
+		private final Jlame_internal_flags gfc;
+		private final JEncFrameData f;
+		//
+		private Jquantize_task(final Jlame_internal_flags gfc, final JEncFrameData f) {
+			this.gfc = gfc;
+			this.f = f;
+		}
+
+		@Override
+		public Void call() {
+			Jencoder.encode_frame_quantize( this.gfc, this.f );
+			return null;
+		}
+	}
+
+	/** the executor, as set by lame_set_pipeline_executor, null for the shared pool */
+	final Executor executor;
+	/** analysed frames with own granule info, used alternately */
+	private final Jquantize_task tasks[] = new Jquantize_task[2];
+	private int tt_index;
+	/** frame in the quantization, null if none */
+	private Future<Void> pending;
+	/** masking_lower after the quantization of the pending frame */
+	private float masking_lower;
+	//
+	/**
+	 * @param executor the executor to quantize the frames, null to use the shared pool
+	 */
+	JEncPipeline(final Jlame_internal_flags gfc, final Executor executor) {
+		this.executor = executor;
+		for( int i = 0; i < 2; i++ ) {
+			final Jgr_info tt[][] = new Jgr_info[2][2];
+			for( int gr = 0; gr < 2; gr++ ) {
+				tt[gr][0] = new Jgr_info();
+				tt[gr][1] = new Jgr_info();
+			}
+			this.tasks[i] = new Jquantize_task( gfc, new JEncFrameData( tt ) );
+		}
+	}
+
+	/** @return true if a frame is not written to the bit buffer yet */
+	final boolean is_busy() {
+		return this.pending != null;
+	}
+
+	/**
+	 * Waits for the pending frame and copies it out of the bit buffer.
+	 *
+	 * @return number of bytes copied, 0 if no frame is pending, or -1 if the buffer is too small
+	 */
+	final int finish(final Jlame_internal_flags gfc, final byte[] mp3buf, final int mp3buf_offset, final int mp3buf_size) {
+		final Future<Void> task = this.pending;
+		if( task == null ) {
+			return 0;
+		}
+		this.pending = null;
+		await( task );
+		return Jencoder.encode_frame_output( gfc, mp3buf, mp3buf_offset, mp3buf_size );
+	}
+
+	/** waits for the pending frame and drops it, used by lame_reset */
+	final void discard() {
+		final Future<Void> task = this.pending;
+		if( task != null ) {
+			this.pending = null;
+			await( task );
+		}
+	}
+
+	private static final void await(final Future<Void> task) {
+		boolean interrupted = false;
+		try {
+			for( ;; ) {
+				try {
+					task.get();
+					break;
+				} catch(final InterruptedException e) {
+					interrupted = true;
+				}
+			}
+		} catch(final ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if( cause instanceof RuntimeException ) {
+				throw (RuntimeException)cause;
+			}
+			throw new IllegalStateException( cause );
+		} finally {
+			if( interrupted ) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Analyses the frame, returns the previous frame and starts the quantization of the frame.
+	 *
+	 * @return number of bytes of the previous frame, or negative error code
+	 */
+	final int encode_frame(final Jlame_internal_flags gfc, final float[] inbuf_l, final float[] inbuf_r,
+			final byte[] mp3buf, final int mp3buf_offset, final int mp3buf_size)
+	{
+		final Jquantize_task task = this.tasks[this.tt_index];
+		final JEncFrameData f = task.f;
+		this.tt_index ^= 1;
+
+		gfc.sv_psy.masking_lower = this.pending != null ? this.masking_lower : gfc.sv_qnt.masking_lower;
+		if( Jencoder.encode_frame_analysis( gfc, inbuf_l, inbuf_r, f ) != 0 ) {
+			finish( gfc, mp3buf, mp3buf_offset, mp3buf_size );
+			return -4;
+		}
+		this.masking_lower = Jencoder.next_masking_lower( gfc, f );
+
+		final int mp3count = finish( gfc, mp3buf, mp3buf_offset, mp3buf_size );
+		if( mp3count < 0 ) {
+			return mp3count;
+		}
+
+		final FutureTask<Void> future = new FutureTask<Void>( task );
+		( this.executor != null ? this.executor : Jshared.POOL ).execute( future );
+		this.pending = future;
+
+		++gfc.ov_enc.frame_number;
+
+		return mp3count;
+	}
+
+	/** waits for the pending frame, it is lost. The executor is not shut down, it can be shared */
+	final void close() {
+		discard();
+	}
+}
@@ -15,4 +15,17 @@ final class JEncResult {
 	int     encoder_delay;
 	/** number of samples of padding appended to input */
 	int     encoder_padding;
+	//
+	final void copyFrom(final JEncResult r) {
+		for( int i = 0; i < 16; i++ ) {
+			System.arraycopy( r.bitrate_channelmode_hist[i], 0, this.bitrate_channelmode_hist[i], 0, 4 + 1 );
+			System.arraycopy( r.bitrate_blocktype_hist[i], 0, this.bitrate_blocktype_hist[i], 0, 4 + 1 + 1 );
+		}
+		this.bitrate_index = r.bitrate_index;
+		this.frame_number = r.frame_number;
+		this.padding = r.padding;
+		this.mode_ext = r.mode_ext;
+		this.encoder_delay = r.encoder_delay;
+		this.encoder_padding = r.encoder_padding;
+	}
 }
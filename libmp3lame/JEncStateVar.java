@@ -44,10 +44,14 @@ final class JEncStateVar {
 	/* variables for reservoir.c */
 	int     ResvSize;    /* in bits */
 	int     ResvMax;     /* in bits */
+	/** java: number of the frame which must not use bits of the previous frames, -1 if none */
+	int     ResvBarrier = -1;
 
 	int     in_buffer_nsamples;
 	float[] in_buffer_0;
 	float[] in_buffer_1;
+	/** java: in_buffer_0 and in_buffer_1 for fill_buffer, set by every call */
+	final float in_buffer[][] = new float[2][];
 
 	private static final int MFSIZE = (3 * 1152 + Jencoder.ENCDELAY - Jencoder.MDCTDELAY);
 
@@ -62,4 +66,30 @@ final class JEncStateVar {
 			this.header[--i] = new Jheader();
 		} while( i > 0 );
 	}
+
+	/**
+	 * java: copies the encoding state. The bitstream headers are not copied,
+	 * they are initialized by init_bit_stream_w, the input buffers are reallocated if needed.
+	 */
+	final void copyFrom(final JEncStateVar e) {
+		for( int ch = 0; ch < 2; ch++ ) {
+			for( int i = 0; i < 2; i++ ) {
+				for( int j = 0; j < 18; j++ ) {
+					System.arraycopy( e.sb_sample[ch][i][j], 0, this.sb_sample[ch][i][j], 0, Jencoder.SBLIMIT );
+				}
+			}
+			System.arraycopy( e.mfbuf[ch], 0, this.mfbuf[ch], 0, MFSIZE );
+		}
+		System.arraycopy( e.amp_filter, 0, this.amp_filter, 0, 32 );
+		System.arraycopy( e.itime, 0, this.itime, 0, 2 );
+		System.arraycopy( e.pefirbuf, 0, this.pefirbuf, 0, 19 );
+		this.frac_SpF = e.frac_SpF;
+		this.slot_lag = e.slot_lag;
+		this.ancillary_flag = e.ancillary_flag;
+		this.ResvSize = e.ResvSize;
+		this.ResvMax = e.ResvMax;
+		this.ResvBarrier = e.ResvBarrier;
+		this.mf_samples_to_encode = e.mf_samples_to_encode;
+		this.mf_size = e.mf_size;
+	}
 }
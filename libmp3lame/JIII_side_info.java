@@ -15,6 +15,19 @@ final class JIII_side_info {
 		tt[1][1] = new Jgr_info();
 	}
 
+	final void copyFrom(final JIII_side_info l3) {
+		for( int gr = 0; gr < 2; gr++ ) {
+			this.tt[gr][0].copyFrom( l3.tt[gr][0] );
+			this.tt[gr][1].copyFrom( l3.tt[gr][1] );
+		}
+		this.main_data_begin = l3.main_data_begin;
+		this.private_bits = l3.private_bits;
+		this.resvDrain_pre = l3.resvDrain_pre;
+		this.resvDrain_post = l3.resvDrain_post;
+		System.arraycopy( l3.scfsi[0], 0, this.scfsi[0], 0, 4 );
+		System.arraycopy( l3.scfsi[1], 0, this.scfsi[1], 0, 4 );
+	}
+
 	/** convert from L/R <. Mid/Side */
 	final void ms_convert(final int gr) {
 		final Jgr_info[] t = this.tt[gr];// java
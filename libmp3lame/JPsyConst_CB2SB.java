@@ -17,6 +17,8 @@ final class JPsyConst_CB2SB {
 	int     npart;
 	int     n_sb; /* SBMAX_l or SBMAX_s */
 	float[] s3;
+	/** the partition kk of s3[k] */
+	int[] s3kk;
 	//
 	final void copyFrom(final JPsyConst_CB2SB p) {
 		System.arraycopy( p.masking_lower, 0, this.masking_lower, 0, Jencoder.CBANDS );
@@ -41,5 +43,6 @@ final class JPsyConst_CB2SB {
 		this.npart = p.npart;
 		this.n_sb = p.n_sb;
 		this.s3 = p.s3;
+		this.s3kk = p.s3kk;
 	}
 }
@@ -3,4 +3,9 @@ package libmp3lame;
 final class JPsyResult {
 	/** loudness calculation (for adaptive threshold of hearing) */
 	final float loudness_sq[][] = new float[2][2]; /* loudness^2 approx. per granule and channel */
+	//
+	final void copyFrom(final JPsyResult r) {
+		System.arraycopy( r.loudness_sq[0], 0, this.loudness_sq[0], 0, 2 );
+		System.arraycopy( r.loudness_sq[1], 0, this.loudness_sq[1], 0, 2 );
+	}
 }
@@ -18,6 +18,9 @@ final class JPsyStateVar {
 	final int last_attacks[] = new int[4];
 
 	final int blocktype_old[] = new int[2];
+
+	/** java: masking_lower of the quantization state after the previous frame */
+	float masking_lower;
 	//
 	JPsyStateVar() {
 		thm[0] = new JIII_psy_xmin();
@@ -29,4 +32,21 @@ final class JPsyStateVar {
 		en[2] = new JIII_psy_xmin();
 		en[3] = new JIII_psy_xmin();
 	}
+
+	final void copyFrom(final JPsyStateVar p) {
+		for( int i = 0; i < 4; i++ ) {
+			System.arraycopy( p.nb_l1[i], 0, this.nb_l1[i], 0, Jencoder.CBANDS );
+			System.arraycopy( p.nb_l2[i], 0, this.nb_l2[i], 0, Jencoder.CBANDS );
+			System.arraycopy( p.nb_s1[i], 0, this.nb_s1[i], 0, Jencoder.CBANDS );
+			System.arraycopy( p.nb_s2[i], 0, this.nb_s2[i], 0, Jencoder.CBANDS );
+			this.thm[i].copyFrom( p.thm[i] );
+			this.en[i].copyFrom( p.en[i] );
+			System.arraycopy( p.last_en_subshort[i], 0, this.last_en_subshort[i], 0, 9 );
+		}
+		System.arraycopy( p.loudness_sq_save, 0, this.loudness_sq_save, 0, 2 );
+		System.arraycopy( p.tot_ener, 0, this.tot_ener, 0, 4 );
+		System.arraycopy( p.last_attacks, 0, this.last_attacks, 0, 4 );
+		System.arraycopy( p.blocktype_old, 0, this.blocktype_old, 0, 2 );
+		this.masking_lower = p.masking_lower;
+	}
 }
@@ -0,0 +1,44 @@
+package libmp3lame;
+
+/**
+ * java: scratch buffers of the frame analysis (psy model, MDCT).
+ * They are allocated once per encoder, so the analysis of a frame does not allocate memory.
+ * The content is not kept between the calls.
+ */
+final class JPsyWorkspace {
+	/* Jencoder.encode_frame_analysis */
+	final float inbuf[][] = new float[2][];
+	final int blocktype[] = new int[2];
+	/* Jpsymodel.L3psycho_anal_vbr */
+	final float fftenergy[] = new float[Jencoder.HBLKSIZE];
+	final float fftenergy_s[][] = new float[3][Jencoder.HBLKSIZE_s];
+	final float wsamp_L[][] = new float[2][Jencoder.BLKSIZE];
+	final float wsamp_S[][][] = new float[2][3][Jencoder.BLKSIZE_s];
+	final float eb[][] = new float[4][Jencoder.CBANDS];
+	final float thr[][] = new float[4][Jencoder.CBANDS];
+	final float sub_short_factor[][] = new float[4][3];
+	final int ns_attacks[][] = new int[4][4];
+	final boolean uselongblock[] = new boolean[2];
+	final JIII_psy_xmin last_thm[] = { new JIII_psy_xmin(), new JIII_psy_xmin(), new JIII_psy_xmin(), new JIII_psy_xmin() };
+	final float new_thmm[] = new float[3];
+	/* Jpsymodel.vbrpsy_attack_detection */
+	final float ns_hpfsmpl[][] = new float[2][576];
+	final float attack_intensity[] = new float[12];
+	final float en_subshort[] = new float[12];
+	final float en_short[] = new float[4];
+	/* Jpsymodel.vbrpsy_compute_masking_l, vbrpsy_compute_masking_s */
+	final float max[] = new float[Jencoder.CBANDS];
+	final float avg[] = new float[Jencoder.CBANDS];
+	final byte mask_idx[] = new byte[Jencoder.CBANDS + 2];
+	/* Jpsymodel.spread_energy: tab[mask_idx], the terms of the convolution, s3 has not more than CBANDS * CBANDS values */
+	final float mask_tab[] = new float[Jencoder.CBANDS];
+	final float s3_ecb[] = new float[Jencoder.CBANDS * Jencoder.CBANDS];
+	/* Jpsymodel.convert_partition2scalefac_s, convert_partition2scalefac_l_to_s */
+	final float enn[] = new float[Jencoder.SBMAX_s];
+	final float thm[] = new float[Jencoder.SBMAX_s];
+	/* Jnewmdct.mdct_sub48 */
+	final float mdct_work[] = new float[18];
+	/* Jvector_kernels.mdct_bands: [line][subband] */
+	final float mdct_vwork[] = new float[18 * Jencoder.SBLIMIT];
+	final float mdct_lines[] = new float[18 * Jencoder.SBLIMIT];
+}
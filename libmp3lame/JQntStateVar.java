@@ -6,11 +6,14 @@ final class JQntStateVar {
 	final float longfact[] = new float[ Jencoder.SBMAX_l ];
 	final float shortfact[] = new float[ Jencoder.SBMAX_s ];
 	float masking_lower;
+	/** java: ATH.adjust_factor of the frame being quantized */
+	float ATH_adjust_factor;
 	float mask_adjust; /* the dbQ stuff */
 	float mask_adjust_short; /* the dbQ stuff */
 	final int OldValue[] = new int[2];
 	final int CurrentStep[] = new int[2];
-	final boolean pseudohalf[] = new boolean[ Jencoder.SFBMAX ];
+	/** java: per channel, the channels of a granule can be quantized in parallel */
+	final boolean pseudohalf[][] = new boolean[2][ Jencoder.SFBMAX ];
 	boolean sfb21_extra; /* will be set in lame_init_params */
 	/** 0 = no substep
 	 * 1 = use substep shaping at last step(VBR only) (not implemented yet)
@@ -20,4 +23,20 @@ final class JQntStateVar {
 	int substep_shaping;
 
 	final byte bv_scf[] = new byte[576];
+	//
+	final void copyFrom(final JQntStateVar q) {
+		System.arraycopy( q.longfact, 0, this.longfact, 0, Jencoder.SBMAX_l );
+		System.arraycopy( q.shortfact, 0, this.shortfact, 0, Jencoder.SBMAX_s );
+		this.masking_lower = q.masking_lower;
+		this.ATH_adjust_factor = q.ATH_adjust_factor;
+		this.mask_adjust = q.mask_adjust;
+		this.mask_adjust_short = q.mask_adjust_short;
+		System.arraycopy( q.OldValue, 0, this.OldValue, 0, 2 );
+		System.arraycopy( q.CurrentStep, 0, this.CurrentStep, 0, 2 );
+		System.arraycopy( q.pseudohalf[0], 0, this.pseudohalf[0], 0, Jencoder.SFBMAX );
+		System.arraycopy( q.pseudohalf[1], 0, this.pseudohalf[1], 0, Jencoder.SFBMAX );
+		this.sfb21_extra = q.sfb21_extra;
+		this.substep_shaping = q.substep_shaping;
+		System.arraycopy( q.bv_scf, 0, this.bv_scf, 0, 576 );
+	}
 }
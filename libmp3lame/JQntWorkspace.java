@@ -0,0 +1,58 @@
+package libmp3lame;
+
+/**
+ * java: scratch buffers of the quantization.
+ * They are allocated once per encoder, so the quantization of a frame does not allocate memory.
+ * The content is not kept between the calls.
+ */
+final class JQntWorkspace {
+	/**
+	 * scratch of one channel.
+	 * The channels of a granule may be quantized in parallel, see Jquantize.invoke_all,
+	 * the granules of a channel are always quantized one after another.
+	 */
+	static final class Jchannel {
+		/* Jquantize.init_outer_loop */
+		final float ixwork[] = new float[576];
+		/* Jquantize.trancate_smallspectrums */
+		final float trancate_distort[] = new float[Jencoder.SFBMAX];
+		final Jcalc_noise_result trancate_noise = new Jcalc_noise_result();
+		/* Jquantize.outer_loop */
+		final float save_xrpow[] = new float[576];
+		final float distort[] = new float[Jencoder.SFBMAX];
+		final Jcalc_noise_result best_noise_info = new Jcalc_noise_result();
+		final Jcalc_noise_result noise_info = new Jcalc_noise_result();
+		final Jcalc_noise_data prev_noise = new Jcalc_noise_data();
+		final Jgr_info cod_info_w = new Jgr_info();
+		/** iterations of the frame, for Jframe_stats */
+		int outer_loop_iterations;
+		/* Jtakehiro.best_huffman_divide */
+		final int r01_bits[] = new int[7 + 15 + 1];
+		final int r01_div[] = new int[7 + 15 + 1];
+		final int r0_tbl[] = new int[7 + 15 + 1];
+		final int r1_tbl[] = new int[7 + 15 + 1];
+		final Jgr_info cod_info2 = new Jgr_info();
+		/* JVBR_old_iteration_loop.VBR_encode_granule */
+		final Jgr_info bst_cod_info = new Jgr_info();
+		final float bst_xrpow[] = new float[576];
+	}
+
+	final Jchannel ch[] = { new Jchannel(), new Jchannel() };
+	/* Jquantize_pvt.on_pe */
+	final int add_bits[] = new int[2];
+	/* JCBR_iteration_loop, JABR_iteration_loop */
+	final int targ_bits[][] = new int[2][2];
+	final Jquantize.Jouter_loop_task tasks[] = { new Jquantize.Jouter_loop_task(), new Jquantize.Jouter_loop_task() };
+	/* JVBR_old_iteration_loop, JVBR_new_iteration_loop */
+	final float l3_xmin[][][] = new float[2][2][Jencoder.SFBMAX];
+	final int frameBits[] = new int[15];
+	final int max_bits[][] = new int[2][2];
+	/* JVBR_old_iteration_loop.iteration */
+	final float xrpow[] = new float[576];
+	final int bands[][] = new int[2][2];
+	final int min_bits[][] = new int[2][2];
+	/* JVBR_new_iteration_loop.iteration */
+	final float xrpow_gr[][][] = new float[2][2][576];
+	/* Jvbrquantize.VBR_encode_frame */
+	final Jvbrquantize.Jworkspace vbr = new Jvbrquantize.Jworkspace();
+}
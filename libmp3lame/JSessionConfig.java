@@ -119,4 +119,68 @@ final class JSessionConfig {
 	final float pcm_transform[][] = new float[2][2];
 
 	float   minval;
+	//
+	/** java: copies the configuration, used by lame_clone */
+	final void copyFrom(final JSessionConfig c) {
+		this.version = c.version;
+		this.samplerate_index = c.samplerate_index;
+		this.sideinfo_len = c.sideinfo_len;
+		this.noise_shaping = c.noise_shaping;
+		this.subblock_gain = c.subblock_gain;
+		this.use_best_huffman = c.use_best_huffman;
+		this.noise_shaping_amp = c.noise_shaping_amp;
+		this.noise_shaping_stop = c.noise_shaping_stop;
+		this.full_outer_loop = c.full_outer_loop;
+		this.lowpassfreq = c.lowpassfreq;
+		this.highpassfreq = c.highpassfreq;
+		this.samplerate = c.samplerate;
+		this.channels_in = c.channels_in;
+		this.channels_out = c.channels_out;
+		this.mode_gr = c.mode_gr;
+		this.force_ms = c.force_ms;
+		this.quant_comp = c.quant_comp;
+		this.quant_comp_short = c.quant_comp_short;
+		this.use_temporal_masking_effect = c.use_temporal_masking_effect;
+		this.use_safe_joint_stereo = c.use_safe_joint_stereo;
+		this.preset = c.preset;
+		this.vbr = c.vbr;
+		this.vbr_avg_bitrate_kbps = c.vbr_avg_bitrate_kbps;
+		this.vbr_min_bitrate_index = c.vbr_min_bitrate_index;
+		this.vbr_max_bitrate_index = c.vbr_max_bitrate_index;
+		this.avg_bitrate = c.avg_bitrate;
+		this.enforce_min_bitrate = c.enforce_min_bitrate;
+		this.disable_reservoir = c.disable_reservoir;
+		this.buffer_constraint = c.buffer_constraint;
+		this.free_format = c.free_format;
+		this.write_lame_tag = c.write_lame_tag;
+		this.error_protection = c.error_protection;
+		this.copyright = c.copyright;
+		this.original = c.original;
+		this.extension = c.extension;
+		this.emphasis = c.emphasis;
+		this.mode = c.mode;
+		this.short_blocks = c.short_blocks;
+		this.interChRatio = c.interChRatio;
+		this.msfix = c.msfix;
+		this.ATH_offset_db = c.ATH_offset_db;
+		this.ATH_offset_factor = c.ATH_offset_factor;
+		this.ATHcurve = c.ATHcurve;
+		this.ATHtype = c.ATHtype;
+		this.ATHonly = c.ATHonly;
+		this.ATHshort = c.ATHshort;
+		this.noATH = c.noATH;
+		this.ATHfixpoint = c.ATHfixpoint;
+		this.adjust_alto_db = c.adjust_alto_db;
+		this.adjust_bass_db = c.adjust_bass_db;
+		this.adjust_treble_db = c.adjust_treble_db;
+		this.adjust_sfb21_db = c.adjust_sfb21_db;
+		this.compression_ratio = c.compression_ratio;
+		this.lowpass1 = c.lowpass1;
+		this.lowpass2 = c.lowpass2;
+		this.highpass1 = c.highpass1;
+		this.highpass2 = c.highpass2;
+		this.minval = c.minval;
+		System.arraycopy( c.pcm_transform[0], 0, this.pcm_transform[0], 0, 2 );
+		System.arraycopy( c.pcm_transform[1], 0, this.pcm_transform[1], 0, 2 );
+	}
 }
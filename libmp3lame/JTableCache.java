@@ -0,0 +1,110 @@
+package libmp3lame;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * java: tables, which depend only on a few settings, shared read only by all encoders.
+ *
+ * An encoder keeps a reference to the tables it uses, the cache keeps weak references only,
+ * so the tables are freed when no encoder uses them anymore.
+ */
+final class JTableCache<V> {
+	/** ATH of the scalefactor bands, see Jquantize_pvt.compute_ath */
+	static final class JATH_sfb {
+		float[] l;
+		float[] s;
+		float[] psfb21;
+		float[] psfb12;
+		float   floor;
+	}
+
+	/** psychoacoustic model constants and ATH of the partitions, see Jpsymodel.psymodel_init */
+	static final class Jpsy {
+		JPsyConst cd_psy;
+		float[] cb_l;
+		float[] cb_s;
+		float[] eql_w;
+		float   msfix;
+	}
+
+	static final JTableCache<JATH_sfb> ATH_sfb = new JTableCache<JATH_sfb>();
+	static final JTableCache<Jpsy> psy = new JTableCache<Jpsy>();
+
+	/** the values of the settings, the tables depend on */
+	static final class Jkey {
+		private final float[] values;
+		private final int hash;
+		//
+		Jkey(final float... values) {
+			this.values = values;
+			this.hash = Arrays.hashCode( values );
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hash;
+		}
+
+		@Override
+		public boolean equals(final Object o) {
+			return o instanceof Jkey && Arrays.equals( this.values, ((Jkey)o).values );
+		}
+	}
+
+	private static final class Jref<V> extends WeakReference<V> {
+		private final Jkey key;
+		//
+		private Jref(final Jkey key, final V value, final ReferenceQueue<V> queue) {
+			super( value, queue );
+			this.key = key;
+		}
+	}
+
+	private final ConcurrentHashMap<Jkey, Jref<V>> map = new ConcurrentHashMap<Jkey, Jref<V>>();
+	private final ReferenceQueue<V> queue = new ReferenceQueue<V>();
+
+	private JTableCache() {
+	}
+
+	/** @return the tables, or null if they are not in the cache */
+	final V get(final Jkey key) {
+		expunge();
+		final Jref<V> ref = this.map.get( key );
+		return ref != null ? ref.get() : null;
+	}
+
+	/**
+	 * Adds the tables to the cache.
+	 *
+	 * @return the tables in the cache, they may be added by another thread meanwhile
+	 */
+	final V put(final Jkey key, final V value) {
+		expunge();
+		final Jref<V> ref = new Jref<V>( key, value, this.queue );
+		for( ;; ) {
+			final Jref<V> old = this.map.putIfAbsent( key, ref );
+			if( old == null ) {
+				return value;
+			}
+			final V v = old.get();
+			if( v != null ) {
+				return v;
+			}
+			if( this.map.replace( key, old, ref ) ) {
+				return value;
+			}
+		}
+	}
+
+	/** removes the keys of the freed tables */
+	private final void expunge() {
+		Reference<? extends V> r;
+		while( (r = this.queue.poll()) != null ) {
+			this.map.remove( ((Jref<?>)r).key, r );
+		}
+	}
+}
@@ -8,15 +8,15 @@ public final class JVBRTAGDATA {
 	/** determined from MPEG header */
 	int     samprate;
 	/** from Vbr header data */
-	int     flags;
+	public int     flags;
 	/** total bit stream frames from Vbr header data */
 	public int     frames;
 	/** total bit stream bytes from Vbr header data */
-	int     bytes;
+	public int     bytes;
 	/** encoded vbr scale from Vbr header data */
 	int     vbr_scale;
 	/** may be NULL if toc not desired */
-	final byte toc[] = new byte[JVbrTag.NUMTOCENTRIES];
+	public final byte toc[] = new byte[JVbrTag.NUMTOCENTRIES];
 	/** size of VBR header, in bytes */
 	public int     headersize;
 	/** encoder delay */
@@ -48,7 +48,7 @@ final class JVBR_new_iteration_loop extends Jquantize/* implements Jiteration_lo
 			for( int ch = 0; ch < channels_out; ++ch ) {
 				sv_qnt.masking_lower = (float)Math.pow( 10.0, (double)(sv_qnt.mask_adjust * 0.1f) );
 				final Jgr_info cod_info = tt_gr[ch];
-				init_outer_loop( gfc, cod_info );
+				init_outer_loop( gfc, cod_info, ch );
 				if( 0 != Jquantize_pvt.calc_xmin( gfc, ratio_gr[ch], cod_info, l3_xmin_gr[ch] ) ) {
 					analog_silence = 0;
 				}
@@ -78,11 +78,21 @@ final class JVBR_new_iteration_loop extends Jquantize/* implements Jiteration_lo
 	static final void iteration(final Jlame_internal_flags gfc, final float pe[][], final float ms_ratio[], final JIII_psy_ratio ratio[][] ) {
 		final JSessionConfig cfg = gfc.cfg;
 		final JEncResult eov = gfc.ov_enc;
-		final float l3_xmin[][][] = new float[2][2][Jencoder.SFBMAX];
-
-		final float xrpow[][][] = new float[2][2][576];// java: already zeroed
-		final int frameBits[] = new int[15];
-		final int max_bits[][] = new int[2][2];
+		final JQntWorkspace wk = gfc.wk_qnt;// java: scratch buffers
+		final float l3_xmin[][][] = wk.l3_xmin;
+
+		final float xrpow[][][] = wk.xrpow_gr;
+		for( int gr = 0; gr < 2; gr++ ) {
+			for( int ch = 0; ch < 2; ch++ ) {
+				final float[] buf = xrpow[gr][ch];
+				int i = buf.length;
+				do {
+					buf[--i] = 0;
+				} while( i > 0 );
+			}
+		}
+		final int frameBits[] = wk.frameBits;
+		final int max_bits[][] = wk.max_bits;
 		final Jgr_info[][] tt = gfc.l3_side.tt;
 
 		// ms_ener_ratio; /* not used */
@@ -99,7 +109,7 @@ final class JVBR_new_iteration_loop extends Jquantize/* implements Jiteration_lo
 				final Jgr_info cod_info = tt_gr[ch];
 
 				/*  init_outer_loop sets up cod_info, scalefac and xrpow */
-				if( ! init_xrpow( gfc, cod_info, xrpow[gr][ch] ) ) {
+				if( ! init_xrpow( gfc, cod_info, xrpow[gr][ch], ch ) ) {
 					max_bits_gr[ch] = 0; /* silent granule needs no bits */
 				}
 			}               /* for ch */
@@ -69,7 +69,7 @@ final class JVBR_old_iteration_loop extends Jquantize/* implements Jiteration_lo
 				}
 				sv_qnt.masking_lower = (float)Math.pow( 10.0, (double)(masking_lower_db * 0.1f) );
 
-				init_outer_loop( gfc, cod_info );
+				init_outer_loop( gfc, cod_info, ch );
 				bands_gr[ch] = Jquantize_pvt.calc_xmin( gfc, ratio_gr[ch], cod_info, l3_xmin_gr[ch] );
 				if( bands_gr[ch] != 0 ) {
 					analog_silence = false;
@@ -147,8 +147,8 @@ final class JVBR_old_iteration_loop extends Jquantize/* implements Jiteration_lo
                    final float xrpow[/*576*/], /* coloured magnitudes of spectral values */
                    final int ch, int min_bits, int max_bits)
 	{
-		final Jgr_info bst_cod_info = new Jgr_info();
-		final float bst_xrpow[] = new float[576];
+		final Jgr_info bst_cod_info = gfc.wk_qnt.ch[ch].bst_cod_info;
+		final float bst_xrpow[] = gfc.wk_qnt.ch[ch].bst_xrpow;
 		final int Max_bits = max_bits;
 		int real_bits = max_bits + 1;
 		int this_bits = (max_bits + min_bits) >> 1;
@@ -237,13 +237,14 @@ final class JVBR_old_iteration_loop extends Jquantize/* implements Jiteration_lo
 	{
 		final JSessionConfig cfg = gfc.cfg;
 		final JEncResult eov = gfc.ov_enc;
-		final float l3_xmin[][][] = new float[2][2][Jencoder.SFBMAX];
-
-		final float xrpow[] = new float[576];
-		final int bands[][] = new int[2][2];
-		final int frameBits[] = new int[15];
-		final int min_bits[][] = new int[2][2];
-		final int max_bits[][] = new int[2][2];
+		final JQntWorkspace wk = gfc.wk_qnt;// java: scratch buffers
+		final float l3_xmin[][][] = wk.l3_xmin;
+
+		final float xrpow[] = wk.xrpow;
+		final int bands[][] = wk.bands;
+		final int frameBits[] = wk.frameBits;
+		final int min_bits[][] = wk.min_bits;
+		final int max_bits[][] = wk.max_bits;
 		final Jgr_info[][] tt = gfc.l3_side.tt;
 		final int mode_gr = cfg.mode_gr;// java
 		final int channels_out = cfg.channels_out;// java
@@ -268,7 +269,7 @@ final class JVBR_old_iteration_loop extends Jquantize/* implements Jiteration_lo
 					final Jgr_info cod_info = tt_gr[ch];// java
 
 					/*  init_outer_loop sets up cod_info, scalefac and xrpow */
-					if( ! init_xrpow( gfc, cod_info, xrpow ) || max_bits_gr[ch] == 0 ) {
+					if( ! init_xrpow( gfc, cod_info, xrpow, ch ) || max_bits_gr[ch] == 0 ) {
 						/*  xr contains no energy
 						 *  l3_enc, our encoding data, will be quantized to zero
 						 */
@@ -280,7 +281,7 @@ final class JVBR_old_iteration_loop extends Jquantize/* implements Jiteration_lo
 
 					/*  do the 'substep shaping' */
 					if( (gfc.sv_qnt.substep_shaping & 1) != 0 ) {
-						trancate_smallspectrums( gfc, tt_gr[ch], l3_xmin_gr[ch], xrpow );
+						trancate_smallspectrums( gfc, tt_gr[ch], l3_xmin_gr[ch], xrpow, ch );
 					}
 
 					final int ret = cod_info.part2_3_length + cod_info.part2_length;
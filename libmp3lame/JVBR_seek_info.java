@@ -17,4 +17,15 @@ final class JVBR_seek_info {
 	int nBytesWritten;// uint32?
 	/** VBR tag data */
 	int TotalFrameSize;// uint32?
+	//
+	/** java: copies the counters, the bag is kept */
+	final void copyFrom(final JVBR_seek_info v) {
+		this.sum = v.sum;
+		this.seen = v.seen;
+		this.want = v.want;
+		this.pos = v.pos;
+		this.nVbrNumFrames = v.nVbrNumFrames;
+		this.nBytesWritten = v.nBytesWritten;
+		this.TotalFrameSize = v.TotalFrameSize;
+	}
 }
@@ -2,6 +2,9 @@ package libmp3lame;
 
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.NonReadableChannelException;
 
 /*
  *      Xing VBR tagging for LAME.
@@ -31,11 +34,11 @@ import java.io.RandomAccessFile;
 
 public final class JVbrTag {
 	private static final int FRAMES_FLAG    = 0x0001;
-	private static final int BYTES_FLAG     = 0x0002;
-	private static final int TOC_FLAG       = 0x0004;
+	public static final int BYTES_FLAG     = 0x0002;
+	public static final int TOC_FLAG       = 0x0004;
 	private static final int VBR_SCALE_FLAG = 0x0008;
 
-	static final int NUMTOCENTRIES = 100;
+	public static final int NUMTOCENTRIES = 100;
 	/**
 	 *    4 bytes for Header Tag
 	 *    4 bytes for Header Flags
@@ -798,6 +801,32 @@ public final class JVbrTag {
 		return 0;
 	}
 
+	/** java: skipId3v2 by a positional read, the position of the channel is not changed */
+	private static final int skipId3v2(final FileChannel fc) {
+		final ByteBuffer id3v2Header = ByteBuffer.allocate( 10 );
+		/* read 10 bytes in case there's an ID3 version 2 header here */
+		try {
+			while( id3v2Header.hasRemaining() ) {
+				if( fc.read( id3v2Header, id3v2Header.position() ) < 0 ) {
+					return -3;
+				}
+			}
+		} catch(final NonReadableChannelException e) {
+			return -3;      /* not readable, opened Write-Only */
+		} catch(final IOException ie) {
+			return -3;
+		}
+		/* does the stream begin with the ID3 version 2 file identifier? */
+		if( id3v2Header.get( 0 ) == 'I' && id3v2Header.get( 1 ) == 'D' && id3v2Header.get( 2 ) == '3' ) {
+			return (((id3v2Header.get( 6 ) & 0x7f) << 21)
+				| ((id3v2Header.get( 7 ) & 0x7f) << 14)
+				| ((id3v2Header.get( 8 ) & 0x7f) << 7)
+				| (id3v2Header.get( 9 ) & 0x7f))
+				+ 10 /* id3v2Header.length */;
+		}
+		return 0;
+	}
+
 	public static final int lame_get_lametag_frame(final Jlame_global_flags gfp, final byte[] buffer, final int size) {
 		if( gfp == null ) {
 			return 0;
@@ -966,4 +995,51 @@ public final class JVbrTag {
 
 		return 0;           /* success */
 	}
+
+	/**
+	 * java: PutVbrTag by the positional read and write,
+	 * the position of the channel is not changed, so the channel can be used to append data.
+	 * The channel must be opened for reading and writing.
+	 */
+	static final int PutVbrTag(final Jlame_global_flags gfp, final FileChannel fc) {
+		final Jlame_internal_flags gfc = gfp.internal_flags;
+
+		final byte buffer[] = new byte[MAXFRAMESIZE];
+
+		if( gfc.VBR_seek_table.pos <= 0 ) {
+			return -1;
+		}
+		try {
+			/* Abort if file has zero length. Yes, it can happen :) */
+			if( fc.size() == 0 ) {
+				return -1;
+			}
+
+			final int id3v2TagSize = skipId3v2( fc );
+
+			if( id3v2TagSize < 0 ) {
+				return id3v2TagSize;
+			}
+
+			final int nbytes = lame_get_lametag_frame( gfp, buffer, MAXFRAMESIZE );
+			if( nbytes > MAXFRAMESIZE ) {
+				return -1;
+			}
+
+			if( nbytes < 1 ) {
+				return 0;
+			}
+
+			/* Put it all to disk again */
+			final ByteBuffer b = ByteBuffer.wrap( buffer, 0, nbytes );
+			long pos = id3v2TagSize;
+			while( b.hasRemaining() ) {
+				pos += fc.write( b, pos );
+			}
+		} catch(final IOException ie) {
+			return -1;
+		}
+
+		return 0;           /* success */
+	}
 }
\ No newline at end of file
@@ -1,5 +1,7 @@
 package libmp3lame;
 
+import java.nio.ByteBuffer;
+
 import libmp3lame.JEncStateVar.Jheader;
 
 /*
@@ -674,9 +676,9 @@ final class Jbitstream {
 
 				if( gi.block_type == Jencoder.SHORT_TYPE ) {
 					do {
-						final int sfbs = sfb_partition_table[sfb_partition];
+						final int sfbs = sfb_partition_table[sfb_partition];// java: 3 * number of the bands
 						final int len = slen[sfb_partition];
-						while( sfb < sfbs ) {
+						for( int i = 0; i < sfbs; i += 3 ) {
 							putbits2( gfc, Math.max( scalefac[sfb++], 0 ), len );
 							putbits2( gfc, Math.max( scalefac[sfb++], 0 ), len );
 							putbits2( gfc, Math.max( scalefac[sfb++], 0 ), len );
@@ -686,9 +688,9 @@ final class Jbitstream {
 					data_bits += ShortHuffmancodebits( gfc, gi );
 				} else {
 					do {
-						final int sfbs = sfb_partition_table[sfb_partition];
+						final int sfbs = sfb_partition_table[sfb_partition];// java: number of the bands
 						final int len = slen[sfb_partition];
-						while( sfb < sfbs ) {
+						for( int i = 0; i < sfbs; i++ ) {
 							putbits2( gfc, Math.max( scalefac[sfb++], 0 ), len );
 							scale_bits += len;
 						}
@@ -882,10 +884,15 @@ final class Jbitstream {
 		if( minimum <= 0 ) {
 			return 0;
 		}
-		if( minimum > size ) {
+		final ByteBuffer out = gfc.mp3out;
+		if( minimum > (out != null ? out.remaining() : size) ) {
 			return -1;
 		}      /* buffer is too small */
-		System.arraycopy( bs.buf, 0, buffer, offset, minimum );
+		if( out != null ) {
+			out.put( bs.buf, 0, minimum );
+		} else {
+			System.arraycopy( bs.buf, 0, buffer, offset, minimum );
+		}
 		bs.buf_byte_idx = -1;
 		bs.buf_bit_idx = 0;
 		return minimum;
@@ -896,11 +903,13 @@ final class Jbitstream {
 
 	   mp3data=0      indicates data in buffer is an id3tags and VBR tags
 	   mp3data=1      data is real mp3 frame data.
+	   java: if gfc.mp3out is set, the data is put into it, buffer and offset are not used.
 	*/
 	static final int copy_buffer(final Jlame_internal_flags gfc, final byte[] buffer, final int offset, final int size, final boolean mp3data) {
 		final int minimum = do_copy_buffer( gfc, buffer, offset, size );
 		if( minimum > 0 && mp3data ) {
-			gfc.nMusicCRC = JVbrTag.UpdateMusicCRC( gfc.nMusicCRC, buffer, offset, minimum );
+			/* java: the bit buffer keeps the copied bytes, the output can be a ByteBuffer */
+			gfc.nMusicCRC = JVbrTag.UpdateMusicCRC( gfc.nMusicCRC, gfc.bs.buf, 0, minimum );
 
 			/** sum number of bytes belonging to the mp3 stream
 			 *  this info will be written into the Xing/LAME header for seeking
@@ -919,7 +928,9 @@ final class Jbitstream {
 		esv.h_ptr = esv.w_ptr = 0;
 		esv.header[esv.h_ptr].write_timing = 0;
 
-		gfc.bs.buf = new byte[ BUFFER_SIZE ];
+		if( gfc.bs.buf == null ) {// java: kept by lame_reset
+			gfc.bs.buf = new byte[ BUFFER_SIZE ];
+		}
 		gfc.bs.buf_size = BUFFER_SIZE;
 		gfc.bs.buf_byte_idx = -1;
 		gfc.bs.buf_bit_idx = 0;
@@ -10,4 +10,15 @@ final class Jcalc_noise_data {
 	final int   step[] = new int[39];
 	final float noise[] = new float[39];
 	final float noise_log[] = new float[39];
+	//
+	/** java: memset( this, 0 ) */
+	final void clear() {
+		this.global_gain = 0;
+		this.sfb_count1 = 0;
+		for( int i = 0; i < 39; i++ ) {
+			this.step[i] = 0;
+			this.noise[i] = 0;
+			this.noise_log[i] = 0;
+		}
+	}
 }
@@ -0,0 +1,178 @@
+package libmp3lame;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * java: encodes to a channel. The frames are copied from the bit buffer of the encoder
+ * into the ByteBuffers of the output by the ByteBuffer variants of lame_encode_buffer,
+ * without an intermediate byte array. The full buffers are written by one gathering write,
+ * if the channel is a GatheringByteChannel: FileChannel, SocketChannel.
+ *
+ * <pre>
+ * final Jchannel_output out = new Jchannel_output( gfp, channel, 1152, 4, true );
+ * while( ... ) {
+ *     out.encode_buffer( pcm_l, pcm_r, nsamples );
+ * }
+ * out.encode_flush();
+ * </pre>
+ * The encode methods return the error codes of lame_encode_buffer, the channel errors are thrown.
+ * The written data can be delayed until the buffers are full, see write.
+ */
+public final class Jchannel_output {
+	/** the space for the tags and the flush, see LAME_MAXMP3BUFFER */
+	private static final int FLUSH_SIZE = 16384;
+	//
+	private final Jlame_global_flags gfp;
+	private final WritableByteChannel channel;
+	private final ByteBuffer buffers[];
+	/** the buffer, which receives the output */
+	private int current = 0;
+	private final int max_samples;
+	/** bytes written to the channel */
+	private long written = 0;
+
+	/**
+	 * @param gfp the encoder, lame_init_params must be called
+	 * @param channel the output, it is not closed
+	 * @param max_samples the maximum number of samples per channel of one call
+	 * @param buffer_count the number of the buffers, they are written together
+	 * @param direct true to allocate direct buffers
+	 */
+	public Jchannel_output(final Jlame_global_flags gfp, final WritableByteChannel channel,
+			final int max_samples, final int buffer_count, final boolean direct)
+	{
+		this.gfp = gfp;
+		this.channel = channel;
+		this.max_samples = max_samples;
+		/* the worst case of lame_encode_buffer: 1.25 * num_samples + 7200 */
+		final int size = Math.max( max_samples + (max_samples >> 2) + 7200, FLUSH_SIZE );
+		this.buffers = new ByteBuffer[buffer_count > 0 ? buffer_count : 1];
+		for( int i = 0; i < this.buffers.length; i++ ) {
+			this.buffers[i] = direct ? ByteBuffer.allocateDirect( size ) : ByteBuffer.allocate( size );
+		}
+	}
+
+	/** @return bytes written to the channel */
+	public final long get_written() {
+		return this.written;
+	}
+
+	/**
+	 * @return a buffer, which has at least need bytes,
+	 * a new buffer if the buffers are too small: the tags can be larger
+	 */
+	private final ByteBuffer reserve(int need) throws IOException {
+		final Jlame_internal_flags gfc = this.gfp.internal_flags;
+		if( gfc != null ) {
+			/* the tags, which are waiting in the bit buffer */
+			need += gfc.bs.buf_byte_idx + 1;
+		}
+		ByteBuffer b = this.buffers[this.current];
+		if( b.remaining() >= need ) {
+			return b;
+		}
+		if( this.current + 1 < this.buffers.length && this.buffers[this.current + 1].capacity() >= need ) {
+			return this.buffers[++this.current];
+		}
+		/* the pending data must be written before the new buffer */
+		write();
+		b = this.buffers[this.current];
+		return b.capacity() >= need ? b : ByteBuffer.allocate( need );
+	}
+
+	/** writes the buffer, if it is not one of the buffers */
+	private final int finish(final ByteBuffer b, final int ret) throws IOException {
+		if( b != this.buffers[this.current] ) {
+			b.flip();
+			while( b.hasRemaining() ) {
+				this.written += this.channel.write( b );
+			}
+		}
+		return ret;
+	}
+
+	private final int check(final int nsamples) {
+		if( nsamples > this.max_samples ) {
+			throw new IllegalArgumentException( "More than " + this.max_samples + " samples: " + nsamples );
+		}
+		return nsamples;
+	}
+
+	/** as Jlame.lame_encode_buffer */
+	public final int encode_buffer(final short pcm_l[], final short pcm_r[], final int nsamples) throws IOException {
+		final ByteBuffer b = reserve( check( nsamples ) + (nsamples >> 2) + 7200 );
+		return finish( b, Jlame.lame_encode_buffer( this.gfp, pcm_l, pcm_r, nsamples, b ) );
+	}
+
+	/** as Jlame.lame_encode_buffer_interleaved */
+	public final int encode_buffer_interleaved(final short pcm[], final int nsamples) throws IOException {
+		final ByteBuffer b = reserve( check( nsamples ) + (nsamples >> 2) + 7200 );
+		return finish( b, Jlame.lame_encode_buffer_interleaved( this.gfp, pcm, nsamples, b ) );
+	}
+
+	/** as Jlame.lame_encode_buffer_float */
+	public final int encode_buffer_float(final float pcm_l[], final float pcm_r[], final int nsamples) throws IOException {
+		final ByteBuffer b = reserve( check( nsamples ) + (nsamples >> 2) + 7200 );
+		return finish( b, Jlame.lame_encode_buffer_float( this.gfp, pcm_l, pcm_r, nsamples, b ) );
+	}
+
+	/** as Jlame.lame_encode_buffer_ieee_float */
+	public final int encode_buffer_ieee_float(final float pcm_l[], final float pcm_r[], final int nsamples) throws IOException {
+		final ByteBuffer b = reserve( check( nsamples ) + (nsamples >> 2) + 7200 );
+		return finish( b, Jlame.lame_encode_buffer_ieee_float( this.gfp, pcm_l, pcm_r, nsamples, b ) );
+	}
+
+	/** as Jlame.lame_encode_buffer_int */
+	public final int encode_buffer_int(final int pcm_l[], final int pcm_r[], final int offset, final int nsamples) throws IOException {
+		final ByteBuffer b = reserve( check( nsamples ) + (nsamples >> 2) + 7200 );
+		return finish( b, Jlame.lame_encode_buffer_int( this.gfp, pcm_l, pcm_r, offset, nsamples, b ) );
+	}
+
+	/** as Jlame.lame_encode_flush, all data is written to the channel */
+	public final int encode_flush() throws IOException {
+		final ByteBuffer b = reserve( FLUSH_SIZE );
+		final int ret = finish( b, Jlame.lame_encode_flush( this.gfp, b ) );
+		write();
+		return ret;
+	}
+
+	/** as Jlame.lame_encode_flush_nogap, all data is written to the channel */
+	public final int encode_flush_nogap() throws IOException {
+		final ByteBuffer b = reserve( FLUSH_SIZE );
+		final int ret = finish( b, Jlame.lame_encode_flush_nogap( this.gfp, b ) );
+		write();
+		return ret;
+	}
+
+	/** writes the data of the buffers to the channel */
+	public final void write() throws IOException {
+		final ByteBuffer[] b = this.buffers;// java
+		final int count = this.current + 1;
+		long remaining = 0;
+		for( int i = 0; i < count; i++ ) {
+			b[i].flip();
+			remaining += b[i].remaining();
+		}
+		if( this.channel instanceof GatheringByteChannel ) {
+			final GatheringByteChannel gather = (GatheringByteChannel)this.channel;
+			while( remaining > 0 ) {
+				final long n = gather.write( b, 0, count );
+				remaining -= n;
+				this.written += n;
+			}
+		} else {
+			for( int i = 0; i < count; i++ ) {
+				while( b[i].hasRemaining() ) {
+					this.written += this.channel.write( b[i] );
+				}
+			}
+		}
+		for( int i = 0; i < count; i++ ) {
+			b[i].clear();
+		}
+		this.current = 0;
+	}
+}
@@ -303,7 +303,7 @@ final class Jencoder {
 					tt_gr[ch].block_type = Jencoder.SHORT_TYPE;
 				} while( ++ch < channels_out );
 			}
-			Jnewmdct.mdct_sub48( gfc, primebuff0, primebuff1 );
+			Jnewmdct.mdct_sub48( gfc, primebuff0, primebuff1, gfc.l3_side.tt );
 		}
 	}
 
@@ -373,35 +373,26 @@ final class Jencoder {
 			0.187098f * 5
 		};
 	/**
+	 * java: stages 1 - 3, the psychoacoustic model, the MDCT and the MS/LR decision.
+	 * Uses only the analysis state of the encoder, results are stored to the frame data.
 	 *
 	 * @param gfc Context
 	 * @param inbuf_l Input
 	 * @param inbuf_r Input
-	 * @param mp3buf Output
-	 * @param mp3buf_size
-	 * @return
+	 * @param f Output
+	 * @return 0 or -4 if the psy model fails
 	 */
-	static final int lame_encode_mp3_frame(final Jlame_internal_flags gfc, final float[] inbuf_l, final float[] inbuf_r, final byte[] mp3buf, final int mp3buf_offset, final int mp3buf_size)
+	static final int encode_frame_analysis(final Jlame_internal_flags gfc, final float[] inbuf_l, final float[] inbuf_r, final JEncFrameData f)
 	{
 		final JSessionConfig cfg = gfc.cfg;
-		final JIII_psy_ratio masking_LR[][] = new JIII_psy_ratio[2][2]; /*LR masking & energy */
-		masking_LR[0][0] = new JIII_psy_ratio();
-		masking_LR[0][1] = new JIII_psy_ratio();
-		masking_LR[1][0] = new JIII_psy_ratio();
-		masking_LR[1][1] = new JIII_psy_ratio();
-		final JIII_psy_ratio masking_MS[][] = new JIII_psy_ratio[2][2]; /*MS masking & energy */
-		masking_MS[0][0] = new JIII_psy_ratio();
-		masking_MS[0][1] = new JIII_psy_ratio();
-		masking_MS[1][0] = new JIII_psy_ratio();
-		masking_MS[1][1] = new JIII_psy_ratio();
-		JIII_psy_ratio masking[][] = new JIII_psy_ratio[2][]; /*pointer to selected maskings */
-		final float inbuf[][] = new float[2][];
-
-		final float tot_ener[][] = new float[2][4];
-		final float ms_ener_ratio[/* 2 */] = { .5f, .5f };
-		final float pe[][] = new float[2][2];// = { {0.f, 0.f}, {0.f, 0.f} };// java: already zeroed
-		final float pe_MS[][] = new float[2][2];// = { {0.f, 0.f}, {0.f, 0.f}};// java: already zeroed
-		float pe_use[][] = new float[2][];
+		final JIII_psy_ratio masking_LR[][] = f.masking_LR; /*LR masking & energy */
+		final JIII_psy_ratio masking_MS[][] = f.masking_MS; /*MS masking & energy */
+		final float inbuf[][] = gfc.wk_psy.inbuf;
+
+		final float tot_ener[][] = f.tot_ener;
+		final float ms_ener_ratio[/* 2 */] = f.ms_ener_ratio;
+		final float pe[][] = f.pe;
+		final float pe_MS[][] = f.pe_MS;
 
 		inbuf[0] = inbuf_l;
 		inbuf[1] = inbuf_r;
@@ -410,23 +401,14 @@ final class Jencoder {
 			/*first run? */
 			lame_encode_frame_init( gfc, inbuf );
 		}
-		/********************** padding *****************************/
-		/* padding method as described in
-		 * "MPEG-Layer3 / Bitstream Syntax and Decoding"
-		 * by Martin Sieler, Ralph Sperschneider
-		 *
-		 * note: there is no padding for the very first frame
-		 *
-		 * Robert Hegemann 2000-06-22
-		 */
-		gfc.ov_enc.padding = false;
-		if( (gfc.sv_enc.slot_lag -= gfc.sv_enc.frac_SpF) < 0 ) {
-			gfc.sv_enc.slot_lag += cfg.samplerate;
-			gfc.ov_enc.padding = true;
-		}
+		f.frame_number = gfc.ov_enc.frame_number;
 
 		final int mode_gr = cfg.mode_gr;// java
 		final int channels_out = cfg.channels_out;// java
+		final Jgr_info[][] tt = f.tt;// java
+		/* java: the stage times are measured for Jframe_listener only */
+		final boolean timed = gfc.frame_listener != null;
+		long t0 = timed ? System.nanoTime() : 0;
 		/****************************************
 		*   Stage 1: psychoacoustic model       *
 		****************************************/
@@ -436,7 +418,7 @@ final class Jencoder {
 			 * (mt 6/99).
 			 */
 			// final int bufp;// {0, 0}; /* address of beginning of left & right granule */
-			final int blocktype[] = new int[2];
+			final int blocktype[] = gfc.wk_psy.blocktype;
 
 			for( int gr = 0; gr < mode_gr; gr++ ) {
 
@@ -461,32 +443,42 @@ final class Jencoder {
 				/* block type flags */
 				int ch = 0;
 				do {
-					final Jgr_info cod_info = gfc.l3_side.tt[gr][ch];
+					final Jgr_info cod_info = tt[gr][ch];
 					cod_info.block_type = blocktype[ch];
 					cod_info.mixed_block_flag = false;
 				} while( ++ch < channels_out );
 			}
 		}
 
+		if( timed ) {
+			final long t1 = System.nanoTime();
+			f.psymodel_ns = t1 - t0;
+			t0 = t1;
+		}
+
 		/* auto-adjust of ATH, useful for low volume */
 		adjust_ATH( gfc );
+		f.ATH_adjust_factor = gfc.ATH.adjust_factor;
 
 		/****************************************
 		*   Stage 2: MDCT                       *
 		****************************************/
 
 		/* polyphase filtering / mdct */
-		Jnewmdct.mdct_sub48( gfc, inbuf[0], inbuf[1] );
+		Jnewmdct.mdct_sub48( gfc, inbuf[0], inbuf[1], tt );
+		if( timed ) {
+			f.mdct_ns = System.nanoTime() - t0;
+		}
 
 		/****************************************
 		*   Stage 3: MS/LR decision             *
 		****************************************/
 
 		/* Here will be selected MS or LR coding of the 2 stereo channels */
-		gfc.ov_enc.mode_ext = MPG_MD_LR_LR;
+		f.mode_ext = MPG_MD_LR_LR;
 
 		if( cfg.force_ms ) {
-			gfc.ov_enc.mode_ext = MPG_MD_MS_LR;
+			f.mode_ext = MPG_MD_MS_LR;
 		} else if( cfg.mode == Jlame.JOINT_STEREO ) {
 			/* ms_ratio = is scaled, for historical reasons, to look like
 			   a ratio of side_channel / total.
@@ -514,23 +506,205 @@ final class Jencoder {
 
 			/* based on PE: M/S coding would not use much more bits than L/R */
 			if( sum_pe_MS <= /*1.00f * */sum_pe_LR ) {
-				final Jgr_info[][] tt = gfc.l3_side.tt;// java
 				final Jgr_info[] gi0 = tt[0];//[0];
 				final Jgr_info[] gi1 = tt[mode_gr - 1];//[0];
 
 				if( gi0[0].block_type == gi0[1].block_type && gi1[0].block_type == gi1[1].block_type ) {
-					gfc.ov_enc.mode_ext = MPG_MD_MS_LR;
+					f.mode_ext = MPG_MD_MS_LR;
 				}
 			}
 		}
+		return 0;
+	}
+
+	/**
+	 * java: masking_lower, which the iteration loop will leave after quantization of the frame.
+	 * The psy model of the next frame uses it. Must be calculated like the iteration loops do it
+	 * for the last granule and channel.
+	 *
+	 * @param gfc Context
+	 * @param f analysed frame
+	 * @return masking_lower
+	 */
+	static final float next_masking_lower(final Jlame_internal_flags gfc, final JEncFrameData f) {
+		final JSessionConfig cfg = gfc.cfg;
+		final JQntStateVar sv_qnt = gfc.sv_qnt;
+		final int gr = cfg.mode_gr - 1;
+		final int ch = cfg.channels_out - 1;
+		final boolean is_short = f.tt[gr][ch].block_type == SHORT_TYPE;
+		float masking_lower_db;
+		switch( cfg.vbr )
+		{
+		default:
+		case Jlame.vbr_off:
+		case Jlame.vbr_abr:
+			masking_lower_db = is_short ? sv_qnt.mask_adjust_short : sv_qnt.mask_adjust;
+			break;
+		case Jlame.vbr_rh: {
+			final float pe = (f.mode_ext == MPG_MD_MS_LR ? f.pe_MS : f.pe)[gr][ch];
+			float adjust;
+			if( ! is_short ) {
+				adjust = 1.28f / (1f + (float)Math.exp( (double)(3.5f - pe / 300.f) )) - 0.05f;
+				masking_lower_db = sv_qnt.mask_adjust - adjust;
+			} else {
+				adjust = 2.56f / (1f + (float)Math.exp( (double)(3.5f - pe / 300.f) )) - 0.14f;
+				masking_lower_db = sv_qnt.mask_adjust_short - adjust;
+			}
+			break;
+		}
+		case Jlame.vbr_mt:
+		case Jlame.vbr_mtrh:
+			masking_lower_db = sv_qnt.mask_adjust;
+			break;
+		}
+		return (float)Math.pow( 10.0, (double)(masking_lower_db * 0.1f) );
+	}
+
+	/**
+	 * java: stages 4 - 5, the quantization and the bitstream formatting of an analysed frame.
+	 * The encoded frame stays in the bit buffer.
+	 *
+	 * @param gfc Context
+	 * @param f analysed frame
+	 */
+	static final void encode_frame_quantize(final Jlame_internal_flags gfc, final JEncFrameData f) {
+		if( gfc.frame_listener != null ) {
+			encode_frame_quantize_stats( gfc, f );
+			return;
+		}
+		encode_frame_iteration( gfc, f );
+
+		/****************************************
+		*   Stage 5: bitstream formatting       *
+		****************************************/
+
+		/*  write the frame to the bitstream  */
+		Jbitstream.format_bitstream( gfc );
+	}
+
+	/**
+	 * java: encode_frame_quantize with the statistics of the frame for Jframe_listener.
+	 * Runs in the quantization thread, the statistics are passed to the listener by encode_frame_output.
+	 */
+	private static final void encode_frame_quantize_stats(final Jlame_internal_flags gfc, final JEncFrameData f) {
+		final JSessionConfig cfg = gfc.cfg;
+		final Jframe_stats s = gfc.frame_stats;
+		final int mode_gr = cfg.mode_gr;// java
+		final int channels_out = cfg.channels_out;// java
+		s.frame_number = f.frame_number;
+		s.granules = mode_gr;
+		s.channels = channels_out;
+		s.psymodel_ns = f.psymodel_ns;
+		s.mdct_ns = f.mdct_ns;
+		s.mode_ext = f.mode_ext;
+		/* the iteration loops scale pe in CBR and ABR mode */
+		final float pe[][] = f.mode_ext == MPG_MD_MS_LR ? f.pe_MS : f.pe;
+		for( int gr = 0; gr < mode_gr; gr++ ) {
+			int ch = 0;
+			do {
+				s.pe[gr][ch] = pe[gr][ch];
+			} while( ++ch < channels_out );
+		}
+		final JQntWorkspace.Jchannel[] wk = gfc.wk_qnt.ch;// java
+		wk[0].outer_loop_iterations = 0;
+		wk[1].outer_loop_iterations = 0;
+
+		final long t0 = System.nanoTime();
+		encode_frame_iteration( gfc, f );
+		final long t1 = System.nanoTime();
+
+		final JIII_side_info l3_side = gfc.l3_side;
+		final JEncStateVar esv = gfc.sv_enc;
+		s.main_data_begin = l3_side.main_data_begin;
+		s.resv_size = esv.ResvSize;
+		s.resv_max = esv.ResvMax;
+		s.resv_drain = l3_side.resvDrain_pre + l3_side.resvDrain_post;
+
+		/****************************************
+		*   Stage 5: bitstream formatting       *
+		****************************************/
+
+		/*  write the frame to the bitstream  */
+		Jbitstream.format_bitstream( gfc );
+		s.quantize_ns = t1 - t0;
+		s.bitstream_ns = System.nanoTime() - t1;
+
+		final JEncResult eov = gfc.ov_enc;
+		s.bitrate_index = eov.bitrate_index;
+		s.bitrate = Jtables.bitrate_table[cfg.version][eov.bitrate_index];
+		s.padding = eov.padding;
+		s.frame_bytes = Jbitstream.getframebits( gfc ) >> 3;
+		s.mode = cfg.mode;
+		for( int gr = 0; gr < mode_gr; gr++ ) {
+			int ch = 0;
+			do {
+				final Jgr_info gi = l3_side.tt[gr][ch];
+				s.block_type[gr][ch] = gi.block_type;
+				s.part2_3_length[gr][ch] = gi.part2_3_length;
+			} while( ++ch < channels_out );
+		}
+		s.outer_loop_iterations[0] = wk[0].outer_loop_iterations;
+		s.outer_loop_iterations[1] = wk[1].outer_loop_iterations;
+	}
+
+	/**
+	 * java: stage 4, the quantization of an analysed frame.
+	 * The quantized granules are stored to l3_side, the frame is not written to the bitstream.
+	 *
+	 * @param gfc Context
+	 * @param f analysed frame, pe and pe_MS are changed
+	 */
+	static final void encode_frame_iteration(final Jlame_internal_flags gfc, final JEncFrameData f) {
+		final JSessionConfig cfg = gfc.cfg;
+		final int mode_gr = cfg.mode_gr;// java
+		final int channels_out = cfg.channels_out;// java
+
+		if( f.frame_number == gfc.sv_enc.ResvBarrier ) {
+			/* java: segment boundary. pad out the reservoir with ancillary data,
+			 * so this frame starts with main_data_begin = 0 */
+			Jbitstream.flush_bitstream( gfc );
+		}
+		/********************** padding *****************************/
+		/* padding method as described in
+		 * "MPEG-Layer3 / Bitstream Syntax and Decoding"
+		 * by Martin Sieler, Ralph Sperschneider
+		 *
+		 * note: there is no padding for the very first frame
+		 *
+		 * Robert Hegemann 2000-06-22
+		 */
+		gfc.ov_enc.padding = false;
+		if( (gfc.sv_enc.slot_lag -= gfc.sv_enc.frac_SpF) < 0 ) {
+			gfc.sv_enc.slot_lag += cfg.samplerate;
+			gfc.ov_enc.padding = true;
+		}
+
+		final Jgr_info[][] tt = gfc.l3_side.tt;// java
+		if( f.tt != tt ) {
+			/* java: the frame was analysed into own granule info */
+			for( int gr = 0; gr < mode_gr; gr++ ) {
+				int ch = 0;
+				do {
+					final Jgr_info src = f.tt[gr][ch];
+					final Jgr_info dst = tt[gr][ch];
+					System.arraycopy( src.xr, 0, dst.xr, 0, 576 );
+					dst.block_type = src.block_type;
+					dst.mixed_block_flag = src.mixed_block_flag;
+				} while( ++ch < channels_out );
+			}
+		}
+		gfc.ov_enc.mode_ext = f.mode_ext;
+		gfc.sv_qnt.ATH_adjust_factor = f.ATH_adjust_factor;
 
 		/* bit and noise allocation */
-		if( gfc.ov_enc.mode_ext == MPG_MD_MS_LR ) {
-			masking = masking_MS; /* use MS masking */
-			pe_use = pe_MS;
+		final JIII_psy_ratio masking[][]; /*pointer to selected maskings */
+		final float pe_use[][];
+		if( f.mode_ext == MPG_MD_MS_LR ) {
+			masking = f.masking_MS; /* use MS masking */
+			pe_use = f.pe_MS;
 		} else {
-			masking = masking_LR; /* use LR masking */
-			pe_use = pe;
+			masking = f.masking_LR; /* use LR masking */
+			pe_use = f.pe;
 		}
 
 		/****************************************
@@ -544,28 +718,29 @@ final class Jencoder {
 				pefirbuf[i] = pefirbuf[i + 1];
 			} while( ++i < 18 );
 
-			float f = 0.0f;
+			float v = 0.0f;
 			for( int gr = 0; gr < mode_gr; gr++) {
 				for( int ch = 0; ch < channels_out; ch++) {
-					f += pe_use[gr][ch];
+					v += pe_use[gr][ch];
 				}
 			}
-			pefirbuf[18] = f;
+			pefirbuf[18] = v;
 
-			f = pefirbuf[9];
+			v = pefirbuf[9];
 			i = 0;
 			do {
-				f += (pefirbuf[i] + pefirbuf[18 - i]) * fircoef[i];
+				v += (pefirbuf[i] + pefirbuf[18 - i]) * fircoef[i];
 			} while( ++i < 9 );
 
-			f = (670 * 5 * mode_gr * channels_out) / f;
+			v = (670 * 5 * mode_gr * channels_out) / v;
 			for( int gr = 0; gr < mode_gr; gr++ ) {
 				int ch = 0;
 				do {
-					pe_use[gr][ch] *= f;
+					pe_use[gr][ch] *= v;
 				} while( ++ch < channels_out );
 			}
 		}
+		final float[] ms_ener_ratio = f.ms_ener_ratio;// java
 		switch( cfg.vbr )
 		{
 		default:
@@ -583,25 +758,62 @@ final class Jencoder {
 			JVBR_new_iteration_loop.iteration( gfc, pe_use, ms_ener_ratio, masking );
 			break;
 		}
+	}
 
-		/****************************************
-		*   Stage 5: bitstream formatting       *
-		****************************************/
-
-		/*  write the frame to the bitstream  */
-		Jbitstream.format_bitstream( gfc );
-
+	/**
+	 * java: copies the quantized frame out of the bit buffer and updates the statistics.
+	 *
+	 * @param gfc Context
+	 * @param mp3buf Output
+	 * @param mp3buf_offset
+	 * @param mp3buf_size
+	 * @return number of bytes copied or -1 if the buffer is too small
+	 */
+	static final int encode_frame_output(final Jlame_internal_flags gfc, final byte[] mp3buf, final int mp3buf_offset, final int mp3buf_size) {
 		/* copy mp3 bit buffer into array */
 		final int mp3count = Jbitstream.copy_buffer( gfc, mp3buf, mp3buf_offset, mp3buf_size, true );
 
-		if( cfg.write_lame_tag ) {
+		if( gfc.cfg.write_lame_tag ) {
 			JVbrTag.AddVbrFrame( gfc );
 		}
 
-		++gfc.ov_enc.frame_number;
-
 		updateStats( gfc );
 
+		final Jframe_listener listener = gfc.frame_listener;
+		if( listener != null ) {
+			listener.frame_encoded( gfc.frame_stats );
+		}
+
+		return mp3count;
+	}
+
+	/**
+	 *
+	 * @param gfc Context
+	 * @param inbuf_l Input
+	 * @param inbuf_r Input
+	 * @param mp3buf Output
+	 * @param mp3buf_size
+	 * @return
+	 */
+	static final int lame_encode_mp3_frame(final Jlame_internal_flags gfc, final float[] inbuf_l, final float[] inbuf_r, final byte[] mp3buf, final int mp3buf_offset, final int mp3buf_size)
+	{
+		if( gfc.pipeline != null ) {
+			return gfc.pipeline.encode_frame( gfc, inbuf_l, inbuf_r, mp3buf, mp3buf_offset, mp3buf_size );
+		}
+		final JEncFrameData f = gfc.frame_data;
+
+		gfc.sv_psy.masking_lower = gfc.sv_qnt.masking_lower;
+		if( encode_frame_analysis( gfc, inbuf_l, inbuf_r, f ) != 0 ) {
+			return -4;
+		}
+
+		encode_frame_quantize( gfc, f );
+
+		final int mp3count = encode_frame_output( gfc, mp3buf, mp3buf_offset, mp3buf_size );
+
+		++gfc.ov_enc.frame_number;
+
 		return mp3count;
 	}
 }
\ No newline at end of file
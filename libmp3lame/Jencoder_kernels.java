@@ -0,0 +1,121 @@
+package libmp3lame;
+
+/**
+ * java: the hot loops of the encoder, which have a vector version.
+ *
+ * The methods of this class are the scalar code. The vector version, libmp3lame.Jvector_kernels,
+ * is in the separate source root /vector, it needs Java 16 or later and the incubator module:
+ * --add-modules jdk.incubator.vector. It overrides the methods and gives the same results bit for bit:
+ * the lanes do the same float operations in the same order as the scalar code, without FMA.
+ * The exception are the sums of calc_noise_core, init_xrpow_core and calc_energy: the vector version adds
+ * the lanes separately, so the noise and the energy differ by the rounding and the encoded stream can differ.
+ * The system property libmp3lame.vector=exact keeps the scalar order of these sums.
+ * The scalar code is the fallback for the cases, which the vector version does not handle.
+ *
+ * The kernels are chosen, when the class is loaded: the vector kernels are used,
+ * if they are on the class path, the module is available and the system property
+ * libmp3lame.vector is not false. See set_vector.
+ */
+public class Jencoder_kernels {
+	private static final String VECTOR_CLASS = "libmp3lame.Jvector_kernels";
+	/** the current kernels, read by the encoder once per call of the stage */
+	static Jencoder_kernels kernels = create( ! "false".equals( System.getProperty("libmp3lame.vector") ) );
+	//
+	Jencoder_kernels() {
+	}
+
+	/** @return the vector kernels, or the scalar kernels, if the vector kernels are not requested or not available */
+	private static final Jencoder_kernels create(final boolean vector) {
+		if( vector ) {
+			try {
+				return (Jencoder_kernels)Class.forName( VECTOR_CLASS ).getDeclaredConstructor().newInstance();
+			} catch(final Throwable e) {// not on the class path, no jdk.incubator.vector, too short vectors
+			}
+		}
+		return new Jencoder_kernels();
+	}
+
+	/** @return true if the vector kernels are used */
+	public static final boolean is_vector() {
+		return kernels.getClass() != Jencoder_kernels.class;
+	}
+
+	/**
+	 * Chooses the kernels. Must be called, when no encoder is running,
+	 * the running encoders can use the old kernels until the end of the current frame.
+	 *
+	 * @param vector true for the vector kernels, false for the scalar kernels
+	 * @return true if the requested kernels are set, false if the vector kernels are not available
+	 */
+	public static final boolean set_vector(final boolean vector) {
+		kernels = create( vector );
+		return is_vector() == vector;
+	}
+
+	/** see Jnewmdct.window_subband */
+	void window_subband(final float[] x1, final int xoffset, final float a[/* SBLIMIT */]) {
+		Jnewmdct.window_subband( x1, xoffset, a );
+	}
+
+	/** see Jnewmdct.mdct_bands */
+	void mdct_bands(final Jlame_internal_flags gfc, final Jgr_info gi, final float[][] band0, final float[][] band1) {
+		Jnewmdct.mdct_bands( gfc, gi, band0, band1 );
+	}
+
+	/** see Jfft.fht */
+	void fht(final float[] fz, final int foffset, final int n) {
+		Jfft.fht( fz, foffset, n );
+	}
+
+	/** see Jtakehiro.quantize_lines_xrpow */
+	void quantize_lines_xrpow(final int l, final float istep, final float[] xp, final int xoffset, final int[] pi, final int pioffset) {
+		Jtakehiro.quantize_lines_xrpow( l, istep, xp, xoffset, pi, pioffset );
+	}
+
+	/** see Jtakehiro.quantize_lines_xrpow_01 */
+	void quantize_lines_xrpow_01(final int l, final float istep, final float[] xr, final int xroffset, final int[] ix, final int ixoffset) {
+		Jtakehiro.quantize_lines_xrpow_01( l, istep, xr, xroffset, ix, ixoffset );
+	}
+
+	/** see Jgr_info.init_xrpow_core_c */
+	float init_xrpow_core(final Jgr_info cod_info, final float xrpow[/*576*/], final int upper) {
+		return cod_info.init_xrpow_core_c( xrpow, upper );
+	}
+
+	/** see Jquantize_pvt.calc_noise_core_c */
+	float calc_noise_core(final Jgr_info cod_info, final int j, final int l, final float step) {
+		return Jquantize_pvt.calc_noise_core_c( cod_info, j, l, step );
+	}
+
+	/** see Jvbrquantize.vec_max_c */
+	float vec_max(final float[] xr34, final int xoffset, final int bw) {
+		return Jvbrquantize.vec_max_c( xr34, xoffset, bw );
+	}
+
+	/** see Jvbrquantize.calc_sfb_noise_x34, x and l3 have 16 elements */
+	float calc_sfb_noise_x34(final float[] xr, final int xroffset, final float[] xr34, final int xr34offset, final int bw, final int sf,
+			final float x[], final int l3[])
+	{
+		return Jvbrquantize.calc_sfb_noise_x34( xr, xroffset, xr34, xr34offset, bw, sf, x, l3 );
+	}
+
+	/** see Jpsymodel.attack_hpf */
+	void attack_hpf(final float[] firbuf, final int boffset, final float[] hpfsmpl) {
+		Jpsymodel.attack_hpf( firbuf, boffset, hpfsmpl );
+	}
+
+	/** see Jpsymodel.max_abs */
+	float max_abs(final float[] pf, final int pfi, final int n, final float p) {
+		return Jpsymodel.max_abs( pf, pfi, n, p );
+	}
+
+	/** see Jpsymodel.calc_energy */
+	void calc_energy(final JPsyConst_CB2SB l, final float[] fftenergy, final float[] eb, final float[] max, final float[] avg) {
+		Jpsymodel.calc_energy( l, fftenergy, eb, max, avg );
+	}
+
+	/** see Jpsymodel.spread_energy */
+	void spread_energy(final JPsyConst_CB2SB gd, final float[] eb, final byte[] mask_idx, final float[] mask_tab, final float[] ecb) {
+		Jpsymodel.spread_energy( gd, eb, mask_idx, mask_tab, ecb );
+	}
+}
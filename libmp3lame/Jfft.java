@@ -44,7 +44,7 @@ final class Jfft {
 
 	/* fft.c    */
 
-	private static final float costab[] = {// [TRI_SIZE * 2] = {
+	static final float costab[] = {// [TRI_SIZE * 2] = {
 		9.238795325112867e-01f, 3.826834323650898e-01f,
 		9.951847266721969e-01f, 9.801714032956060e-02f,
 		9.996988186962042e-01f, 2.454122852291229e-02f,
@@ -70,7 +70,7 @@ final class Jfft {
 		0x1e, 0x9e, 0x5e, 0xde, 0x3e, 0xbe, 0x7e, 0xfe
 	};
 
-	private static final void fht(final float[] fz, final int foffset, int n) {
+	static final void fht(final float[] fz, final int foffset, int n) {
 		int tri = 0;
 		final float[] tab = costab;
 
@@ -208,7 +208,7 @@ final class Jfft {
 			} while( --j >= 0 );
 
 			//gfc.fft_fht( x, Jencoder.BLKSIZE_s / 2 );
-			fht( x, xi, Jencoder.BLKSIZE_s / 2 );
+			Jencoder_kernels.kernels.fht( x, xi, Jencoder.BLKSIZE_s / 2 );
 			/* BLKSIZE_s/2 because of 3DNow! ASM routine */
 		} while( ++b < 3 );
 	}
@@ -267,7 +267,7 @@ final class Jfft {
 		} while( --jj >= 0 );
 
 		//gfc.fft_fht( x, Jencoder.BLKSIZE / 2 );
-		fht( x, xoffset, Jencoder.BLKSIZE / 2 );
+		Jencoder_kernels.kernels.fht( x, xoffset, Jencoder.BLKSIZE / 2 );
 		/* BLKSIZE/2 because of 3DNow! ASM routine */
 	}
 
@@ -0,0 +1,16 @@
+package libmp3lame;
+
+/**
+ * java: receives the statistics of every encoded frame, see Jlame_global_flags.lame_set_frame_listener.
+ *
+ * The listener is called by the encoding thread, from lame_encode_buffer or lame_encode_flush,
+ * when the frame is copied to the output buffer. In the pipelined mode it is the same
+ * calling thread, one call later.
+ */
+public interface Jframe_listener {
+	/**
+	 * @param stats the statistics of the frame. The object is reused for every frame,
+	 * it is valid only until the method returns.
+	 */
+	void frame_encoded(Jframe_stats stats);
+}
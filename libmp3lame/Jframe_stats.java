@@ -0,0 +1,55 @@
+package libmp3lame;
+
+/**
+ * java: statistics of an encoded frame, passed to Jframe_listener.
+ * The object is reused for every frame of the encoder, so the statistics cost no memory allocation.
+ * The times are measured only if a listener is set.
+ */
+public final class Jframe_stats {
+	/** number of the frame, 0 is the first frame after lame_init_params or lame_reset */
+	public int frame_number;
+	/** number of the granules of the frame, 2 for MPEG-1, 1 for MPEG-2 and MPEG-2.5 */
+	public int granules;
+	/** number of the channels */
+	public int channels;
+
+	/* times, ns */
+	/** stage 1: psychoacoustic model */
+	public long psymodel_ns;
+	/** stage 2: polyphase filtering and MDCT */
+	public long mdct_ns;
+	/** stage 4: quantization and the bit reservoir */
+	public long quantize_ns;
+	/** stage 5: bitstream formatting */
+	public long bitstream_ns;
+
+	/** bitrate index of the frame header */
+	public int bitrate_index;
+	/** bitrate, kbps. 0 if free format */
+	public int bitrate;
+	public boolean padding;
+	/** size of the frame, bytes */
+	public int frame_bytes;
+	/** MPEG mode of the frame header: Jlame.STEREO, JOINT_STEREO, DUAL_CHANNEL or MONO */
+	public int mode;
+	/** 0 = LR, 2 = MS */
+	public int mode_ext;
+	/** block type [granule][channel]: 0 normal, 1 start, 2 short, 3 stop */
+	public final int block_type[][] = new int[2][2];
+	/** perceptual entropy [granule][channel] of the psy model, of the MS channels if mode_ext is MS */
+	public final float pe[][] = new float[2][2];
+	/** bits of the scalefactors and the Huffman data [granule][channel] */
+	public final int part2_3_length[][] = new int[2][2];
+	/** iterations of the outer loop [channel], 0 in vbr_mtrh and vbr_mt modes, which don't use it */
+	public final int outer_loop_iterations[] = new int[2];
+
+	/* bit reservoir after Jreservoir.ResvFrameEnd */
+	/** the frame data begins so many bytes before the frame */
+	public int main_data_begin;
+	/** reservoir size, bits */
+	public int resv_size;
+	/** maximum reservoir size, bits */
+	public int resv_max;
+	/** bits dropped as stuffing, to keep the reservoir in the limits */
+	public int resv_drain;
+}
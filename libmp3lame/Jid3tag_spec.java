@@ -34,4 +34,36 @@ final class Jid3tag_spec {
 		v2_head = null;
 		v2_tail = null;
 	}
+	//
+	/** java: copies the tag, the frames of the ID3v2 tag are duplicated, the data are shared */
+	final void copyFrom(final Jid3tag_spec t) {
+		flags = t.flags;
+		year = t.year;
+		title = t.title;
+		artist = t.artist;
+		album = t.album;
+		comment = t.comment;
+		track_id3v1 = t.track_id3v1;
+		genre_id3v1 = t.genre_id3v1;
+		albumart = t.albumart;
+		padding_size = t.padding_size;
+		albumart_mimetype = t.albumart_mimetype;
+		language = t.language;
+		v2_head = null;
+		v2_tail = null;
+		for( JFrameDataNode node = t.v2_head; node != null; node = node.nxt ) {
+			final JFrameDataNode n = new JFrameDataNode();
+			n.fid = node.fid;
+			n.lng = node.lng;
+			n.enc = node.enc;
+			n.dsc = node.dsc;
+			n.txt = node.txt;
+			if( v2_tail == null ) {
+				v2_head = n;
+			} else {
+				v2_tail.nxt = n;
+			}
+			v2_tail = n;
+		}
+	}
 }
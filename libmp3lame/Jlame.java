@@ -2,6 +2,8 @@ package libmp3lame;
 
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 
 /* -*- mode: C; mode: fold -*- */
 /*
@@ -522,6 +524,10 @@ public final class Jlame {
 			return -1;
 		} /* already initialized */
 
+		/* java: keep the user settings, presets and defaults are applied to gfp */
+		gfp.user_settings = new Jlame_global_flags();
+		gfp.user_settings.copy_settings( gfp );
+
 		/* start updating lame internal flags */
 		gfc.class_id = Jlame_internal_flags.LAME_ID;
 		gfc.lame_init_params_successful = false; /* will be set to one, when we get through until the end */
@@ -1178,6 +1184,15 @@ public final class Jlame {
 
 		cfg.buffer_constraint = Jbitstream.get_max_frame_buffer_size_by_constraint( cfg, gfp.strict_ISO );
 
+		if( gfp.pipeline ) {
+			gfc.pipeline = new JEncPipeline( gfc, gfp.pipeline_executor );
+		}
+		gfc.quantize_pool = gfp.quantize_pool;
+		gfc.frame_listener = gfp.frame_listener;
+
+		/* java: the state to start a new stream, see lame_reset */
+		gfc.init_state = new JEncInitState( gfc );
+
 		/* updating lame internal flags finished successful */
 		gfc.lame_init_params_successful = true;
 		return 0;
@@ -1244,7 +1259,11 @@ public final class Jlame {
 		/* copy out any tags that may have been written into bitstream */
 		//{   /* if user specifed buffer size = 0, dont check size */
 			int buf_size = mp3buf_size == 0 ? Integer.MAX_VALUE : mp3buf_size;
-			int mp3size = Jbitstream.copy_buffer( gfc, mp3buf, mp3buf_offset, buf_size, false );
+			int mp3size = 0;
+			/* java: the bit buffer belongs to the pipeline thread, tags are copied out already */
+			if( gfc.pipeline == null || ! gfc.pipeline.is_busy() ) {
+				mp3size = Jbitstream.copy_buffer( gfc, mp3buf, mp3buf_offset, buf_size, false );
+			}
 		//}
 		if( mp3size < 0 ) {
 			return mp3size;
@@ -1254,17 +1273,14 @@ public final class Jlame {
 		final JSessionConfig cfg = gfc.cfg;
 		final JEncStateVar esv = gfc.sv_enc;
 		final int pcm_samples_per_frame = 576 * cfg.mode_gr;
-		final float mfbuf[][] = new float[2][];
-		final float in_buffer[][] = new float[2][];
+		final float mfbuf[][] = esv.mfbuf;
+		final float in_buffer[][] = esv.in_buffer;
 
 		in_buffer[0] = esv.in_buffer_0;
 		in_buffer[1] = esv.in_buffer_1;
 
 		final int mf_needed = calcNeeded( cfg );
 
-		mfbuf[0] = esv.mfbuf[0];
-		mfbuf[1] = esv.mfbuf[1];
-
 		int in_buffer_ptr = 0;// java: in_buffer[in_buffer_ptr]
 		while( nsamples > 0 ) {
 			//final int n_in = 0;    /* number of input samples processed with fill_buffer */
@@ -1354,13 +1370,13 @@ public final class Jlame {
 		final JEncStateVar esv = gfc.sv_enc;
 		final float[] ib0 = esv.in_buffer_0;
 		final float[] ib1 = esv.in_buffer_1;
-		final float k[][] = new float[2][2];
+		// final float k[][] = new float[2][2];// java: k00, k01, k10, k11
 
 		/* Apply user defined re-scaling */
-		k[0][0] = s * cfg.pcm_transform[0][0];
-		k[0][1] = s * cfg.pcm_transform[0][1];
-		k[1][0] = s * cfg.pcm_transform[1][0];
-		k[1][1] = s * cfg.pcm_transform[1][1];
+		final float k00 = s * cfg.pcm_transform[0][0];
+		final float k01 = s * cfg.pcm_transform[0][1];
+		final float k10 = s * cfg.pcm_transform[1][0];
+		final float k11 = s * cfg.pcm_transform[1][1];
 
 		/* make a copy of input buffer, changing type to sample_t */
 		switch( pcm_type  ) {
@@ -1379,8 +1395,8 @@ public final class Jlame {
 				for( int i = 0; i < nsamples; i++ ) {
 					final float xl = (float)bl[bli];
 					final float xr = (float)br[bri];
-					final float u = xl * k[0][0] + xr * k[0][1];
-					final float v = xl * k[1][0] + xr * k[1][1];
+					final float u = xl * k00 + xr * k01;
+					final float v = xl * k10 + xr * k11;
 					ib0[i] = u;
 					ib1[i] = v;
 					bli += jump;
@@ -1403,8 +1419,8 @@ public final class Jlame {
 				for( int i = 0; i < nsamples; i++ ) {
 					final float xl = (float)bl[bli];
 					final float xr = (float)br[bri];
-					final float u = xl * k[0][0] + xr * k[0][1];
-					final float v = xl * k[1][0] + xr * k[1][1];
+					final float u = xl * k00 + xr * k01;
+					final float v = xl * k10 + xr * k11;
 					ib0[i] = u;
 					ib1[i] = v;
 					bli += jump;
@@ -1427,8 +1443,8 @@ public final class Jlame {
 				for( int i = 0; i < nsamples; i++ ) {
 					final float xl = (float)bl[bli];
 					final float xr = (float)br[bri];
-					final float u = xl * k[0][0] + xr * k[0][1];
-					final float v = xl * k[1][0] + xr * k[1][1];
+					final float u = xl * k00 + xr * k01;
+					final float v = xl * k10 + xr * k11;
 					ib0[i] = u;
 					ib1[i] = v;
 					bli += jump;
@@ -1451,8 +1467,8 @@ public final class Jlame {
 				for( int i = 0; i < nsamples; i++ ) {
 					final float xl = (float)bl[bli];
 					final float xr = (float)br[bri];
-					final float u = xl * k[0][0] + xr * k[0][1];
-					final float v = xl * k[1][0] + xr * k[1][1];
+					final float u = xl * k00 + xr * k01;
+					final float v = xl * k10 + xr * k11;
 					ib0[i] = u;
 					ib1[i] = v;
 					bli += jump;
@@ -1475,8 +1491,8 @@ public final class Jlame {
 				for( int i = 0; i < nsamples; i++ ) {
 					final float xl = (float)bl[bli];
 					final float xr = (float)br[bri];
-					final float u = xl * k[0][0] + xr * k[0][1];
-					final float v = xl * k[1][0] + xr * k[1][1];
+					final float u = xl * k00 + xr * k01;
+					final float v = xl * k10 + xr * k11;
 					ib0[i] = u;
 					ib1[i] = v;
 					bli += jump;
@@ -1676,6 +1692,80 @@ public final class Jlame {
 	    return lame_encode_buffer_template(gfp, pcm, null, 0, nsamples, mp3buf, mp3buf_offset, mp3buf_size, pcm_int_type, 2, norm);
 	}
 
+	/**
+	 * java: as lame_encode_buffer_template, but the output is put into the ByteBuffer, which can be a direct buffer.
+	 * The frames are copied from the bit buffer into mp3buf, without an intermediate byte array.
+	 * The space is the remaining space of mp3buf, the position is advanced by the returned number of bytes.
+	 * On an error, e.g. -1 if mp3buf is too small, the position is reset to its value before the call:
+	 * the frames, which are put before the error, are dropped, as the byte[] version drops them.
+	 */
+	private static final int lame_encode_buffer_template(final Jlame_global_flags gfp,
+		final Object buffer_l, final Object buffer_r, final int offset, final int nsamples,
+		final ByteBuffer mp3buf, final int /* PCMSampleType */ pcm_type, final int aa, final float norm)
+	{
+		if( gfp.is_lame_global_flags_valid() ) {
+			final Jlame_internal_flags gfc = gfp.internal_flags;
+			if( gfc.is_lame_internal_flags_valid() ) {
+				final int position = mp3buf.position();
+				gfc.mp3out = mp3buf;
+				try {
+					final int ret = lame_encode_buffer_template( gfp, buffer_l, buffer_r, offset, nsamples, null, 0, 0, pcm_type, aa, norm );
+					if( ret < 0 ) {
+						/* java: see lame_encode_buffer_template */
+						mp3buf.position( position );
+					}
+					return ret;
+				} finally {
+					gfc.mp3out = null;
+				}
+			}
+		}
+		return -3;
+	}
+
+	/** java: as lame_encode_buffer, the output is put into mp3buf from its position */
+	public static final int lame_encode_buffer(final Jlame_global_flags gfp,
+		final short pcm_l[], final short pcm_r[], final int nsamples, final ByteBuffer mp3buf)
+	{
+		return lame_encode_buffer_template( gfp, pcm_l, pcm_r, 0, nsamples, mp3buf, pcm_short_type, 1, 1.0f );
+	}
+
+	/** java: as lame_encode_buffer_float, the output is put into mp3buf from its position */
+	public static final int lame_encode_buffer_float(final Jlame_global_flags gfp,
+		final float pcm_l[], final float pcm_r[], final int nsamples, final ByteBuffer mp3buf)
+	{
+		return lame_encode_buffer_template( gfp, pcm_l, pcm_r, 0, nsamples, mp3buf, pcm_float_type, 1, 1.0f );
+	}
+
+	/** java: as lame_encode_buffer_ieee_float, the output is put into mp3buf from its position */
+	public static final int lame_encode_buffer_ieee_float(final Jlame_global_flags gfp,
+		final float pcm_l[], final float pcm_r[], final int nsamples, final ByteBuffer mp3buf)
+	{
+		return lame_encode_buffer_template( gfp, pcm_l, pcm_r, 0, nsamples, mp3buf, pcm_float_type, 1, 32767.0f );
+	}
+
+	/** java: as lame_encode_buffer_interleaved_ieee_float, the output is put into mp3buf from its position */
+	public static final int lame_encode_buffer_interleaved_ieee_float(final Jlame_global_flags gfp,
+		final float pcm[], final int nsamples, final ByteBuffer mp3buf)
+	{
+		return lame_encode_buffer_template( gfp, pcm, null, 0, nsamples, mp3buf, pcm_float_type, 2, 32767.0f );
+	}
+
+	/** java: as lame_encode_buffer_int, the output is put into mp3buf from its position */
+	public static final int lame_encode_buffer_int(final Jlame_global_flags gfp,
+		final int pcm_l[], final int pcm_r[], final int offset, final int nsamples, final ByteBuffer mp3buf)
+	{
+		final float norm = (1.0f / (1L << (Integer.SIZE - 16)));
+		return lame_encode_buffer_template( gfp, pcm_l, pcm_r, offset, nsamples, mp3buf, pcm_int_type, 1, norm );
+	}
+
+	/** java: as lame_encode_buffer_interleaved, the output is put into mp3buf from its position */
+	public static final int lame_encode_buffer_interleaved(final Jlame_global_flags gfp,
+		final short pcm[], final int nsamples, final ByteBuffer mp3buf)
+	{
+		return lame_encode_buffer_template( gfp, pcm, null, 0, nsamples, mp3buf, pcm_short_type, 2, 1.0f );
+	}
+
 
 	/*****************************************************************
 	 Flush mp3 buffer, pad with ancillary data so last frame is complete.
@@ -1691,17 +1781,50 @@ public final class Jlame {
 		if( gfp.is_lame_global_flags_valid() ) {
 			final Jlame_internal_flags gfc = gfp.internal_flags;
 			if( gfc.is_lame_internal_flags_valid() ) {
-				Jbitstream.flush_bitstream( gfc  );
 				/* if user specifed buffer size = 0, dont check size */
 				if( mp3buffer_size == 0 ) {
 					mp3buffer_size = Integer.MAX_VALUE;
 				}
-				rc = Jbitstream.copy_buffer( gfc, mp3buffer, 0, mp3buffer_size, true );
+				int offset = 0;
+				if( gfc.pipeline != null ) {
+					/* java: the last frame */
+					offset = gfc.pipeline.finish( gfc, mp3buffer, 0, mp3buffer_size );
+					if( offset < 0 ) {
+						return offset;
+					}
+				}
+				Jbitstream.flush_bitstream( gfc  );
+				rc = Jbitstream.copy_buffer( gfc, mp3buffer, offset, mp3buffer_size - offset, true );
+				if( rc >= 0 ) {
+					rc += offset;
+				}
 			}
 		}
 		return rc;
 	}
 
+	/** java: as lame_encode_flush_nogap, the output is put into mp3buffer from its position */
+	public static final int lame_encode_flush_nogap(final Jlame_global_flags gfp, final ByteBuffer mp3buffer) {
+		if( gfp.is_lame_global_flags_valid() ) {
+			final Jlame_internal_flags gfc = gfp.internal_flags;
+			if( gfc.is_lame_internal_flags_valid() ) {
+				final int position = mp3buffer.position();
+				gfc.mp3out = mp3buffer;
+				try {
+					final int ret = lame_encode_flush_nogap( gfp, null, 0 );
+					if( ret < 0 ) {
+						/* java: see lame_encode_buffer_template */
+						mp3buffer.position( position );
+					}
+					return ret;
+				} finally {
+					gfc.mp3out = null;
+				}
+			}
+		}
+		return -3;
+	}
+
 	/** called by lame_init_params.  You can also call this after flush_nogap
 	   if you want to write new id3v2 and Xing VBR tags into the bitstream */
 	public static final int lame_init_bitstream(final Jlame_global_flags gfp) {
@@ -1830,6 +1953,21 @@ public final class Jlame {
 			mp3buffer_size_remaining = Integer.MAX_VALUE;
 		}
 
+		if( gfc.pipeline != null ) {
+			/* java: the last frame */
+			imp3 = gfc.pipeline.finish( gfc, mp3buffer, offset, mp3buffer_size_remaining );
+			if( imp3 < 0 ) {
+				return imp3;
+			}
+			offset += imp3;
+			mp3count += imp3;
+			mp3buffer_size_remaining = mp3buffer_size - mp3count;
+			/* if user specifed buffer size = 0, dont check size */
+			if( mp3buffer_size == 0 ) {
+				mp3buffer_size_remaining = Integer.MAX_VALUE;
+			}
+		}
+
 		/* mp3 related stuff.  bit buffer might still contain some mp3 data */
 		Jbitstream.flush_bitstream( gfc );
 		imp3 = Jbitstream.copy_buffer( gfc, mp3buffer, offset, mp3buffer_size_remaining, true );
@@ -1859,6 +1997,28 @@ public final class Jlame {
 		return mp3count;
 	}
 
+	/** java: as lame_encode_flush, the output is put into mp3buffer from its position */
+	public static final int lame_encode_flush(final Jlame_global_flags gfp, final ByteBuffer mp3buffer) {
+		if( gfp.is_lame_global_flags_valid() ) {
+			final Jlame_internal_flags gfc = gfp.internal_flags;
+			if( gfc.is_lame_internal_flags_valid() ) {
+				final int position = mp3buffer.position();
+				gfc.mp3out = mp3buffer;
+				try {
+					final int ret = lame_encode_flush( gfp, null, 0 );
+					if( ret < 0 ) {
+						/* java: see lame_encode_buffer_template */
+						mp3buffer.position( position );
+					}
+					return ret;
+				} finally {
+					gfc.mp3out = null;
+				}
+			}
+		}
+		return -3;
+	}
+
 	/***********************************************************************
 	 *
 	 *      lame_close ()
@@ -1963,6 +2123,28 @@ public final class Jlame {
 		}
 	}
 
+	/**
+	 * java: lame_mp3_tags_fid for a FileChannel. The tag is written by the positional write,
+	 * the position of the channel is not changed. The channel must be opened for reading and writing,
+	 * for example, by RandomAccessFile.getChannel().
+	 *
+	 * @return 0 if the tag is written or it is turned off, -1 on error, -3 if the channel is not readable
+	 */
+	public static final int lame_mp3_tags_fid(final Jlame_global_flags gfp, final FileChannel fc) {
+		if( ! gfp.is_lame_global_flags_valid() ) {
+			return -1;
+		}
+		final Jlame_internal_flags gfc = gfp.internal_flags;
+		if( ! gfc.is_lame_internal_flags_valid() ) {
+			return -1;
+		}
+		if( ! gfc.cfg.write_lame_tag || fc == null ) {
+			return 0;
+		}
+		/* Write Xing header again */
+		return JVbrTag.PutVbrTag( gfp, fc );
+	}
+
 	private static final int lame_init_internal_flags(final Jlame_internal_flags gfc)
 	{
 		if( null == gfc ) {
@@ -2069,8 +2251,6 @@ public final class Jlame {
 	}
 
 	public static final Jlame_global_flags lame_init() {
-		Jutil.init_log_table();
-
 		final Jlame_global_flags gfp = new Jlame_global_flags();
 
 		if( lame_init_old( gfp ) != 0 ) {
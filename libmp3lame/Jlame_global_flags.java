@@ -1,5 +1,8 @@
 package libmp3lame;
 
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
 /***********************************************************************
 *
 *  Control Parameters set by User.  These parameters are here for
@@ -50,6 +53,14 @@ public final class Jlame_global_flags {// struct lame_global_struct
 	boolean free_format;
 	/** 1 (default) writes ID3 tags, 0 not */
 	boolean write_id3tag_automatic;
+	/** java: quantize frames in a separate thread? default=0 */
+	boolean pipeline;
+	/** java: executor of the pipeline, null = the shared pool */
+	Executor pipeline_executor;
+	/** java: pool to quantize granules and channels in parallel, null = serial */
+	ForkJoinPool quantize_pool;
+	/** java: receives the statistics of the frames, null = none */
+	Jframe_listener frame_listener;
 
 	int     nogap_total;
 	int     nogap_current;
@@ -166,6 +177,8 @@ public final class Jlame_global_flags {// struct lame_global_struct
 	/* more internal variables are stored in this structure:                  */
 	/**************************************************************************/
 	Jlame_internal_flags internal_flags;
+	/** java: user settings as they were before lame_init_params, which changes some of them */
+	Jlame_global_flags user_settings;
 
 	boolean is_lame_global_flags_valid() {
 		/*if( gfp == null ) {
@@ -173,6 +186,90 @@ public final class Jlame_global_flags {// struct lame_global_struct
 		}*/
 		return this.class_id == Jlame_internal_flags.LAME_ID;
 	}
+
+	/**
+	 * java: copies the user settable control parameters from other flags.
+	 * Internal flags are not touched, lame_init_params must be called after copying.
+	 *
+	 * @param gfp source flags
+	 */
+	final void copy_settings(final Jlame_global_flags gfp) {
+		this.num_samples = gfp.num_samples;
+		this.num_channels = gfp.num_channels;
+		this.samplerate = gfp.samplerate;
+		this.scale = gfp.scale;
+
+		this.write_lame_tag = gfp.write_lame_tag;
+		this.decode_only = gfp.decode_only;
+		this.quality = gfp.quality;
+		this.mode = gfp.mode;
+		this.force_ms = gfp.force_ms;
+		this.free_format = gfp.free_format;
+		this.write_id3tag_automatic = gfp.write_id3tag_automatic;
+		this.pipeline = gfp.pipeline;
+		this.pipeline_executor = gfp.pipeline_executor;
+		this.quantize_pool = gfp.quantize_pool;
+		this.frame_listener = gfp.frame_listener;
+
+		this.nogap_total = gfp.nogap_total;
+		this.nogap_current = gfp.nogap_current;
+
+		this.substep_shaping = gfp.substep_shaping;
+		this.noise_shaping = gfp.noise_shaping;
+		this.subblock_gain = gfp.subblock_gain;
+		this.use_best_huffman = gfp.use_best_huffman;
+
+		this.brate = gfp.brate;
+		this.compression_ratio = gfp.compression_ratio;
+
+		this.copyright = gfp.copyright;
+		this.original = gfp.original;
+		this.extension = gfp.extension;
+		this.emphasis = gfp.emphasis;
+		this.error_protection = gfp.error_protection;
+		this.strict_ISO = gfp.strict_ISO;
+
+		this.disable_reservoir = gfp.disable_reservoir;
+
+		this.quant_comp = gfp.quant_comp;
+		this.quant_comp_short = gfp.quant_comp_short;
+		this.experimentalY = gfp.experimentalY;
+		this.experimentalZ = gfp.experimentalZ;
+		this.exp_nspsytune = gfp.exp_nspsytune;
+
+		this.preset = gfp.preset;
+
+		this.VBR = gfp.VBR;
+		this.VBR_q_frac = gfp.VBR_q_frac;
+		this.VBR_q = gfp.VBR_q;
+		this.VBR_mean_bitrate_kbps = gfp.VBR_mean_bitrate_kbps;
+		this.VBR_min_bitrate_kbps = gfp.VBR_min_bitrate_kbps;
+		this.VBR_max_bitrate_kbps = gfp.VBR_max_bitrate_kbps;
+		this.VBR_hard_min = gfp.VBR_hard_min;
+
+		this.lowpassfreq = gfp.lowpassfreq;
+		this.highpassfreq = gfp.highpassfreq;
+		this.lowpasswidth = gfp.lowpasswidth;
+		this.highpasswidth = gfp.highpasswidth;
+
+		this.maskingadjust = gfp.maskingadjust;
+		this.maskingadjust_short = gfp.maskingadjust_short;
+		this.ATHonly = gfp.ATHonly;
+		this.ATHshort = gfp.ATHshort;
+		this.noATH = gfp.noATH;
+		this.ATHtype = gfp.ATHtype;
+		this.ATHcurve = gfp.ATHcurve;
+		this.ATH_lower_db = gfp.ATH_lower_db;
+		this.athaa_type = gfp.athaa_type;
+		this.athaa_sensitivity = gfp.athaa_sensitivity;
+		this.short_blocks = gfp.short_blocks;
+		this.useTemporal = gfp.useTemporal;
+		this.interChRatio = gfp.interChRatio;
+		this.msfix = gfp.msfix;
+
+		this.attackthre = gfp.attackthre;
+		this.attackthre_s = gfp.attackthre_s;
+	}
 	/** number of samples
 	 * it's unlikely for this function to return an error */
 	public final int lame_set_num_samples(final long n_samples) {
@@ -389,6 +486,152 @@ public final class Jlame_global_flags {// struct lame_global_struct
 		return false;
 	}
 
+	/**
+	 * java: pipelined encoding. The psychoacoustic analysis of a frame runs in the calling thread,
+	 * while the previous frame is quantized and written in a separate thread, see lame_set_pipeline_executor.
+	 * The quantization and the bitstream formatting of a frame are one stage, see JEncPipeline.
+	 * The output is the same, but it is one frame late: the bytes of a frame are returned
+	 * by the next encode call or by the flush.
+	 */
+	public final int lame_set_pipeline(final boolean is_pipeline) {
+		if( is_lame_global_flags_valid() ) {
+			/* default = 0 (disabled) */
+
+			this.pipeline = is_pipeline;
+			return 0;
+		}
+		return -1;
+	}
+
+	public final boolean lame_get_pipeline() {
+		if( is_lame_global_flags_valid() ) {
+			return this.pipeline;
+		}
+		return false;
+	}
+
+	/**
+	 * java: the executor of the pipelined encoding, see lame_set_pipeline.
+	 * The encoder runs one task at a time in it. The executor is not shut down by lame_close.
+	 * Must be set before lame_init_params.
+	 *
+	 * @param executor the executor, null to use a pool of daemon threads shared by the encoders (default)
+	 */
+	public final int lame_set_pipeline_executor(final Executor executor) {
+		if( is_lame_global_flags_valid() ) {
+			this.pipeline_executor = executor;
+			return 0;
+		}
+		return -1;
+	}
+
+	public final Executor lame_get_pipeline_executor() {
+		if( is_lame_global_flags_valid() ) {
+			return this.pipeline_executor;
+		}
+		return null;
+	}
+
+	/**
+	 * java: parallel quantization. The scalefactor searches of the granules and channels
+	 * of a frame run in the pool, in CBR and ABR mode the channels of a granule.
+	 * The output is the same as of the serial quantization.
+	 *
+	 * @param pool the pool, null to quantize in the calling thread (default)
+	 */
+	public final int lame_set_quantize_pool(final ForkJoinPool pool) {
+		if( is_lame_global_flags_valid() ) {
+			this.quantize_pool = pool;
+			return 0;
+		}
+		return -1;
+	}
+
+	public final ForkJoinPool lame_get_quantize_pool() {
+		if( is_lame_global_flags_valid() ) {
+			return this.quantize_pool;
+		}
+		return null;
+	}
+
+	/**
+	 * java: per frame statistics: the times of the encoder stages, the bitrate, the block types,
+	 * the bits, the bit reservoir, the outer loop iterations and the perceptual entropy, see Jframe_stats.
+	 * Without a listener the encoder does not measure anything.
+	 * Must be set before lame_init_params. A copy by lame_clone calls the same listener.
+	 *
+	 * @param listener the listener, null to disable (default)
+	 */
+	public final int lame_set_frame_listener(final Jframe_listener listener) {
+		if( is_lame_global_flags_valid() ) {
+			this.frame_listener = listener;
+			return 0;
+		}
+		return -1;
+	}
+
+	public final Jframe_listener lame_get_frame_listener() {
+		if( is_lame_global_flags_valid() ) {
+			return this.frame_listener;
+		}
+		return null;
+	}
+
+	/**
+	 * java: starts a new stream with the same configuration, as if the encoder
+	 * was just initialized by lame_init_params, but without the initialization of the tables.
+	 * Samples not flushed yet are dropped.
+	 * The ID3 tag is kept, set the tag of the new stream before calling it,
+	 * because the ID3v2 tag and the dummy Xing/LAME frame are written here.
+	 *
+	 * @return 0 if ok, -3 if the encoder is not initialized
+	 */
+	public final int lame_reset() {
+		if( ! is_lame_global_flags_valid() ) {
+			return -3;
+		}
+		final Jlame_internal_flags gfc = this.internal_flags;
+		if( gfc == null || ! gfc.is_lame_internal_flags_valid() ) {
+			return -3;
+		}
+		if( gfc.pipeline != null ) {
+			gfc.pipeline.discard();
+		}
+		gfc.init_state.restore( gfc );
+		Jbitstream.init_bit_stream_w( gfc );
+		return Jlame.lame_init_bitstream( this );
+	}
+
+	/**
+	 * java: creates an encoder with the same configuration and ID3 tag,
+	 * ready to encode a new stream. The tables, which are not changed while encoding,
+	 * are shared, so it is much cheaper than lame_init and lame_init_params.
+	 * The copy must be closed by lame_close.
+	 *
+	 * @return the new encoder, or null if this one is not initialized
+	 */
+	public final Jlame_global_flags lame_clone() {
+		if( ! is_lame_global_flags_valid() ) {
+			return null;
+		}
+		final Jlame_internal_flags gfc = this.internal_flags;
+		if( gfc == null || ! gfc.is_lame_internal_flags_valid() ) {
+			return null;
+		}
+		final Jlame_global_flags gfp = new Jlame_global_flags();
+		gfp.class_id = this.class_id;
+		gfp.copy_settings( this );
+		gfp.user_settings = this.user_settings;
+		gfp.internal_flags = new Jlame_internal_flags();
+		gfp.internal_flags.copy_config( gfc );
+		gfp.lame_allocated_gfp = true;
+		if( gfp.lame_reset() != 0 ) {
+			Jlame.lame_close( gfp );
+			return null;
+		}
+		return gfp;
+	}
+
 	/* set and get some gapless encoding flags */
 
 	public final int lame_set_nogap_total(final int the_nogap_total) {
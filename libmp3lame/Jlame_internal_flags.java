@@ -1,5 +1,8 @@
 package libmp3lame;
 
+import java.nio.ByteBuffer;
+import java.util.concurrent.ForkJoinPool;
+
 // util.h
 
 /********************************************************************
@@ -53,6 +56,28 @@ final class Jlame_internal_flags {
 	JATH ATH;         /* all ATH related stuff */
 
 	JPsyConst cd_psy;
+	/** java: shared tables, referenced to keep them in the cache */
+	JTableCache.JATH_sfb ATH_sfb;
+	JTableCache.Jpsy psy_tables;
+
+	/** java: pipelined encoding, null if the frames are encoded serially */
+	JEncPipeline pipeline;
+	/** java: pool to quantize granules and channels in parallel, null if serially */
+	ForkJoinPool quantize_pool;
+	/** java: receives the statistics of the frames, null if none */
+	Jframe_listener frame_listener;
+	/** java: the output of the current call, if the caller gives a ByteBuffer: copy_buffer writes to it, not to the byte array */
+	ByteBuffer mp3out;
+	/** java: statistics of the frame, filled only if frame_listener is set */
+	final Jframe_stats frame_stats = new Jframe_stats();
+	/** java: state after lame_init_params, see lame_reset */
+	JEncInitState init_state;
+	/** java: scratch buffers of the frame analysis */
+	final JPsyWorkspace wk_psy = new JPsyWorkspace();
+	/** java: scratch buffers of the quantization */
+	final JQntWorkspace wk_qnt = new JQntWorkspace();
+	/** java: analysed frame of the serial encoder, reused for every frame */
+	final JEncFrameData frame_data = new JEncFrameData( l3_side.tt );
 
 	boolean is_lame_internal_flags_valid() {
 		/* if( gfc == null ) {
@@ -87,16 +112,46 @@ final class Jlame_internal_flags {
 	}
 
 	private final void free_global_data() {
-		if( /*gfc != null &&*/ this.cd_psy != null ) {
-			this.cd_psy.l.s3 = null;
-			this.cd_psy.s.s3 = null;
-			this.cd_psy = null;
-			this.cd_psy = null;
+		/* java: cd_psy is shared with other encoders, see JTableCache */
+		this.cd_psy = null;
+		this.ATH_sfb = null;
+		this.psy_tables = null;
+		this.init_state = null;
+	}
+
+	/**
+	 * java: copies the configuration of an initialized encoder.
+	 * The tables, which are not changed while encoding, are shared.
+	 * The encoding state must be set by init_state.restore.
+	 *
+	 * @param gfc initialized encoder
+	 */
+	final void copy_config(final Jlame_internal_flags gfc) {
+		this.class_id = gfc.class_id;
+		this.iteration_init_init = gfc.iteration_init_init;
+		this.cfg.copyFrom( gfc.cfg );
+		this.scalefac_band.copyFrom( gfc.scalefac_band );
+		this.tag_spec.copyFrom( gfc.tag_spec );
+		this.ATH = new JATH();
+		this.ATH.copyFrom( gfc.ATH );
+		this.cd_psy = gfc.cd_psy;
+		this.ATH_sfb = gfc.ATH_sfb;
+		this.psy_tables = gfc.psy_tables;
+		this.init_state = gfc.init_state;
+		this.quantize_pool = gfc.quantize_pool;
+		this.frame_listener = gfc.frame_listener;
+		if( gfc.pipeline != null ) {
+			this.pipeline = new JEncPipeline( this, gfc.pipeline.executor );
 		}
+		this.lame_init_params_successful = gfc.lame_init_params_successful;
 	}
 
 	/* bit stream structure */
 	final void freegfc() {
+		if( this.pipeline != null ) {
+			this.pipeline.close();
+			this.pipeline = null;
+		}
 		for( int i = 0; i <= 2 * JEncStateVar.BPC; i++ ) {
 			this.sv_enc.blackfilt[i] = null;
 		}
@@ -0,0 +1,316 @@
+package libmp3lame;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Segment-parallel encoding of a single PCM input.
+ *
+ * The input is split into frame-aligned segments. Every segment is encoded
+ * by its own encoder, configured like the calling one. A segment encoder starts
+ * some frames before its segment to warm up the psychoacoustic model, the MDCT
+ * overlap and the bitrate control, these warm-up frames are dropped.
+ * The first frame of a segment does not use the bit reservoir (main_data_begin = 0),
+ * so the frames of the segments can be concatenated into one stream.
+ *
+ * The calling encoder collects the concatenated frames like it would encode them
+ * itself: VBR seek table, music CRC, frame count and encoder padding,
+ * so lame_get_lametag_frame() or lame_mp3_tags_fid() write one correct Xing/LAME tag.
+ */
+public final class Jlame_parallel {
+	/** number of warm-up frames encoded before every segment */
+	public static final int SEGMENT_OVERLAP_FRAMES = 8;
+	/** segments shorter than this are not worth of a separate encoder */
+	public static final int MIN_SEGMENT_FRAMES = 256;
+	/** the encoder needs less than two frames of the input after a frame to output it, see Jlame.calcNeeded */
+	private static final int LOOKAHEAD_FRAMES = 2;
+
+	private Jlame_parallel() {
+	}
+
+	/** one segment: an encoder and the encoded frames of the segment */
+	private static final class Jsegment extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		//
+		private final Jlame_global_flags gfp;
+		private final short[] pcm_l;
+		private final short[] pcm_r;
+		/** first input sample fed to the encoder */
+		private final int start;
+		/** input samples of the segment from start, up to the lookahead of end_frame */
+		private final int nsamples;
+		/** number of warm-up frames to drop */
+		private final int skip_frames;
+		/** number of frames to encode, including warm-up frames. 0 for the last segment */
+		private final int end_frame;
+		//
+		private byte[] mp3buf;
+		private int mp3size;
+		/** offset of the first kept frame in mp3buf */
+		private int kept_offset;
+		private int error;
+
+		private Jsegment(final Jlame_global_flags gfp, final short[] pcm_l, final short[] pcm_r,
+				final int start, final int nsamples, final int skip_frames, final int end_frame)
+		{
+			this.gfp = gfp;
+			this.pcm_l = pcm_l;
+			this.pcm_r = pcm_r;
+			this.start = start;
+			this.nsamples = nsamples;
+			this.skip_frames = skip_frames;
+			this.end_frame = end_frame;
+		}
+
+		@Override
+		protected void compute() {
+			final int framesize = this.gfp.lame_get_framesize();
+			final short[] l = new short[framesize];
+			final short[] r = new short[framesize];
+			/* mp3buf_size in bytes = 1.25*num_samples + 7200 */
+			final byte[] buf = new byte[(int)(1.25 * this.nsamples) + 7200];
+			int size = 0;
+			int ret;
+			int i = 0;
+			while( i < this.nsamples ) {
+				if( this.end_frame > 0 && this.gfp.lame_get_frameNum() >= this.end_frame ) {
+					break;
+				}
+				final int n = Math.min( framesize, this.nsamples - i );
+				System.arraycopy( this.pcm_l, this.start + i, l, 0, n );
+				if( this.pcm_r != null ) {
+					System.arraycopy( this.pcm_r, this.start + i, r, 0, n );
+				}
+				ret = Jlame.lame_encode_buffer( this.gfp, l, r, n, buf, size, buf.length - size );
+				if( ret < 0 ) {
+					this.error = ret;
+					return;
+				}
+				size += ret;
+				i += n;
+			}
+			/* java: lame_encode_flush writes from the beginning of the buffer */
+			final byte[] flushbuf = new byte[7200];
+			if( this.end_frame > 0 ) {
+				ret = Jlame.lame_encode_flush_nogap( this.gfp, flushbuf, flushbuf.length );
+			} else {
+				ret = Jlame.lame_encode_flush( this.gfp, flushbuf, flushbuf.length );
+			}
+			if( ret < 0 ) {
+				this.error = ret;
+				return;
+			}
+			if( size + ret > buf.length ) {
+				this.error = -1;
+				return;
+			}
+			System.arraycopy( flushbuf, 0, buf, size, ret );
+			size += ret;
+			this.mp3buf = buf;
+			this.mp3size = size;
+			this.kept_offset = skip_frames( this.gfp.internal_flags.cfg, buf, size, this.skip_frames );
+			if( this.kept_offset < 0 ) {
+				this.error = -4;
+			}
+		}
+	}
+
+	/** runs all segments in the pool */
+	private static final class Jsegments extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		//
+		private final Jsegment[] segments;
+
+		private Jsegments(final Jsegment[] segments) {
+			this.segments = segments;
+		}
+
+		@Override
+		protected void compute() {
+			ForkJoinTask.invokeAll( this.segments );
+		}
+	}
+
+	/**
+	 * @return size in bytes of the layer III frame, which starts at offset
+	 */
+	private static final int frame_length(final JSessionConfig cfg, final byte[] buf, final int offset) {
+		final int bitrate_index = ((int)buf[offset + 2] & 0xff) >> 4;
+		final int padding = ((int)buf[offset + 2] >> 1) & 1;
+		final int kbps = Jtables.bitrate_table[cfg.version][bitrate_index];
+		return (cfg.version + 1) * 72000 * kbps / cfg.samplerate + padding;
+	}
+
+	/**
+	 * @return offset of the frame number nframes, -1 if the stream is broken
+	 */
+	private static final int skip_frames(final JSessionConfig cfg, final byte[] buf, final int size, int nframes) {
+		int offset = 0;
+		while( nframes-- > 0 ) {
+			if( offset + 4 > size || ((int)buf[offset] & 0xff) != 0xff ) {
+				return -1;
+			}
+			offset += frame_length( cfg, buf, offset );
+		}
+		return offset;
+	}
+
+	/**
+	 * Encodes the entire input in the pool and flushes the encoder, like
+	 * lame_encode_buffer() followed by lame_encode_flush().
+	 * The encoder must be initialized by lame_init_params() and must not have encoded any samples yet.
+	 * Free format and very short inputs are encoded in the calling thread.
+	 *
+	 * @param gfp initialized encoder
+	 * @param pcm_l left channel
+	 * @param pcm_r right channel, may be null for mono input
+	 * @param nsamples number of samples per channel
+	 * @param mp3buf output
+	 * @param mp3buf_offset offset in mp3buf
+	 * @param mp3buf_size available space in mp3buf, 0 for no check
+	 * @param pool pool to run segment encoders
+	 * @return number of bytes output in mp3buf, or negative error code like lame_encode_buffer()
+	 */
+	public static final int lame_encode_buffer_parallel(final Jlame_global_flags gfp,
+		final short[] pcm_l, final short[] pcm_r, final int nsamples,
+		final byte[] mp3buf, int mp3buf_offset, final int mp3buf_size, final ForkJoinPool pool)
+	{
+		if( ! gfp.is_lame_global_flags_valid() ) {
+			return -3;
+		}
+		final Jlame_internal_flags gfc = gfp.internal_flags;
+		if( ! gfc.is_lame_internal_flags_valid() ) {
+			return -3;
+		}
+		final JSessionConfig cfg = gfc.cfg;
+		final int framesize = 576 * cfg.mode_gr;
+		/* frames of the serial encoder, see lame_encode_flush */
+		int end_padding = framesize - ((Jencoder.ENCDELAY + nsamples) % framesize);
+		if( end_padding < 576 ) {
+			end_padding += framesize;
+		}
+		final int totalframes = (Jencoder.ENCDELAY + nsamples + end_padding) / framesize;
+		final int nsegments = Math.min( pool.getParallelism() << 1, totalframes / MIN_SEGMENT_FRAMES );
+
+		if( cfg.free_format || nsegments < 2 || gfc.ov_enc.frame_number != 0 ) {
+			/* nothing to do in parallel */
+			final int ret = Jlame.lame_encode_buffer( gfp, pcm_l, pcm_r, nsamples, mp3buf, mp3buf_offset, mp3buf_size );
+			if( ret < 0 ) {
+				return ret;
+			}
+			/* java: lame_encode_flush writes from the beginning of the buffer */
+			final byte[] flushbuf = new byte[7200];
+			final int flush = Jlame.lame_encode_flush( gfp, flushbuf, flushbuf.length );
+			if( flush < 0 ) {
+				return flush;
+			}
+			if( mp3buf_size != 0 && ret + flush > mp3buf_size ) {
+				return -1;
+			}
+			System.arraycopy( flushbuf, 0, mp3buf, mp3buf_offset + ret, flush );
+			return ret + flush;
+		}
+
+		/* segment encoders, created here, because lame_init_params is not thread safe */
+		final Jsegment segments[] = new Jsegment[nsegments];
+		for( int i = 0; i < nsegments; i++ ) {
+			final int first_frame = (int)((long)totalframes * i / nsegments);
+			final int warmup = Math.min( first_frame, SEGMENT_OVERLAP_FRAMES );
+			final int frame0 = first_frame - warmup;
+			final int end_frame = (i == nsegments - 1) ? 0 :
+					(int)((long)totalframes * (i + 1) / nsegments) - frame0;
+
+			final Jlame_global_flags sgfp = Jlame.lame_init();
+			if( sgfp == null ) {
+				return -2;
+			}
+			sgfp.copy_settings( gfp.user_settings );
+			sgfp.write_lame_tag = false;
+			sgfp.write_id3tag_automatic = false;
+			if( Jlame.lame_init_params( sgfp ) < 0 ) {
+				return -3;
+			}
+			final JEncStateVar esv = sgfp.internal_flags.sv_enc;
+			/* same padding bits as the serial encoder would use for this frame */
+			if( esv.frac_SpF != 0 ) {
+				final long lag = ((long)esv.slot_lag - (long)frame0 * esv.frac_SpF) % cfg.samplerate;
+				esv.slot_lag = (int)(lag < 0 ? lag + cfg.samplerate : lag);
+			}
+			if( warmup > 0 ) {
+				esv.ResvBarrier = warmup;
+			}
+			final int start = frame0 * framesize;
+			int segment_samples = Math.max( 0, nsamples - start );
+			if( end_frame > 0 ) {
+				/* the buffer of the segment is sized by its own frames, not by the rest of the input */
+				segment_samples = (int)Math.min( segment_samples, (long)(end_frame + LOOKAHEAD_FRAMES) * framesize );
+			}
+			segments[i] = new Jsegment( sgfp, pcm_l, pcm_r, start, segment_samples, warmup, end_frame );
+		}
+
+		pool.invoke( new Jsegments( segments ) );
+
+		/* id3v2 and dummy VBR tag, written by lame_init_params */
+		int buf_size = mp3buf_size == 0 ? Integer.MAX_VALUE : mp3buf_size;
+		int mp3size = Jbitstream.copy_buffer( gfc, mp3buf, mp3buf_offset, buf_size, false );
+		if( mp3size < 0 ) {
+			return mp3size;
+		}
+		mp3buf_offset += mp3size;
+
+		for( int i = 0; i < nsegments; i++ ) {
+			final Jsegment s = segments[i];
+			Jlame.lame_close( s.gfp );
+			if( s.error < 0 ) {
+				return s.error;
+			}
+			final byte[] buf = s.mp3buf;
+			int offset = s.kept_offset;
+			int end = s.mp3size;
+			if( i < nsegments - 1 ) {
+				end = skip_frames( cfg, buf, s.mp3size, s.end_frame );
+				if( end < 0 ) {
+					return -4;
+				}
+			}
+			final int length = end - offset;
+			if( mp3buf_size != 0 && mp3size + length > mp3buf_size ) {
+				return -1;
+			}
+			System.arraycopy( buf, offset, mp3buf, mp3buf_offset, length );
+			/* collect data for the Xing/LAME tag, like copy_buffer and AddVbrFrame */
+			gfc.nMusicCRC = JVbrTag.UpdateMusicCRC( gfc.nMusicCRC, mp3buf, mp3buf_offset, length );
+			gfc.VBR_seek_table.nBytesWritten += length;
+			while( offset < end ) {
+				gfc.ov_enc.bitrate_index = ((int)buf[offset + 2] & 0xff) >> 4;
+				gfc.ov_enc.mode_ext = ((int)buf[offset + 3] >> 4) & 3;
+				if( cfg.write_lame_tag ) {
+					JVbrTag.AddVbrFrame( gfc );
+				}
+				++gfc.ov_enc.frame_number;
+				offset += frame_length( cfg, buf, offset );
+			}
+			mp3buf_offset += length;
+			mp3size += length;
+			s.mp3buf = null;
+		}
+
+		/* the encoder is flushed now */
+		gfc.ov_enc.encoder_padding = end_padding;
+		gfc.sv_enc.mf_samples_to_encode = 0;
+
+		if( gfp.write_id3tag_automatic ) {
+			/* write a id3 tag to the bitstream */
+			Jid3tag.id3tag_write_v1( gfp );
+
+			buf_size = mp3buf_size == 0 ? Integer.MAX_VALUE : mp3buf_size - mp3size;
+			final int imp3 = Jbitstream.copy_buffer( gfc, mp3buf, mp3buf_offset, buf_size, false );
+			if( imp3 < 0 ) {
+				return imp3;
+			}
+			mp3size += imp3;
+		}
+		return mp3size;
+	}
+}
@@ -43,6 +43,9 @@ public final class Jlame_version {
 	// private static final int LAME_TYPE_VERSION  =  2; /* 0:alpha 1:beta 2:release */
 	private static final int LAME_PATCH_VERSION =  0; /* Patch level */
 
+	/** java: get_lame_short_version */
+	private static final String LAME_SHORT_VERSION = LAME_MAJOR_VERSION + "." + LAME_MINOR_VERSION + "." + LAME_PATCH_VERSION;
+
 	private static final int PSY_MAJOR_VERSION  = 1; /* Major version number */
 	private static final int PSY_MINOR_VERSION  = 0; /* Minor version number */
 
@@ -80,7 +83,7 @@ public final class Jlame_version {
 	static final String get_lame_short_version() {
 		/* adding date and time to version string makes it harder for output
 		validation */
-		return new StringBuilder().append( LAME_MAJOR_VERSION ).append('.').append( LAME_MINOR_VERSION ).append('.').append( LAME_PATCH_VERSION ).toString();
+		return LAME_SHORT_VERSION;// java: constant, drain_into_ancillary calls it for every frame
 	}
 
 	/** Get the _very_ short LAME version string.
@@ -33,7 +33,7 @@ package libmp3lame;
 final class Jnewmdct {
 	private static final double SQRT2 = Math.sqrt( 2. );// 1.41421356237309504880
 
-	private static final float enwindow[] = {
+	static final float enwindow[] = {
 		(float)(-4.77e-07 * 0.740951125354959 / 2.384e-06), (float)(1.03951e-04 * 0.740951125354959 / 2.384e-06),
 		(float)(9.53674e-04 * 0.740951125354959 / 2.384e-06), (float)(2.841473e-03 * 0.740951125354959 / 2.384e-06),
 		(float)(3.5758972e-02 * 0.740951125354959 / 2.384e-06), (float)(3.401756e-03 * 0.740951125354959 / 2.384e-06), (float)(9.83715e-04 * 0.740951125354959 / 2.384e-06), (float)(9.9182e-05 * 0.740951125354959 / 2.384e-06), /* 15 */
@@ -204,10 +204,10 @@ final class Jnewmdct {
 		(float)(4.756451e-03 / 2.384e-06), (float)(2.1458e-05 / 2.384e-06), (float)(-6.9618e-05 / 2.384e-06), /*    2.384e-06/2.384e-06 */
 	};
 
-	private static final int NS = 12;
-	private static final int NL = 36;
+	static final int NS = 12;
+	static final int NL = 36;
 
-	private static final float win[][] = {// [4][NL] = {
+	static final float win[][] = {// [4][NL] = {
 		{
 			(float)2.382191739347913e-13,
 			(float)6.423305872147834e-13,
@@ -395,13 +395,13 @@ final class Jnewmdct {
 ************************************************************************/
 
 	/** new IDCT routine written by Takehiro TOMINAGA */
-	private static final int order[] = {
+	static final int order[] = {
 		0, 1, 16, 17, 8, 9, 24, 25, 4, 5, 20, 21, 12, 13, 28, 29,
 		2, 3, 18, 19, 10, 11, 26, 27, 6, 7, 22, 23, 14, 15, 30, 31
 	};
 
 	/** returns sum_j=0^31 a[j]*cos(PI*j*(k+1/2)/32), 0<=k<32 */
-	private static final void window_subband(final float[] x1, final int xoffset, final float a[/* SBLIMIT */]) {
+	static final void window_subband(final float[] x1, final int xoffset, final float a[/* SBLIMIT */]) {
 		int wp = 10;// enwindow[wp]
 
 		int x1i = xoffset;// java x1[x1i]
@@ -472,6 +472,18 @@ final class Jnewmdct {
 			x1i--;
 			x2i++;
 		}
+		window_subband_dct32( x1, x1i, a );
+	}
+
+	/**
+	 * java: the end of window_subband, the last row of the window and the DCT of 32 points.
+	 * Used by the vector kernels too, see Jencoder_kernels.
+	 *
+	 * @param x1i xoffset - 15
+	 * @param a the windowed rows 0-29
+	 */
+	static final void window_subband_dct32(final float[] x1, final int x1i, final float a[/* SBLIMIT */]) {
+		final int wp = 10 + 15 * 18;// enwindow[wp]
 		{
 			float t = x1[x1i + -16] * enwindow[wp + -10];
 			float s = x1[x1i + -32] * enwindow[wp + -2];
@@ -895,16 +907,98 @@ final class Jnewmdct {
 		}
 	}
 
-	private static final float wshort[] = win[Jencoder.SHORT_TYPE];// java: tantal_l,ca,cs
+	static final float wshort[] = win[Jencoder.SHORT_TYPE];// java: tantal_l,ca,cs
+
+	/**
+	 * java: the MDCT of the 32 subbands of a granule, the end of mdct_sub48.
+	 * Used by the vector kernels too, see Jencoder_kernels.
+	 *
+	 * @param band0 the previous subband samples
+	 * @param band1 the current subband samples
+	 */
+	static final void mdct_bands(final Jlame_internal_flags gfc, final Jgr_info gi, final float[][] band0, final float[][] band1) {
+		final float[] amp_filter = gfc.sv_enc.amp_filter;// java
+		final float[] xr = gi.xr;// java
+		int mdct_enc = 0;// xr[mdct_enc]
+		int k;
+		/*
+		 * Perform imdct of 18 previous subband samples
+		 * + 18 current subband samples
+		 */
+		for( int band = 0; band < 32; band++, mdct_enc += 18 ) {
+			int type = gi.block_type;
+			final int off = order[band];// java
+			if( gi.mixed_block_flag && band < 2 ) {
+				type = 0;
+			}
+			if( amp_filter[band] < 1e-12f ) {
+				int i = mdct_enc + 18;
+				do {
+					xr[--i] = 0;
+				} while( i > mdct_enc );
+			} else {
+				if( amp_filter[band] < 1.0f ) {
+					k = 0;
+					do {
+						// band1[k * 32] *= esv->amp_filter[band];// FIXME dirty way for navigation on 2-dim array
+						band1[k][off] *= amp_filter[band];
+					} while( ++k < 18 );
+				}
+				if( type == Jencoder.SHORT_TYPE ) {
+					int k3 = mdct_enc + (-NS / 4) * 3;
+					for( k = -NS / 4; k < 0; k++, k3 += 3 ) {// FIXME dirty way for navigation on 2-dim arrays band0 and band1
+						final float w = wshort[k + 3];
+						xr[k3 + 9] = band0[9 + k][off] * w - band0[8 - k][off];
+						xr[k3 + 18] = band0[14 - k][off] * w + band0[15 + k][off];
+						xr[k3 + 10] = band0[15 + k][off] * w - band0[14 - k][off];
+						xr[k3 + 19] = band1[2 - k][off] * w + band1[3 + k][off];
+						xr[k3 + 11] = band1[3 + k][off] * w - band1[2 - k][off];
+						xr[k3 + 20] = band1[8 - k][off] * w + band1[9 + k][off];
+					}
+					mdct_short( xr, mdct_enc );
+				} else {
+					final float[] wt = win[type];// java
+					final float work[] = gfc.wk_psy.mdct_work;
+					k = -NL / 4;
+					do {// FIXME dirty way for navigation on 2-dim arrays band0 and band1
+						final float a = wt[k + 27] * band1[k + 9][off]
+								+ wt[k + 36] * band1[8 - k][off];
+						final float b = wt[k + 9] * band0[k + 9][off]
+								- wt[k + 18] * band0[8 - k][off];
+						final float w = wshort[3 + k + 9];
+						work[k + 9] = a - b * w;
+						work[k + 18] = a * w + b;
+					} while( ++k < 0 );
+
+					mdct_long( xr, mdct_enc, work );
+				}
+			}
+			/* Perform aliasing reduction butterfly */
+			if( type != Jencoder.SHORT_TYPE && band != 0 ) {
+				k = 7;
+				do {
+					final float w20 = wshort[20 + k];
+					final float w28 = wshort[28 + k];
+					final float bu = xr[mdct_enc + k] * w20 + xr[mdct_enc + -1 - k] * w28;
+					final float bd = xr[mdct_enc + k] * w28 - xr[mdct_enc + -1 - k] * w20;
+
+					xr[mdct_enc + -1 - k] = bu;
+					xr[mdct_enc + k] = bd;
+				} while( --k >= 0 );
+			}
+		}
+	}
 
-	static final void mdct_sub48(final Jlame_internal_flags gfc, final float[] w0, final float[] w1) {
+	/**
+	 * @param tt java: granule info, block types are input, xr is output
+	 */
+	static final void mdct_sub48(final Jlame_internal_flags gfc, final float[] w0, final float[] w1, final Jgr_info[][] tt) {
 		final JSessionConfig cfg = gfc.cfg;
 		final JEncStateVar esv = gfc.sv_enc;
 		float[] wa = w0;// java
 		int wk = 286;// w[wk]
-		final Jgr_info[][] tt = gfc.l3_side.tt;// java
 		final float[][][][] esv_sb_sample = esv.sb_sample;// java
-		final float[] amp_filter = esv.amp_filter;// java
+		final Jencoder_kernels kernels = Jencoder_kernels.kernels;// java
 		/* thinking cache performance, ch.gr loop is better than gr.ch loop */
 		final int channels_out = cfg.channels_out;// java
 		final int mode_gr = cfg.mode_gr;// java
@@ -913,8 +1007,6 @@ final class Jnewmdct {
 			final float[][][] esv_sb_sample_ch = esv_sb_sample[ch];// java
 			for( int gr = 0; gr < mode_gr; gr++ ) {
 				final Jgr_info gi = tt[gr][ch];
-				final float[] xr = gi.xr;// java
-				int mdct_enc = 0;// xr[mdct_enc]
 				final float[][] sb_sample = esv_sb_sample_ch[1 - gr];// java
 				int samp = 0;// sb_sample[samp]
 
@@ -923,8 +1015,8 @@ final class Jnewmdct {
 					//window_subband( wk, samp );
 					//window_subband( wk + 32, samp + 32 );// FIXME dirty way for navigation on 2-dim array
 					//samp += 64;
-					window_subband( wa, wk, sb_sample[ samp ] );
-					window_subband( wa, wk + 32, sb_sample[ ++samp ] );
+					kernels.window_subband( wa, wk, sb_sample[ samp ] );
+					kernels.window_subband( wa, wk + 32, sb_sample[ ++samp ] );
 					final float[] sb_sample1 = sb_sample[samp++];// java sb_sample[ samp - 1 ]
 					wk += 64;
 					/* Compensate for inversion in the analysis filter */
@@ -936,74 +1028,7 @@ final class Jnewmdct {
 					} while( band < 32 );
 				} while( ++k < 18 / 2 );
 
-				/*
-				 * Perform imdct of 18 previous subband samples
-				 * + 18 current subband samples
-				 */
-				for( int band = 0; band < 32; band++, mdct_enc += 18 ) {
-					int type = gi.block_type;
-					final int off = order[band];// java
-					final float[][] band0 = esv_sb_sample_ch[gr];
-					final float[][] band1 = esv_sb_sample_ch[1 - gr];
-					if( gi.mixed_block_flag && band < 2 ) {
-						type = 0;
-					}
-					if( amp_filter[band] < 1e-12f ) {
-						int i = mdct_enc + 18;
-						do {
-							xr[--i] = 0;
-						} while( i > mdct_enc );
-					} else {
-						if( amp_filter[band] < 1.0f ) {
-							k = 0;
-							do {
-								// band1[k * 32] *= esv->amp_filter[band];// FIXME dirty way for navigation on 2-dim array
-								band1[k][off] *= amp_filter[band];
-							} while( ++k < 18 );
-						}
-						if( type == Jencoder.SHORT_TYPE ) {
-							int k3 = mdct_enc + (-NS / 4) * 3;
-							for( k = -NS / 4; k < 0; k++, k3 += 3 ) {// FIXME dirty way for navigation on 2-dim arrays band0 and band1
-								final float w = wshort[k + 3];
-								xr[k3 + 9] = band0[9 + k][off] * w - band0[8 - k][off];
-								xr[k3 + 18] = band0[14 - k][off] * w + band0[15 + k][off];
-								xr[k3 + 10] = band0[15 + k][off] * w - band0[14 - k][off];
-								xr[k3 + 19] = band1[2 - k][off] * w + band1[3 + k][off];
-								xr[k3 + 11] = band1[3 + k][off] * w - band1[2 - k][off];
-								xr[k3 + 20] = band1[8 - k][off] * w + band1[9 + k][off];
-							}
-							mdct_short( xr, mdct_enc );
-						} else {
-							final float[] wt = win[type];// java
-							final float work[] = new float[18];
-							k = -NL / 4;
-							do {// FIXME dirty way for navigation on 2-dim arrays band0 and band1
-								final float a = wt[k + 27] * band1[k + 9][off]
-										+ wt[k + 36] * band1[8 - k][off];
-								final float b = wt[k + 9] * band0[k + 9][off]
-										- wt[k + 18] * band0[8 - k][off];
-								final float w = wshort[3 + k + 9];
-								work[k + 9] = a - b * w;
-								work[k + 18] = a * w + b;
-							} while( ++k < 0 );
-
-							mdct_long( xr, mdct_enc, work );
-						}
-					}
-					/* Perform aliasing reduction butterfly */
-					if( type != Jencoder.SHORT_TYPE && band != 0 ) {
-						k = 7;
-						do {
-							final float w20 = wshort[20 + k];
-							final float w28 = wshort[28 + k];
-							final float bu = xr[mdct_enc + k] * w20 + xr[mdct_enc + -1 - k] * w28;
-							final float bd = xr[mdct_enc + k] * w28 - xr[mdct_enc + -1 - k] * w20;
-
-							xr[mdct_enc + -1 - k] = bu;
-							xr[mdct_enc + k] = bd;
-						} while( --k >= 0 );
-					}
-				}
+				kernels.mdct_bands( gfc, gi, esv_sb_sample_ch[gr], esv_sb_sample_ch[1 - gr] );
 			}
 			wa = w1;
 			wk = 286;
@@ -1,5 +1,7 @@
 package libmp3lame;
 
+import java.util.Arrays;
+
 /*
  *      psymodel.c
  *
@@ -163,7 +165,7 @@ final class Jpsymodel {
 	private static final float NSATTACKTHRE = 4.4f;
 	private static final float NSATTACKTHRE_S = 25;
 
-	private static final int NSFIRLEN = 21;
+	static final int NSFIRLEN = 21;
 
 	// #define  LN_TO_LOG10  0.2302585093
 	private static final double LN_TO_LOG10 = Math.log( 10. ) / 10.;
@@ -254,7 +256,7 @@ future:  Data indicates that the shape of the equal loudness curve varies
 	   After additive masking computation, 8dB are added, so
 	   final values are going from 8dB to 17.3dB
 	 */
-	private static final float tab[] = {
+	static final float tab[] = {
 		1.0f /*pow(10, -0) */ ,
 		0.79433f /*pow(10, -0.1) */ ,
 		0.63096f /*pow(10, -0.2) */ ,
@@ -382,8 +384,8 @@ future:  Data indicates that the shape of the equal loudness curve varies
 	{
 		final JPsyStateVar psv = gfc.sv_psy;
 		final JPsyConst_CB2SB gds = gfc.cd_psy.s;
-		final float enn[] = new float[Jencoder.SBMAX_s];
-		final float thm[] = new float[Jencoder.SBMAX_s];
+		final float enn[] = gfc.wk_psy.enn;
+		final float thm[] = gfc.wk_psy.thm;
 		convert_partition2scalefac( gds, eb, thr, enn, thm );
 		final float[][] en_chn_s = psv.en[chn].s;// java
 		final float[][] thm_chn_s = psv.thm[chn].s;// java
@@ -407,8 +409,8 @@ future:  Data indicates that the shape of the equal loudness curve varies
 	{
 		final JPsyStateVar psv = gfc.sv_psy;
 		final JPsyConst_CB2SB gds = gfc.cd_psy.l_to_s;
-		final float enn[] = new float[Jencoder.SBMAX_s];
-		final float thm[] = new float[Jencoder.SBMAX_s];
+		final float enn[] = gfc.wk_psy.enn;
+		final float thm[] = gfc.wk_psy.thm;
 		convert_partition2scalefac( gds, eb, thr, enn, thm );
 		final float[][] en_chn_s = psv.en[chn].s;// java
 		final float[][] thm_chn_s = psv.thm[chn].s;// java
@@ -529,7 +531,8 @@ future:  Data indicates that the shape of the equal loudness curve varies
 		return pe_l;
 	}
 
-	private static final void calc_energy(final JPsyConst_CB2SB l, final float[] fftenergy, final float[] eb, final float[] max, final float[] avg)
+	/** java: used by vbrpsy_compute_masking_l and vbrpsy_compute_masking_s, see Jencoder_kernels */
+	static final void calc_energy(final JPsyConst_CB2SB l, final float[] fftenergy, final float[] eb, final float[] max, final float[] avg)
 	{
 		final int[] n = l.numlines;
 		final float[] rn = l.rnumlines;
@@ -548,6 +551,27 @@ future:  Data indicates that the shape of the equal loudness curve varies
 		}
 	}
 
+	/**
+	 * java: the terms of the convolution of vbrpsy_compute_masking_l and vbrpsy_compute_masking_s, see Jencoder_kernels.
+	 * s3 has the values of the spreading function of the partitions s3ind[b][0] ... s3ind[b][1] one after the other,
+	 * band by band, s3kk has the partition of every value: ecb[k] = s3[k] * eb[kk] * tab[mask_idx[kk]], kk = s3kk[k].
+	 *
+	 * @param mask_tab tab[mask_idx[kk]], npart values, set by the method
+	 * @param ecb the terms, s3.length values
+	 */
+	static final void spread_energy(final JPsyConst_CB2SB gd, final float[] eb, final byte[] mask_idx, final float[] mask_tab, final float[] ecb)
+	{
+		for( int kk = 0, npart = gd.npart; kk < npart; kk++ ) {
+			mask_tab[kk] = tab[ mask_idx[kk] ];
+		}
+		final float[] s3 = gd.s3;
+		final int[] s3kk = gd.s3kk;
+		for( int k = 0, n = s3.length; k < n; k++ ) {
+			final int kk = s3kk[k];
+			ecb[k] = s3[k] * eb[kk] * mask_tab[kk];
+		}
+	}
+
 	private static final void calc_mask_index_l(final Jlame_internal_flags gfc, final float[] max, final float[] avg, final byte[] mask_idx)
 	{
 		final JPsyConst_CB2SB gdl = gfc.cd_psy.l;
@@ -706,12 +730,50 @@ future:  Data indicates that the shape of the equal loudness curve varies
 		}
 	}
 
-	private static final float fircoef[] = {
+	static final float fircoef[] = {
 		-8.65163e-18f * 2, -0.00851586f * 2, -6.74764e-18f * 2, 0.0209036f * 2,
 		-3.36639e-17f * 2, -0.0438162f * 2, -1.54175e-17f * 2, 0.0931738f * 2,
 		-5.52212e-17f * 2, -0.313819f * 2
 	};
 
+	/**
+	 * java: the high pass filter of fs/4 of vbrpsy_attack_detection, see Jencoder_kernels
+	 *
+	 * @param firbuf the input signal
+	 * @param boffset the offset of the first sample of the filter
+	 * @param hpfsmpl 576 filtered samples
+	 */
+	static final void attack_hpf(final float[] firbuf, final int boffset, final float[] hpfsmpl) {
+		for( int i = 0, bi = boffset; i < 576; i++, bi++ ) {
+			float sum1 = firbuf[bi + 10];
+			float sum2 = 0.0f;
+			for( int j = 0, bij = bi + NSFIRLEN; j < ((NSFIRLEN - 1) / 2) - 1; j++, bij-- ) {
+				sum1 += fircoef[j] * (firbuf[bi + j] + firbuf[bij]);
+				j++; bij--;
+				sum2 += fircoef[j] * (firbuf[bi + j] + firbuf[bij]);
+			}
+			hpfsmpl[i] = sum1 + sum2;
+		}
+	}
+
+	/**
+	 * java: the energy of a sub-shortblock of vbrpsy_attack_detection, see Jencoder_kernels
+	 *
+	 * @return the maximum of p and the absolute values of pf[pfi] ... pf[pfi + n - 1]
+	 */
+	static final float max_abs(final float[] pf, int pfi, final int n, float p) {
+		for( final int pfe = pfi + n; pfi < pfe; pfi++ ) {
+			float abspf = pf[pfi];
+			if( abspf < 0 ) {
+				abspf = -abspf;
+			}
+			if( p < abspf ) {
+				p = abspf;
+			}
+		}
+		return p;
+	}
+
 	/**********************************************************************
 	*  Apply HPF of fs/4 to the input signal.
 	*  This is used for attack detection / handling.
@@ -723,7 +785,7 @@ future:  Data indicates that the shape of the equal loudness curve varies
 		final float energy[/*4*/], final float sub_short_factor[/*4*/][/*3*/], final int ns_attacks[/*4*/][/*4*/],
 		final boolean uselongblock[/*2*/])
 	{
-		final float ns_hpfsmpl[][] = new float[2][576];// java: already zeroed
+		final float ns_hpfsmpl[][] = gfc.wk_psy.ns_hpfsmpl;
 		final JSessionConfig cfg = gfc.cfg;
 		final JPsyStateVar psv = gfc.sv_psy;
 		final int n_chn_out = cfg.channels_out;
@@ -734,20 +796,11 @@ future:  Data indicates that the shape of the equal loudness curve varies
 		/* unroll the loop 2 times */
 		boffset += 576 - 350 - NSFIRLEN + 192;
 		final JIII_psy_ratio[] masking_ratio_gr_out = masking_ratio[gr_out];// java
+		final Jencoder_kernels kernels = Jencoder_kernels.kernels;// java
 		for( int chn = 0; chn < n_chn_out; chn++ ) {
 
 			/* apply high pass filter of fs/4 */
-			final float[] firbuf = buffer[chn];//&buffer[chn][576 - 350 - NSFIRLEN + 192];
-			for( int i = 0, bi = boffset; i < 576; i++, bi++ ) {
-				float sum1 = firbuf[bi + 10];
-				float sum2 = 0.0f;
-				for( int j = 0, bij = bi + NSFIRLEN; j < ((NSFIRLEN - 1) / 2) - 1; j++, bij-- ) {
-					sum1 += fircoef[j] * (firbuf[bi + j] + firbuf[bij]);
-					j++; bij--;
-					sum2 += fircoef[j] * (firbuf[bi + j] + firbuf[bij]);
-				}
-				ns_hpfsmpl[chn][i] = sum1 + sum2;
-			}
+			kernels.attack_hpf( buffer[chn], boffset, ns_hpfsmpl[chn] );//&buffer[chn][576 - 350 - NSFIRLEN + 192];
 			masking_ratio_gr_out[chn].en.copyFrom( psv.en[chn] );
 			masking_ratio_gr_out[chn].thm.copyFrom( psv.thm[chn] );
 			if( n_chn_psy > 2 ) {
@@ -757,9 +810,9 @@ future:  Data indicates that the shape of the equal loudness curve varies
 				masking_MS_ratio[gr_out][chn].thm.copyFrom( psv.thm[chn + 2] );
 			}
 		}
-		final float attack_intensity[] = new float[12];
-		final float en_subshort[] = new float[12];
-		final float en_short[] = new float[4];// = { 0, 0, 0, 0 };
+		final float attack_intensity[] = gfc.wk_psy.attack_intensity;
+		final float en_subshort[] = gfc.wk_psy.en_subshort;
+		final float en_short[] = gfc.wk_psy.en_short;// = { 0, 0, 0, 0 };
 		for( int chn = 0; chn < n_chn_psy; chn++ ) {
 			en_short[0] = 0; en_short[1] = 0; en_short[2] = 0; en_short[3] = 0;
 			final float[] pf = ns_hpfsmpl[chn & 1];
@@ -785,17 +838,8 @@ future:  Data indicates that the shape of the equal loudness curve varies
 				en_short[0] += en_subshort[i];
 			}
 
-			for( int i = 0; i < 9; i++ ) {
-				float p = 1.f;
-				for( final int pfe = pfi + 576 / 9; pfi < pfe; pfi++ ) {
-					float abspf = pf[pfi];
-					if( abspf < 0 ) {
-						abspf = -abspf;
-					}
-					if( p < abspf ) {
-						p = abspf;
-					}
-				}
+			for( int i = 0; i < 9; i++, pfi += 576 / 9 ) {
+				float p = kernels.max_abs( pf, pfi, 576 / 9, 1.f );
 				last_en_subshort_chn[i] = en_subshort[i + 3] = p;
 				en_short[1 + i / 3] += p;
 				if( p > en_subshort[i + 3 - 2] ) {
@@ -968,47 +1012,35 @@ future:  Data indicates that the shape of the equal loudness curve varies
 	{
 		final JPsyStateVar psv = gfc.sv_psy;
 		final JPsyConst_CB2SB gds = gfc.cd_psy.s;
-		final float max[] = new float[Jencoder.CBANDS];// java: already zeroed
-		final float avg[] = new float[Jencoder.CBANDS];// java: already zeroed
-		final byte mask_idx_s[] = new byte[Jencoder.CBANDS];// tab.length max
+		final float max[] = gfc.wk_psy.max;// java: only npart values are used
+		final float avg[] = gfc.wk_psy.avg;
+		final byte mask_idx_s[] = gfc.wk_psy.mask_idx;// tab.length max
+		final float s3_ecb[] = gfc.wk_psy.s3_ecb;
 
 		final int npart = gds.npart;// java
-		final float[] fftenergy_s_sblock = fftenergy_s[sblock];// java
-		for( int b = 0, j = 0; b < npart; ++b ) {
-			float ebb = 0, m = 0;
-			final int n = gds.numlines[b];
-			for( int i = 0; i < n; ++i, ++j ) {
-				final float el = fftenergy_s_sblock[j];
-				ebb += el;
-				if( m < el ) {
-					m = el;
-				}
-			}
-			eb[b] = ebb;
-			max[b] = m;
-			avg[b] = ebb * gds.rnumlines[b];
-		}
+		final Jencoder_kernels kernels = Jencoder_kernels.kernels;// java
+		kernels.calc_energy( gds, fftenergy_s[sblock], eb, max, avg );
 		vbrpsy_calc_mask_index_s( gfc, max, avg, mask_idx_s );
+		kernels.spread_energy( gds, eb, mask_idx_s, gfc.wk_psy.mask_tab, s3_ecb );
 
 		final float[] nb_s1_chn = psv.nb_s1[chn];// java
 		final float[] nb_s2_chn = psv.nb_s2[chn];// java
-		final float[] s3 = gds.s3;// java
 		int b = 0;
 		for( int j = 0; b < npart; b++ ) {
 			final int[] s3ind_b = gds.s3ind[b];// java
 			int kk = s3ind_b[0];
 			final int last = s3ind_b[1];
 			final int delta = tab_mask_add_delta[ mask_idx_s[b] ];// mask_add_delta( mask_idx_s[b] );
-			final float masking_lower = gds.masking_lower[b] * gfc.sv_qnt.masking_lower;
+			final float masking_lower = gds.masking_lower[b] * gfc.sv_psy.masking_lower;
 
 			int dd = mask_idx_s[kk];
 			int dd_n = 1;
-			float ecb = s3[j] * eb[kk] * tab[ mask_idx_s[kk] ];
+			float ecb = s3_ecb[j];// s3[j] * eb[kk] * tab[ mask_idx_s[kk] ];
 			++j; ++kk;
 			while( kk <= last ) {
 				dd += mask_idx_s[kk];
 				dd_n += 1;
-				final float x = s3[j] * eb[kk] * tab[ mask_idx_s[kk] ];
+				final float x = s3_ecb[j];// s3[j] * eb[kk] * tab[ mask_idx_s[kk] ];
 				ecb = vbrpsy_mask_add( ecb, x, kk - b, delta );
 				++j; ++kk;
 			}
@@ -1065,15 +1097,18 @@ future:  Data indicates that the shape of the equal loudness curve varies
 	{
 		final JPsyStateVar psv = gfc.sv_psy;
 		final JPsyConst_CB2SB gdl = gfc.cd_psy.l;
-		final float max[] = new float[Jencoder.CBANDS];
-		final float avg[] = new float[Jencoder.CBANDS];
-		final byte mask_idx_l[] = new byte[Jencoder.CBANDS + 2];
+		final float max[] = gfc.wk_psy.max;
+		final float avg[] = gfc.wk_psy.avg;
+		final byte mask_idx_l[] = gfc.wk_psy.mask_idx;
+		final float s3_ecb[] = gfc.wk_psy.s3_ecb;
+		final Jencoder_kernels kernels = Jencoder_kernels.kernels;// java
 
 		/*********************************************************************
 		*    Calculate the energy and the tonality of each partition.
 		*********************************************************************/
-		calc_energy( gdl, fftenergy, eb_l, max, avg );
+		kernels.calc_energy( gdl, fftenergy, eb_l, max, avg );
 		calc_mask_index_l( gfc, max, avg, mask_idx_l );
+		kernels.spread_energy( gdl, eb_l, mask_idx_l, gfc.wk_psy.mask_tab, s3_ecb );
 
 		/*********************************************************************
 		*      convolve the partitioned energy and unpredictability
@@ -1081,12 +1116,11 @@ future:  Data indicates that the shape of the equal loudness curve varies
 		********************************************************************/
 		final float[] nb_l1_chn = psv.nb_l1[chn];// java
 		final float[] nb_l2_chn = psv.nb_l2[chn];// java
-		final float[] s3 = gdl.s3;// java
 		final int blocktype_old = psv.blocktype_old[chn & 0x01];// java
 		int k = 0;
 		int b = 0;
 		for( ; b < gdl.npart; b++ ) {
-			final float masking_lower = gdl.masking_lower[b] * gfc.sv_qnt.masking_lower;
+			final float masking_lower = gdl.masking_lower[b] * gfc.sv_psy.masking_lower;
 			/* convolve the partitioned energy with the spreading function */
 			final int[] s3ind_b = gdl.s3ind[b];// java
 			int kk = s3ind_b[0];
@@ -1096,12 +1130,12 @@ future:  Data indicates that the shape of the equal loudness curve varies
 
 			dd = mask_idx_l[kk];
 			dd_n += 1;
-			float ecb = s3[k] * eb_l[kk] * tab[ mask_idx_l[kk] ];
+			float ecb = s3_ecb[k];// s3[k] * eb_l[kk] * tab[ mask_idx_l[kk] ];
 			++k; ++kk;
 			while( kk <= last ) {
 				dd += mask_idx_l[kk];
 				dd_n += 1;
-				final float x = s3[k] * eb_l[kk] * tab[ mask_idx_l[kk] ];
+				final float x = s3_ecb[k];// s3[k] * eb_l[kk] * tab[ mask_idx_l[kk] ];
 				final float t = vbrpsy_mask_add( ecb, x, kk - b, delta );
 /* #if 0
 				ecb += eb_l[kk];
@@ -1323,31 +1357,38 @@ future:  Data indicates that the shape of the equal loudness curve varies
 		final JPsyStateVar psv = gfc.sv_psy;
 		final JPsyConst_CB2SB gdl = gfc.cd_psy.l;
 		final JPsyConst_CB2SB gds = gfc.cd_psy.s;
+		final JPsyWorkspace wk = gfc.wk_psy;// java: scratch buffers
 
 		/* fft and energy calculation   */
-		final float fftenergy[] = new float[Jencoder.HBLKSIZE];
-		final float fftenergy_s[][] = new float[3][Jencoder.HBLKSIZE_s];
-		final float wsamp_L[][] = new float[2][Jencoder.BLKSIZE];
-		final float wsamp_S[][][] = new float[2][3][Jencoder.BLKSIZE_s];
-		final float eb[][] = new float[4][Jencoder.CBANDS];
-		final float thr[][] = new float[4][Jencoder.CBANDS];
-
-		final float sub_short_factor[][] = new float[4][3];
+		final float fftenergy[] = wk.fftenergy;
+		final float fftenergy_s[][] = wk.fftenergy_s;
+		final float wsamp_L[][] = wk.wsamp_L;
+		final float wsamp_S[][][] = wk.wsamp_S;
+		final float eb[][] = wk.eb;
+		final float thr[][] = wk.thr;
+
+		final float sub_short_factor[][] = wk.sub_short_factor;
 		final float pcfact = 0.6f;
 		final float ath_factor = (cfg.msfix > 0.f) ? (cfg.ATH_offset_factor * gfc.ATH.adjust_factor) : 1.f;
 
 		/* block type  */
-		final int ns_attacks[][] = new int[4][4];// java: already zeroed = { {0, 0, 0, 0}, {0, 0, 0, 0}, {0, 0, 0, 0}, {0, 0, 0, 0} };
-		final boolean uselongblock[] = new boolean[2];
+		final int ns_attacks[][] = wk.ns_attacks;// = { {0, 0, 0, 0}, {0, 0, 0, 0}, {0, 0, 0, 0}, {0, 0, 0, 0} };
+		final boolean uselongblock[] = wk.uselongblock;
+		for( int i = 0; i < 4; i++ ) {
+			final int[] a = ns_attacks[i];
+			a[0] = 0; a[1] = 0; a[2] = 0; a[3] = 0;
+		}
+		uselongblock[0] = false;
+		uselongblock[1] = false;
 
 		/* chn=2 and 3 = Mid and Side channels */
 		final int n_chn_psy = (cfg.mode == Jlame.JOINT_STEREO) ? 4 : cfg.channels_out;
 
-		final JIII_psy_xmin last_thm[] = new JIII_psy_xmin[4];
-		last_thm[0] = new JIII_psy_xmin( psv.thm[0] );
-		last_thm[1] = new JIII_psy_xmin( psv.thm[1] );
-		last_thm[2] = new JIII_psy_xmin( psv.thm[2] );
-		last_thm[3] = new JIII_psy_xmin( psv.thm[3] );
+		final JIII_psy_xmin last_thm[] = wk.last_thm;
+		last_thm[0].copyFrom( psv.thm[0] );
+		last_thm[1].copyFrom( psv.thm[1] );
+		last_thm[2].copyFrom( psv.thm[2] );
+		last_thm[3].copyFrom( psv.thm[3] );
 
 		vbrpsy_attack_detection( gfc, buffer, boffset, gr_out, masking_ratio, masking_MS_ratio, energy,
 				sub_short_factor, ns_attacks, uselongblock );
@@ -1377,6 +1418,12 @@ future:  Data indicates that the shape of the equal loudness curve varies
 		/* SHORT BLOCKS CASE */
 		{
 			final boolean force_short_block_calc = gfc.cd_psy.force_short_block_calc;
+			if( n_chn_psy > 2 && ! uselongblock[0] && uselongblock[1] && ! force_short_block_calc ) {
+				/* java: the mid channel reads the fft of the skipped right channel, it was zeroed */
+				for( int sblock = 0; sblock < 3; sblock++ ) {
+					Arrays.fill( wsamp_S[1][sblock], 0 );
+				}
+			}
 			for( int sblock = 0; sblock < 3; sblock++ ) {
 				for( int chn = 0; chn < n_chn_psy; ++chn ) {
 					final int ch01 = chn & 0x01;
@@ -1404,7 +1451,7 @@ future:  Data indicates that the shape of the equal loudness curve varies
 			}
 
 			/****   short block pre-echo control   ****/
-			final float new_thmm[] = new float[3];
+			final float new_thmm[] = wk.new_thmm;
 			for( int chn = 0; chn < n_chn_psy; chn++ ) {
 				final float[][] last_thm_chn_s = last_thm[chn].s;// java
 				final float[][] thm_chn_s = psv.thm[chn].s;// java
@@ -1494,9 +1541,9 @@ future:  Data indicates that the shape of the equal loudness curve varies
 				mr = masking_ratio[gr_out][chn];
 			}
 			if( type == Jencoder.SHORT_TYPE ) {
-				appe[ppe] = pecalc_s( mr, gfc.sv_qnt.masking_lower );
+				appe[ppe] = pecalc_s( mr, gfc.sv_psy.masking_lower );
 			} else {
-				appe[ppe] = pecalc_l( mr, gfc.sv_qnt.masking_lower );
+				appe[ppe] = pecalc_l( mr, gfc.sv_psy.masking_lower );
 			}
 		}
 		return 0;
@@ -1765,6 +1812,17 @@ future:  Data indicates that the shape of the equal loudness curve varies
 		return p;
 	}
 
+	/** java: @return the partition kk of every value of s3, see spread_energy */
+	private static final int[] init_s3kk(final int s3ind[/*2*/][], final int npart, final int length) {
+		final int s3kk[] = new int[length];
+		for( int b = 0, k = 0; b < npart; b++ ) {
+			for( int kk = s3ind[b][0], last = s3ind[b][1]; kk <= last; kk++ ) {
+				s3kk[k++] = kk;
+			}
+		}
+		return s3kk;
+	}
+
 	private static final float sk[] =
 		{ -7.4f, -7.4f, -7.4f, -9.5f, -7.4f, -6.1f, -5.5f, -4.7f, -4.7f, -4.7f, -4.7f };
 
@@ -1788,11 +1846,6 @@ future:  Data indicates that the shape of the equal loudness curve varies
 			return 0;
 		}
 
-		final JPsyConst gd = new JPsyConst();
-		gfc.cd_psy = gd;
-
-		gd.force_short_block_calc = gfp.experimentalZ;
-
 		psv.blocktype_old[0] = psv.blocktype_old[1] = Jencoder.NORM_TYPE; /* the vbr header is long blocks */
 
 		for( int i = 0; i < 4; ++i ) {
@@ -1820,6 +1873,29 @@ future:  Data indicates that the shape of the equal loudness curve varies
 		/* init. for loudness approx. -jd 2001 mar 27 */
 		psv.loudness_sq_save[0] = psv.loudness_sq_save[1] = 0.0f;
 
+		/*  prepare for ATH auto adjustment:
+		 *  we want to decrease the ATH by 12 dB per second
+		 */
+		final float frame_duration = (576.f * cfg.mode_gr / sfreq);
+		gfc.ATH.decay = (float)Math.pow( 10., (float)(-12.f / 10.f * frame_duration) );
+		gfc.ATH.adjust_factor = 0.01f; /* minimum, for leading low loudness */
+		gfc.ATH.adjust_limit = 1.0f; /* on lead, allow adjust up to maximum */
+
+		/* java: the constants depend only on these settings, they are shared by the encoders */
+		final JTableCache.Jkey key = new JTableCache.Jkey( sfreq, cfg.minval, cfg.ATHtype, cfg.ATHcurve,
+				cfg.use_safe_joint_stereo ? 1 : 0, cfg.msfix, gfp.experimentalZ ? 1 : 0,
+				gfp.attackthre, gfp.attackthre_s, gfp.VBR_q, gfp.VBR_q_frac );
+		JTableCache.Jpsy t = JTableCache.psy.get( key );
+		if( t != null ) {
+			set_psy_tables( gfc, t );
+			return 0;
+		}
+
+		final JPsyConst gd = new JPsyConst();
+		gfc.cd_psy = gd;
+
+		gd.force_short_block_calc = gfp.experimentalZ;
+
 		/*************************************************************************
 		 * now compute the psychoacoustic model specific constants
 		 ************************************************************************/
@@ -1964,14 +2040,8 @@ future:  Data indicates that the shape of the equal loudness curve varies
 				}
 			}
 		}
-
-		/*  prepare for ATH auto adjustment:
-		 *  we want to decrease the ATH by 12 dB per second
-		 */
-		final float frame_duration = (576.f * cfg.mode_gr / sfreq);
-		gfc.ATH.decay = (float)Math.pow( 10., (float)(-12.f / 10.f * frame_duration) );
-		gfc.ATH.adjust_factor = 0.01f; /* minimum, for leading low loudness */
-		gfc.ATH.adjust_limit = 1.0f; /* on lead, allow adjust up to maximum */
+		gd.l.s3kk = init_s3kk( gd.l.s3ind, gd.l.npart, gd.l.s3.length );
+		gd.s.s3kk = init_s3kk( gd.s.s3ind, gd.s.npart, gd.s.s3.length );
 
 		if( cfg.ATHtype != -1 ) {
 			/* compute equal loudness weights (eql_w) */
@@ -2041,6 +2111,24 @@ future:  Data indicates that the shape of the equal loudness curve varies
 		}
 		gd.l_to_s.copyFrom( gd.l );
 		init_numline( gd.l_to_s, sfreq, Jencoder.BLKSIZE, 192, Jencoder.SBMAX_s, gfc.scalefac_band.s );
+
+		t = new JTableCache.Jpsy();
+		t.cd_psy = gd;
+		t.cb_l = gfc.ATH.cb_l;
+		t.cb_s = gfc.ATH.cb_s;
+		t.eql_w = gfc.ATH.eql_w;
+		t.msfix = cfg.msfix;
+		set_psy_tables( gfc, JTableCache.psy.put( key, t ) );
 		return 0;
 	}
+
+	/** java: sets the constants of the psy model, the tables must not be changed */
+	private static final void set_psy_tables(final Jlame_internal_flags gfc, final JTableCache.Jpsy t) {
+		gfc.psy_tables = t;
+		gfc.cd_psy = t.cd_psy;
+		gfc.ATH.cb_l = t.cb_l;
+		gfc.ATH.cb_s = t.cb_s;
+		gfc.ATH.eql_w = t.eql_w;
+		gfc.cfg.msfix = t.msfix;
+	}
 }
\ No newline at end of file
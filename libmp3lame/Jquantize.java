@@ -1,6 +1,9 @@
 package libmp3lame;
 
 import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
 
 /*
  * MP3 quantization
@@ -42,7 +45,7 @@ class Jquantize {
 		// gfc.init_xrpow_core = init_xrpow_core_c;
 	}
 
-	static final boolean init_xrpow(final Jlame_internal_flags gfc, final Jgr_info cod_info, final float xrpow[/*576*/]) {
+	static final boolean init_xrpow(final Jlame_internal_flags gfc, final Jgr_info cod_info, final float xrpow[/*576*/], final int ch) {
 		final int upper = cod_info.max_nonzero_coeff;
 
 		cod_info.xrpow_max = 0;
@@ -54,14 +57,15 @@ class Jquantize {
 			xrpow[i] = 0;
 		}
 
-		final float sum = cod_info.init_xrpow_core_c( xrpow, upper/*, &sum*/ );
+		final float sum = Jencoder_kernels.kernels.init_xrpow_core( cod_info, xrpow, upper/*, &sum*/ );
 
 		/*  return 1 if we have something to quantize, else 0 */
 		if( sum > 1E-20f ) {
 			final boolean j = ( (gfc.sv_qnt.substep_shaping & 2) != 0 );
+			final boolean[] pseudohalf = gfc.sv_qnt.pseudohalf[ch];// java
 
 			for( int i = 0; i < cod_info.psymax; i++ ) {
-				gfc.sv_qnt.pseudohalf[i] = j;
+				pseudohalf[i] = j;
 			}
 
 			return true;
@@ -94,7 +98,7 @@ class Jquantize {
 			for( int gsfb = Jencoder.PSFB21 - 1; gsfb >= 0 && ! stop; gsfb-- ) {
 				final int start = psfb21[gsfb];
 				final int end = psfb21[gsfb + 1];
-				float ath21 = Jquantize_pvt.athAdjust( ATH.adjust_factor, ATH.psfb21[gsfb], ATH.floor, 0 );
+				float ath21 = Jquantize_pvt.athAdjust( gfc.sv_qnt.ATH_adjust_factor, ATH.psfb21[gsfb], ATH.floor, 0 );
 
 				if( is_more ) {
 					ath21 *= longfact_21;
@@ -123,7 +127,7 @@ class Jquantize {
 					int start = s[12];
 					start = start * 3 + (s[13] - start) * block + (psfb12[gsfb] - psfb12[0]);
 					final int end = start + (psfb12[gsfb + 1] - psfb12[gsfb]);
-					float ath12 = Jquantize_pvt.athAdjust( ATH.adjust_factor, ATH.psfb12[gsfb], ATH.floor, 0 );
+					float ath12 = Jquantize_pvt.athAdjust( gfc.sv_qnt.ATH_adjust_factor, ATH.psfb12[gsfb], ATH.floor, 0 );
 
 					if( is_more ) {
 						ath12 *= shortfact_12;
@@ -143,7 +147,7 @@ class Jquantize {
 		//}
 	}
 
-	static final void init_outer_loop(final Jlame_internal_flags gfc, final Jgr_info cod_info) {
+	static final void init_outer_loop(final Jlame_internal_flags gfc, final Jgr_info cod_info, final int ch) {
 		final JSessionConfig cfg = gfc.cfg;
 		/*  initialize fresh cod_info */
 		cod_info.part2_3_length = 0;
@@ -185,7 +189,7 @@ class Jquantize {
 			cod_info_window[sfb] = 3; /* which is always 0. */
 		}
 		if( cod_info.block_type == Jencoder.SHORT_TYPE ) {
-			final float ixwork[] = new float[576];
+			final float ixwork[] = gfc.wk_qnt.ch[ch].ixwork;
 
 			cod_info.sfb_smin = 0;
 			cod_info.sfb_lmax = 0;
@@ -290,7 +294,7 @@ class Jquantize {
 		desired_rate -= cod_info.part2_length;
 		int nBits;
 		for( ;; ) {
-			nBits = Jtakehiro.count_bits( gfc, xrpow, cod_info, null );
+			nBits = Jtakehiro.count_bits( gfc, xrpow, cod_info, ch, null );
 
 			if( CurrentStep == 1 || nBits == desired_rate ) {
 				break;      /* nothing to adjust anymore */
@@ -333,7 +337,7 @@ class Jquantize {
 
 		while( nBits > desired_rate && cod_info.global_gain < 255 ) {
 			cod_info.global_gain++;
-			nBits = Jtakehiro.count_bits( gfc, xrpow, cod_info, null );
+			nBits = Jtakehiro.count_bits( gfc, xrpow, cod_info, ch, null );
 		}
 		gfc.sv_qnt.CurrentStep[ch] = (start - cod_info.global_gain >= 4) ? 4 : 2;
 		gfc.sv_qnt.OldValue[ch] = cod_info.global_gain;
@@ -360,9 +364,10 @@ class Jquantize {
 		return 0;
 	} */
 
-	static final void trancate_smallspectrums(final Jlame_internal_flags gfc, final Jgr_info gi, final float[] l3_xmin, final float[] work) {
-		final float distort[] = new float[Jencoder.SFBMAX];
-		final Jcalc_noise_result dummy = new Jcalc_noise_result();
+	static final void trancate_smallspectrums(final Jlame_internal_flags gfc, final Jgr_info gi, final float[] l3_xmin, final float[] work, final int ch) {
+		final JQntWorkspace.Jchannel wk = gfc.wk_qnt.ch[ch];// java: scratch buffers
+		final float distort[] = wk.trancate_distort;
+		final Jcalc_noise_result dummy = wk.trancate_noise;
 
 		if( (0 == (gfc.sv_qnt.substep_shaping & 4) && gi.block_type == Jencoder.SHORT_TYPE )
 				|| (gfc.sv_qnt.substep_shaping & 0x80) != 0 ) {
@@ -443,7 +448,7 @@ class Jquantize {
 			} while( ++jw < j );// (--width > 0)
 		} while( ++sfb < gi.psymax );
 
-		gi.part2_3_length = Jtakehiro.noquant_count_bits( gfc, gi, null );
+		gi.part2_3_length = Jtakehiro.noquant_count_bits( gfc, gi, null, ch );
 	}
 
 /*  mt 5/99:  Function: Improved calc_noise for a single channel   */
@@ -602,7 +607,7 @@ class Jquantize {
  *
  *************************************************************************/
 	private static final void amp_scalefac_bands(final Jlame_internal_flags gfc,
-		final Jgr_info cod_info, final float[] distort, final float xrpow[/*576*/], final boolean bRefine)
+		final Jgr_info cod_info, final int ch, final float[] distort, final float xrpow[/*576*/], final boolean bRefine)
 	{
 		final JSessionConfig cfg = gfc.cfg;
 
@@ -655,7 +660,7 @@ class Jquantize {
 		}
 
 		final int[] cod_info_width = cod_info.width;// java
-		final boolean[] pseudohalf = gfc.sv_qnt.pseudohalf;// java
+		final boolean[] pseudohalf = gfc.sv_qnt.pseudohalf[ch];// java
 		final int[] scalefac = cod_info.scalefac;// java
 		int j = 0;
 		for( int sfb = 0, sfbmax = cod_info.sfbmax; sfb < sfbmax; sfb++ ) {
@@ -795,11 +800,11 @@ class Jquantize {
  *
  ********************************************************************/
 	private static final boolean balance_noise(final Jlame_internal_flags gfc,
-              final Jgr_info cod_info, final float[] distort, final float xrpow[/*576*/], final boolean bRefine)
+              final Jgr_info cod_info, final int ch, final float[] distort, final float xrpow[/*576*/], final boolean bRefine)
 	{
 		final JSessionConfig cfg = gfc.cfg;
 
-		amp_scalefac_bands( gfc, cod_info, distort, xrpow, bRefine );
+		amp_scalefac_bands( gfc, cod_info, ch, distort, xrpow, bRefine );
 
 		/* check to make sure we have not amplified too much
 		 * loop_break returns 0 if there is an unamplified scalefac
@@ -825,7 +830,7 @@ class Jquantize {
 		 *  lets try setting scalefac_scale=1
 		 */
 		if( cfg.noise_shaping > 1 ) {
-			final boolean[] pseudohalf = gfc.sv_qnt.pseudohalf;
+			final boolean[] pseudohalf = gfc.sv_qnt.pseudohalf[ch];
 			int i = pseudohalf.length;
 			do {
 				pseudohalf[--i] = false;
@@ -871,10 +876,12 @@ class Jquantize {
            final int ch, final int targ_bits)
 	{                       /* maximum allowed bits */
 		final JSessionConfig cfg = gfc.cfg;
-		final float save_xrpow[] = new float[576];
-		final float distort[] = new float[Jencoder.SFBMAX];
-		final Jcalc_noise_result best_noise_info = new Jcalc_noise_result();
-		final Jcalc_noise_data prev_noise = new Jcalc_noise_data();// java: already zeroed
+		final JQntWorkspace.Jchannel wk = gfc.wk_qnt.ch[ch];// java: scratch buffers
+		final float save_xrpow[] = wk.save_xrpow;
+		final float distort[] = wk.distort;
+		final Jcalc_noise_result best_noise_info = wk.best_noise_info;
+		final Jcalc_noise_data prev_noise = wk.prev_noise;
+		prev_noise.clear();
 		int best_part2_3_length = 9999999;
 		boolean bEndOfSearch = false;
 		boolean bRefine = false;
@@ -891,16 +898,18 @@ class Jquantize {
 		Jquantize_pvt.calc_noise( cod_info, l3_xmin, distort, best_noise_info, prev_noise );
 		best_noise_info.bits = cod_info.part2_3_length;
 
-		final Jgr_info cod_info_w = new Jgr_info( cod_info );
+		final Jgr_info cod_info_w = wk.cod_info_w;
+		cod_info_w.copyFrom( cod_info );
 		int age = 0;
 		/* if( cfg.vbr == vbr_rh || cfg.vbr == vbr_mtrh) */
 		System.arraycopy( xrpow, 0, save_xrpow, 0, 576 );
 
-		final Jcalc_noise_result noise_info = new Jcalc_noise_result();// java: moved up
+		final Jcalc_noise_result noise_info = wk.noise_info;// java: moved up
 
 		while( ! bEndOfSearch ) {
 			/* BEGIN MAIN LOOP */
 			do {
+				wk.outer_loop_iterations++;
 				int maxggain = 255;
 
 				/* When quantization with no distorted bands is found,
@@ -929,7 +938,7 @@ class Jquantize {
 				}
 
 				/* try a new scalefactor conbination on cod_info_w */
-				if( ! balance_noise( gfc, cod_info_w, distort, xrpow, bRefine ) ) {
+				if( ! balance_noise( gfc, cod_info_w, ch, distort, xrpow, bRefine ) ) {
 					break;
 				}
 				if( cod_info_w.scalefac_scale != 0 ) {
@@ -948,7 +957,7 @@ class Jquantize {
 
 				/*  increase quantizer stepsize until needed bits are below maximum */
 				while( (cod_info_w.part2_3_length
-						= Jtakehiro.count_bits( gfc, xrpow, cod_info_w, prev_noise )) > huff_bits
+						= Jtakehiro.count_bits( gfc, xrpow, cod_info_w, ch, prev_noise )) > huff_bits
 						&& cod_info_w.global_gain <= maxggain ) {
 					cod_info_w.global_gain++;
 				}
@@ -960,7 +969,7 @@ class Jquantize {
 				if( best_noise_info.over_count == 0 ) {
 
 				while( (cod_info_w.part2_3_length
-					= Jtakehiro.count_bits( gfc, xrpow, cod_info_w, prev_noise) ) > best_part2_3_length
+					= Jtakehiro.count_bits( gfc, xrpow, cod_info_w, ch, prev_noise ) ) > best_part2_3_length
 					&& cod_info_w.global_gain <= maxggain ) {
 					cod_info_w.global_gain++;
 				}
@@ -1032,7 +1041,7 @@ class Jquantize {
 		if( cfg.vbr == Jlame.vbr_rh || cfg.vbr == Jlame.vbr_mtrh || cfg.vbr == Jlame.vbr_mt ) {
 			System.arraycopy( save_xrpow, 0, xrpow, 0, 576 );
 		} else if( (gfc.sv_qnt.substep_shaping & 1) != 0 ) {
-			trancate_smallspectrums( gfc, cod_info, l3_xmin, xrpow );
+			trancate_smallspectrums( gfc, cod_info, l3_xmin, xrpow, ch );
 		}
 
 		return best_noise_info.over_count;
@@ -1059,7 +1068,7 @@ class Jquantize {
 		/*  best huffman_divide may save some bits too
 		*/
 		if( cfg.use_best_huffman == 1 ) {
-			Jtakehiro.best_huffman_divide( gfc, cod_info );
+			Jtakehiro.best_huffman_divide( gfc, cod_info, ch );
 		}
 
 		/*  update reservoir status after FINAL quantization/bitrate */
@@ -1098,4 +1107,99 @@ class Jquantize {
 			frameBits[i] = (int)Jreservoir.ResvFrameBegin( gfc/*, &bitsPerFrame*/ );
 		}
 	}
+
+	/**
+	 * java: runs the independent tasks of the quantization.
+	 * The tasks run in the quantization pool, if it is set, otherwise one after another in the calling thread.
+	 * The tasks are reused for every frame, they are reinitialized before they run.
+	 *
+	 * @param gfc internal flags
+	 * @param tasks tasks to run
+	 * @param count number of tasks
+	 */
+	static final void invoke_all(final Jlame_internal_flags gfc, final ForkJoinTask<?>[] tasks, final int count) {
+		for( int i = 0; i < count; i++ ) {
+			tasks[i].reinitialize();
+		}
+		final ForkJoinPool pool = gfc.quantize_pool;
+		if( pool == null || count < 2 ) {
+			for( int i = 0; i < count; i++ ) {
+				tasks[i].invoke();
+			}
+			return;
+		}
+		final ForkJoinTask<?>[] t = count == tasks.length ? tasks : Arrays.copyOf( tasks, count );
+		if( ForkJoinTask.inForkJoinPool() ) {
+			/* already in a pool, e.g. a segment encoder of Jlame_parallel */
+			ForkJoinTask.invokeAll( t );
+		} else {
+			pool.invoke( new Jinvoke_all( t ) );
+		}
+	}
+
+	/** java: runs the tasks in the pool */
+	private static final class Jinvoke_all extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		//
+		private final ForkJoinTask<?>[] tasks;
+
+		private Jinvoke_all(final ForkJoinTask<?>[] tasks) {
+			this.tasks = tasks;
+		}
+
+		@Override
+		protected void compute() {
+			ForkJoinTask.invokeAll( this.tasks );
+		}
+	}
+
+	/**
+	 * java: quantization of one channel of a granule in CBR and ABR mode.
+	 * The channels of a granule only share read only data, the reservoir is updated
+	 * by iteration_finish_one after all channels are quantized.
+	 * The task of a channel is reused for every granule, see JQntWorkspace.
+	 */
+	static final class Jouter_loop_task extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		//
+		private Jlame_internal_flags gfc;
+		private Jgr_info cod_info;
+		private JIII_psy_ratio ratio;
+		private int ch;
+		private int targ_bits;
+		/** bits for analog silence, -1 if targ_bits are used anyway */
+		private int analog_silence_bits;
+		private final float l3_xmin[] = new float[Jencoder.SFBMAX];
+		private final float xrpow[] = new float[576];
+
+		final Jouter_loop_task set(final Jlame_internal_flags gfc, final Jgr_info cod_info, final JIII_psy_ratio ratio,
+				final int ch, final int targ_bits, final int analog_silence_bits)
+		{
+			this.gfc = gfc;
+			this.cod_info = cod_info;
+			this.ratio = ratio;
+			this.ch = ch;
+			this.targ_bits = targ_bits;
+			this.analog_silence_bits = analog_silence_bits;
+			return this;
+		}
+
+		@Override
+		protected void compute() {
+			/*  init_outer_loop sets up cod_info, scalefac and xrpow */
+			init_outer_loop( this.gfc, this.cod_info, this.ch );
+			if( init_xrpow( this.gfc, this.cod_info, this.xrpow, this.ch ) ) {
+				/*  xr contains energy we will have to encode
+				 *  calculate the masking abilities
+				 *  find some good quantization in outer_loop
+				 */
+				final int ath_over = Jquantize_pvt.calc_xmin( this.gfc, this.ratio, this.cod_info, this.l3_xmin );
+				int bits = this.targ_bits;
+				if( 0 == ath_over && this.analog_silence_bits >= 0 ) {
+					bits = this.analog_silence_bits;
+				}
+				outer_loop( this.gfc, this.cod_info, this.l3_xmin, this.xrpow, this.ch, bits );
+			}
+		}
+	}
 }
\ No newline at end of file
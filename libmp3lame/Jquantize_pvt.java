@@ -157,7 +157,7 @@ final class Jquantize_pvt {
 	static final float pow20[] = new float[Q_MAX + Q_MAX2 + 1];
 	static final float ipow20[] = new float[Q_MAX];
 	static final float pow43[] = new float[PRECALC_SIZE];
-	/* initialized in first call to iteration_init */
+	/* initialized by the static initializer below */
 	// static final boolean TAKEHIRO_IEEE754_HACK = false;// java: true leads to another result vs c-version
 //#ifdef TAKEHIRO_IEEE754_HACK
 //	static final float adj43asm[] = new float[PRECALC_SIZE];
@@ -165,6 +165,34 @@ final class Jquantize_pvt {
 	static final float adj43[] = new float[PRECALC_SIZE];
 //#endif
 
+	// java: moved from iteration_init. The class initialization computes the tables once
+	// and publishes them safely to all threads, so the encoders can be started concurrently.
+	static {
+		pow43[0] = 0.0f;
+		for( int i = 1; i < PRECALC_SIZE; i++ ) {
+			pow43[i] = (float)Math.pow( (double)i, 4.0 / 3.0 );
+		}
+
+/*if( TAKEHIRO_IEEE754_HACK ) {
+		adj43[0] = 0.0f;
+		for( i = 1; i < PRECALC_SIZE; i++ ) {
+			adj43[i] = (float)(i - 0.5 - Math.pow( (0.5 * (double)(pow43[i - 1] + pow43[i])), 0.75 ));
+		}
+} else {*/
+		int i = 0;
+		for( ; i < PRECALC_SIZE - 1; i++ ) {
+			adj43[i] = (float)((i + 1) - Math.pow( (0.5 * (double)(pow43[i] + pow43[i + 1])), 0.75 ));
+		}
+		adj43[i] = 0.5f;
+//}
+		for( i = 0; i < Q_MAX; i++ ) {
+			ipow20[i] = (float)Math.pow( 2.0, (double) ((i - 210) * -0.1875f) );
+		}
+		for( i = 0; i <= Q_MAX + Q_MAX2; i++ ) {
+			pow20[i] = (float)Math.pow( 2.0, (double) ((i - 210 - Q_MAX2) * 0.25f) );
+		}
+	}
+
 	//machine.h
 	/*
 	 * 3 different types of pow() functions:
@@ -321,6 +349,31 @@ final class Jquantize_pvt {
 		   } */
 	}
 
+	/** java: sets the ATH of the scalefactor bands, computed by compute_ath or taken from the cache */
+	private static final void init_ath(final Jlame_internal_flags gfc) {
+		final JSessionConfig cfg = gfc.cfg;
+		final JATH ATH = gfc.ATH;
+		final JTableCache.Jkey key = new JTableCache.Jkey( cfg.samplerate, cfg.ATHtype, cfg.ATHcurve,
+				cfg.ATHfixpoint, cfg.ATH_offset_db, cfg.noATH ? 1 : 0 );
+		JTableCache.JATH_sfb t = JTableCache.ATH_sfb.get( key );
+		if( t == null ) {
+			compute_ath( gfc );
+			t = new JTableCache.JATH_sfb();
+			t.l = ATH.l;
+			t.s = ATH.s;
+			t.psfb21 = ATH.psfb21;
+			t.psfb12 = ATH.psfb12;
+			t.floor = ATH.floor;
+			t = JTableCache.ATH_sfb.put( key, t );
+		}
+		gfc.ATH_sfb = t;
+		ATH.l = t.l;
+		ATH.s = t.s;
+		ATH.psfb21 = t.psfb21;
+		ATH.psfb12 = t.psfb12;
+		ATH.floor = t.floor;
+	}
+
 	private static final float payload_long[][] = {// [2][4] = {
 		{-0.000f, -0.000f, -0.000f, +0.000f}, {-0.500f, -0.250f, -0.025f, +0.500f}
 	};
@@ -339,35 +392,14 @@ final class Jquantize_pvt {
 			gfc.iteration_init_init = true;
 
 			l3_side.main_data_begin = 0;
-			compute_ath( gfc );
+			init_ath( gfc );
 
-			pow43[0] = 0.0f;
-			for( int i = 1; i < PRECALC_SIZE; i++ ) {
-				pow43[i] = (float)Math.pow( (double)i, 4.0 / 3.0 );
-			}
-
-/*if( TAKEHIRO_IEEE754_HACK ) {
-			adj43[0] = 0.0f;
-			for( i = 1; i < PRECALC_SIZE; i++ ) {
-				adj43[i] = (float)(i - 0.5 - Math.pow( (0.5 * (double)(pow43[i - 1] + pow43[i])), 0.75 ));
-			}
-} else {*/
-			int i = 0;
-			for( ; i < PRECALC_SIZE - 1; i++ ) {
-				adj43[i] = (float)((i + 1) - Math.pow( (0.5 * (double)(pow43[i] + pow43[i + 1])), 0.75 ));
-			}
-			adj43[i] = 0.5f;
-//}
-			for( i = 0; i < Q_MAX; i++ ) {
-				ipow20[i] = (float)Math.pow( 2.0, (double) ((i - 210) * -0.1875f) );
-			}
-			for( i = 0; i <= Q_MAX + Q_MAX2; i++ ) {
-				pow20[i] = (float)Math.pow( 2.0, (double) ((i - 210 - Q_MAX2) * 0.25f) );
-			}
+			// java: pow43, adj43, ipow20, pow20 are computed by the static initializer
 
 			Jtakehiro.huffman_init( gfc );
 			Jquantize.init_xrpow_core_init( gfc );
 
+			int i;
 			final int sel = 1;/* RH: all modes like vbr-new (cfg.vbr == vbr_mt || cfg.vbr == vbr_mtrh) ? 1 : 0;*/
 
 			/* long */
@@ -425,7 +457,7 @@ final class Jquantize_pvt {
 	{
 		final JSessionConfig cfg = gfc.cfg;
 		int extra_bits = 0;
-		final int add_bits[] = new int[2];// java: already zeroed = {0, 0};
+		final int add_bits[] = gfc.wk_qnt.add_bits;// = {0, 0};
 
 		/* allocate targ_bits for granule */
 		final long tmp = Jreservoir.ResvMaxBits( gfc, mean_bits,/* &tbits, &extra_bits,*/ cbr );
@@ -586,7 +618,7 @@ final class Jquantize_pvt {
 
 		int gsfb = 0;
 		for( final int psy_lmax = cod_info.psy_lmax; gsfb < psy_lmax; gsfb++ ) {
-			float xmin = athAdjust( ATH.adjust_factor, ATH.l[gsfb], ATH.floor, cfg.ATHfixpoint );
+			float xmin = athAdjust( gfc.sv_qnt.ATH_adjust_factor, ATH.l[gsfb], ATH.floor, cfg.ATHfixpoint );
 			xmin *= longfact[gsfb];
 
 			final int width = cod_info_width[gsfb];
@@ -662,7 +694,7 @@ final class Jquantize_pvt {
 		final float[] shortfact = gfc.sv_qnt.shortfact;// java
 		final float[][] ratio_en_s = ratio.en.s;// java
 		for( int sfb = cod_info.sfb_smin, psymax = cod_info.psymax; gsfb < psymax; sfb++, gsfb += 3 ) {
-			float tmpATH = athAdjust( ATH.adjust_factor, ATH.s[sfb], ATH.floor, cfg.ATHfixpoint );
+			float tmpATH = athAdjust( gfc.sv_qnt.ATH_adjust_factor, ATH.s[sfb], ATH.floor, cfg.ATHfixpoint );
 			tmpATH *= shortfact[sfb];
 
 			final int width = cod_info_width[gsfb];
@@ -718,9 +750,9 @@ final class Jquantize_pvt {
 		return ath_over;
 	}
 
-	private static final float calc_noise_core_c(final Jgr_info cod_info, final int[] startline, int l, final float step) {
+	/** java: the caller moves startline by 2 * l */
+	static final float calc_noise_core_c(final Jgr_info cod_info, int j, int l, final float step) {
 		float noise = 0;
-		int j = startline[0];
 		final int[] ix = cod_info.l3_enc;
 		final float[] xr = cod_info.xr;// java
 
@@ -734,20 +766,20 @@ final class Jquantize_pvt {
 				noise += temp * temp;
 			}
 		} else if( j > cod_info.big_values ) {
-			final float ix01[] = { 0, step };
+			// final float ix01[] = { 0, step };// java: ix is 0 or 1
 			while( l-- != 0 ) {
 				float temp = xr[j];
 				if( temp < 0 ) {
 					temp = -temp;
 				}
-				temp -= ix01[ ix[j] ];
+				temp -= ix[j] != 0 ? step : 0;
 				j++;
 				noise += temp * temp;
 				temp = xr[j];
 				if( temp < 0 ) {
 					temp = -temp;
 				}
-				temp -= ix01[ ix[j] ];
+				temp -= ix[j] != 0 ? step : 0;
 				j++;
 				noise += temp * temp;
 			}
@@ -770,7 +802,6 @@ final class Jquantize_pvt {
 			}
 		}
 
-		startline[0] = j;
 		return noise;
 	}
 
@@ -793,6 +824,7 @@ final class Jquantize_pvt {
 		final float[] l3_xmin,
 		final float[] distort, final Jcalc_noise_result res, final Jcalc_noise_data prev_noise)
 	{
+		final Jencoder_kernels kernels = Jencoder_kernels.kernels;// java
 		int xoffset = 0;// to l3_xmin
 		int doffset = 0;// to distort
 
@@ -801,7 +833,6 @@ final class Jquantize_pvt {
 		float tot_noise_db = 0; /*    0 dB relative to masking */
 		float max_noise = -20.0f; /* -200 dB relative to masking */
 		int j = 0;
-		final int[] tmpj = new int[1];// java helper
 		final int[] scalefac = cod_info.scalefac;
 		int soffset = 0;// to scalefac
 
@@ -834,9 +865,8 @@ final class Jquantize_pvt {
 					}
 				}
 
-				tmpj[0] = j;
-				noise = calc_noise_core_c( cod_info, tmpj, l, step );
-				j = tmpj[0];
+				noise = kernels.calc_noise_core( cod_info, j, l, step );
+				j += l << 1;
 
 				if( prev_noise != null ) {
 					/* save noise values */
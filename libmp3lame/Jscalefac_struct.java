@@ -19,4 +19,11 @@ final class Jscalefac_struct {
 		this.psfb21 = ipsfb21;
 		this.psfb12 = ipsfb12;
 	}
+	//
+	final void copyFrom(final Jscalefac_struct sf) {
+		System.arraycopy( sf.l, 0, this.l, 0, this.l.length );
+		System.arraycopy( sf.s, 0, this.s, 0, this.s.length );
+		System.arraycopy( sf.psfb21, 0, this.psfb21, 0, this.psfb21.length );
+		System.arraycopy( sf.psfb12, 0, this.psfb12, 0, this.psfb12.length );
+	}
 }
@@ -78,7 +78,7 @@ final class Jtakehiro {
 	 *
 	 * 01/2004: Optimizations by Gabriel Bouvigne
 	 *********************************************************************/
-	private static final void quantize_lines_xrpow_01(int l, final float istep, final float[] xr, int xroffset, final int[] ix, int ixoffset) {
+	static final void quantize_lines_xrpow_01(int l, final float istep, final float[] xr, int xroffset, final int[] ix, int ixoffset) {
 		final float compareval0 = (1.0f - 0.4054f) / istep;
 
 		for( l += xroffset; xroffset < l; ) {
@@ -101,7 +101,7 @@ final class Jtakehiro {
 	// private static final double MAGIC_FLOAT = (65536 * (128));
 	// private static final int MAGIC_INT = 0x4b000000;
 
-	private static final void quantize_lines_xrpow(int l, final float istep, final float[] xp, int xoffset, final int[] pi, int pioffset) {
+	static final void quantize_lines_xrpow(int l, final float istep, final float[] xp, int xoffset, final int[] pi, int pioffset) {
 /* if( Jquantize_pvt.TAKEHIRO_IEEE754_HACK ) {
 		l = l >>> 1;
 		final int remaining = l & 1;
@@ -261,6 +261,7 @@ final class Jtakehiro {
 	private static final void quantize_xrpow(final float[] xp, final int[] pi, final float istep, final Jgr_info cod_info,
 		final Jcalc_noise_data prev_noise)
 	{
+		final Jencoder_kernels kernels = Jencoder_kernels.kernels;// java
 		/* quantize on xr^(3/4) instead of xr */
 		int j = 0;
 		int accumulate = 0;
@@ -295,11 +296,11 @@ final class Jtakehiro {
 				/* do not recompute this part,
 				   but compute accumulated lines */
 				if( accumulate != 0 ) {
-					quantize_lines_xrpow( accumulate, istep, xp, acc_xp, pi, acc_iData );
+					kernels.quantize_lines_xrpow( accumulate, istep, xp, acc_xp, pi, acc_iData );
 					accumulate = 0;
 				}
 				if( accumulate01 != 0 ) {
-					quantize_lines_xrpow_01( accumulate01, istep, xp, acc_xp, pi, acc_iData );
+					kernels.quantize_lines_xrpow_01( accumulate01, istep, xp, acc_xp, pi, acc_iData );
 					accumulate01 = 0;
 				}
 			} else {          /*should compute this part */
@@ -333,7 +334,7 @@ final class Jtakehiro {
 						prev_noise.step[sfb] > 0 && step >= prev_noise.step[sfb] ) {
 
 					if( accumulate != 0 ) {
-						quantize_lines_xrpow( accumulate, istep, xp, acc_xp, pi, acc_iData );
+						kernels.quantize_lines_xrpow( accumulate, istep, xp, acc_xp, pi, acc_iData );
 						accumulate = 0;
 						acc_iData = iData;
 						acc_xp = xpi;
@@ -341,7 +342,7 @@ final class Jtakehiro {
 					accumulate01 += l;
 				} else {
 					if( accumulate01 != 0 ) {
-						quantize_lines_xrpow_01( accumulate01, istep, xp, acc_xp, pi, acc_iData );
+						kernels.quantize_lines_xrpow_01( accumulate01, istep, xp, acc_xp, pi, acc_iData );
 						accumulate01 = 0;
 						acc_iData = iData;
 						acc_xp = xpi;
@@ -354,11 +355,11 @@ final class Jtakehiro {
 					 *  may happen due to "prev_data_use" optimization
 					 */
 					if( accumulate01 != 0 ) {
-						quantize_lines_xrpow_01( accumulate01, istep, xp, acc_xp, pi, acc_iData );
+						kernels.quantize_lines_xrpow_01( accumulate01, istep, xp, acc_xp, pi, acc_iData );
 						accumulate01 = 0;
 					}
 					if( accumulate != 0 ) {
-						quantize_lines_xrpow( accumulate, istep, xp, acc_xp, pi, acc_iData );
+						kernels.quantize_lines_xrpow( accumulate, istep, xp, acc_xp, pi, acc_iData );
 						accumulate = 0;
 					}
 
@@ -373,11 +374,11 @@ final class Jtakehiro {
 			}
 		}
 		if( accumulate != 0 ) {   /*last data part */
-			quantize_lines_xrpow( accumulate, istep, xp, acc_xp, pi, acc_iData );
+			kernels.quantize_lines_xrpow( accumulate, istep, xp, acc_xp, pi, acc_iData );
 			accumulate = 0;
 		}
 		if( accumulate01 != 0 ) { /*last data part */
-			quantize_lines_xrpow_01( accumulate01, istep, xp, acc_xp, pi, acc_iData );
+			kernels.quantize_lines_xrpow_01( accumulate01, istep, xp, acc_xp, pi, acc_iData );
 			accumulate01 = 0;
 		}
 	}
@@ -596,7 +597,7 @@ final class Jtakehiro {
 	/*	      count_bit							 */
 	/*************************************************************************/
 	static final int noquant_count_bits(final Jlame_internal_flags gfc,
-		final Jgr_info gi, final Jcalc_noise_data prev_noise)
+		final Jgr_info gi, final Jcalc_noise_data prev_noise, final int ch)
 	{
 		final JSessionConfig cfg = gfc.cfg;
 		int bits = 0;
@@ -695,7 +696,7 @@ final class Jtakehiro {
 		}
 		if( cfg.use_best_huffman == 2 ) {
 			gi.part2_3_length = bits;
-			best_huffman_divide(gfc, gi);
+			best_huffman_divide( gfc, gi, ch );
 			bits = gi.part2_3_length;
 		}
 
@@ -714,7 +715,7 @@ final class Jtakehiro {
 	}
 
 	static final int count_bits(final Jlame_internal_flags gfc,
-		final float[] xr, final Jgr_info gi, final Jcalc_noise_data prev_noise)
+		final float[] xr, final Jgr_info gi, final int ch, final Jcalc_noise_data prev_noise)
 	{
 		final int[] ix = gi.l3_enc;
 
@@ -732,7 +733,7 @@ final class Jtakehiro {
 			/* 0.634521682242439 = 0.5946*2**(.5*0.1875) */
 			final int gain = gi.global_gain + gi.scalefac_scale;
 			final float roundfac = 0.634521682242439f / Jquantize_pvt.ipow20[ gain ];
-			final boolean[] pseudohalf = gfc.sv_qnt.pseudohalf;// java
+			final boolean[] pseudohalf = gfc.sv_qnt.pseudohalf[ch];// java
 			final int[] gi_width = gi.width;// java
 			for( int sfb = 0, sfbmax = gi.sfbmax; sfb < sfbmax; sfb++ ) {
 				final int width = gi_width[sfb];
@@ -747,7 +748,7 @@ final class Jtakehiro {
 				}
 			}
 		}
-		return noquant_count_bits( gfc, gi, prev_noise );
+		return noquant_count_bits( gfc, gi, prev_noise, ch );
 	}
 
 	/***********************************************************************
@@ -831,14 +832,16 @@ final class Jtakehiro {
 		}
 	}
 
-	static final void best_huffman_divide(final Jlame_internal_flags gfc, final Jgr_info gi) {
+	/** @param ch java: channel, selects the scratch buffers */
+	static final void best_huffman_divide(final Jlame_internal_flags gfc, final Jgr_info gi, final int ch) {
 		final JSessionConfig cfg = gfc.cfg;
 		final int[] ix = gi.l3_enc;
+		final JQntWorkspace.Jchannel wk = gfc.wk_qnt.ch[ch];// java: scratch buffers
 
-		final int r01_bits[] = new int[7 + 15 + 1];
-		final int r01_div[] = new int[7 + 15 + 1];
-		final int r0_tbl[] = new int[7 + 15 + 1];
-		final int r1_tbl[] = new int[7 + 15 + 1];
+		final int r01_bits[] = wk.r01_bits;
+		final int r01_div[] = wk.r01_div;
+		final int r0_tbl[] = wk.r0_tbl;
+		final int r1_tbl[] = wk.r1_tbl;
 
 
 		/* SHORT BLOCK stuff fails for MPEG2 */
@@ -846,7 +849,8 @@ final class Jtakehiro {
 			return;
 		}
 
-		final Jgr_info cod_info2 = new Jgr_info( gi );
+		final Jgr_info cod_info2 = wk.cod_info2;
+		cod_info2.copyFrom( gi );
 		if( gi.block_type == Jencoder.NORM_TYPE ) {
 			recalc_divide_init( gfc, gi, ix, r01_bits, r01_div, r0_tbl, r1_tbl );
 			recalc_divide_sub( gfc, cod_info2, gi, ix, r01_bits, r01_div, r0_tbl, r1_tbl );
@@ -1181,9 +1185,18 @@ final class Jtakehiro {
 
 	/*  This is reverse-engineered from section 2.4.3.2 of the MPEG2 IS,     */
 	/* "Audio Decoding Layer III"                                            */
+	/** java: max of the scalefactors from sfb to sfb + n, not less than 0 */
+	private static final int max_sfac(final int[] scalefac, int sfb, final int n) {
+		int max = 0;
+		for( final int end = sfb + n; sfb < end; sfb++ ) {
+			if( scalefac[sfb] > max ) {
+				max = scalefac[sfb];
+			}
+		}
+		return max;
+	}
+
 	private static final boolean mpeg2_scale_bitcount(final Jlame_internal_flags gfc, final Jgr_info cod_info) {
-		final int max_sfac[] = new int[4];
-		int[] partition_table;
 		final int[] scalefac = cod_info.scalefac;
 
 		/*
@@ -1192,49 +1205,31 @@ final class Jtakehiro {
 		 */
 		final int table_number = cod_info.preflag ? 2 : 0;
 
-		for( int i = 0; i < 4; i++ ) {
-			max_sfac[i] = 0;
+		/* java: max_sfac[4] as locals. the short block partitions are multiples of 3 windows */
+		final int row_in_table = cod_info.block_type == Jencoder.SHORT_TYPE ? 1 : 0;
+		final int[] partition_table = Jquantize_pvt.nr_of_sfb_block[table_number][row_in_table];//[0];
+		int sfb = 0;
+		final int max_sfac0 = max_sfac( scalefac, sfb, partition_table[0] );
+		sfb += partition_table[0];
+		final int max_sfac1 = max_sfac( scalefac, sfb, partition_table[1] );
+		sfb += partition_table[1];
+		final int max_sfac2 = max_sfac( scalefac, sfb, partition_table[2] );
+		sfb += partition_table[2];
+		final int max_sfac3 = max_sfac( scalefac, sfb, partition_table[3] );
+
+		final int[] max_range = max_range_sfac_tab[table_number];// java
+		int over = 0;
+		if( max_sfac0 > max_range[0] ) {
+			over++;
 		}
-
-		int row_in_table;
-		if( cod_info.block_type == Jencoder.SHORT_TYPE ) {
-			row_in_table = 1;
-			partition_table = Jquantize_pvt.nr_of_sfb_block[table_number][row_in_table];//[0];
-			for( int sfb = 0, partition = 0; partition < 4; partition++ ) {
-				final int nr_sfb = partition_table[partition];
-				for( final int end = sfb + nr_sfb; sfb < end; ) {
-					if( scalefac[sfb] > max_sfac[partition]) {
-						max_sfac[partition] = scalefac[sfb];
-					}
-					sfb++;
-					if( scalefac[sfb] > max_sfac[partition]) {
-						max_sfac[partition] = scalefac[sfb];
-					}
-					sfb++;
-					if( scalefac[sfb] > max_sfac[partition]) {
-						max_sfac[partition] = scalefac[sfb];
-					}
-					sfb++;
-				}
-			}
-		} else {
-			row_in_table = 0;
-			partition_table = Jquantize_pvt.nr_of_sfb_block[table_number][row_in_table];//[0];
-			for( int sfb = 0, partition = 0; partition < 4; partition++ ) {
-				final int nr_sfb = partition_table[partition];
-				for( int i = 0; i < nr_sfb; i++, sfb++ ) {
-					if( scalefac[sfb] > max_sfac[partition] ) {
-						max_sfac[partition] = scalefac[sfb];
-					}
-				}
-			}
+		if( max_sfac1 > max_range[1] ) {
+			over++;
 		}
-
-		int over = 0;
-		for( int partition = 0; partition < 4; partition++ ) {
-			if( max_sfac[partition] > max_range_sfac_tab[table_number][partition] ) {
-				over++;
-			}
+		if( max_sfac2 > max_range[2] ) {
+			over++;
+		}
+		if( max_sfac3 > max_range[3] ) {
+			over++;
 		}
 		if( 0 == over ) {
 			final int[] slen = cod_info.slen;// java
@@ -1247,10 +1242,10 @@ final class Jtakehiro {
 			cod_info.sfb_partition_table = Jquantize_pvt.nr_of_sfb_block[table_number][row_in_table];
 
 			/* set scalefac_compress */
-			final int slen1 = log2tab[ max_sfac[0] ];
-			final int slen2 = log2tab[ max_sfac[1] ];
-			final int slen3 = log2tab[ max_sfac[2] ];
-			final int slen4 = log2tab[ max_sfac[3] ];
+			final int slen1 = log2tab[ max_sfac0 ];
+			final int slen2 = log2tab[ max_sfac1 ];
+			final int slen3 = log2tab[ max_sfac2 ];
+			final int slen4 = log2tab[ max_sfac3 ];
 
 			slen[0] = slen1;
 			slen[1] = slen2;
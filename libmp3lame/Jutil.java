@@ -361,18 +361,15 @@ public final class Jutil {
 	// private static final int LOG2_SIZE_L2 = 9;
 
 	private static final float log_table[] = new float[LOG2_SIZE + 1];
-	private static boolean init = false;
 
-	static final void init_log_table() {
+	// java: init_log_table, the class initialization runs it once and publishes the table to all threads
+	static {
 		/* Range for log2(x) over [1,2[ is [0,1[ */
 		// assert((1 << LOG2_SIZE_L2) == LOG2_SIZE);
 
-		if( ! init ) {
-			for( int j = 0; j < LOG2_SIZE + 1; j++ ) {
-				log_table[j] = (float)(Math.log( 1.0 + j / (double) LOG2_SIZE) / Math.log( 2.0 ));
-			}
+		for( int j = 0; j < LOG2_SIZE + 1; j++ ) {
+			log_table[j] = (float)(Math.log( 1.0 + j / (double) LOG2_SIZE) / Math.log( 2.0 ));
 		}
-		init = true;
 	}
 /*
 	private static final float fast_log2(final float x) {
@@ -1,5 +1,7 @@
 package libmp3lame;
 
+import java.util.concurrent.RecursiveAction;
+
 /*
  *	MP3 quantization
  *
@@ -47,6 +49,20 @@ final class Jvbrquantize {
 		private Jgr_info cod_info;
 		private int mingain_l;
 		private final int mingain_s[] = new int[3];
+		/* java: scratch buffers, the granules and channels may be quantized in parallel */
+		private int ch;
+		private final Jcalc_noise_cache did_it[] = new Jcalc_noise_cache[256];
+		private final float x[] = new float[16];// java: 16 for the vector kernels, 512 bits
+		private final int l3[] = new int[16];// java: 16 for the vector kernels, 512 bits
+		private final int sf_temp[] = new int[Jencoder.SFBMAX];
+		private final int sftemp[] = new int[Jencoder.SFBMAX];
+		private final int wrk[] = new int[Jencoder.SFBMAX];
+		//
+		private Jalgo_s() {
+			for( int i = 0; i < 256; i++ ) {
+				this.did_it[i] = new Jcalc_noise_cache();
+			}
+		}
 	};
 
 /*  Remarks on optimizing compilers:
@@ -94,7 +110,7 @@ final class Jvbrquantize {
 #endif */
 	//private static final double MAGIC_FLOAT = MAGIC_FLOAT_def;
 
-	private static final float vec_max_c(final float[] xr34, int xoffset, final int bw ) {
+	static final float vec_max_c(final float[] xr34, int xoffset, final int bw ) {
 		float xfsf = 0;
 		int i = bw >>> 2;
 		final int remaining = (bw & 0x03);
@@ -186,9 +202,9 @@ final class Jvbrquantize {
 	/*  do call the calc_sfb_noise_* functions only with sf values
 	 *  for which holds: sfpow34*xr34 <= IXMAX_VAL
 	 */
-	private static final float calc_sfb_noise_x34(final float[] xr, int xroffset, final float[] xr34, int xr34offset, final int bw, final int sf) {
-		final float x[] = new float[4];
-		final int l3[] = new int[4];
+	static final float calc_sfb_noise_x34(final float[] xr, int xroffset, final float[] xr34, int xr34offset, final int bw, final int sf,
+		final float x[], final int l3[])
+	{
 		final float sfpow = Jquantize_pvt.pow20[sf + Jquantize_pvt.Q_MAX2]; /*pow(2.0,sf/4.0 ); */
 		final float sfpow34 = Jquantize_pvt.ipow20[sf]; /*pow(sfpow,-3.0/4.0 ); */
 
@@ -272,12 +288,16 @@ final class Jvbrquantize {
 	}
 
 	private static final boolean tri_calc_sfb_noise_x34(final float[] xr, final int xroffset, final float[] xr34, final int xr34offset, final float l3_xmin, final int bw,
-		final int sf, final Jcalc_noise_cache[] did_it)
+		final int sf, final Jalgo_s that)
 	{
+		final Jencoder_kernels kernels = Jencoder_kernels.kernels;// java
+		final Jcalc_noise_cache[] did_it = that.did_it;// java
+		final float[] x = that.x;// java
+		final int[] l3 = that.l3;// java
 		Jcalc_noise_cache nc = did_it[sf];// java
 		if( ! nc.valid ) {
 			nc.valid = true;
-			nc.value = calc_sfb_noise_x34( xr, xroffset, xr34, xr34offset, bw, sf );
+			nc.value = kernels.calc_sfb_noise_x34( xr, xroffset, xr34, xr34offset, bw, sf, x, l3 );
 		}
 		if( l3_xmin < nc.value ) {
 			return true;
@@ -287,7 +307,7 @@ final class Jvbrquantize {
 			nc = did_it[sf_x];// java
 			if( ! nc.valid ) {
 				nc.valid = true;
-				nc.value = calc_sfb_noise_x34( xr, xroffset, xr34, xr34offset, bw, sf_x );
+				nc.value = kernels.calc_sfb_noise_x34( xr, xroffset, xr34, xr34offset, bw, sf_x, x, l3 );
 			}
 			if( l3_xmin < nc.value ) {
 				return true;
@@ -298,7 +318,7 @@ final class Jvbrquantize {
 			nc = did_it[sf_x];// java
 			if( ! nc.valid ) {
 				nc.valid = true;
-				nc.value = calc_sfb_noise_x34( xr, xroffset, xr34, xr34offset, bw, sf_x );
+				nc.value = kernels.calc_sfb_noise_x34( xr, xroffset, xr34, xr34offset, bw, sf_x, x, l3 );
 			}
 			if( l3_xmin < nc.value ) {
 				return true;
@@ -339,20 +359,20 @@ final class Jvbrquantize {
 	 * per band (shaping the noise).
 	 */
 	private static final int find_scalefac_x34(final float[] xr, final int xroffset, final float[] xr34, final int xr34offset, final float l3_xmin, final int bw,
-		final int sf_min)
+		final int sf_min, final Jalgo_s that)
 	{
-		final Jcalc_noise_cache did_it[] = new Jcalc_noise_cache[256];
+		final Jcalc_noise_cache did_it[] = that.did_it;
 		int sf = 128, sf_ok = 255, delsf = 128, seen_good_one = 0, i;
 		i = 256;
 		do {
-			did_it[--i] = new Jcalc_noise_cache();// already zeroed
+			did_it[--i].valid = false;
 		} while( i > 0 );
 		for( i = 0; i < 8; ++i ) {
 			delsf >>= 1;
 			if( sf <= sf_min ) {
 				sf += delsf;
 			} else {
-				final boolean bad = tri_calc_sfb_noise_x34( xr, xroffset, xr34, xr34offset, l3_xmin, bw, sf, did_it );
+				final boolean bad = tri_calc_sfb_noise_x34( xr, xroffset, xr34, xr34offset, l3_xmin, bw, sf, that );
 				if( bad ) {  /* distortion.  try a smaller scalefactor */
 					sf -= delsf;
 				} else {
@@ -385,6 +405,7 @@ final class Jvbrquantize {
 /* a variation for vbr-mtrh */
 	private static final int block_sf(final Jalgo_s that, final float l3_xmin[/*SFBMAX*/], final int vbrsf[/*SFBMAX*/], final int vbrsfmin[/*SFBMAX*/])
 	{
+		final Jencoder_kernels kernels = Jencoder_kernels.kernels;// java
 		final float[] xr = that.cod_info.xr;
 		final float[] xr34_orig = that.xr34orig;
 		final int[] width = that.cod_info.width;
@@ -406,7 +427,7 @@ final class Jvbrquantize {
 			if( l > m ) {
 				l = m;
 			}
-			final float max_xr34 = vec_max_c( xr34_orig, j, l );
+			final float max_xr34 = kernels.vec_max( xr34_orig, j, l );
 
 			final int m1 = find_lowest_scalefac( max_xr34 );
 			vbrsfmin[sfb] = m1;
@@ -426,7 +447,7 @@ final class Jvbrquantize {
 					if( that.find == guess_scalefac_x34 ) {
 						m2 = guess_scalefac_x34( xr, j, xr34_orig, j, l3_xmin[sfb], l, m1 );
 					} else if( that.find == find_scalefac_x34 ) {
-						m2 = find_scalefac_x34( xr, j, xr34_orig, j, l3_xmin[sfb], l, m1 );
+						m2 = find_scalefac_x34( xr, j, xr34_orig, j, l3_xmin[sfb], l, m1, that );
 					} else {
 						m2 = 0;// java: to suppress warning "The local variable m2 may not have been initialized"
 					}
@@ -487,8 +508,9 @@ final class Jvbrquantize {
  *
  ***********************************************************************/
 	private static final void quantize_x34(final Jalgo_s that) {
-		final float x[] = new float[4];
-		final int tmp_l3[] = new int[4];
+		final Jencoder_kernels kernels = Jencoder_kernels.kernels;// java
+		final float x[] = that.x;
+		final int tmp_l3[] = that.l3;
 		final float[] xr34 = that.xr34orig;// java
 		int xr34_orig = 0;// xr34[xr34_orig]
 		final Jgr_info cod_info = that.cod_info;
@@ -514,17 +536,11 @@ final class Jvbrquantize {
 			final int remaining = (i & 0x03);
 			i >>>= 2;
 
-			while( i-- > 0 ) {
-				x[0] = sfpow34 * xr34[ xr34_orig + 0 ];
-				x[1] = sfpow34 * xr34[ xr34_orig + 1 ];
-				x[2] = sfpow34 * xr34[ xr34_orig + 2 ];
-				x[3] = sfpow34 * xr34[ xr34_orig + 3 ];
-
-				k_34_4( x, l3_enc, l3 );
-
-				l3 += 4;
-				xr34_orig += 4;
-			}
+			/* java: k_34_4 of the groups of 4 lines is quantize_lines_xrpow with istep = sfpow34 */
+			i <<= 2;
+			kernels.quantize_lines_xrpow( i, sfpow34, xr34, xr34_orig, l3_enc, l3 );
+			l3 += i;
+			xr34_orig += i;
 			if( remaining != 0 ) {
 				x[0] = x[1] = x[2] = x[3] = 0;
 				switch( remaining ) {
@@ -783,7 +799,7 @@ final class Jvbrquantize {
 			cod_info.global_gain = 255;
 		}
 		{
-			final int sf_temp[] = new int[Jencoder.SFBMAX];
+			final int sf_temp[] = that.sf_temp;
 			for( int sfb = 0; sfb < Jencoder.SFBMAX; ++sfb ) {
 				sf_temp[sfb] = vbrsf[sfb] - vbrmax;
 			}
@@ -918,7 +934,7 @@ final class Jvbrquantize {
 			cod_info.global_gain = 255;
 		}
 		{
-			final int sf_temp[] = new int[Jencoder.SFBMAX];
+			final int sf_temp[] = that.sf_temp;
 			for( int sfb = 0; sfb < Jencoder.SFBMAX; ++sfb ) {
 				sf_temp[sfb] = vbrsf[sfb] - vbrmax;
 			}
@@ -940,7 +956,7 @@ final class Jvbrquantize {
 
 	private static final int quantizeAndCountBits(final Jalgo_s that) {
 		quantize_x34( that );
-		that.cod_info.part2_3_length = Jtakehiro.noquant_count_bits( that.gfc, that.cod_info, null );
+		that.cod_info.part2_3_length = Jtakehiro.noquant_count_bits( that.gfc, that.cod_info, null, that.ch );
 		return that.cod_info.part2_3_length;
 	}
 
@@ -948,7 +964,7 @@ final class Jvbrquantize {
 		final int vbrsfmin[/*SFBMAX*/], final int delta)
 	{
 		final float xrpow_max = that.cod_info.xrpow_max;
-		final int sftemp[] = new int[Jencoder.SFBMAX];
+		final int sftemp[] = that.sftemp;
 		int vbrmax = 0;
 		for( int i = 0; i < Jencoder.SFBMAX; ++i ) {
 			int gain = sfwork[i] + delta;
@@ -1072,7 +1088,7 @@ final class Jvbrquantize {
 
 	private static final void outOfBitsStrategy(final Jalgo_s that, final int sfwork[/*SFBMAX*/], final int vbrsfmin[/*SFBMAX*/], final int target)
 	{
-		final int wrk[] = new int[Jencoder.SFBMAX];
+		final int wrk[] = that.wrk;
 		final int dm = sfDepth( sfwork );
 		final int p = that.cod_info.global_gain;
 
@@ -1153,26 +1169,159 @@ final class Jvbrquantize {
 
 		/*  best huffman_divide may save some bits too */
 		if( cfg.use_best_huffman == 1 ) {
-			Jtakehiro.best_huffman_divide( gfc, cod_info );
+			Jtakehiro.best_huffman_divide( gfc, cod_info, ch );
 		}
 		return cod_info.part2_3_length + cod_info.part2_length;
 	}
 
+	/** java: scalefactor search of one granule and channel, independent of the other ones */
+	private static final class Jsearch_task extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		//
+		private final Jalgo_s that;
+		private float[] l3_xmin;
+		private final int[] sfwork;
+		private final int[] vbrsfmin;
+
+		private Jsearch_task(final Jalgo_s that, final int[] sfwork, final int[] vbrsfmin) {
+			this.that = that;
+			this.sfwork = sfwork;
+			this.vbrsfmin = vbrsfmin;
+		}
+
+		private final Jsearch_task set(final float[] l3_xmin) {
+			this.l3_xmin = l3_xmin;
+			return this;
+		}
+
+		@Override
+		protected void compute() {
+			final Jalgo_s a = this.that;
+			final int vbrmax = block_sf( a, this.l3_xmin, this.sfwork, this.vbrsfmin );
+			// that.alloc( that, sfwork, vbrsfmin, vbrmax );
+			if( a.alloc == short_block_constrain ) {
+				short_block_constrain( a, this.sfwork, this.vbrsfmin, vbrmax );
+			} else if( a.alloc == long_block_constrain ) {
+				long_block_constrain( a, this.sfwork, this.vbrsfmin, vbrmax );
+			}
+
+			bitcount( a );
+		}
+	}
+
+	/**
+	 * java: quantization of all granules of one channel.
+	 * The granules are done in order, best_scalefac_store of the second granule
+	 * compares the scalefactors with the first one.
+	 */
+	private static final class Jchannel_task extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		//
+		private final Jalgo_s that_[][];
+		private final int sfwork_[][][];
+		private final int vbrsfmin_[][][];
+		private int max_bits[][];
+		/** bits allowed to use, null to encode 'as is' */
+		private int max_nbits_ch[][];
+		private final int use_nbits_ch[][];
+		private int ngr;
+		private final int ch;
+
+		private Jchannel_task(final Jalgo_s that_[][], final int sfwork_[][][], final int vbrsfmin_[][][],
+				final int use_nbits_ch[][], final int ch)
+		{
+			this.that_ = that_;
+			this.sfwork_ = sfwork_;
+			this.vbrsfmin_ = vbrsfmin_;
+			this.use_nbits_ch = use_nbits_ch;
+			this.ch = ch;
+		}
+
+		private final Jchannel_task set(final int max_bits[][], final int max_nbits_ch[][], final int ngr) {
+			this.max_bits = max_bits;
+			this.max_nbits_ch = max_nbits_ch;
+			this.ngr = ngr;
+			return this;
+		}
+
+		@Override
+		protected void compute() {
+			final int c = this.ch;
+			for( int gr = 0; gr < this.ngr; ++gr ) {
+				final Jalgo_s that = this.that_[gr][c];
+				if( this.max_bits[gr][c] > 0 ) {
+					if( this.max_nbits_ch == null ) {
+						final int[] buf = that.cod_info.l3_enc;
+						int i = buf.length;
+						do {
+							buf[--i] = 0;
+						} while( i > 0 );
+						quantizeAndCountBits( that );
+					} else {
+						final int[] sfwork = this.sfwork_[gr][c];
+						final int[] vbrsfmin = this.vbrsfmin_[gr][c];
+						cutDistribution( sfwork, sfwork, that.cod_info.global_gain );
+						outOfBitsStrategy( that, sfwork, vbrsfmin, this.max_nbits_ch[gr][c] );
+					}
+				} else {
+					/*  xr contains no energy
+					 *  l3_enc, our encoding data, will be quantized to zero
+					 *  continue with next channel
+					 */
+				}
+				this.use_nbits_ch[gr][c] = reduce_bit_usage( that.gfc, gr, c );
+			}
+		}
+	}
+
+	/** java: scratch buffers of VBR_encode_frame, see JQntWorkspace */
+	static final class Jworkspace {
+		private final int sfwork_[][][] = new int[2][2][Jencoder.SFBMAX];
+		private final int vbrsfmin_[][][] = new int[2][2][Jencoder.SFBMAX];
+		private final Jalgo_s that_[][] = { { new Jalgo_s(), new Jalgo_s() }, { new Jalgo_s(), new Jalgo_s() } };
+		private final int max_nbits_ch[][] = new int[2][2];
+		private final int max_nbits_gr[] = new int[2];
+		private final int use_nbits_ch[][] = new int[2][2];
+		private final int use_nbits_gr[] = new int[2];
+		private final float f[] = new float[2];
+		private final Jsearch_task search_[][] = new Jsearch_task[2][2];
+		private final Jsearch_task search[] = new Jsearch_task[4];
+		private final Jchannel_task channels[] = new Jchannel_task[2];
+		//
+		Jworkspace() {
+			for( int gr = 0; gr < 2; gr++ ) {
+				for( int ch = 0; ch < 2; ch++ ) {
+					this.search_[gr][ch] = new Jsearch_task( this.that_[gr][ch], this.sfwork_[gr][ch], this.vbrsfmin_[gr][ch] );
+				}
+			}
+			for( int ch = 0; ch < 2; ch++ ) {
+				this.channels[ch] = new Jchannel_task( this.that_, this.sfwork_, this.vbrsfmin_, this.use_nbits_ch, ch );
+			}
+		}
+	}
+
 	@SuppressWarnings("boxing")
 	static final int VBR_encode_frame(final Jlame_internal_flags gfc, final float xr34orig[][][]/*[2][2][576]*/,
 		final float l3_xmin[][][]/*[2][2][SFBMAX]*/, final int max_bits[][]/*[2][2]*/)
 	{
 		final JSessionConfig cfg = gfc.cfg;
-		final int sfwork_[][][] = new int[2][2][Jencoder.SFBMAX];
-		final int vbrsfmin_[][][] = new int[2][2][Jencoder.SFBMAX];
-		final Jalgo_s that_[][] = new Jalgo_s[2][2];
+		final Jworkspace wk = gfc.wk_qnt.vbr;// java: scratch buffers
+		final Jalgo_s that_[][] = wk.that_;
 		final int ngr = cfg.mode_gr;
 		final int nch = cfg.channels_out;
-		final int max_nbits_ch[][] = new int[2][2];// {{0, 0}, {0 ,0}};// java: already zeroed
-		final int max_nbits_gr[] = new int[2];// {0, 0};// java: already zeroed
+		final int max_nbits_ch[][] = wk.max_nbits_ch;// {{0, 0}, {0 ,0}};
+		final int max_nbits_gr[] = wk.max_nbits_gr;// {0, 0};
 		int max_nbits_fr = 0;
-		final int use_nbits_ch[][] = {{Jutil.MAX_BITS_PER_CHANNEL+1, Jutil.MAX_BITS_PER_CHANNEL+1},{Jutil.MAX_BITS_PER_CHANNEL+1, Jutil.MAX_BITS_PER_CHANNEL+1}};
-		final int use_nbits_gr[] = { Jutil.MAX_BITS_PER_GRANULE+1, Jutil.MAX_BITS_PER_GRANULE+1 };
+		final int use_nbits_ch[][] = wk.use_nbits_ch;
+		final int use_nbits_gr[] = wk.use_nbits_gr;
+		for( int gr = 0; gr < 2; gr++ ) {
+			max_nbits_ch[gr][0] = 0;
+			max_nbits_ch[gr][1] = 0;
+			max_nbits_gr[gr] = 0;
+			use_nbits_ch[gr][0] = Jutil.MAX_BITS_PER_CHANNEL+1;
+			use_nbits_ch[gr][1] = Jutil.MAX_BITS_PER_CHANNEL+1;
+			use_nbits_gr[gr] = Jutil.MAX_BITS_PER_GRANULE+1;
+		}
 		int use_nbits_fr = Jutil.MAX_BITS_PER_GRANULE+Jutil.MAX_BITS_PER_GRANULE;
 
 		/* set up some encoding parameters */
@@ -1184,8 +1333,8 @@ final class Jvbrquantize {
 				use_nbits_ch[gr][ch] = 0;
 				max_nbits_gr[gr] += max_bits[gr][ch];
 				max_nbits_fr += max_bits[gr][ch];
-				final Jalgo_s a = new Jalgo_s();
-				that_[gr][ch] = a;
+				final Jalgo_s a = that_[gr][ch];
+				a.ch = ch;
 				a.find = (cfg.full_outer_loop < 0) ? guess_scalefac_x34 : find_scalefac_x34;
 				a.gfc = gfc;
 				a.cod_info = tt[gr][ch];
@@ -1198,22 +1347,13 @@ final class Jvbrquantize {
 			}/* for ch */
 		}
 		/* searches scalefactors */
+		/* java: the granules and channels are searched in parallel, if the quantization pool is set */
+		final Jsearch_task search[] = wk.search;
+		int nsearch = 0;
 		for( int gr = 0; gr < ngr; ++gr ) {
 			for( int ch = 0; ch < nch; ++ch ) {
 				if( max_bits[gr][ch] > 0 ) {
-					final Jalgo_s that = that_[gr][ch];
-					final int[] sfwork = sfwork_[gr][ch];
-					final int[] vbrsfmin = vbrsfmin_[gr][ch];
-
-					final int vbrmax = block_sf( that, l3_xmin[gr][ch], sfwork, vbrsfmin );
-					// that.alloc( that, sfwork, vbrsfmin, vbrmax );
-					if( that.alloc == short_block_constrain ) {
-						short_block_constrain( that, sfwork, vbrsfmin, vbrmax );
-					} else if( that.alloc == long_block_constrain ) {
-						long_block_constrain( that, sfwork, vbrsfmin, vbrmax );
-					}
-
-					bitcount( that );
+					search[nsearch++] = wk.search_[gr][ch].set( l3_xmin[gr][ch] );
 				} else {
 					/*  xr contains no energy
 					 *  l3_enc, our encoding data, will be quantized to zero
@@ -1222,26 +1362,18 @@ final class Jvbrquantize {
 				}
 			}/* for ch */
 		}
+		Jquantize.invoke_all( gfc, search, nsearch );
 		/* encode 'as is' */
+		/* java: the channels are quantized in parallel, joined to check the bit constrains */
+		final Jchannel_task channels[] = wk.channels;
+		for( int ch = 0; ch < nch; ++ch ) {
+			channels[ch].set( max_bits, null, ngr );
+		}
+		Jquantize.invoke_all( gfc, channels, nch );
 		use_nbits_fr = 0;
 		for( int gr = 0; gr < ngr; ++gr ) {
 			use_nbits_gr[gr] = 0;
 			for( int ch = 0; ch < nch; ++ch ) {
-				final Jalgo_s that = that_[gr][ch];
-				if( max_bits[gr][ch] > 0 ) {
-					final int[] buf = that.cod_info.l3_enc;
-					int i = buf.length;
-					do {
-						buf[--i] = 0;
-					} while( i > 0 );
-					quantizeAndCountBits( that );
-				} else {
-					/*  xr contains no energy
-					 *  l3_enc, our encoding data, will be quantized to zero
-					 *  continue with next channel
-					 */
-				}
-				use_nbits_ch[gr][ch] = reduce_bit_usage( gfc, gr, ch );
 				use_nbits_gr[gr] += use_nbits_ch[gr][ch];
 			}               /* for ch */
 			use_nbits_fr += use_nbits_gr[gr];
@@ -1294,7 +1426,7 @@ final class Jvbrquantize {
 					max_nbits_gr[gr] += max_nbits_ch[gr][ch];
 				}
 				if( max_nbits_gr[gr] > Jutil.MAX_BITS_PER_GRANULE ) {
-					final float f[] = new float[2];// {0.0f, 0.0f};// java: already zeroed
+					final float f[] = wk.f;// {0.0f, 0.0f};
 					float s = 0.0f;
 					for( int ch = 0; ch < nch; ++ch ) {
 						if( max_nbits_ch[gr][ch] > 0 ) {
@@ -1338,7 +1470,7 @@ final class Jvbrquantize {
 			}
 			if( sum_fr > max_nbits_fr ) {
 				{
-					final float f[] = {0.0f, 0.0f};
+					final float f[] = wk.f;// {0.0f, 0.0f};
 					float s = 0.0f;
 					for( int gr = 0; gr < ngr; ++gr ) {
 						if( max_nbits_gr[gr] > 0 ) {
@@ -1374,7 +1506,7 @@ final class Jvbrquantize {
 					}
 				}
 				for( int gr = 0; gr < ngr; ++gr ) {
-					final float f[] = {0.0f, 0.0f};
+					final float f[] = wk.f;// {0.0f, 0.0f};
 					float s = 0.0f;
 					for( int ch = 0; ch < nch; ++ch ) {
 						if( max_nbits_ch[gr][ch] > 0 ) {
@@ -1456,19 +1588,14 @@ final class Jvbrquantize {
 		}
 
 		/* alter our encoded data, until it fits into the target bitrate */
+		for( int ch = 0; ch < nch; ++ch ) {
+			channels[ch].set( max_bits, max_nbits_ch, ngr );
+		}
+		Jquantize.invoke_all( gfc, channels, nch );
 		use_nbits_fr = 0;
 		for( int gr = 0; gr < ngr; ++gr ) {
 			use_nbits_gr[gr] = 0;
 			for( int ch = 0; ch < nch; ++ch ) {
-				final Jalgo_s that = that_[gr][ch];
-				use_nbits_ch[gr][ch] = 0;
-				if( max_bits[gr][ch] > 0 ) {
-					final int[] sfwork = sfwork_[gr][ch];
-					final int[] vbrsfmin = vbrsfmin_[gr][ch];
-					cutDistribution( sfwork, sfwork, that.cod_info.global_gain );
-					outOfBitsStrategy( that, sfwork, vbrsfmin, max_nbits_ch[gr][ch] );
-				}
-				use_nbits_ch[gr][ch] = reduce_bit_usage( gfc, gr, ch );
 				use_nbits_gr[gr] += use_nbits_ch[gr][ch];
 			}               /* for ch */
 			use_nbits_fr += use_nbits_gr[gr];
@@ -5,4 +5,11 @@ interface Isynth {
 	int synth_1to1_mono(Jmpstr_tag mp, float[] bandPtr, int boffset, Object out, int[] pnt);
 	/** java: pnt is sample counter, not byte counter */
 	int synth_1to1(Jmpstr_tag mp, float[] bandPtr, int boffset, int channel, Object out, int[] pnt);
+	/** java: the 18 slots of a granule of Layer III, band[SSLIMIT][SBLIMIT], as 18 calls of synth_1to1_mono */
+	int synth_1to1_mono_granule(Jmpstr_tag mp, float[] band, Object out, int[] pnt);
+	/**
+	 * java: the 18 slots of a granule of Layer III, band[SSLIMIT][SBLIMIT], as 18 calls of synth_1to1.
+	 * The channel 1 must follow the channel 0 of the same granule, see Jdecoder_kernels.synth
+	 */
+	int synth_1to1_granule(Jmpstr_tag mp, float[] band, int channel, Object out, int[] pnt);
 }
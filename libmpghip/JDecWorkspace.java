@@ -0,0 +1,39 @@
+package libmpghip;
+
+/**
+ * java: scratch buffers of the frame decoding.
+ * They are allocated once per decoder, so the decoding of a frame does not allocate memory.
+ * The content is not kept between the calls, as the stack variables of the C code.
+ */
+final class JDecWorkspace {
+	/* Jdct64.dct64 */
+	final float dct64_b1[] = new float[0x20];
+	final float dct64_b2[] = new float[0x20];
+	/* Isynth: the samples of the slots before the clipping */
+	final float synth_sums[] = new float[Jmpg123.SSLIMIT * 32];
+	/* Jvector_kernels.synth: dct64 of 16 slots, out0 and out1 as [k][slot], the stages as [i][lane] */
+	final float synth_out0[] = new float[17 * 16];
+	final float synth_out1[] = new float[16 * 16];
+	final float synth_b1[] = new float[32 * 16];
+	final float synth_b2[] = new float[32 * 16];
+	/* Jvector_kernels.III_hybrid: the sums of the input, sum0 and sum1 of dct36 as [k][lane] */
+	final float hybrid_in[] = new float[Jmpg123.SSLIMIT * 16];
+	final float hybrid_sums[] = new float[Jmpg123.SSLIMIT * 16];
+	/* Jlayer1, Jlayer2, Jlayer3: sample counter of the left channel */
+	final int pcm_point_left[] = new int[1];
+	/* Jlayer1.decode_layer1_frame */
+	final float fraction_I[][] = new float[2][Jmpg123.SBLIMIT];
+	final Jlayer1.Jsideinfo_layer_I si_I = new Jlayer1.Jsideinfo_layer_I();
+	/* Jlayer2.decode_layer2_frame */
+	final float fraction_II[][][] = new float[2][4][Jmpg123.SBLIMIT];
+	final Jlayer2.Jsideinfo_layer_II si_II = new Jlayer2.Jsideinfo_layer_II();
+	final byte scfsi[][] = new byte[Jmpg123.SBLIMIT][2];
+	/* Jlayer3.decode_layer3_frame */
+	final int scalefacs[][] = new int[2][39];
+	final float hybridIn[][] = new float[2][Jmpg123.SBLIMIT * Jmpg123.SSLIMIT];
+	final float hybridOut[][] = new float[2][Jmpg123.SSLIMIT * Jmpg123.SBLIMIT];
+	/* Jlayer3.III_dequantize_sample */
+	final int l[] = new int[3];
+	final int max[] = new int[4];
+	final Jbit_reader bit_reader = new Jbit_reader();
+}
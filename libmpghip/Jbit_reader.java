@@ -0,0 +1,177 @@
+package libmpghip;
+
+/**
+ * java: the bit reader of the Huffman data of Layer III, see Jlayer3.III_dequantize_sample.
+ *
+ * The bits of Jmpstr_tag.wordbuf are cached in a long, the first bit is the highest bit.
+ * refill loads the bytes, until more than 56 bits are cached, the other methods don't load:
+ * a pair of the big values is not longer than 19 + 2 * (13 + 1) bits, a quadruple of count1 is not longer than 10 bits.
+ * The bytes after the end of wordbuf are read as 0.
+ * The reader starts at wordpointer and bitindex of the stream, finish sets them to the first bit, which is not read.
+ */
+final class Jbit_reader {
+	/** the bits of the first level of the lookup tables */
+	static final int LOOKUP_BITS = 8;
+	/** the bits of the sub-tables of the longer codes, at most */
+	private static final int SUB_BITS = 4;
+	//
+	private byte[] buf;
+	/** the cached bits, from the highest bit */
+	private long cache;
+	/** the number of the cached bits */
+	private int count;
+	/** the next byte of buf */
+	private int pos;
+
+	final void start(final Jmpstr_tag mp) {
+		this.buf = mp.wordbuf;
+		this.pos = mp.wordpointer;
+		this.cache = 0;
+		this.count = 0;
+		refill();
+		skip( mp.bitindex );
+	}
+
+	final void finish(final Jmpstr_tag mp) {
+		final int bits = (this.pos << 3) - this.count;
+		mp.wordpointer = bits >> 3;
+		mp.bitindex = bits & 7;
+	}
+
+	final void refill() {
+		final byte[] b = this.buf;// java
+		long c = this.cache;
+		int n = this.count;
+		int p = this.pos;
+		while( n <= 56 ) {
+			if( p < b.length ) {
+				c |= ((long)b[p] & 0xff) << (56 - n);
+			}
+			p++;
+			n += 8;
+		}
+		this.cache = c;
+		this.count = n;
+		this.pos = p;
+	}
+
+	/** @return the next n bits, 0 < n <= 32 */
+	private final int peek(final int n) {
+		return (int)(this.cache >>> (64 - n));
+	}
+
+	final void skip(final int n) {
+		this.cache <<= n;
+		this.count -= n;
+	}
+
+	final int get1bit() {
+		final int v = (int)(this.cache >>> 63);
+		this.cache <<= 1;
+		this.count--;
+		return v;
+	}
+
+	/** @return the next n bits, 0 <= n <= 32, as Jmpstr_tag.getbits */
+	final int getbits(final int n) {
+		final int v = (int)((this.cache >>> 1) >>> (63 - n));
+		this.cache <<= n;
+		this.count -= n;
+		return v;
+	}
+
+	/**
+	 * Decodes a code of the lookup table, refills the cache before.
+	 * @return the value << 8 | the length of the code
+	 */
+	final int huffman(final int[] lookup) {
+		refill();
+		int n = LOOKUP_BITS;
+		int length = 0;
+		int e = lookup[ peek( n ) ];
+		while( e < 0 ) {
+			skip( n );
+			length += n;
+			n = e & 0xf;
+			e = lookup[ ((e & 0x7fffffff) >>> 4) + peek( n ) ];
+		}
+		n = e & 0xff;
+		skip( n );
+		return e + length;
+	}
+
+	/**
+	 * Decodes a quadruple of count1, the code is not longer than LOOKUP_BITS, refills the cache before.
+	 * The code is cut by the end of the data as the walk of the tree of mpg123:
+	 * if the code is longer than the remaining bits, the bits are skipped and the value is 0.
+	 * @param remain the remaining bits of the data, part2remain
+	 * @return the value << 8 | the number of the read bits
+	 */
+	final int count1(final int[] lookup, final int remain) {
+		refill();
+		final int e = lookup[ peek( LOOKUP_BITS ) ];
+		final int n = e & 0xff;
+		if( n > remain ) {
+			skip( remain );
+			return remain;
+		}
+		skip( n );
+		return e;
+	}
+
+	/**
+	 * The lookup table of the Huffman tree of mpg123: table[val] < 0 is a node, the bit 1 jumps to val + 1 - table[val],
+	 * the bit 0 goes to val + 1, table[val] >= 0 is a leaf, the value.
+	 * The first level has LOOKUP_BITS, the codes, which are longer, continue in the sub-tables of SUB_BITS at most.
+	 * An entry of a leaf is the value << 8 | the length of the code in the level,
+	 * an entry of a sub-table is 0x80000000 | the offset of the sub-table << 4 | the bits of the sub-table.
+	 */
+	static final int[] lookup(final short[] tree) {
+		final int[] lookup = new int[level( tree, 0, LOOKUP_BITS, null, 0, 1 << LOOKUP_BITS )];
+		level( tree, 0, LOOKUP_BITS, lookup, 0, 1 << LOOKUP_BITS );
+		return lookup;
+	}
+
+	/**
+	 * Fills the level of the lookup table at the offset from the node, the sub-tables are added at the end.
+	 * @param lookup the table, null to count the size
+	 * @return the new end of the table
+	 */
+	private static final int level(final short[] tree, final int node, final int bits, final int[] lookup, final int offset, int end) {
+		for( int p = 0; p < (1 << bits); p++ ) {
+			int val = node;
+			int d = 0;
+			int y;
+			while( (y = tree[val]) < 0 && d < bits ) {
+				val++;
+				if( ((p >> (bits - 1 - d)) & 1) != 0 ) {
+					val -= y;
+				}
+				d++;
+			}
+			if( y >= 0 ) {
+				if( lookup != null ) {
+					lookup[offset + p] = (y << 8) | d;
+				}
+			} else {
+				final int sub_bits = Math.min( depth( tree, val ), SUB_BITS );
+				final int sub = end;
+				end += 1 << sub_bits;
+				if( lookup != null ) {
+					lookup[offset + p] = 0x80000000 | (sub << 4) | sub_bits;
+				}
+				end = level( tree, val, sub_bits, lookup, sub, end );
+			}
+		}
+		return end;
+	}
+
+	/** @return the length of the longest code from the node */
+	private static final int depth(final short[] tree, final int node) {
+		final int y = tree[node];
+		if( y >= 0 ) {
+			return 0;
+		}
+		return 1 + Math.max( depth( tree, node + 1 ), depth( tree, node + 1 - y ) );
+	}
+}
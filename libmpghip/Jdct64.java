@@ -41,7 +41,7 @@ class Jdct64 {
 	private static final float cos16[] = new float[4];
 	private static final float cos8[] = new float[2];
 	private static final float cos4[] = new float[1];
-	private static final float sPnts[][] = { cos64, cos32, cos16, cos8, cos4 };
+	static final float sPnts[][] = { cos64, cos32, cos16, cos8, cos4 };
 
 	private static final double dewin[] = {// [512] = {
 		0.000000000,-0.000015259,-0.000015259,-0.000015259,
@@ -111,15 +111,10 @@ class Jdct64 {
 		1.144989014
 	};
 
-	private static boolean table_init_called = false;
-
-	static final void make_decode_tables(int scaleval) {
-		if( table_init_called ) {
-			return;
-		}
-
-		table_init_called = true;
-
+	/* java: make_decode_tables, computed with scaleval = 32767, the only value used.
+	 * The class initialization runs it once and publishes the tables safely to all threads. */
+	static {
+		int scaleval = 32767;
 		for( int i = 0; i < 5; i++ ) {
 			final int kr = 0x10 >> i;
 			final int divv = 0x40 >> i;
@@ -159,10 +154,13 @@ class Jdct64 {
 	/**
 	 * the call via dct64 is a trick to force GCC to use
 	 * (new) registers for the b1,b2 pointer to the bufs[xx] field
+	 *
+	 * java: b1 and b2 are the scratch buffers of the decoder
 	 */
-	static final void dct64(final float[] out0, final int outoffset0, final float[] out1, final int outoffset1, final float[] samples, final int soffset) {
-		final float b1[] = new float[0x20];
-		final float b2[] = new float[0x20];
+	static final void dct64(final float[] out0, final int outoffset0, final float[] out1, final int outoffset1, final float[] samples, final int soffset,
+			final float[] b1, final float[] b2) {
+		// final float b1[] = new float[0x20];
+		// final float b2[] = new float[0x20];
 		// dct64_1( a, aoffset, b, boffset, bufs, bufs20, c, coffset );
 		//
 		{
@@ -455,4 +453,74 @@ class Jdct64 {
 		out1[outoffset1 + 0x10 * 13] = b1[0x17] + b1[0x1F];
 		out1[outoffset1 + 0x10 * 15] = b1[0x1F];
 	}
-}
\ No newline at end of file
+
+	/**
+	 * java: the windowing of synth_1to1. buf0 is the buffer, which has got out1 of dct64 at the column bo1.
+	 * The 32 samples are written to sums[soffset], they are not clipped.
+	 */
+	static final void window(final float[] buf0, final int bo1, final float[] sums, int soffset) {
+		final float[] decwin = sDecwin;
+		int b0 = 0;// buf0[ b0 ]
+		int window = 16 - bo1;
+		int j = window + 0x20 * 16;
+		do {// for( int j = 16; j != 0; j--, window += 0x11, samples += step ) {
+			float sum = decwin[ window++ ] * buf0[ b0++ ];
+			sum -= decwin[ window++ ] * buf0[ b0++ ];
+			sum += decwin[ window++ ] * buf0[ b0++ ];
+			sum -= decwin[ window++ ] * buf0[ b0++ ];
+			sum += decwin[ window++ ] * buf0[ b0++ ];
+			sum -= decwin[ window++ ] * buf0[ b0++ ];
+			sum += decwin[ window++ ] * buf0[ b0++ ];
+			sum -= decwin[ window++ ] * buf0[ b0++ ];
+			sum += decwin[ window++ ] * buf0[ b0++ ];
+			sum -= decwin[ window++ ] * buf0[ b0++ ];
+			sum += decwin[ window++ ] * buf0[ b0++ ];
+			sum -= decwin[ window++ ] * buf0[ b0++ ];
+			sum += decwin[ window++ ] * buf0[ b0++ ];
+			sum -= decwin[ window++ ] * buf0[ b0++ ];
+			sum += decwin[ window++ ] * buf0[ b0++ ];
+			sum -= decwin[ window   ] * buf0[ b0++ ];
+
+			sums[soffset++] = sum;
+			window += 0x11;
+		} while( window < j );
+
+		{
+			float sum  = decwin[ window + 0x0] * buf0[ b0 + 0x0];
+			sum += decwin[ window + 0x2] * buf0[ b0 + 0x2];
+			sum += decwin[ window + 0x4] * buf0[ b0 + 0x4];
+			sum += decwin[ window + 0x6] * buf0[ b0 + 0x6];
+			sum += decwin[ window + 0x8] * buf0[ b0 + 0x8];
+			sum += decwin[ window + 0xA] * buf0[ b0 + 0xA];
+			sum += decwin[ window + 0xC] * buf0[ b0 + 0xC];
+			sum += decwin[ window + 0xE] * buf0[ b0 + 0xE];
+			sums[soffset++] = sum;
+			window -= 0x20;
+		}
+		window += bo1 << 1;
+
+		j = window - 0x20 * 15;
+		do {// for( j = 15; j != 0; j--, window -= 0x20, samples += step ) {
+			float sum = -decwin[ window ] * buf0[ --b0 ];
+			int w = window - 0xF;
+			sum -= decwin[ w++ ] * buf0[ --b0 ];
+			sum -= decwin[ w++ ] * buf0[ --b0 ];
+			sum -= decwin[ w++ ] * buf0[ --b0 ];
+			sum -= decwin[ w++ ] * buf0[ --b0 ];
+			sum -= decwin[ w++ ] * buf0[ --b0 ];
+			sum -= decwin[ w++ ] * buf0[ --b0 ];
+			sum -= decwin[ w++ ] * buf0[ --b0 ];
+			sum -= decwin[ w++ ] * buf0[ --b0 ];
+			sum -= decwin[ w++ ] * buf0[ --b0 ];
+			sum -= decwin[ w++ ] * buf0[ --b0 ];
+			sum -= decwin[ w++ ] * buf0[ --b0 ];
+			sum -= decwin[ w++ ] * buf0[ --b0 ];
+			sum -= decwin[ w++ ] * buf0[ --b0 ];
+			sum -= decwin[ w++ ] * buf0[ --b0 ];
+			sum -= decwin[ w   ] * buf0[ --b0 ];
+
+			sums[soffset++] = sum;
+			window -= 0x20;
+		} while( window > j );
+	}
+}
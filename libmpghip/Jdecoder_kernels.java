@@ -0,0 +1,87 @@
+package libmpghip;
+
+/**
+ * java: the hot loops of the decoder, which have a vector version.
+ *
+ * The methods of this class are the scalar code. The vector version, libmpghip.Jvector_kernels,
+ * is in the separate source root /vector, it needs Java 16 or later and the incubator module:
+ * --add-modules jdk.incubator.vector. It overrides the methods and gives the same results bit for bit:
+ * the lanes do the same float operations in the same order as the scalar code, without FMA.
+ * The scalar code is the fallback for the cases, which the vector version does not handle.
+ *
+ * The kernels are chosen, when the class is loaded: the vector kernels are used,
+ * if they are on the class path, the module is available and the system property
+ * libmpghip.vector is not false. See set_vector.
+ * A decoder gets the kernels by InitMP3 and keeps them until the next InitMP3:
+ * the layout of the synthesis buffers, Jmpstr_tag.synth_buffs, depends on the kernels.
+ */
+public class Jdecoder_kernels {
+	private static final String VECTOR_CLASS = "libmpghip.Jvector_kernels";
+	/** the current kernels, read by InitMP3 */
+	static Jdecoder_kernels kernels = create( ! "false".equals( System.getProperty("libmpghip.vector") ) );
+	//
+	Jdecoder_kernels() {
+	}
+
+	/** @return the vector kernels, or the scalar kernels, if the vector kernels are not requested or not available */
+	private static final Jdecoder_kernels create(final boolean vector) {
+		if( vector ) {
+			try {
+				return (Jdecoder_kernels)Class.forName( VECTOR_CLASS ).getDeclaredConstructor().newInstance();
+			} catch(final Throwable e) {// not on the class path, no jdk.incubator.vector, too short vectors
+			}
+		}
+		return new Jdecoder_kernels();
+	}
+
+	/** @return true if the vector kernels are used */
+	public static final boolean is_vector() {
+		return kernels.getClass() != Jdecoder_kernels.class;
+	}
+
+	/**
+	 * Chooses the kernels of the decoders, which are initialized by InitMP3 after the call.
+	 * The running decoders keep their kernels.
+	 *
+	 * @param vector true for the vector kernels, false for the scalar kernels
+	 * @return true if the requested kernels are set, false if the vector kernels are not available
+	 */
+	public static final boolean set_vector(final boolean vector) {
+		kernels = create( vector );
+		return is_vector() == vector;
+	}
+
+	/**
+	 * The polyphase synthesis of the slots of the channel: dct64 and the windowing of synth_1to1, without the clipping.
+	 * The slot s is band[boffset + SBLIMIT * s], its 32 samples are written to sums[32 * s].
+	 * The channel 0 moves mp.synth_bo before every slot, the channel 1 follows the slots of the channel 0,
+	 * which are done before: the calls for the channels 0 and 1 with the same slots give the same result
+	 * as the calls of synth_1to1 for the channels 0 and 1 slot by slot.
+	 */
+	void synth(final Jmpstr_tag mp, final float[] band, int boffset, final int slots, final int channel, final float[] sums) {
+		final float[][] buf = mp.synth_buffs[channel];
+		final float[] b1 = mp.wk.dct64_b1;
+		final float[] b2 = mp.wk.dct64_b2;
+		int bo = mp.synth_bo;
+		if( 0 != channel ) {
+			bo += slots;
+		}
+		for( int s = 0, soffset = 0; s < slots; s++, boffset += Jmpg123.SBLIMIT, soffset += 32 ) {
+			bo--;
+			bo &= 0xf;
+			if( (bo & 0x1) != 0 ) {
+				Jdct64.dct64( buf[1], ((bo + 1) & 0xf), buf[0], bo, band, boffset, b1, b2 );
+				Jdct64.window( buf[0], bo, sums, soffset );
+			} else {
+				Jdct64.dct64( buf[0], bo, buf[1], bo + 1, band, boffset, b1, b2 );
+				Jdct64.window( buf[1], bo + 1, sums, soffset );
+			}
+		}
+		mp.synth_bo = bo;
+	}
+
+	/** see Jlayer3.III_hybrid */
+	void III_hybrid(final Jmpstr_tag mp, final float fsIn[], final float tsOut[], final int ch, final Jgr_info gr_infos) {
+		Jlayer3.III_hybrid( mp, fsIn, tsOut, ch, gr_infos );
+	}
+}
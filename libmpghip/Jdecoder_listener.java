@@ -0,0 +1,17 @@
+package libmpghip;
+
+/**
+ * java: receives every decoded frame, see Jmpstr_tag.set_frame_listener.
+ *
+ * The listener is called by the decoding thread, from decodeMP3, decodeMP3_unclipped or Jmpg123.read,
+ * when the samples of the frame are written to the output buffer.
+ */
+public interface Jdecoder_listener {
+	/**
+	 * @param fr the header of the frame, it is valid only until the method returns
+	 * @param frame_bytes size of the frame, bytes. For a free format frame: the header, the side information and the main data
+	 * @param samples the samples of all channels, written to the output buffer
+	 * @param decode_ns time of the frame decoding, see Jdecoder_stats.decode_ns
+	 */
+	void frame_decoded(Jframe fr, int frame_bytes, int samples, long decode_ns);
+}
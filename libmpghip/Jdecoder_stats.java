@@ -0,0 +1,112 @@
+package libmpghip;
+
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/**
+ * java: health and throughput counters of a decoder, see Jmpstr_tag.get_stats.
+ * The counters are written only by the thread, which decodes the stream,
+ * so they are updated without locks and atomic operations, by lazySet: the ordered write
+ * has no fence of a volatile write in the frame loop.
+ * The fields are volatile, so an other thread can read the current values at any time.
+ * The counters of several decoders are summed up by add, the sum is an ordinary object
+ * created by the reader.
+ * The counters are not cleared by InitMP3 and decode_reset, they count the whole life of the decoder, see clear.
+ */
+public final class Jdecoder_stats {
+	/** decoded Layer I frames */
+	public volatile long frames_layer1;
+	/** decoded Layer II frames */
+	public volatile long frames_layer2;
+	/** decoded Layer III frames */
+	public volatile long frames_layer3;
+	/** bytes skipped before a frame header: junk, damaged frames and the data lost at the resync */
+	public volatile long skipped_bytes;
+	/** number of the resyncs: the header was not at the expected position */
+	public volatile long resyncs;
+	/** Layer III frames dropped, because main_data_begin points before the start of the stream or the resync */
+	public volatile long main_data_underflows;
+	/** samples clipped to the short range by decodeMP3 */
+	public volatile long clipped_samples;
+	/** time of the frame decoding, ns: the main data, the synthesis, without the header parsing and the buffering.
+	 * Measured only if a frame listener is set or the timing is turned on, see Jmpstr_tag.set_stats_timing */
+	public volatile long decode_ns;
+
+	private static final AtomicLongFieldUpdater<Jdecoder_stats> FRAMES_LAYER1 = AtomicLongFieldUpdater.newUpdater( Jdecoder_stats.class, "frames_layer1" );
+	private static final AtomicLongFieldUpdater<Jdecoder_stats> FRAMES_LAYER2 = AtomicLongFieldUpdater.newUpdater( Jdecoder_stats.class, "frames_layer2" );
+	private static final AtomicLongFieldUpdater<Jdecoder_stats> FRAMES_LAYER3 = AtomicLongFieldUpdater.newUpdater( Jdecoder_stats.class, "frames_layer3" );
+	private static final AtomicLongFieldUpdater<Jdecoder_stats> SKIPPED_BYTES = AtomicLongFieldUpdater.newUpdater( Jdecoder_stats.class, "skipped_bytes" );
+	private static final AtomicLongFieldUpdater<Jdecoder_stats> RESYNCS = AtomicLongFieldUpdater.newUpdater( Jdecoder_stats.class, "resyncs" );
+	private static final AtomicLongFieldUpdater<Jdecoder_stats> MAIN_DATA_UNDERFLOWS = AtomicLongFieldUpdater.newUpdater( Jdecoder_stats.class, "main_data_underflows" );
+	private static final AtomicLongFieldUpdater<Jdecoder_stats> CLIPPED_SAMPLES = AtomicLongFieldUpdater.newUpdater( Jdecoder_stats.class, "clipped_samples" );
+	private static final AtomicLongFieldUpdater<Jdecoder_stats> DECODE_NS = AtomicLongFieldUpdater.newUpdater( Jdecoder_stats.class, "decode_ns" );
+
+	/**
+	 * Counts a frame, called by the decoding thread.
+	 * @param layer the layer of the decoded frame, 0 if the frame is not decoded
+	 * @param ns time of the decoding, 0 if not measured
+	 * @param clip samples clipped to the short range
+	 */
+	final void count_frame(final int layer, final long ns, final int clip) {
+		switch( layer ) {
+		case 1: FRAMES_LAYER1.lazySet( this, this.frames_layer1 + 1 ); break;
+		case 2: FRAMES_LAYER2.lazySet( this, this.frames_layer2 + 1 ); break;
+		case 3: FRAMES_LAYER3.lazySet( this, this.frames_layer3 + 1 ); break;
+		}
+		if( ns != 0 ) {
+			DECODE_NS.lazySet( this, this.decode_ns + ns );
+		}
+		if( clip > 0 ) {
+			CLIPPED_SAMPLES.lazySet( this, this.clipped_samples + clip );
+		}
+	}
+
+	/** counts the bytes before a frame header and the resync, called by the decoding thread */
+	final void count_skipped(final int bytes, final boolean is_resync) {
+		if( is_resync ) {
+			RESYNCS.lazySet( this, this.resyncs + 1 );
+		}
+		SKIPPED_BYTES.lazySet( this, this.skipped_bytes + bytes );
+	}
+
+	/** counts a dropped Layer III frame, called by the decoding thread */
+	final void count_main_data_underflow() {
+		MAIN_DATA_UNDERFLOWS.lazySet( this, this.main_data_underflows + 1 );
+	}
+
+	/** @return decoded frames of all layers */
+	public final long frames() {
+		return this.frames_layer1 + this.frames_layer2 + this.frames_layer3;
+	}
+
+	/** adds the counters of the decoder to this sum */
+	public final void add(final Jdecoder_stats s) {
+		this.frames_layer1 += s.frames_layer1;
+		this.frames_layer2 += s.frames_layer2;
+		this.frames_layer3 += s.frames_layer3;
+		this.skipped_bytes += s.skipped_bytes;
+		this.resyncs += s.resyncs;
+		this.main_data_underflows += s.main_data_underflows;
+		this.clipped_samples += s.clipped_samples;
+		this.decode_ns += s.decode_ns;
+	}
+
+	/** must be called by the decoding thread or when the decoder is not used */
+	public final void clear() {
+		this.frames_layer1 = 0;
+		this.frames_layer2 = 0;
+		this.frames_layer3 = 0;
+		this.skipped_bytes = 0;
+		this.resyncs = 0;
+		this.main_data_underflows = 0;
+		this.clipped_samples = 0;
+		this.decode_ns = 0;
+	}
+
+	@Override
+	public String toString() {
+		return "frames (I/II/III): " + this.frames_layer1 + '/' + this.frames_layer2 + '/' + this.frames_layer3
+				+ ", skipped bytes: " + this.skipped_bytes + ", resyncs: " + this.resyncs
+				+ ", main_data underflows: " + this.main_data_underflows
+				+ ", clipped samples: " + this.clipped_samples + ", decode: " + this.decode_ns / 1000000 + " ms";
+	}
+}
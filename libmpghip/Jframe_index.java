@@ -0,0 +1,473 @@
+package libmpghip;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import libmp3lame.JVBRTAGDATA;
+import libmp3lame.JVbrTag;
+
+/**
+ * java: index of the frames of a stream, built by one scan of the frame headers, without decoding.
+ *
+ * Per frame: the byte offset of the header, the first sample and main_data_begin.
+ * The first sample is the frame number * samples_per_frame, the stream must not change
+ * the layer and the sample rate. The offsets are kept as the distances to the previous frame (char[]),
+ * every CHECKPOINT frame has an absolute offset, so an offset costs at most CHECKPOINT - 1 additions.
+ * A Xing/Info frame is not a part of the index, the frame 0 is the first audio frame.
+ * A free format stream can't be indexed.
+ *
+ * The index can be saved to a sidecar file by save and loaded by load, the size is 4 bytes per frame.
+ * load checks the size of the stream, to detect a changed file.
+ */
+public final class Jframe_index {
+	private static final int MAGIC = 0x4d504958;// "MPIX"
+	private static final int VERSION = 1;
+	/** frames between the absolute offsets, a power of 2 */
+	private static final int CHECKPOINT_SHIFT = 5;
+	private static final int CHECKPOINT = 1 << CHECKPOINT_SHIFT;
+	/** bytes of a read from the channel */
+	private static final int READ_SIZE = 65536;
+	private static final int XING_HEADER_SIZE = 194;
+	//
+	/** size of the stream, bytes */
+	private long stream_size;
+	/** 1, 2 or 3 */
+	private int layer;
+	private int sample_rate;
+	private int channels;
+	private int samples_per_frame;
+	/** true if the Layer III main data follows the side information */
+	private boolean lsf;
+	/** encoder delay and padding of the Xing/Info frame, -1 if not present */
+	private int enc_delay;
+	private int enc_padding;
+	private int count;
+	/** distance to the previous frame, bytes. delta[0] is not used */
+	private char delta[];
+	/** main_data_begin, 0 for Layer I and II */
+	private short main_data_begin[];
+	/** offset of the frame i * CHECKPOINT */
+	private long checkpoint[];
+
+	private Jframe_index() {
+	}
+
+	/** @return number of the frames */
+	public final int get_frame_count() {
+		return this.count;
+	}
+
+	public final int get_layer() {
+		return this.layer;
+	}
+
+	public final int get_sample_rate() {
+		return this.sample_rate;
+	}
+
+	public final int get_channels() {
+		return this.channels;
+	}
+
+	/** @return samples per channel of a frame: 384, 576 or 1152 */
+	public final int get_samples_per_frame() {
+		return this.samples_per_frame;
+	}
+
+	/** @return decoded samples per channel of the stream, including the encoder delay and padding */
+	public final long get_sample_count() {
+		return (long)this.count * this.samples_per_frame;
+	}
+
+	/** @return the encoder delay of the Xing/Info frame, -1 if not present */
+	public final int get_enc_delay() {
+		return this.enc_delay;
+	}
+
+	/** @return the encoder padding of the Xing/Info frame, -1 if not present */
+	public final int get_enc_padding() {
+		return this.enc_padding;
+	}
+
+	/** @return the size of the indexed stream */
+	public final long get_stream_size() {
+		return this.stream_size;
+	}
+
+	/** @return the byte offset of the frame header */
+	public final long get_offset(final int frame) {
+		final int c = frame >> CHECKPOINT_SHIFT;
+		long offset = this.checkpoint[c];
+		final char[] d = this.delta;// java
+		for( int i = (c << CHECKPOINT_SHIFT) + 1; i <= frame; i++ ) {
+			offset += d[i];
+		}
+		return offset;
+	}
+
+	/** @return main_data_begin of the frame, bytes */
+	public final int get_main_data_begin(final int frame) {
+		return this.main_data_begin[frame];
+	}
+
+	/** @return the frame, which contains the decoded sample, or get_frame_count() after the end */
+	public final int get_frame(final long sample) {
+		if( sample <= 0 ) {
+			return 0;
+		}
+		final long frame = sample / this.samples_per_frame;
+		return frame < this.count ? (int)frame : this.count;
+	}
+
+	/**
+	 * The first frame to decode, before the frame can be decoded correctly.
+	 * The bit reservoir of the frame and of the previous frames of the pre-roll must be filled,
+	 * the previous frames prime the overlap of the hybrid filter bank and the synthesis filter bank.
+	 * The first frame of the pre-roll gives the reservoir only, it is dropped by the decoder,
+	 * if its main_data_begin is not 0.
+	 * @return the first frame of the pre-roll
+	 */
+	public final int get_preroll_frame(final int frame) {
+		if( frame <= 0 ) {
+			return 0;
+		}
+		if( this.layer == 2 ) {
+			return frame - 1;
+		}
+		/* Layer I: the synthesis filter bank keeps 16 subband samples, a frame has 12.
+		 * Layer III: two granules prime the filter banks, a MPEG-2 frame has one granule.
+		 * The first frame can be dropped by the decoder, the next ones must be decoded correctly */
+		int first = Math.max( frame - (this.layer == 3 && this.lsf ? 3 : 2), 0 );
+		if( this.layer == 3 ) {
+			for( int f = frame; f > first; f-- ) {
+				first = Math.min( first, reservoir_frame( f ) );
+			}
+		}
+		return first;
+	}
+
+	/** @return the first frame, which holds the main data of the frame */
+	private final int reservoir_frame(int frame) {
+		int need = this.main_data_begin[frame];
+		/* the header, the CRC (may be not present) and the side information */
+		final int side = 6 + (this.lsf ? (this.channels == 1 ? 9 : 17) : (this.channels == 1 ? 17 : 32));
+		while( need > 0 && frame > 0 ) {
+			need -= this.delta[frame] - side;
+			frame--;
+		}
+		return frame;
+	}
+
+	private final void append(final int i, final long offset, final long prev, final int mdb) {
+		if( i == this.delta.length ) {
+			final int n = i + (i >> 1) + CHECKPOINT;
+			final char d[] = new char[n];
+			System.arraycopy( this.delta, 0, d, 0, i );
+			this.delta = d;
+			final short m[] = new short[n];
+			System.arraycopy( this.main_data_begin, 0, m, 0, i );
+			this.main_data_begin = m;
+		}
+		this.delta[i] = (char)(offset - prev);
+		this.main_data_begin[i] = (short)mdb;
+	}
+
+	private final void build_checkpoints(final long first_offset) {
+		this.checkpoint = new long[(this.count + CHECKPOINT - 1) >> CHECKPOINT_SHIFT];
+		this.checkpoint[0] = first_offset;
+		long offset = first_offset;
+		for( int i = 1; i < this.count; i++ ) {
+			offset += this.delta[i];
+			if( (i & (CHECKPOINT - 1)) == 0 ) {
+				this.checkpoint[i >> CHECKPOINT_SHIFT] = offset;
+			}
+		}
+	}
+
+	/** java: buffered positional reads, the position of the channel is not changed */
+	private static final class Jreader {
+		private final FileChannel channel;
+		private final long size;
+		private final ByteBuffer buf = ByteBuffer.allocate( READ_SIZE );
+		/** stream position of buf[0] */
+		private long start = 0;
+		private int limit = 0;
+		//
+		private Jreader(final FileChannel channel) throws IOException {
+			this.channel = channel;
+			this.size = channel.size();
+		}
+		/** @return the byte, -1 after the end */
+		private final int get(final long pos) throws IOException {
+			if( pos < this.start || pos >= this.start + this.limit ) {
+				if( pos >= this.size ) {
+					return -1;
+				}
+				this.buf.clear();
+				this.start = pos;
+				while( this.buf.hasRemaining() && this.channel.read( this.buf, pos + this.buf.position() ) > 0 ) {
+				}
+				this.limit = this.buf.position();
+				if( this.limit == 0 ) {
+					return -1;
+				}
+			}
+			return (int)this.buf.get( (int)(pos - this.start) ) & 0xff;
+		}
+		/** @return the big endian int, -1 after the end */
+		private final int get_int(final long pos) throws IOException {
+			int v = 0;
+			for( int i = 0; i < 4; i++ ) {
+				final int b = get( pos + i );
+				if( b < 0 ) {
+					return -1;
+				}
+				v = (v << 8) | b;
+			}
+			return v;
+		}
+	}
+
+	/** @return true if the header is valid and can be indexed: no free format, no MPEG-2.5 Layer I and II */
+	static final boolean is_header(final int head) {
+		if( head == -1 || ! Jmpstr_tag.head_check( head, 0 ) ) {
+			return false;
+		}
+		if( ((head >>> 12) & 0xf) == 0 ) {
+			return false;
+		}
+		return ! ((head & (1 << 20)) == 0 && ((head >>> 17) & 3) != 1);
+	}
+
+	/** @return true if the header has the same version, layer, sample rate and channels */
+	static final boolean is_same(final int head, final int first) {
+		return (head & 0xfffe0c00) == (first & 0xfffe0c00) && (((head >>> 6) & 3) == 3) == (((first >>> 6) & 3) == 3);
+	}
+
+	/** @return the position after the ID3v2 tags */
+	private static final long skip_id3v2(final Jreader r, long pos) throws IOException {
+		while( r.get( pos ) == 'I' && r.get( pos + 1 ) == 'D' && r.get( pos + 2 ) == '3' ) {
+			final int flags = r.get( pos + 5 );
+			final int len = ((r.get( pos + 6 ) & 127) << 21) | ((r.get( pos + 7 ) & 127) << 14)
+					| ((r.get( pos + 8 ) & 127) << 7) | (r.get( pos + 9 ) & 127);
+			pos += 10 + len + ((flags & 0x10) != 0 ? 10 : 0);
+		}
+		return pos;
+	}
+
+	/**
+	 * Finds a frame header, which is followed by a valid header, by one read of the channel.
+	 * The position of the channel is not changed.
+	 * @param pos the position to start the search, -1 to search the first frame after the ID3v2 tags
+	 * @param head the header of the stream, to match the version, layer, sample rate and channels, 0 for any header
+	 * @param out out[0] = the found header, out[1] = main_data_begin of the frame, 0 for Layer I and II
+	 * @return the position of the header, -1 if not found
+	 */
+	static final long sync(final FileChannel channel, long pos, final int head, final int[] out) throws IOException {
+		final Jreader r = new Jreader( channel );
+		if( pos < 0 ) {
+			pos = skip_id3v2( r, 0 );
+		}
+		final Jframe fr = new Jframe();
+		for( final long end = Math.min( pos + READ_SIZE, r.size ) - 4; pos < end; pos++ ) {
+			final int h = r.get_int( pos );
+			if( is_header( h ) && (head == 0 || is_same( h, head )) && check_next( r, fr, pos, h ) ) {
+				out[0] = h;
+				out[1] = main_data_begin( r, fr, pos );
+				return pos;
+			}
+		}
+		return -1;
+	}
+
+	/** @return main_data_begin of the frame, decoded by fr, 0 for Layer I and II */
+	private static final int main_data_begin(final Jreader r, final Jframe fr, final long pos) throws IOException {
+		if( fr.lay != 3 ) {
+			return 0;
+		}
+		final long p = pos + (fr.error_protection ? 6 : 4);
+		return fr.lsf != 0 ? r.get( p ) : (r.get( p ) << 1) | (r.get( p + 1 ) >> 7);
+	}
+
+	/**
+	 * Scans the frame headers of the stream. The position of the channel is not changed.
+	 * The ID3v2 tag is skipped, the junk between the frames is skipped, as the decoder does.
+	 * @return the index, or null if the stream has no frames or is a free format stream
+	 */
+	public static final Jframe_index scan(final FileChannel channel) throws IOException {
+		final Jreader r = new Jreader( channel );
+		return scan( r, skip_id3v2( r, 0 ), 0, Integer.MAX_VALUE );
+	}
+
+	/**
+	 * Scans the frame headers of a part of the stream, from the frame header at pos, see Jmpg123.seekFast.
+	 * The frame 0 of the index is the frame at pos, the Xing/Info frame is not searched.
+	 * The position of the channel is not changed.
+	 * @param pos the position of a frame header
+	 * @param head the header of the stream, see sync
+	 * @param frames the number of the frames to scan at most
+	 * @return the index, or null if no frame is found
+	 */
+	static final Jframe_index scan(final FileChannel channel, final long pos, final int head, final int frames) throws IOException {
+		return scan( new Jreader( channel ), pos, head, frames );
+	}
+
+	/**
+	 * @param first the header of the stream, 0 to take the first frame and to search the Xing/Info frame
+	 */
+	private static final Jframe_index scan(final Jreader r, long pos, int first, final int frames) throws IOException {
+		final boolean is_start = first == 0;
+		final Jframe fr = new Jframe();
+		final Jframe_index index = new Jframe_index();
+		index.stream_size = r.size;
+		index.enc_delay = -1;
+		index.enc_padding = -1;
+		index.delta = new char[1024];
+		index.main_data_begin = new short[1024];
+		boolean is_first = true;
+		long first_offset = 0;
+		long prev = 0;
+		int n = 0;
+		while( n < frames ) {
+			/* find a header, which is followed by a valid header */
+			int head = r.get_int( pos );
+			boolean found = true;
+			while( ! (is_header( head ) && (first == 0 || is_same( head, first ))) || ! check_next( r, fr, pos, head ) ) {
+				if( pos + 4 >= r.size || (n > 0 && pos - prev >= Character.MAX_VALUE) ) {
+					/* the end of the stream, or too much junk for the delta */
+					found = false;
+					break;
+				}
+				head = r.get_int( ++pos );
+			}
+			if( ! found ) {
+				break;
+			}
+			fr.decode_header( null, head );
+			final int size = fr.framesize + 4;
+			if( is_first ) {
+				is_first = false;
+				first = head;
+				index.layer = fr.lay;
+				index.sample_rate = Jmpstr_tag.freqs[fr.sampling_frequency];
+				index.channels = fr.stereo;
+				index.lsf = fr.lsf != 0;
+				index.samples_per_frame = fr.lay == 1 ? 384 : (fr.lay == 2 || fr.lsf == 0 ? 1152 : 576);
+				/* Xing/Info frame */
+				if( is_start ) {
+					final byte xing[] = new byte[XING_HEADER_SIZE];
+					for( int i = 0; i < XING_HEADER_SIZE; i++ ) {
+						xing[i] = (byte)r.get( pos + i );
+					}
+					final JVBRTAGDATA tag = new JVBRTAGDATA();
+					if( JVbrTag.GetVbrTag( tag, xing ) ) {
+						index.enc_delay = tag.enc_delay;
+						index.enc_padding = tag.enc_padding;
+						pos += size;
+						continue;
+					}
+				}
+			}
+			if( n == 0 ) {
+				first_offset = pos;
+			}
+			index.append( n++, pos, prev, main_data_begin( r, fr, pos ) );
+			prev = pos;
+			pos += size;
+		}
+		if( n == 0 ) {
+			return null;
+		}
+		index.count = n;
+		index.build_checkpoints( first_offset );
+		return index;
+	}
+
+	/** @return true if the frame is followed by a valid header, or by the end of the stream */
+	private static final boolean check_next(final Jreader r, final Jframe fr, final long pos, final int head) throws IOException {
+		fr.decode_header( null, head );
+		final long next = pos + fr.framesize + 4;
+		if( next >= r.size ) {
+			return next <= r.size;
+		}
+		final int h = r.get_int( next );
+		if( is_header( h ) && is_same( h, head ) ) {
+			return true;
+		}
+		/* ID3v1 tag or APE tag after the last frame */
+		return h == -1 || (h >>> 8) == 0x544147 || h == 0x41504554;
+	}
+
+	/**
+	 * Saves the index.
+	 * @param os the output stream, it is not closed
+	 */
+	public final void save(final OutputStream os) throws IOException {
+		final DataOutputStream out = new DataOutputStream( os );
+		out.writeInt( MAGIC );
+		out.writeInt( VERSION );
+		out.writeLong( this.stream_size );
+		out.writeByte( this.layer );
+		out.writeInt( this.sample_rate );
+		out.writeByte( this.channels );
+		out.writeShort( this.samples_per_frame );
+		out.writeBoolean( this.lsf );
+		out.writeInt( this.enc_delay );
+		out.writeInt( this.enc_padding );
+		out.writeInt( this.count );
+		out.writeLong( this.checkpoint[0] );
+		for( int i = 1; i < this.count; i++ ) {
+			out.writeChar( this.delta[i] );
+		}
+		for( int i = 0; i < this.count; i++ ) {
+			out.writeShort( this.main_data_begin[i] );
+		}
+		out.flush();
+	}
+
+	/**
+	 * Loads the index, saved by save.
+	 * @param is the input stream, it is not closed
+	 * @param stream_size the size of the stream, -1 to not check it
+	 * @return the index, or null if the data is not an index or the stream size differs
+	 */
+	public static final Jframe_index load(final InputStream is, final long stream_size) throws IOException {
+		final DataInputStream in = new DataInputStream( is );
+		if( in.readInt() != MAGIC || in.readInt() != VERSION ) {
+			return null;
+		}
+		final Jframe_index index = new Jframe_index();
+		index.stream_size = in.readLong();
+		if( stream_size >= 0 && stream_size != index.stream_size ) {
+			return null;
+		}
+		index.layer = in.readByte();
+		index.sample_rate = in.readInt();
+		index.channels = in.readByte();
+		index.samples_per_frame = in.readShort();
+		index.lsf = in.readBoolean();
+		index.enc_delay = in.readInt();
+		index.enc_padding = in.readInt();
+		final int n = in.readInt();
+		if( n <= 0 ) {
+			return null;
+		}
+		index.count = n;
+		final long first_offset = in.readLong();
+		index.delta = new char[n];
+		for( int i = 1; i < n; i++ ) {
+			index.delta[i] = in.readChar();
+		}
+		index.main_data_begin = new short[n];
+		for( int i = 0; i < n; i++ ) {
+			index.main_data_begin[i] = in.readShort();
+		}
+		index.build_checkpoints( first_offset );
+		return index;
+	}
+}
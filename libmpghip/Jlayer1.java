@@ -28,7 +28,7 @@ package libmpghip;
 // layer1.c
 
 final class Jlayer1 {
-	private static final class Jsideinfo_layer_I {
+	static final class Jsideinfo_layer_I {
 		private final byte allocation[][] = new byte[Jmpg123.SBLIMIT][2];
 		private final byte scalefactor[][] = new byte[Jmpg123.SBLIMIT][2];
 		/*
@@ -44,15 +44,6 @@ final class Jlayer1 {
 		*/
 	}
 
-	private static boolean gd_are_hip_tables_layer1_initialized = false;
-
-	static final void hip_init_tables_layer1() {
-		if( gd_are_hip_tables_layer1_initialized ) {
-			return;
-		}
-		gd_are_hip_tables_layer1_initialized = true;
-	}
-
 	private static final boolean I_step_one(final Jmpstr_tag mp, final Jsideinfo_layer_I si) {
 		final Jframe frame = mp.fr;
 		final int jsbound = (frame.mode == Jmpg123.MPG_MD_JOINT_STEREO) ? (frame.mode_ext << 2) + 4 : 32;
@@ -117,7 +108,7 @@ final class Jlayer1 {
 		final int ds_limit = frame.down_sample_sblimit;
 		final byte[][] allocation = si.allocation;// java
 		final byte[][] scalefactor = si.scalefactor;// java
-		final float[][] muls = Jmpstr_tag.muls;// java
+		final float[][] muls = Jlayer2.muls;// java
 
 		if( frame.stereo == 2 ) {
 			final float[] fraction0 = fraction[0];// java
@@ -195,8 +186,8 @@ final class Jlayer1 {
 	}
 
 	static final int decode_layer1_frame(final Jmpstr_tag mp, final Object pcm_sample, final int[] pcm_point, final Isynth synth) {// java: added synth to fix the bug
-		final float fraction[][] = new float[2][Jmpg123.SBLIMIT]; /* FIXME: change real . double ? */
-		final Jsideinfo_layer_I si = new Jsideinfo_layer_I();
+		final float fraction[][] = mp.wk.fraction_I;// new float[2][Jmpg123.SBLIMIT]; /* FIXME: change real . double ? */
+		final Jsideinfo_layer_I si = mp.wk.si_I;// new Jsideinfo_layer_I();
 		final Jframe frame = mp.fr;
 		int single = frame.single;
 
@@ -219,7 +210,7 @@ final class Jlayer1 {
 			} while( ++i < Jmpg123.SCALE_BLOCK );
 			return clip;
 		}// else {
-			final int p1[] = new int[1];// TODO java: try to find a beter way
+			final int p1[] = mp.wk.pcm_point_left;// new int[1];
 			int i = 0;
 			do {
 				p1[0] = pcm_point[0];
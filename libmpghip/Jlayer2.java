@@ -28,8 +28,6 @@ package libmpghip;
 
 final class Jlayer2 {
 
-	private static boolean gd_are_hip_tables_layer2_initialized = false;
-
 	// java: already zeroed
 	private static final byte grp_3tab[] = new byte[32 * 3];// = { 0, }; /* used: 27 */
 	private static final byte grp_5tab[] = new byte[128 * 3];// = { 0, }; /* used: 125 */
@@ -49,11 +47,12 @@ final class Jlayer2 {
 			{21, 1, 22, 23, 0, 24, 25, 2, 26}
 		};
 
-	static final void hip_init_tables_layer2() {
-		if( gd_are_hip_tables_layer2_initialized ) {
-			return;
-		}
-		gd_are_hip_tables_layer2_initialized = true;
+	/** java: the tables of Layer I and Layer II, computed by the static initializer */
+	static final float muls[][] = new float[27][64];
+
+	/* java: hip_init_tables_layer2. The class initialization runs it once and publishes the tables
+	 * safely to all threads, Jlayer1 triggers it by muls. */
+	static {
 		// final int tablen[] = { 3, 5, 9 };// java: tables[i].length
 		final byte grp_tables[][] = { grp_3tab, grp_5tab, grp_9tab };
 		for( int i = 0; i < 3; i++ ) {
@@ -73,7 +72,7 @@ final class Jlayer2 {
 
 		for( int k = 0; k < 27; k++ ) {
 			final double m = mulmul[k];
-			final float table[] = Jmpstr_tag.muls[k];
+			final float table[] = muls[k];
 			int ti = 0;
 			for( int j = 3, i = 0; i < 63; i++, j-- ) {
 				table[ti++] = (float) (m * Math.pow( 2.0, (double) j / 3.0 ) );
@@ -109,7 +108,7 @@ final class Jlayer2 {
 		return &dummy_table[0];
 	} */
 
-	private static final class Jsideinfo_layer_II {
+	static final class Jsideinfo_layer_II {
 		private final byte allocation[][] = new byte[Jmpg123.SBLIMIT][2];
 		private final byte scalefactor[][][] = new byte[Jmpg123.SBLIMIT][2][3]; /* subband / channel / block */
 	};
@@ -120,7 +119,7 @@ final class Jlayer2 {
 		int jsbound = (frame.mode == Jmpg123.MPG_MD_JOINT_STEREO) ? (frame.mode_ext << 2) + 4 : frame.II_sblimit;
 		final Jal_table2[] fr_alloc = frame.alloc;
 		int alloc1 = 0;// fr_alloc[ alloc1 ]
-		final byte scfsi[][] = new byte[Jmpg123.SBLIMIT][2];
+		final byte scfsi[][] = mp.wk.scfsi;// new byte[Jmpg123.SBLIMIT][2];
 
 		// si.clear();// java don't need, values will be rewritten
 		if( jsbound > sblimit ) {
@@ -218,7 +217,6 @@ final class Jlayer2 {
 			jsbound = sblimit;
 		}
 
-		final float[][] muls = Jmpstr_tag.muls;// java
 		final byte[][] allocation = si.allocation;// java
 		final byte[][][] scalefactor = si.scalefactor;// java
 		for( int i = 0; i < jsbound; ++i ) {
@@ -561,7 +559,7 @@ final class Jlayer2 {
 	private static final Jal_table2 tables[/*5*/][] = { alloc_0, alloc_1, alloc_2, alloc_3, alloc_4 };
 	private static final int sblims[/*5*/] = { 27, 30, 8, 12, 30 };
 
-	private static final void II_select_table(final Jframe fr) {
+	static final void II_select_table(final Jframe fr) {
 		int table;
 
 		if( fr.lsf != 0 ) {
@@ -582,8 +580,8 @@ final class Jlayer2 {
 	}
 
 	static final int decode_layer2_frame(final Jmpstr_tag mp, final Object pcm_sample, final int[] pcm_point, final Isynth synth) {// java: added synth to fix the bug
-		final float fraction[][][] = new float[2][4][Jmpg123.SBLIMIT]; /* pick_table clears unused subbands */
-		final Jsideinfo_layer_II si = new Jsideinfo_layer_II();
+		final float fraction[][][] = mp.wk.fraction_II;// new float[2][4][Jmpg123.SBLIMIT]; /* pick_table clears unused subbands */
+		final Jsideinfo_layer_II si = mp.wk.si_II;// new Jsideinfo_layer_II();
 		final Jframe frame = mp.fr;
 		int single = frame.single;
 		int clip = 0;
@@ -614,7 +612,7 @@ final class Jlayer2 {
 			final float[] fraction11 = fraction[1][1];// java
 			final float[] fraction02 = fraction[0][2];// java
 			final float[] fraction12 = fraction[1][2];// java
-			final int p1[] = new int[1];// TODO java: find better way
+			final int p1[] = mp.wk.pcm_point_left;// new int[1];
 			int i = 0;
 			do {
 				II_step_two( mp, si, frame, i >> 2, fraction );
@@ -30,18 +30,17 @@ import libmpghip.JIII_sideinfo.Jch;
 
 final class Jlayer3 {
 
-	private static boolean gd_are_hip_tables_layer3_initialized = false;
-
 	private static final float ispow[] = new float[8207];
 	private static final float aa_ca[] = new float[8];
 	private static final float aa_cs[] = new float[8];
 	private static final float COS1[][] = new float[12][6];
-	private static final float win[][] = new float[4][36];
-	private static final float win1[][] = new float[4][36];
+	static final float win[][] = new float[4][36];
+	static final float win1[][] = new float[4][36];
 	private static final float gainpow2[] = new float[256 + 118 + 4];
-	private static final float COS9[] = new float[9];
-	private static float COS6_1, COS6_2;
-	private static final float tfcos36[] = new float[9];
+	static final float COS9[] = new float[9];
+	private static final float COS6_1 = (float)Math.cos( Math.PI / 6.0 * (double) 1);
+	private static final float COS6_2 = (float)Math.cos( Math.PI / 6.0 * (double) 2);
+	static final float tfcos36[] = new float[9];
 	private static final float tfcos12[] = new float[3];
 
 	private static final class JbandInfoStruct {
@@ -150,13 +149,11 @@ final class Jlayer3 {
 		return *ptr;
 	}*/
 
-	/** init tables for layer-3 */
-	static final void hip_init_tables_layer3() {
-
-		if( gd_are_hip_tables_layer3_initialized ) {
-			return;
-		}
-		gd_are_hip_tables_layer3_initialized = true;
+	/* init tables for layer-3
+	 *
+	 * java: hip_init_tables_layer3. The class initialization runs it once and publishes the tables
+	 * safely to all threads. */
+	static {
 
 		for( int i = -256; i < 118 + 4; i++ ) {
 			gainpow2[i + 256] = (float)Math.pow( 2.0, -0.25 * (double) (i + 210));
@@ -201,9 +198,6 @@ final class Jlayer3 {
 			tfcos12[i] = (float)(0.5 / Math.cos( Math.PI * (double) ((i << 1) + 1) / 12.0));
 		}
 
-		COS6_1 = (float)Math.cos( Math.PI / 6.0 * (double) 1);
-		COS6_2 = (float)Math.cos( Math.PI / 6.0 * (double) 2);
-
 		for( int i = 0; i < 12; i++ ) {
 			final int i2 = i << 1;
 			win[2][i] = (float)(0.5 * Math.sin( Math.PI / 24.0 * (double) (i2 + 1)) / Math.cos( Math.PI * (double) (i2 + 7) / 24.0));
@@ -553,7 +547,7 @@ final class Jlayer3 {
 		};
 
 	/** read scalefactors */
-	private static final int III_get_scale_factors_1(final Jmpstr_tag mp, final int[] scf, final Jgr_info gr_infos) {
+	static final int III_get_scale_factors_1(final Jmpstr_tag mp, final int[] scf, final Jgr_info gr_infos) {
 		int scfoffset = 0;
 		final int num0 = slen[0][gr_infos.scalefac_compress];
 		final int num1 = slen[1][gr_infos.scalefac_compress];
@@ -652,7 +646,7 @@ final class Jlayer3 {
 		{ { 6, 9, 9,9 } , { 6, 9,12,6 } , { 15,18,0,0} ,
 		{ 6,15,12,0 } , { 6,12, 9,6 } , {  6,18,9,0} } };
 
-	private static final int III_get_scale_factors_2(final Jmpstr_tag mp, final int[] scf, final Jgr_info gr_infos, final boolean i_stereo) {
+	static final int III_get_scale_factors_2(final Jmpstr_tag mp, final int[] scf, final Jgr_info gr_infos, final boolean i_stereo) {
 		int slen2;
 		if( i_stereo ) {
 			slen2 = i_slen2[gr_infos.scalefac_compress >> 1];
@@ -951,13 +945,23 @@ final class Jlayer3 {
 	private static final class Jnewhuff {
 		final int linbits;
 		final short[] table;
+		/** java: the lookup table of the tree, see Jbit_reader.lookup */
+		final int[] lookup;
 		//
 		public Jnewhuff(final int bits, final short[] t) {
+			this( bits, t, Jbit_reader.lookup( t ) );
+		}
+		/** java: the tables with linbits share the lookup table of the tree */
+		public Jnewhuff(final int bits, final short[] t, final int[] lookup) {
 			this.linbits = bits;
 			this.table = t;
+			this.lookup = lookup;
 		}
 	}
 
+	private static final int lookup16[] = Jbit_reader.lookup( tab16 );
+	private static final int lookup24[] = Jbit_reader.lookup( tab24 );
+
 	private static final Jnewhuff sHt[] = {
 		new Jnewhuff( /* 0 */ 0 , tab0 ),
 		new Jnewhuff( /* 2 */ 0 , tab1  ),
@@ -976,22 +980,22 @@ final class Jlayer3 {
 		new Jnewhuff( /* 0  */ 0 , tab0  ),
 		new Jnewhuff( /* 16 */ 0 , tab15 ),
 
-		new Jnewhuff( /* 16 */ 1 , tab16 ),
-		new Jnewhuff( /* 16 */ 2 , tab16 ),
-		new Jnewhuff( /* 16 */ 3 , tab16 ),
-		new Jnewhuff( /* 16 */ 4 , tab16 ),
-		new Jnewhuff( /* 16 */ 6 , tab16 ),
-		new Jnewhuff( /* 16 */ 8 , tab16 ),
-		new Jnewhuff( /* 16 */ 10, tab16 ),
-		new Jnewhuff( /* 16 */ 13, tab16 ),
-		new Jnewhuff( /* 16 */ 4 , tab24 ),
-		new Jnewhuff( /* 16 */ 5 , tab24 ),
-		new Jnewhuff( /* 16 */ 6 , tab24 ),
-		new Jnewhuff( /* 16 */ 7 , tab24 ),
-		new Jnewhuff( /* 16 */ 8 , tab24 ),
-		new Jnewhuff( /* 16 */ 9 , tab24 ),
-		new Jnewhuff( /* 16 */ 11, tab24 ),
-		new Jnewhuff( /* 16 */ 13, tab24 )
+		new Jnewhuff( /* 16 */ 1 , tab16, lookup16 ),
+		new Jnewhuff( /* 16 */ 2 , tab16, lookup16 ),
+		new Jnewhuff( /* 16 */ 3 , tab16, lookup16 ),
+		new Jnewhuff( /* 16 */ 4 , tab16, lookup16 ),
+		new Jnewhuff( /* 16 */ 6 , tab16, lookup16 ),
+		new Jnewhuff( /* 16 */ 8 , tab16, lookup16 ),
+		new Jnewhuff( /* 16 */ 10, tab16, lookup16 ),
+		new Jnewhuff( /* 16 */ 13, tab16, lookup16 ),
+		new Jnewhuff( /* 16 */ 4 , tab24, lookup24 ),
+		new Jnewhuff( /* 16 */ 5 , tab24, lookup24 ),
+		new Jnewhuff( /* 16 */ 6 , tab24, lookup24 ),
+		new Jnewhuff( /* 16 */ 7 , tab24, lookup24 ),
+		new Jnewhuff( /* 16 */ 8 , tab24, lookup24 ),
+		new Jnewhuff( /* 16 */ 9 , tab24, lookup24 ),
+		new Jnewhuff( /* 16 */ 11, tab24, lookup24 ),
+		new Jnewhuff( /* 16 */ 13, tab24, lookup24 )
 	};
 
 	private static final Jnewhuff sHtc[] =  {
@@ -1004,14 +1008,16 @@ final class Jlayer3 {
 
 	/* don't forget to apply the same changes to III_dequantize_sample_ms() !!! */
 	@SuppressWarnings("boxing")
-	private static final boolean III_dequantize_sample(final Jmpstr_tag mp, final float xr[]/*[SBLIMIT][SSLIMIT]*/, final int[] scf,
+	static final boolean III_dequantize_sample(final Jmpstr_tag mp, final float xr[]/*[SBLIMIT][SSLIMIT]*/, final int[] scf,
 		final Jgr_info gr_infos, final int sfreq, final int part2bits)
 	{
 		int scfoffset = 0;
 		final int shift = 1 + gr_infos.scalefac_scale;
 		int xrpnt = 0;// xr[ xrpnt ]
 		float xr_value = 0;
-		final int l[] = new int[3];
+		final int l[] = mp.wk.l;// new int[3];
+		final Jbit_reader br = mp.wk.bit_reader;// java: the bits of the Huffman data
+		br.start( mp );
 		int part2remain = gr_infos.part2_3_length - part2bits;
 		// real const * const xr_endptr = &xr[SBLIMIT-1][SSLIMIT-1];
 		final int xr_endptr = (Jmpg123.SBLIMIT * Jmpg123.SSLIMIT) - 1;
@@ -1067,7 +1073,7 @@ final class Jlayer3 {
 
 		if( gr_infos.block_type == 2 ) {
 	        /* decoding with short or mixed mode BandIndex table */
-			final int max[] = new int[4];
+			final int max[] = mp.wk.max;// new int[4];
 			int step = 0, lwin = 0, cb = 0;
 			float v = 0.0f;
 			int[] m;
@@ -1116,29 +1122,24 @@ final class Jlayer3 {
 						}
 					}
 					{
-						final short[] table = h[hoffset].table;
-						int val = 0;// table[ val ]
-						while( (y = table[val++]) < 0 ) {
-							if( get1bit( mp ) != 0 ) {
-								val -= y;
-							}
-							part2remain--;
-						}
+						final int e = br.huffman( h[hoffset].lookup );
+						part2remain -= e & 0xff;
+						y = e >>> 8;
 						x = y >> 4;
 						y &= 0xf;
 					}
 					if( x == 15 ) {
 						max[lwin] = cb;
 						part2remain -= h[hoffset].linbits + 1;
-						x += mp.getbits( h[hoffset].linbits );
-						if( get1bit( mp ) != 0 ) {
+						x += br.getbits( h[hoffset].linbits );
+						if( br.get1bit() != 0 ) {
 							xr_value = -ispow[x] * v;
 						} else {
 							xr_value = ispow[x] * v;
 						}
 					} else if( x != 0 ) {
 						max[lwin] = cb;
-						if( get1bit( mp ) != 0 ) {
+						if( br.get1bit() != 0 ) {
 							xr_value = -ispow[x] * v;
 						} else {
 							xr_value = ispow[x] * v;
@@ -1158,15 +1159,15 @@ final class Jlayer3 {
 					if( y == 15 ) {
 						max[lwin] = cb;
 						part2remain -= h[hoffset].linbits + 1;
-						y += mp.getbits( h[hoffset].linbits );
-						if( get1bit( mp ) != 0 ) {
+						y += br.getbits( h[hoffset].linbits );
+						if( br.get1bit() != 0 ) {
 							xr_value = -ispow[y] * v;
 						} else {
 							xr_value = ispow[y] * v;
 						}
 					} else if( y != 0 ) {
 						max[lwin] = cb;
-						if( get1bit( mp ) != 0 ) {
+						if( br.get1bit() != 0 ) {
 							xr_value = -ispow[y] * v;
 						} else {
 							xr_value = ispow[y] * v;
@@ -1188,21 +1189,8 @@ final class Jlayer3 {
 			for( ; l3 != 0 && (part2remain > 0); l3-- ) {
 				final Jnewhuff h[] = sHtc;
 				final int hoffset = gr_infos.count1table_select;// h[ hoffset ]
-				final short[] table = h[ hoffset ].table;
-				int val = 0;
-				short a;
-
-				while( (a = table[val++]) < 0 ) {
-					part2remain--;
-					if( part2remain < 0 ) {
-						part2remain++;
-						a = 0;
-						break;
-					}
-					if( get1bit( mp ) != 0 ) {
-						val -= a;
-					}
-				}
+				final int a = br.count1( h[ hoffset ].lookup, part2remain );
+				part2remain -= a & 0xff;
 				i = 0;
 				do {
 					if( 0 == (i & 1) ) {
@@ -1229,14 +1217,14 @@ final class Jlayer3 {
 						}
 						mc--;
 					}
-					if( (a & (0x8 >> i)) != 0 ) {
+					if( (a & (0x800 >> i)) != 0 ) {// java: a is the value << 8
 						max[lwin] = cb;
 						part2remain--;
 						if( part2remain < 0 ) {
 							part2remain++;
 							break;
 						}
-						if( get1bit( mp ) != 0 ) {
+						if( br.get1bit() != 0 ) {
 							xr_value = -v;
 						} else {
 							xr_value = v;
@@ -1327,29 +1315,23 @@ final class Jlayer3 {
 						}
 						cb = m[moffset++];
 					}
-					final short[] table = ht[ h ].table;
-					int val = 0;
-					int y;
-					while( (y = table[val++]) < 0 ) {
-						if( get1bit( mp ) != 0 ) {
-							val -= y;
-						}
-						part2remain--;
-					}
+					final int e = br.huffman( ht[ h ].lookup );
+					part2remain -= e & 0xff;
+					int y = e >>> 8;
 					int x = y >> 4;
 					y &= 0xf;
 					if( x == 15 ) {
 						max = cb;
 						part2remain -= ht[ h ].linbits + 1;
-						x += mp.getbits( ht[ h ].linbits );
-						if( get1bit( mp ) != 0 ) {
+						x += br.getbits( ht[ h ].linbits );
+						if( br.get1bit() != 0 ) {
 							xr_value = -ispow[x] * v;
 						} else {
 							xr_value = ispow[x] * v;
 						}
 					} else if( x != 0 ) {
 						max = cb;
-						if( get1bit( mp ) != 0 ) {
+						if( br.get1bit() != 0 ) {
 							xr_value = -ispow[x] * v;
 						} else {
 							xr_value = ispow[x] * v;
@@ -1368,15 +1350,15 @@ final class Jlayer3 {
 					if( y == 15 ) {
 						max = cb;
 						part2remain -= ht[ h ].linbits + 1;
-						y += mp.getbits( ht[ h ].linbits );
-						if( get1bit( mp ) != 0 ) {
+						y += br.getbits( ht[ h ].linbits );
+						if( br.get1bit() != 0 ) {
 							xr_value = -ispow[y] * v;
 						} else {
 							xr_value = ispow[y] * v;
 						}
 					} else if( y != 0 ) {
 						max = cb;
-						if( get1bit( mp ) != 0 ) {
+						if( br.get1bit() != 0 ) {
 							xr_value = -ispow[y] * v;
 						} else {
 							xr_value = ispow[y] * v;
@@ -1398,21 +1380,8 @@ final class Jlayer3 {
 			for( ; l3 != 0 && (part2remain > 0); l3-- ) {
 				final Jnewhuff htc[] = sHtc;
 				final int h = gr_infos.count1table_select;
-				final short[] table = htc[h].table;
-				int val = 0;// table[ val ]
-				short   a;
-
-				while( (a = table[val++]) < 0 ) {
-					part2remain--;
-					if( part2remain < 0 ) {
-						part2remain++;
-						a = 0;
-						break;
-					}
-					if( get1bit( mp ) != 0 ) {
-						val -= a;
-					}
-				}
+				final int a = br.count1( htc[h].lookup, part2remain );
+				part2remain -= a & 0xff;
 				i = 0;
 				do {
 					if( 0 == (i & 1) ) {
@@ -1427,14 +1396,14 @@ final class Jlayer3 {
 						}
 						mc--;
 					}
-					if( (a & (0x8 >> i)) != 0 ) {
+					if( (a & (0x800 >> i)) != 0 ) {// java: a is the value << 8
 						max = cb;
 						part2remain--;
 						if( part2remain < 0 ) {
 							part2remain++;
 							break;
 						}
-						if( get1bit( mp ) != 0 ) {
+						if( br.get1bit() != 0 ) {
 							xr_value = -v;
 						} else {
 							xr_value = v;
@@ -1500,6 +1469,7 @@ final class Jlayer3 {
 					);
 		}
 
+		br.finish( mp );
 		while( part2remain > 16 ) {
 			mp.getbits( 16 ); /* Dismiss stuffing Bits */
 			part2remain -= 16;
@@ -1660,7 +1630,7 @@ final class Jlayer3 {
 		//}                   /* ... */
 	}
 
-	private static final void III_antialias(final float xr[]/*[SBLIMIT][SSLIMIT]*/, final Jgr_info gr_infos) {
+	static final void III_antialias(final float xr[]/*[SBLIMIT][SSLIMIT]*/, final Jgr_info gr_infos) {
 		int sblim;
 		if( gr_infos.block_type == 2 ) {
 			if( 0 == gr_infos.mixed_block_flag ) {
@@ -2077,7 +2047,7 @@ final class Jlayer3 {
 	}
 
 	/** III_hybrid */
-	private static final void III_hybrid(final Jmpstr_tag mp, final float fsIn[]/*[SBLIMIT][SSLIMIT]*/, final float tsOut[]/*[SSLIMIT][SBLIMIT]*/,
+	static final void III_hybrid(final Jmpstr_tag mp, final float fsIn[]/*[SBLIMIT][SSLIMIT]*/, final float tsOut[]/*[SSLIMIT][SBLIMIT]*/,
 		final int ch, final Jgr_info gr_infos)
 	{
 		int tspnt = 0;// tsOut[ tspnt ]
@@ -2190,15 +2160,15 @@ final class Jlayer3 {
 		}
 
 		int clip = 0;
-		final int scalefacs[][] = new int[2][39]; /* max 39 for short[13][3] mode, mixed: 38, long: 22 */
+		final int scalefacs[][] = mp.wk.scalefacs;// new int[2][39]; /* max 39 for short[13][3] mode, mixed: 38, long: 22 */
 		/*  struct III_sideinfo sideinfo; */
 		final Jframe frame = mp.fr;
 		final int stereo = frame.stereo;
 		int single = frame.single;
 		final int  sfreq = frame.sampling_frequency;
-		final float hybridIn[][] = new float[2][Jmpg123.SBLIMIT * Jmpg123.SSLIMIT];// FIXME why 3-dim hybridIn[2][SBLIMIT][SSLIMIT];?
+		final float hybridIn[][] = mp.wk.hybridIn;// new float[2][Jmpg123.SBLIMIT * Jmpg123.SSLIMIT];// FIXME why 3-dim hybridIn[2][SBLIMIT][SSLIMIT];?
 		final float[] hybridIn0 = hybridIn[0], hybridIn1 = hybridIn[1];// java
-		final float hybridOut[][] = new float[2][Jmpg123.SSLIMIT * Jmpg123.SBLIMIT];// FIXME why 3-dim hybridOut[2][SSLIMIT][SBLIMIT];?
+		final float hybridOut[][] = mp.wk.hybridOut;// new float[2][Jmpg123.SSLIMIT * Jmpg123.SBLIMIT];// FIXME why 3-dim hybridOut[2][SSLIMIT][SBLIMIT];?
 		final float[] hybridOut0 = hybridOut[0], hybridOut1 = hybridOut[1];// java
 		int stereo1;
 		if( stereo == 1 ) {  /* stream is mono */
@@ -2221,7 +2191,7 @@ final class Jlayer3 {
 		final int granules = ( frame.lsf != 0 ) ? 1 : 2;
 
 		final Jch[] chs = mp.sideinfo.ch;// java
-		final int p1[] = new int[1];// TODO java: find a better way
+		final int p1[] = mp.wk.pcm_point_left;// new int[1];
 		int gr = 0;
 		do {
 			{
@@ -2293,19 +2263,16 @@ final class Jlayer3 {
 			for( int ch = 0; ch < stereo1; ch++ ) {
 				final Jgr_info gr_infos = chs[ch].gr[gr];
 				III_antialias( hybridIn[ch], gr_infos );
-				III_hybrid( mp, hybridIn[ch], hybridOut[ch], ch, gr_infos );
+				mp.kernels.III_hybrid( mp, hybridIn[ch], hybridOut[ch], ch, gr_infos );
+			}
+			/* java: the 18 slots of the granule at once, the channel 1 follows the channel 0 */
+			if( single >= 0 ) {
+				clip += synth.synth_1to1_mono_granule( mp, hybridOut0, pcm_sample, pcm_point );
+			} else {
+				p1[0] = pcm_point[0];
+				clip += synth.synth_1to1_granule( mp, hybridOut0, 0, pcm_sample, p1 );
+				clip += synth.synth_1to1_granule( mp, hybridOut1, 1, pcm_sample, pcm_point );
 			}
-			int ss = 0;
-			do {
-				if( single >= 0 ) {
-					clip += synth.synth_1to1_mono( mp, hybridOut0, ss, pcm_sample, pcm_point );
-				} else {
-					p1[0] = pcm_point[0];
-					clip += synth.synth_1to1( mp, hybridOut0, ss, 0, pcm_sample, p1 );
-					clip += synth.synth_1to1( mp, hybridOut1, ss, 1, pcm_sample, pcm_point );
-				}
-				ss += Jmpg123.SBLIMIT;
-			} while( ss < Jmpg123.SSLIMIT * Jmpg123.SBLIMIT );
 		} while( ++gr < granules );
 
 		return clip;
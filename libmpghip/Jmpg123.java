@@ -2,6 +2,8 @@ package libmpghip;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.util.Arrays;
 
 /**
@@ -16,6 +18,21 @@ import java.util.Arrays;
  *
  * Calling ExitMP3() do not closing the input stream.
  * The input stream must be closed manually;
+ *
+ * Seeking:
+ * <pre>
+ * if( decoder.open( channel ) == 0 ) {
+ *     decoder.seekToSample( sample );
+ * }
+ * </pre>
+ * the frame index is built on the first seek, or can be loaded from a sidecar file:
+ * <pre>
+ * decoder.setFrameIndex( Jframe_index.load( is, channel.size() ) );
+ * </pre>
+ * or without an index, approximately, by the TOC of the Xing header:
+ * <pre>
+ * final long position = decoder.seekFast( sample );
+ * </pre>
  */
 public final class Jmpg123 extends Jmpstr_tag {
 	public static final int MP3_ERR = -1;
@@ -59,6 +76,8 @@ public final class Jmpg123 extends Jmpstr_tag {
 	private final int mBytesPerSample;
 	//
 	private InputStream mInputStream = null;
+	/** the input, if opened by open( FileChannel ) */
+	private FileChannel mChannel = null;
 	private boolean mIsEofReached = false;
 	private int mInputFormat = FORMAT_UNKNOWN;
 	private byte[] mId3v2TagBuff = null;
@@ -77,6 +96,8 @@ public final class Jmpg123 extends Jmpstr_tag {
 	private final float mOutUnclipped[] = new float[OUT_SIZE];
 	//
 	private final byte mByteBuffer[] = new byte[1024];
+	/** java: processed_mono_samples of decodeHeaders */
+	private final int mProcessedMonoSamples[] = new int[1];
 	// pcm buffer
 	/** buffer for interleaved samples */
 	private float mBuffer[] = null;
@@ -89,6 +110,25 @@ public final class Jmpg123 extends Jmpstr_tag {
 	/** number samples to ignore at the end */
 	private int mSkipEnd = 0;
 	// end pcm buffer
+	/** decoded samples per channel, which are ignored at the beginning: the decoder and the encoder delay */
+	private int mDelay = 0;
+	/** samples returned by read, all channels */
+	private long mOutSamples = 0;
+	/** the offset of the first audio frame in the channel, -1 if not known, see seekFast */
+	private long mFirstFrameOffset = -1;
+	/** the header of the first frame */
+	private int mFirstFrameHead = 0;
+	/** samples per channel and the bitrate of the first frame */
+	private int mFirstFrameSamples = 0;
+	private int mFirstFrameBitrate = 0;
+	/** the size of the Xing frame, 0 if not present */
+	private int mVbrFrameSize = 0;
+	/** a VBR stream without the Xing header: the bitrate of a frame in the middle of the stream differs from the first one */
+	private boolean mIsUntaggedVbr = false;
+	/** java: header and main_data_begin, found by Jframe_index.sync */
+	private final int mSyncFrame[] = new int[2];
+	/** the index of the channel, see seekToSample */
+	private Jframe_index mIndex = null;
 	/**
 	 * Constructor with parameters for output byte stream.
 	 *
@@ -126,6 +166,13 @@ public final class Jmpg123 extends Jmpstr_tag {
 	public long getTotalNumSamples() {
 		return mTotalNumSamples;
 	}
+	/**
+	 *
+	 * @return the position of the output, samples per channel
+	 */
+	public long getPosition() {
+		return mNumChannels > 0 ? mOutSamples / mNumChannels : 0;
+	}
 	private static final int getLenOfId3v2Tag(final byte[] buf, int offset) {
 		final int b0 = (int)buf[offset++] & 127;
 		final int b1 = (int)buf[offset++] & 127;
@@ -185,7 +232,7 @@ public final class Jmpg123 extends Jmpstr_tag {
     private final int decodeHeaders(final byte[] buffer, final int len,
 		final float[] p, final int psize)
 	{
-		final int processed_mono_samples[] = new int[1];// java: processed_bytes changed to processed_mono_samples
+		final int processed_mono_samples[] = mProcessedMonoSamples;// java: processed_bytes changed to processed_mono_samples
 
 		mIsHeaderParsed = false;
 
@@ -246,6 +293,10 @@ public final class Jmpg123 extends Jmpstr_tag {
 	 * @return 0 ok, this is mpeg stream, -1 an error.
 	 */
 	public final int open(final InputStream is) {
+		mChannel = null;
+		mFirstFrameOffset = -1;
+		mVbrFrameSize = 0;
+		mIndex = null;
 		try {
 			final byte buf[] = new byte[100];
 			if( is.read( buf, 0, 4 ) != 4 ) {
@@ -369,15 +420,285 @@ public final class Jmpg123 extends Jmpstr_tag {
 				mSkipStart = 240 + 1;
 				break;
 			}
+			mSkipStart = mSkipStart < 0 ? 0 : mSkipStart;
+			mDelay = mSkipStart;
 			mSkipStart *= mNumChannels;
 			mSkipEnd *= mNumChannels;
-			mSkipStart = mSkipStart < 0 ? 0 : mSkipStart;
 			mInputStream = is;
+			mOutSamples = 0;
 			return 0;
 		} catch(final IOException e) {
 			return -1;
 		}
 	}
+	/**
+	 * Inspect a file, the decoding can be positioned by seek.
+	 * The channel is read from the current position. It is not closed by ExitMP3.
+	 * @param channel a file channel
+	 * @return 0 ok, this is mpeg stream, -1 an error.
+	 */
+	public final int open(final FileChannel channel) {
+		final int ret = open( Channels.newInputStream( channel ) );
+		mChannel = ret == 0 ? channel : null;
+		return ret;
+	}
+	/**
+	 * Sets the frame index, used by seekToSample, e.g. loaded from a sidecar file.
+	 * Must be called after open.
+	 * @param index the index of the stream or null to build the index by the next seekToSample
+	 */
+	public final void setFrameIndex(final Jframe_index index) {
+		mIndex = index;
+	}
+	/**
+	 *
+	 * @return the frame index, null if not set and not built yet
+	 */
+	public final Jframe_index getFrameIndex() {
+		return mIndex;
+	}
+	/**
+	 * Seeks to the sample. The frames of the pre-roll are decoded and dropped,
+	 * the decoded samples of the frame before the sample are dropped too.
+	 * The output is the same as the output of the decoding from the start, starting with the sample.
+	 * The positions are counted without the encoder delay and the padding of the LAME tag,
+	 * as read returns the samples.
+	 * The frame index is built by a scan of the frame headers on the first call, if not set by setFrameIndex.
+	 *
+	 * @param sample the position, samples per channel
+	 * @return the position, at which the output continues: the sample, or the end of the stream;
+	 * -1 if the decoder is not opened by open( FileChannel ) or the stream can't be indexed.
+	 */
+	public final long seekToSample(long sample) throws IOException {
+		if( mChannel == null ) {
+			return -1;
+		}
+		if( mIndex == null ) {
+			mIndex = Jframe_index.scan( mChannel );
+			if( mIndex == null ) {
+				return -1;
+			}
+		}
+		final long end = mIndex.get_sample_count() - mDelay - mSkipEnd / mNumChannels;
+		sample = sample > 0 ? sample : 0;
+		sample = sample < end ? sample : (end > 0 ? end : 0);
+		final long position = seek( mIndex, sample );
+		if( position < sample ) {
+			mSkipStart += (int)(sample - position) * mNumChannels;
+			mOutSamples = sample * mNumChannels;
+		}
+		return sample;
+	}
+	/**
+	 * Seeks to the start of the frame, which contains the sample.
+	 * The frames of the pre-roll are decoded before the frame, to fill the bit reservoir and prime the filters,
+	 * their output is dropped, see Jframe_index.get_preroll_frame.
+	 * The position is counted as getPosition: the encoder delay is not a part of the output.
+	 *
+	 * @param index the index of the stream, see Jframe_index.scan
+	 * @param sample the position, samples per channel
+	 * @return the position, at which the output continues: the first sample of the frame
+	 * or 0 if the frame starts in the delay; -1 if the decoder is not opened by open( FileChannel ).
+	 */
+	public final long seek(final Jframe_index index, final long sample) throws IOException {
+		if( mChannel == null ) {
+			return -1;
+		}
+		final int samples_per_frame = index.get_samples_per_frame();
+		final int frame = index.get_frame( (sample > 0 ? sample : 0) + mDelay );
+		long position = (long)frame * samples_per_frame - mDelay;
+		long skip = 0;
+		/* the first decoded frame */
+		int first = frame;
+		if( frame < index.get_frame_count() ) {
+			if( position < 0 ) {
+				skip = -position;
+				position = 0;
+			}
+			final int preroll = index.get_preroll_frame( frame );
+			mChannel.position( index.get_offset( preroll ) );
+			/* the first frame of the pre-roll is dropped, if it needs the bit reservoir */
+			first = index.get_main_data_begin( preroll ) == 0 ? preroll : preroll + 1;
+			skip += (long)(frame - first) * samples_per_frame;
+		} else {
+			/* after the end */
+			mChannel.position( mChannel.size() );
+		}
+		restart();
+		/* the position of the synthesis buffers, as the decoding from the start has:
+		 * the sums of the window are ordered by the position, the output is the same then */
+		this.synth_bo = (1 - first * (samples_per_frame / SBLIMIT)) & 0xf;
+		mSkipStart = (int)skip * mNumChannels;
+		mOutSamples = position * mNumChannels;
+		return position;
+	}
+	/**
+	 * Seeks to the frame of the sample without an index of the whole stream.
+	 * A header is found near the frame of the sample by the byte offset, the frames from it are scanned,
+	 * and the decoding starts with the pre-roll of the frame, as seek does with the index of this part of the stream.
+	 * The output continues from the first sample of the frame, which contains the sample,
+	 * and is the same as the output of the decoding from the start.
+	 * The number of the frame is found by the byte offset of the header,
+	 * if the frames have a constant size, i.e. the stream has an Info header of a CBR stream or no Xing header.
+	 * The TOC of a VBR stream gives the offset of a point only to 1/256 of the stream size, not the number of the frame,
+	 * so the frame headers of a VBR stream are scanned from the first frame to the frame of the sample,
+	 * or the frame index is used, if it is set or built by seekToSample.
+	 * A stream without the Xing header is taken as CBR with the bitrate of the first frame,
+	 * if a frame in the middle of the stream has the same bitrate, else as VBR.
+	 *
+	 * @param sample the position, samples per channel
+	 * @return the position, at which the output continues, samples per channel, or the end of the stream;
+	 * -1 if the decoder is not opened by open( FileChannel ) or the stream has no frames.
+	 */
+	public final long seekFast(final long sample) throws IOException {
+		if( mChannel == null ) {
+			return -1;
+		}
+		final int sync[] = mSyncFrame;
+		final boolean is_vbr_header = this.num_frames > 0 || this.toc != null || this.vbr_bytes > 0;
+		if( mFirstFrameOffset < 0 ) {
+			final Jframe f = new Jframe();
+			long offset = Jframe_index.sync( mChannel, -1, 0, sync );
+			if( offset >= 0 && is_vbr_header ) {
+				/* the Xing frame is not a part of the TOC */
+				f.decode_header( null, sync[0] );
+				mVbrFrameSize = f.framesize + 4;
+				offset = Jframe_index.sync( mChannel, offset + mVbrFrameSize, sync[0], sync );
+			}
+			if( offset < 0 ) {
+				return -1;
+			}
+			f.decode_header( null, sync[0] );
+			mFirstFrameOffset = offset;
+			mFirstFrameHead = sync[0];
+			mFirstFrameSamples = f.lay == 1 ? 384 : (f.lay == 2 || f.lsf == 0 ? 1152 : 576);
+			mFirstFrameBitrate = tabsel_123[f.lsf][f.lay - 1][f.bitrate_index];
+			mIsUntaggedVbr = ! is_vbr_header &&
+				Jframe_index.sync( mChannel, offset + (mChannel.size() - offset) / 2, mFirstFrameHead, sync ) >= 0 &&
+				((sync[0] ^ mFirstFrameHead) & 0xf000) != 0;
+		}
+		final int samples_per_frame = mFirstFrameSamples;
+		final long first_offset = mFirstFrameOffset;
+		/* the bytes and the number of the audio frames, without the Xing frame */
+		final long bytes = this.vbr_bytes > mVbrFrameSize ? this.vbr_bytes - mVbrFrameSize : mChannel.size() - first_offset;
+		/* the size of a frame with the bitrate of the first frame, the padding is spread over the frames */
+		final double frame_bytes = mFirstFrameBitrate * 125. * samples_per_frame / mSampleRate;
+		final long frames = this.num_frames > 0 ? this.num_frames : (long)(bytes / frame_bytes + .5);
+		/* the frames of the Info header of a CBR stream have the same size */
+		final boolean is_cbr = this.num_frames <= 0 ? ! mIsUntaggedVbr : Math.abs( bytes - frames * frame_bytes ) < 2 * frame_bytes;
+		/* the end of the output: the padding of the last frame is not a part of it,
+		 * the end of a VBR stream without the Xing header is found by the scan */
+		long end = mIsUntaggedVbr ? Long.MAX_VALUE : frames * samples_per_frame - mDelay - mSkipEnd / mNumChannels;
+		end = end > 0 ? end : 0;
+		/* the frame of the sample */
+		final long frame = ((sample > 0 ? sample : 0) + mDelay) / samples_per_frame;
+		if( ! mIsUntaggedVbr && (sample >= end || frame >= frames) ) {
+			return seekEnd( end );
+		}
+
+		/* the first guess of the pre-roll: the frames before the frame, which can hold its bit reservoir,
+		 * and the frames to prime the filter banks */
+		final Jframe f = new Jframe();
+		f.decode_header( null, mFirstFrameHead );
+		final int side = 4 + (f.error_protection ? 2 : 0) + (f.lsf != 0 ? (f.stereo == 1 ? 9 : 17) : (f.stereo == 1 ? 17 : 32));
+		final int min_bytes = is_cbr ? (int)frame_bytes : tabsel_123[f.lsf][f.lay - 1][1] * 125 * samples_per_frame / mSampleRate;
+		final int reservoir = f.lay != 3 ? 0 : (f.lsf != 0 ? 255 : 511);
+		final int main_bytes = min_bytes - side;
+		int preroll = 3 + (reservoir + (main_bytes > 0 ? main_bytes : 1) - 1) / (main_bytes > 0 ? main_bytes : 1);
+		long offset;
+		long number;
+		Jframe_index part;
+		int i;
+		int first_frame;
+		do {
+			final long start = is_cbr && frame - preroll > 0 ? frame - preroll : 0;
+			/* the header at the start and its number */
+			offset = first_offset;
+			number = 0;
+			if( start > 0 ) {
+				/* half a frame back, the header is searched forward */
+				offset = Jframe_index.sync( mChannel, first_offset + (long)((start - .5) * frame_bytes), mFirstFrameHead, sync );
+				number = (long)Math.floor( (offset - first_offset) / frame_bytes + .5 );
+			}
+			final long count = frame - number + 1;
+			part = offset < 0 || count > Integer.MAX_VALUE ? null :
+				(! is_cbr && mIndex != null ? mIndex :
+				Jframe_index.scan( mChannel, offset, mFirstFrameHead, count > 1 ? (int)count : 1 ));
+			if( part == null ) {
+				/* the header is not found */
+				return seekEnd( end );
+			}
+			/* the frame in the part */
+			i = count > 1 ? (int)count - 1 : 0;
+			if( i >= part.get_frame_count() ) {
+				/* the stream ends before the frame */
+				if( mIsUntaggedVbr ) {
+					end = (number + part.get_frame_count()) * samples_per_frame - mDelay;
+					end = end > 0 ? end : 0;
+				}
+				return seekEnd( end );
+			}
+			first_frame = part.get_preroll_frame( i );
+			/* the bit reservoirs of the frames can reach before the part: the decoder would drop the frames, so the part is extended */
+			preroll <<= 1;
+		} while( first_frame == 0 && offset != first_offset );
+		/* the first frame of the pre-roll is dropped, if it needs the bit reservoir */
+		final int first = part.get_main_data_begin( first_frame ) == 0 ? first_frame : first_frame + 1;
+		if( i < first ) {
+			i = first;
+			if( i >= part.get_frame_count() ) {
+				return seekEnd( end );
+			}
+		}
+		long position = (number + i) * samples_per_frame - mDelay;
+		if( position >= end ) {
+			return seekEnd( end );
+		}
+		long skip = (long)(i - first) * samples_per_frame;
+		if( position < 0 ) {
+			skip -= position;
+			position = 0;
+		}
+		mChannel.position( part.get_offset( first_frame ) );
+		restart();
+		/* the position of the synthesis buffers, see seek */
+		this.synth_bo = (int)(1 - (number + first) * (samples_per_frame / SBLIMIT)) & 0xf;
+		mSkipStart = (int)skip * mNumChannels;
+		mOutSamples = position * mNumChannels;
+		return position;
+	}
+	/**
+	 * Seeks to the end of the stream: the sample is after the last frame,
+	 * or no frame is found after the position.
+	 * @return the end of the output, samples per channel
+	 */
+	private final long seekEnd(final long end) throws IOException {
+		mChannel.position( mChannel.size() );
+		restart();
+		mSkipStart = 0;
+		mOutSamples = end * mNumChannels;
+		return end;
+	}
+	/**
+	 * Clears the decoder to continue from an other position of the channel.
+	 * The data of the Xing frame is kept.
+	 */
+	private final void restart() {
+		// java: InitMP3 clears the data of the Xing frame
+		final int frames = this.num_frames;
+		final int delay = this.enc_delay;
+		final int padding = this.enc_padding;
+		final byte table[] = this.toc;
+		final int stream_bytes = this.vbr_bytes;
+		InitMP3();
+		this.num_frames = frames;
+		this.enc_delay = delay;
+		this.enc_padding = padding;
+		this.toc = table;
+		this.vbr_bytes = stream_bytes;
+		mIsEofReached = false;
+		mNumSamplesUsed = 0;
+	}
 	private final int addBuffer(final float[] a, final int read) {
 		if( read < 0 ) {
 			return mNumSamplesUsed - mSkipEnd;
@@ -613,6 +934,7 @@ public final class Jmpg123 extends Jmpstr_tag {
 		}
 		if( take > 0 ) {
 			convert( mBuffer, take, b, off );
+			mOutSamples += take;
 			mNumSamplesUsed -= take;
 			if( mNumSamplesUsed < 0 ) {
 				mNumSamplesUsed = 0;
@@ -654,7 +976,13 @@ public final class Jmpg123 extends Jmpstr_tag {
 					if( num <= 0 ) {// java: len = -1 if eof
 						num = 0;// java: len = -1 if eof
 						// we are done reading the file, but check for buffered data
-						read = decodeHeaders( byte_buff, num, out, OUT_SIZE );
+						// java: a dropped frame gives no output, the next frames are decoded while the buffered data is used,
+						// e.g. a seek near the end has the pre-roll and the rest of the stream in one read
+						int buffered;
+						do {
+							buffered = this.bsize;
+							read = decodeHeaders( byte_buff, num, out, OUT_SIZE );
+						} while( read == 0 && this.bsize < buffered );
 						if( read <= 0 ) {
 							read = -1;// done with file
 						}
@@ -1,5 +1,6 @@
 package libmpghip;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 import libmp3lame.JVBRTAGDATA;
@@ -9,9 +10,28 @@ import libmp3lame.JVbrTag;
 public class Jmpstr_tag {
 	private static final class Jbuf {
 		private byte[] pnt;
+		/** java: the data of the caller, not copied, if pnt is not used. pos and size are the indexes of the buffer */
+		private ByteBuffer bb;
 		private int size;
 		private int pos;
 		private Jbuf next;
+		//
+		private final int get(final int p) {
+			if( this.bb != null ) {
+				return (int)this.bb.get( p ) & 0xff;
+			}
+			return (int)this.pnt[p] & 0xff;
+		}
+		/** java: copies the data, the position of the ByteBuffer follows pos */
+		private final void copy(final byte[] dst, final int offset, final int len) {
+			if( this.bb != null ) {
+				this.bb.position( this.pos );
+				this.bb.get( dst, offset, len );
+			} else {
+				System.arraycopy( this.pnt, this.pos, dst, offset, len );
+			}
+			this.pos += len;
+		}
 	}
 	//
 	private static final Isynth sDecoder = new Decode();// short[] version;
@@ -32,10 +52,11 @@ public class Jmpstr_tag {
 		22050, 24000, 16000,
 		11025, 12000,  8000 };
 
-	static final float muls[][] = new float[27][64];
 	//
 	/** buffer linked list pointers, tail points to oldest buffer */
 	Jbuf head, tail;
+	/** java: removed buffers, reused by addbuf */
+	private Jbuf free;
 	/** 1 if valid Xing vbr header detected */
 	boolean vbr_header;
 	/** set if vbr header present */
@@ -44,6 +65,10 @@ public class Jmpstr_tag {
 	public int     enc_delay;
 	/** set if vbr header present */
 	public int     enc_padding;
+	/** java: the seek table of the vbr header: 100 byte offsets in 1/256 of vbr_bytes, null if not present */
+	byte    toc[];
+	/** java: the size of the stream from the vbr header, including the vbr header frame, 0 if not present */
+	int     vbr_bytes;
 	/* header_parsed, side_parsed and data_parsed must be all set 1
 	   before the full frame has been parsed */
 	/** 1 = header of current frame has been parsed */
@@ -74,8 +99,18 @@ public class Jmpstr_tag {
 	int  bsnum;
 	final float synth_buffs[][][] = new float[2][2][0x110];
 	int     synth_bo;
+	/** java: the kernels of the stream, set by InitMP3, the layout of synth_buffs depends on them */
+	Jdecoder_kernels kernels = Jdecoder_kernels.kernels;
 	/** 1 = bitstream is yet to be synchronized */
 	boolean sync_bitstream;
+	/** java: scratch buffers of the frame decoding */
+	final JDecWorkspace wk = new JDecWorkspace();
+	/** java: health and throughput counters */
+	private final Jdecoder_stats stats = new Jdecoder_stats();
+	/** java: receives the decoded frames, null if not set */
+	private Jdecoder_listener frame_listener;
+	/** java: measure Jdecoder_stats.decode_ns without a frame listener */
+	private boolean is_stats_timing;
 
 	int     bitindex;
 	/** java: wordbuf[ wordpointer ] */
@@ -90,10 +125,6 @@ public class Jmpstr_tag {
 	*/
 	//
 	public final void InitMP3() {
-		Jlayer1.hip_init_tables_layer1();
-		Jlayer2.hip_init_tables_layer2();
-		Jlayer3.hip_init_tables_layer3();
-
 		// if( mp != null ) {
 		// java: operations to replace memset 0
 		this.fsizeold_nopadding = 0;
@@ -117,6 +148,8 @@ public class Jmpstr_tag {
 		this.num_frames = 0;
 		this.enc_delay = -1;
 		this.enc_padding = -1;
+		this.toc = null;
+		this.vbr_bytes = 0;
 		this.vbr_header = false;
 		this.header_parsed = false;
 		this.side_parsed = false;
@@ -127,6 +160,13 @@ public class Jmpstr_tag {
 		this.dsize = 0;
 		this.fsizeold = -1;
 		this.bsize = 0;
+		if( this.head != null ) {// java: the buffers are kept for addbuf
+			for( Jbuf b = this.tail; b != null; b = b.next ) {
+				b.bb = null;
+			}
+			this.head.next = this.free;
+			this.free = this.tail;
+		}
 		this.head = this.tail = null;
 		this.fr.single = -1;
 		this.bsnum = 0;
@@ -134,10 +174,10 @@ public class Jmpstr_tag {
 		this.wordpointer = 512;
 		this.bitindex = 0;
 		this.synth_bo = 1;
+		this.kernels = Jdecoder_kernels.kernels;
 		this.sync_bitstream = true;
 
 		// }
-		Jdct64.make_decode_tables( 32767 );
 	}
 
 	public final void ExitMP3() {
@@ -145,20 +185,49 @@ public class Jmpstr_tag {
 		Jbuf b = this.tail;
 		while( b != null  ) {
 			b.pnt = null;
+			b.bb = null;
 			final Jbuf bn = b.next;
 			b = bn;
 		}
 		// }
+		this.free = null;
 	}
 
 	private final Jbuf addbuf(final byte[] buf, final int size) {
-		final Jbuf nbuf = new Jbuf();
-		nbuf.pnt = new byte[ size ];
+		final Jbuf nbuf = nextbuf();
+		if( nbuf.pnt == null || nbuf.pnt.length < size ) {
+			nbuf.pnt = new byte[ size ];
+		}
 		nbuf.size = size;
 		System.arraycopy( buf, 0, nbuf.pnt, 0, size );
-		nbuf.next = null;
 		nbuf.pos = 0;
 
+		return linkbuf( nbuf, size );
+	}
+
+	/** java: adds the remaining data of the buffer without copying */
+	private final Jbuf addbuf(final ByteBuffer buf) {
+		final Jbuf nbuf = nextbuf();
+		nbuf.bb = buf;
+		nbuf.pos = buf.position();
+		nbuf.size = buf.limit();
+
+		return linkbuf( nbuf, buf.remaining() );
+	}
+
+	/** java: a free buffer, or a new one */
+	private final Jbuf nextbuf() {
+		final Jbuf nbuf = this.free;
+		if( nbuf != null ) {
+			this.free = nbuf.next;
+			return nbuf;
+		}
+		return new Jbuf();
+	}
+
+	private final Jbuf linkbuf(final Jbuf nbuf, final int size) {
+		nbuf.next = null;
+
 		if( null == this.tail ) {
 			this.tail = nbuf;
 		} else {
@@ -180,7 +249,13 @@ public class Jmpstr_tag {
 			this.head = null;
 		}
 
-		buf.pnt = null;
+		// buf.pnt = null;// java: the buffer is kept for the next addbuf
+		if( buf.bb != null ) {// java: the data of the caller is consumed
+			buf.bb.position( buf.size );
+			buf.bb = null;
+		}
+		buf.next = this.free;
+		this.free = buf;
 	}
 
 	private final int read_buf_byte() {
@@ -195,9 +270,12 @@ public class Jmpstr_tag {
 			pos = this.tail.pos;
 		}
 
-		final int b = (int)this.tail.pnt[pos] & 0xff;
+		final int b = this.tail.get( pos );
 		this.bsize--;
 		this.tail.pos++;
+		if( this.tail.bb != null ) {
+			this.tail.bb.position( this.tail.pos );
+		}
 
 		return b;
 	}
@@ -225,9 +303,8 @@ public class Jmpstr_tag {
 			} else {
 				nlen = blen;
 			}
-			System.arraycopy( this.tail.pnt, this.tail.pos, ptr, poffset + len, nlen );
+			this.tail.copy( ptr, poffset + len, nlen );
 			len += nlen;
-			this.tail.pos += nlen;
 			this.bsize -= nlen;
 			if( this.tail.pos == this.tail.size ) {
 				remove_buf();
@@ -276,7 +353,7 @@ public class Jmpstr_tag {
 				} /* fatal error */
 				pos = buf.pos;
 			}
-			xing[i] = buf.pnt[pos];
+			xing[i] = (byte)buf.get( pos );
 			++pos;
 		}
 
@@ -286,6 +363,8 @@ public class Jmpstr_tag {
 			this.num_frames = pTagData.frames;
 			this.enc_delay = pTagData.enc_delay;
 			this.enc_padding = pTagData.enc_padding;
+			this.toc = (pTagData.flags & JVbrTag.TOC_FLAG) != 0 ? pTagData.toc : null;
+			this.vbr_bytes = (pTagData.flags & JVbrTag.BYTES_FLAG) != 0 ? pTagData.bytes : 0;
 
 			/* Jutil.lame_report_fnc(this.report_msg,"hip: delays: %d %d \n",this.enc_delay,this.enc_padding); */
 			/* Jutil.lame_report_fnc(this.report_msg,"hip: Xing VBR header dectected.  MP3 file has %d frames\n", pTagData.frames); */
@@ -297,7 +376,7 @@ public class Jmpstr_tag {
 		return 0;
 	}
 
-	private static final boolean head_check(final int head, final int check_layer) {
+	static final boolean head_check(final int head, final int check_layer) {
 		/*
 		   look for a valid header.
 		   if check_layer > 0, then require that
@@ -344,7 +423,7 @@ public class Jmpstr_tag {
 		 * return number of bytes in mp, before the header
 		 * return -1 if header is not found
 		 */
-		final int b[] = { 0, 0, 0, 0 };
+		int b0 = 0, b1 = 0, b2 = 0, b3 = 0;// final int b[] = { 0, 0, 0, 0 };
 		Jbuf buf = this.tail;
 		if( null == buf ) {
 			return -1;
@@ -354,9 +433,9 @@ public class Jmpstr_tag {
 		for( int i = 0; i < this.bsize; i++ ) {
 			/* get 4 bytes */
 
-			b[0] = b[1];
-			b[1] = b[2];
-			b[2] = b[3];
+			b0 = b1;
+			b1 = b2;
+			b2 = b3;
 			while( pos >= buf.size ) {
 				buf = buf.next;
 				if( null == buf ) {// java: incorrect eclipse warining: "Dead code"
@@ -365,19 +444,19 @@ public class Jmpstr_tag {
 				}
 				pos = buf.pos;
 			}
-			b[3] = (int)buf.pnt[pos] & 0xff;
+			b3 = buf.get( pos );
 			++pos;
 
 			if( i >= 3 ) {
 				final Jframe frame = this.fr;
 
-				int val = b[0];
+				int val = b0;
 				val <<= 8;
-				val |= b[1];
+				val |= b1;
 				val <<= 8;
-				val |= b[2];
+				val |= b2;
 				val <<= 8;
-				val |= b[3];
+				val |= b3;
 				boolean h = head_check( val, frame.lay );
 
 				if( h && free_match ) {
@@ -529,6 +608,7 @@ public class Jmpstr_tag {
 				if( this.fsizeold != -1 ) {
 					System.err.printf("hip: bitstream problem, resyncing skipping %d bytes...\n", bytes );
 				}
+				this.stats.count_skipped( bytes, this.fsizeold != -1 );
 				this.old_free_format = false;
 // #if 1
 				/* FIXME: correct ??? */
@@ -651,6 +731,10 @@ public class Jmpstr_tag {
 
 			done[0] = 0;
 
+			/* java: System.nanoTime only if somebody reads the time */
+			final boolean is_timing = this.is_stats_timing || this.frame_listener != null;
+			final long start = is_timing ? System.nanoTime() : 0;
+			int clip = 0;
 			/*do_layer3(&mp.fr,(unsigned char *) out,done); */
 			switch( this.fr.lay ) {
 			case 1:
@@ -659,9 +743,7 @@ public class Jmpstr_tag {
 				}
 
 				//Jlayer1.decode_layer1_frame( this, out, done );// FIXME incorrect calling
-				if( Jlayer1.decode_layer1_frame( this, out, done, synth ) < 0 ) {
-					return Jmpg123.MP3_ERR;
-				}
+				clip = Jlayer1.decode_layer1_frame( this, out, done, synth );
 				break;
 
 			case 2:
@@ -670,15 +752,27 @@ public class Jmpstr_tag {
 				}
 
 				//Jlayer2.decode_layer2_frame( this, out, done );// FIXME incorrect calling
-				Jlayer2.decode_layer2_frame( this, out, done, synth );
+				clip = Jlayer2.decode_layer2_frame( this, out, done, synth );
 				break;
 
 			case 3:
-				Jlayer3.decode_layer3_frame( this, out, done, synth );
+				clip = Jlayer3.decode_layer3_frame( this, out, done, synth );
 				break;
 			default:
 				System.err.printf("hip: invalid layer %d\n", this.fr.lay );
 			}
+			final long ns = is_timing ? System.nanoTime() - start : 0;
+			if( clip < 0 ) {
+				/* Layer I: an illegal value, the time is counted, the frame is not */
+				this.stats.count_frame( 0, ns, 0 );
+				return Jmpg123.MP3_ERR;
+			}
+			/* a Layer III frame, dropped by set_pointer, is not counted */
+			this.stats.count_frame( this.fr.lay != 3 || done[0] > 0 ? this.fr.lay : 0, ns, clip );
+			if( this.frame_listener != null && done[0] > 0 ) {
+				this.frame_listener.frame_decoded( this.fr,
+						this.free_format ? 4 + this.ssize + this.dsize : this.fr.framesize + 4, done[0], ns );
+			}
 
 			this.wordbuf = this.bsspace[ this.bsnum ];
 			this.wordpointer = 512 + this.ssize + this.dsize;
@@ -745,6 +839,35 @@ public class Jmpstr_tag {
 		return iret;
 	}
 
+	/**
+	 * java: health and throughput counters of the decoder.
+	 * The object is updated by the decoding thread and can be read by any thread, see Jdecoder_stats.
+	 */
+	public final Jdecoder_stats get_stats() {
+		return this.stats;
+	}
+
+	/** java: sets the listener of the decoded frames, null to remove it */
+	public final void set_frame_listener(final Jdecoder_listener listener) {
+		this.frame_listener = listener;
+	}
+
+	public final Jdecoder_listener get_frame_listener() {
+		return this.frame_listener;
+	}
+
+	/**
+	 * java: turns on the measurement of Jdecoder_stats.decode_ns without a frame listener.
+	 * The time is measured, if a frame listener is set, too. Off by default: System.nanoTime costs per frame.
+	 */
+	public final void set_stats_timing(final boolean is_timing) {
+		this.is_stats_timing = is_timing;
+	}
+
+	public final boolean get_stats_timing() {
+		return this.is_stats_timing;
+	}
+
 	@SuppressWarnings("boxing")
 	public final int decodeMP3(final byte[] in, final int isize, final short[] out, final int osize, final int[] done) {
 		if( osize < (1152 * 2) ) {
@@ -770,6 +893,41 @@ public class Jmpstr_tag {
 		return decodeMP3_clipchoice( in, isize, out, done, sDecoderUnclipped );// synth_1to1_mono_unclipped, synth_1to1_unclipped );
 	}
 
+	/**
+	 * java: decodeMP3 with the input from a ByteBuffer: heap, direct or MappedByteBuffer.
+	 * The remaining data of the buffer is not copied, the decoder reads it in place.
+	 * Only the frames are copied to the bit stream space, the main data and the bit reservoir need it.
+	 * The decoder keeps the buffer, until the data is consumed: the content, the position and the limit
+	 * must not be changed by the caller, until the position reaches the limit. The decoder moves the position
+	 * as the data is read. Then the buffer can be reused, or the next buffer can be added.
+	 * Call with in == null to decode the next frame of the added data, as decodeMP3( null, 0, ... ).
+	 * A memory-mapped file can be added at once and decoded frame by frame, until MP3_NEED_MORE
+	 * is returned without a move of the position.
+	 */
+	@SuppressWarnings("boxing")
+	public final int decodeMP3(final ByteBuffer in, final short[] out, final int osize, final int[] done) {
+		if( osize < (1152 * 2) ) {
+			System.err.printf("hip: Insufficient memory for decoding buffer %d\n", osize );
+			return Jmpg123.MP3_ERR;
+		}
+		if( in != null && in.hasRemaining() ) {
+			addbuf( in );
+		}
+		return decodeMP3_clipchoice( null, 0, out, done, sDecoder );
+	}
+
+	/** java: decodeMP3_unclipped with the input from a ByteBuffer, see decodeMP3( ByteBuffer, ... ) */
+	public final int decodeMP3_unclipped(final ByteBuffer in, final float[] out, final int osize, final int[] done) {
+		if( osize < (1152 * 2) ) {
+			System.err.print("hip: out space too small for unclipped mode\n");
+			return Jmpg123.MP3_ERR;
+		}
+		if( in != null && in.hasRemaining() ) {
+			addbuf( in );
+		}
+		return decodeMP3_clipchoice( null, 0, out, done, sDecoderUnclipped );
+	}
+
 	final int getbits_fast(final int number_of_bits) {
 		final byte[] buf = this.wordbuf;// java
 		int p = this.wordpointer;// java
@@ -799,6 +957,7 @@ public class Jmpstr_tag {
 	final int set_pointer(final int backstep) {
 		if( this.fsizeold < 0 && backstep > 0 ) {
 			System.err.printf("hip: Can't step back %d bytes!\n", backstep );
+			this.stats.count_main_data_underflow();
 			return Jmpg123.MP3_ERR;
 		}
 		this.wordpointer -= backstep;
@@ -0,0 +1,424 @@
+package libmpghip;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+
+import libmp3lame.JVBRTAGDATA;
+import libmp3lame.JVbrTag;
+
+/**
+ * java: properties of a stream, read from the frame headers and the Xing/Info/VBRI tags only,
+ * without the decoding.
+ *
+ * The number of the frames is exact, if the stream has a tag with the frame count,
+ * or if all frame headers are scanned. Otherwise it is estimated by the stream size
+ * and the bitrate of the first frame, as for a CBR stream.
+ * The size of a free format frame is the distance to the next frame header of the stream.
+ * The samples are counted as Jmpg123 returns them: without the encoder delay and padding
+ * of the LAME tag and without the decoder delay.
+ */
+public final class Jstream_probe {
+	/** bytes read to find the first frame and the tag */
+	private static final int WINDOW_SIZE = 16384;
+	private static final int XING_HEADER_SIZE = 194;
+	/** the size of the longest frame, Layer II and III, 320 kbps at 32 kHz, with the padding */
+	private static final int MAX_FRAME_SIZE = 1441;
+	/** the size of the longest free format frame, Layer III 640 kbps at 32 kHz, with the padding */
+	private static final int MAX_FREE_FRAME_SIZE = 2881;
+	/** offset of the VBRI tag from the frame header */
+	private static final int VBRI_OFFSET = 4 + 32;
+	/** the encoder delay, if the stream has no LAME tag, and the decoder delay, see Jmpg123.open */
+	private static final int ENCDELAY = 576;
+	private static final int DECODER_DELAY = 528 + 1;
+	private static final int DECODER_DELAY_LAYER12 = 240 + 1;
+	//
+	/** 1, 2 or 3 */
+	private int layer;
+	/** 1 = MPEG-1, 2 = MPEG-2, 25 = MPEG-2.5 */
+	private int version;
+	private int sample_rate;
+	private int channels;
+	/** channel mode of the first frame: Jmpstr_tag.MPG_MD_STEREO ... MPG_MD_MONO */
+	private int mode;
+	private int samples_per_frame;
+	/** audio frames, without the Xing frame */
+	private long frames;
+	/** audio bytes, without the Xing frame and the tags */
+	private long bytes;
+	/** true if the frame count is exact */
+	private boolean is_exact;
+	/** true if the stream has a Xing or VBRI tag, false for an Info tag and no tag */
+	private boolean is_vbr;
+	/** true if the Xing/Info tag has the LAME extension */
+	private boolean has_lame_tag;
+	private int enc_delay = -1;
+	private int enc_padding = -1;
+
+	private Jstream_probe() {
+	}
+
+	/** @return 1, 2 or 3 */
+	public final int get_layer() {
+		return this.layer;
+	}
+
+	/** @return 1 for MPEG-1, 2 for MPEG-2, 25 for MPEG-2.5 */
+	public final int get_version() {
+		return this.version;
+	}
+
+	public final int get_sample_rate() {
+		return this.sample_rate;
+	}
+
+	public final int get_channels() {
+		return this.channels;
+	}
+
+	/** @return the channel mode: 0 stereo, 1 joint stereo, 2 dual channel, 3 mono */
+	public final int get_mode() {
+		return this.mode;
+	}
+
+	/** @return samples per channel of a frame: 384, 576 or 1152 */
+	public final int get_samples_per_frame() {
+		return this.samples_per_frame;
+	}
+
+	/** @return number of the audio frames, without the Xing/Info frame, 0 if not known */
+	public final long get_frame_count() {
+		return this.frames;
+	}
+
+	/** @return the size of the audio frames, bytes */
+	public final long get_audio_bytes() {
+		return this.bytes;
+	}
+
+	/** @return true if the frame count is exact, false if it is estimated */
+	public final boolean is_exact() {
+		return this.is_exact;
+	}
+
+	/** @return true if the stream has a Xing or VBRI tag */
+	public final boolean is_vbr() {
+		return this.is_vbr;
+	}
+
+	/** @return true if the stream has a LAME tag */
+	public final boolean has_lame_tag() {
+		return this.has_lame_tag;
+	}
+
+	/** @return the encoder delay of the LAME tag, -1 if not present */
+	public final int get_enc_delay() {
+		return this.enc_delay;
+	}
+
+	/** @return the encoder padding of the LAME tag, -1 if not present */
+	public final int get_enc_padding() {
+		return this.enc_padding;
+	}
+
+	/** @return samples per channel, which the decoder returns */
+	public final long get_sample_count() {
+		int skip_start = DECODER_DELAY_LAYER12;
+		int skip_end = 0;
+		if( this.layer == 3 ) {
+			skip_start = (this.enc_delay > -1 ? this.enc_delay : ENCDELAY) + DECODER_DELAY;
+			if( this.enc_padding > DECODER_DELAY ) {
+				skip_end = this.enc_padding - DECODER_DELAY;
+			}
+		}
+		final long samples = this.frames * this.samples_per_frame - skip_start - skip_end;
+		return samples > 0 ? samples : 0;
+	}
+
+	/** @return the duration, microseconds */
+	public final long get_duration() {
+		return get_sample_count() * 1000000L / this.sample_rate;
+	}
+
+	/** @return the average bitrate, bits per second */
+	public final int get_bitrate() {
+		if( this.frames <= 0 ) {
+			return 0;
+		}
+		return (int)(this.bytes * 8L * this.sample_rate / (this.frames * this.samples_per_frame));
+	}
+
+	/** java: the sequential reader of the stream, keeps a window of the stream in the memory */
+	private static final class Jwindow {
+		private final InputStream is;
+		private final byte buf[] = new byte[WINDOW_SIZE];
+		/** stream position of buf[0] */
+		private long start = 0;
+		private int limit = 0;
+		private boolean is_eof = false;
+		//
+		private Jwindow(final InputStream is) {
+			this.is = is;
+		}
+		/**
+		 * Moves the window forward, the stream before the position is dropped.
+		 * @return false if the stream has less than count bytes from the position
+		 */
+		private final boolean fill(final long pos, final int count) throws IOException {
+			final long end = this.start + this.limit;
+			if( pos >= this.start && pos + count <= end ) {
+				return true;
+			}
+			if( pos < this.start || this.is_eof ) {
+				return false;
+			}
+			if( pos < end ) {
+				final int keep = (int)(end - pos);
+				System.arraycopy( this.buf, this.limit - keep, this.buf, 0, keep );
+				this.limit = keep;
+			} else {
+				long skip = pos - end;
+				while( skip > 0 && ! this.is_eof ) {
+					final long n = this.is.skip( skip );
+					if( n > 0 ) {
+						skip -= n;
+					} else if( this.is.read() < 0 ) {
+						this.is_eof = true;
+					} else {
+						skip--;
+					}
+				}
+				this.limit = 0;
+			}
+			this.start = pos;
+			while( this.limit < this.buf.length && ! this.is_eof ) {
+				final int n = this.is.read( this.buf, this.limit, this.buf.length - this.limit );
+				if( n < 0 ) {
+					this.is_eof = true;
+				} else {
+					this.limit += n;
+				}
+			}
+			return pos >= this.start && pos + count <= this.start + this.limit;
+		}
+		/** @return the byte, -1 after the end */
+		private final int get(final long pos) throws IOException {
+			if( ! fill( pos, 1 ) ) {
+				return -1;
+			}
+			return (int)this.buf[(int)(pos - this.start)] & 0xff;
+		}
+		/** @return the big endian int, -1 after the end */
+		private final int get_int(final long pos) throws IOException {
+			if( ! fill( pos, 4 ) ) {
+				return -1;
+			}
+			final byte b[] = this.buf;// java
+			final int i = (int)(pos - this.start);
+			return (b[i] << 24) | ((b[i + 1] & 0xff) << 16) | ((b[i + 2] & 0xff) << 8) | (b[i + 3] & 0xff);
+		}
+		/** @return true if the stream has no bytes from the position */
+		private final boolean is_end(final long pos) throws IOException {
+			return ! fill( pos, 1 );
+		}
+	}
+
+	/**
+	 * Reads the stream properties.
+	 * @param is the stream, it is read until the first audio frame, or until the end if scan is set
+	 * @param stream_size the size of the stream, -1 if not known
+	 * @param scan true to count the frames by all frame headers, if the stream has no frame count in a tag
+	 * @return the properties, null if this is not a mpeg audio stream
+	 */
+	public static final Jstream_probe probe(final InputStream is, final long stream_size, final boolean scan) throws IOException {
+		final Jwindow w = new Jwindow( is );
+		long pos = 0;
+		/* other formats, which can have valid headers in the data, see Jmpg123.open */
+		final int magic = w.get_int( pos );
+		if( magic == 0x52494646 || magic == 0x2e736e64 || magic == 0x464f524d || magic == 0x4f676753
+				|| (magic | 0x20202020) == 0x666c6163 || ((magic >>> 8) | 0x202020) == 0x6d6163 ) {
+			return null;// RIFF, AU, AIFF, Ogg, FLAC, APE
+		}
+		/* ID3v2 tags */
+		while( w.get( pos ) == 'I' && w.get( pos + 1 ) == 'D' && w.get( pos + 2 ) == '3' ) {
+			final int flags = w.get( pos + 5 );
+			final int len = ((w.get( pos + 6 ) & 127) << 21) | ((w.get( pos + 7 ) & 127) << 14)
+					| ((w.get( pos + 8 ) & 127) << 7) | (w.get( pos + 9 ) & 127);
+			pos += 10 + len + ((flags & 0x10) != 0 ? 10 : 0);
+		}
+		/* the first frame, followed by a valid header */
+		final Jframe fr = new Jframe();
+		final long end = pos + WINDOW_SIZE - XING_HEADER_SIZE;
+		int head;
+		/* the size of a free format frame without the padding, 0 if the bitrate is not free */
+		int free_size = 0;
+		for( ; ; pos++ ) {
+			if( pos >= end || w.is_end( pos ) ) {
+				return null;
+			}
+			/* the next header must be in the window */
+			w.fill( pos, MAX_FRAME_SIZE + 4 );
+			head = w.get_int( pos );
+			if( Jframe_index.is_header( head ) ) {
+				fr.decode_header( null, head );
+				final long next = pos + fr.framesize + 4;
+				final int h = w.get_int( next );
+				if( (Jframe_index.is_header( h ) && Jframe_index.is_same( h, head )) || (w.is_end( next ) && ! w.is_end( next - 1 )) ) {
+					break;
+				}
+			} else if( is_free_header( head ) ) {
+				free_size = free_format_size( w, pos, head );
+				if( free_size > 0 ) {
+					break;
+				}
+			}
+		}
+		fr.decode_header( null, head );
+		final Jstream_probe p = new Jstream_probe();
+		p.layer = fr.lay;
+		p.version = fr.mpeg25 ? 25 : fr.lsf + 1;
+		p.sample_rate = Jmpstr_tag.freqs[fr.sampling_frequency];
+		p.channels = fr.stereo;
+		p.mode = fr.mode;
+		p.samples_per_frame = fr.lay == 1 ? 384 : (fr.lay == 2 || fr.lsf == 0 ? 1152 : 576);
+		final int size = frame_size( fr, free_size );
+
+		/* Xing/Info tag */
+		final byte xing[] = new byte[XING_HEADER_SIZE];
+		w.fill( pos, XING_HEADER_SIZE );
+		for( int i = 0; i < XING_HEADER_SIZE; i++ ) {
+			final int b = w.get( pos + i );
+			xing[i] = (byte)(b >= 0 ? b : 0);
+		}
+		final JVBRTAGDATA tag = new JVBRTAGDATA();
+		if( JVbrTag.GetVbrTag( tag, xing ) ) {
+			final int tag_offset = (fr.lsf == 0 ? (fr.stereo == 1 ? 17 : 32) : (fr.stereo == 1 ? 9 : 17)) + 4;
+			p.is_vbr = xing[tag_offset] == 'X';
+			int ext = tag_offset + 8;
+			ext += (tag.flags & 0x1) != 0 ? 4 : 0;
+			ext += (tag.flags & JVbrTag.BYTES_FLAG) != 0 ? 4 : 0;
+			ext += (tag.flags & JVbrTag.TOC_FLAG) != 0 ? JVbrTag.NUMTOCENTRIES : 0;
+			ext += (tag.flags & 0x8) != 0 ? 4 : 0;
+			p.has_lame_tag = ext + 4 <= size && xing[ext] == 'L' && xing[ext + 1] == 'A' && xing[ext + 2] == 'M' && xing[ext + 3] == 'E';
+			/* as the decoder uses them */
+			p.enc_delay = tag.enc_delay;
+			p.enc_padding = tag.enc_padding;
+			if( (tag.flags & 0x1) != 0 && tag.frames > 0 ) {
+				p.frames = tag.frames;
+				p.is_exact = true;
+			}
+			if( (tag.flags & JVbrTag.BYTES_FLAG) != 0 && tag.bytes > size ) {
+				p.bytes = tag.bytes - size;
+			}
+			pos += size;
+		} else if( xing[VBRI_OFFSET] == 'V' && xing[VBRI_OFFSET + 1] == 'B' && xing[VBRI_OFFSET + 2] == 'R' && xing[VBRI_OFFSET + 3] == 'I' ) {
+			/* VBRI tag: version, delay, quality, bytes, frames */
+			p.is_vbr = true;
+			p.bytes = get_int( xing, VBRI_OFFSET + 10 ) & 0xffffffffL;
+			p.frames = get_int( xing, VBRI_OFFSET + 14 ) & 0xffffffffL;
+			p.is_exact = p.frames > 0;
+		}
+
+		if( ! p.is_exact && scan ) {
+			/* all frame headers */
+			long frames = 0;
+			long bytes = 0;
+			final long first = pos;
+			while( true ) {
+				final int h = w.get_int( pos );
+				if( h == -1 && w.is_end( pos + 3 ) ) {
+					break;
+				}
+				if( (free_size == 0 ? Jframe_index.is_header( h ) : is_free_header( h )) && Jframe_index.is_same( h, head ) ) {
+					fr.decode_header( null, h );
+					final int frame_bytes = frame_size( fr, free_size );
+					frames++;
+					bytes += frame_bytes;
+					pos += frame_bytes;
+					continue;
+				}
+				/* ID3v1 tag, APE tag or junk */
+				if( (h >>> 8) == 0x544147 || h == 0x41504554 || pos - first - bytes >= Character.MAX_VALUE ) {
+					break;
+				}
+				pos++;
+			}
+			if( frames > 0 ) {
+				p.frames = frames;
+				p.bytes = bytes;
+				p.is_exact = true;
+			}
+		}
+		if( ! p.is_exact ) {
+			/* CBR: the stream size and the bitrate of the first frame */
+			if( p.bytes <= 0 ) {
+				p.bytes = stream_size > pos ? stream_size - pos : 0;
+			}
+			if( free_size > 0 ) {
+				/* free format: the size of the first frame, the padding is not known */
+				p.frames = (long)((double)p.bytes / free_size + .5);
+			} else {
+				final int bitrate = Jmpstr_tag.tabsel_123[fr.lsf][fr.lay - 1][fr.bitrate_index];
+				p.frames = (long)((double)p.bytes * p.sample_rate / (bitrate * 125. * p.samples_per_frame) + .5);
+			}
+		} else if( p.bytes <= 0 && stream_size > pos ) {
+			/* the frame count only */
+			p.bytes = stream_size - pos;
+		}
+		return p;
+	}
+
+	/**
+	 * Reads the stream properties. The position of the channel is not changed.
+	 * @param channel the file, the stream starts at 0
+	 * @param scan true to count the frames by all frame headers, if the stream has no frame count in a tag
+	 * @return the properties, null if this is not a mpeg audio stream
+	 */
+	public static final Jstream_probe probe(final FileChannel channel, final boolean scan) throws IOException {
+		final long position = channel.position();
+		try {
+			channel.position( 0 );
+			return probe( new BufferedInputStream( Channels.newInputStream( channel ), WINDOW_SIZE ), channel.size(), scan );
+		} finally {
+			channel.position( position );
+		}
+	}
+
+	/** @return true if the header is valid and has the free bitrate, see Jframe_index.is_header */
+	private static final boolean is_free_header(final int head) {
+		if( head == -1 || ! Jmpstr_tag.head_check( head, 0 ) || ((head >>> 12) & 0xf) != 0 ) {
+			return false;
+		}
+		return ! ((head & (1 << 20)) == 0 && ((head >>> 17) & 3) != 1);
+	}
+
+	/**
+	 * Measures a free format frame by the next header of the stream, as the decoder does.
+	 * @return the size of the frame without the padding, with the header, 0 if the next header is not found
+	 */
+	private static final int free_format_size(final Jwindow w, final long pos, final int head) throws IOException {
+		w.fill( pos, MAX_FREE_FRAME_SIZE + 4 );
+		final int padding = ((head >>> 9) & 1) != 0 ? (((head >>> 17) & 3) == 3 ? 4 : 1) : 0;
+		for( int size = 4 + padding + 1; size <= MAX_FREE_FRAME_SIZE; size++ ) {
+			final int h = w.get_int( pos + size );
+			if( is_free_header( h ) && Jframe_index.is_same( h, head ) ) {
+				return size - padding;
+			}
+		}
+		return 0;
+	}
+
+	/** @return the size of the frame, decoded by fr, with the header. free_size: see free_format_size */
+	private static final int frame_size(final Jframe fr, final int free_size) {
+		if( fr.bitrate_index != 0 ) {
+			return fr.framesize + 4;
+		}
+		return free_size + (fr.padding != 0 ? (fr.lay == 1 ? 4 : 1) : 0);
+	}
+
+	private static final int get_int(final byte[] b, final int i) {
+		return (b[i] << 24) | ((b[i + 1] & 0xff) << 16) | ((b[i + 2] & 0xff) << 8) | (b[i + 3] & 0xff);
+	}
+}
@@ -8,10 +8,13 @@ import javax.sound.sampled.AudioFormat.Encoding;
 import javax.sound.sampled.AudioInputStream;
 import javax.sound.sampled.AudioSystem;
 
+import libmpghip.Jdecoder_stats;
 import libmpghip.Jmpg123;
 
 public final class Mp3_DecodedAudioInputStream extends AudioInputStream {
 	private Jmpg123 mDecoder;
+	/** the counters are kept after close */
+	private Jdecoder_stats mStats;
 
 	//
 	public Mp3_DecodedAudioInputStream(final InputStream stream, final AudioFormat format, final long length) {
@@ -22,6 +25,7 @@ public final class Mp3_DecodedAudioInputStream extends AudioInputStream {
 					format.isBigEndian() );
 			mDecoder.InitMP3();
 			if( mDecoder.open( stream ) >= 0 ) {
+				mStats = mDecoder.get_stats();
 				return;
 			}
 		} catch(final IllegalArgumentException e) {
@@ -37,6 +41,11 @@ public final class Mp3_DecodedAudioInputStream extends AudioInputStream {
 		mDecoder = null;
 		super.close();
 	}
+	/** @return the health and throughput counters of the decoder, null if the stream can't be decoded.
+	 * The decoding time is not measured, see Jmpstr_tag.set_stats_timing */
+	public Jdecoder_stats getDecoderStats() {
+		return mStats;
+	}
 	@Override
 	public boolean markSupported() {
 		return false;
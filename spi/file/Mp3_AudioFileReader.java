@@ -5,7 +5,9 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.RandomAccessFile;
 import java.net.URL;
+import java.util.HashMap;
 
 import javax.sound.sampled.AudioFileFormat;
 import javax.sound.sampled.AudioFormat;
@@ -14,29 +16,70 @@ import javax.sound.sampled.AudioSystem;
 import javax.sound.sampled.UnsupportedAudioFileException;
 import javax.sound.sampled.spi.AudioFileReader;
 
-import libmpghip.Jmpg123;
+import libmpghip.Jstream_probe;
 import spi.convert.Mp3_FormatConversionProvider;
 
+/**
+ * The stream is identified by the frame headers and the Xing/Info/VBRI tags, without the decoding.
+ * The file format has the properties:<br>
+ * duration (Long, microseconds), bitrate (Integer, bits per second), vbr (Boolean),<br>
+ * mp3.version.mpeg (String: 1, 2, 2.5), mp3.version.layer (String: 1, 2, 3),
+ * mp3.mode (Integer: 0 stereo, 1 joint stereo, 2 dual channel, 3 mono),
+ * mp3.frequency.hz (Integer), mp3.channels (Integer),<br>
+ * mp3.length.frames (Long), mp3.length.samples (Long, samples per channel after the encoder delay and padding),
+ * mp3.length.exact (Boolean: false if the length is estimated by the file size and the bitrate),<br>
+ * mp3.lametag (Boolean), mp3.enc_delay, mp3.enc_padding (Integer, if the stream has a Xing/Info tag).<br>
+ * The length properties are not set for a stream of unknown size without a tag.
+ * The frame length is the number of the samples, if it is exact.
+ */
 public class Mp3_AudioFileReader extends AudioFileReader {
 	// there is real problem: decoder must process all metadata block. this block can have huge size.
 	private static final int MAX_BUFFER = 65536 * 8;
 
-	@Override
-	public AudioFileFormat getAudioFileFormat(final InputStream stream) throws UnsupportedAudioFileException, IOException {
-		final Jmpg123 decoder = new Jmpg123( 16, true, false );
-		decoder.InitMP3();
-		if( decoder.open( stream ) < 0 ) {
-			decoder.ExitMP3();
+	private static AudioFileFormat getAudioFileFormat(final Jstream_probe probe) throws UnsupportedAudioFileException {
+		if( probe == null ) {
 			throw new UnsupportedAudioFileException();
 		}
-		final int rate = decoder.getSampleRate();
+		final int rate = probe.get_sample_rate();
+		final HashMap<String, Object> properties = new HashMap<String, Object>();
+		final int version = probe.get_version();
+		properties.put( "mp3.version.mpeg", version == 25 ? "2.5" : Integer.toString( version ) );
+		properties.put( "mp3.version.layer", Integer.toString( probe.get_layer() ) );
+		properties.put( "mp3.mode", Integer.valueOf( probe.get_mode() ) );
+		properties.put( "mp3.frequency.hz", Integer.valueOf( rate ) );
+		properties.put( "mp3.channels", Integer.valueOf( probe.get_channels() ) );
+		properties.put( "mp3.lametag", Boolean.valueOf( probe.has_lame_tag() ) );
+		properties.put( "vbr", Boolean.valueOf( probe.is_vbr() ) );
+		if( probe.get_enc_delay() >= 0 ) {
+			properties.put( "mp3.enc_delay", Integer.valueOf( probe.get_enc_delay() ) );
+		}
+		if( probe.get_enc_padding() >= 0 ) {
+			properties.put( "mp3.enc_padding", Integer.valueOf( probe.get_enc_padding() ) );
+		}
+		int length = AudioSystem.NOT_SPECIFIED;
+		if( probe.get_frame_count() > 0 ) {
+			final long samples = probe.get_sample_count();
+			properties.put( "duration", Long.valueOf( probe.get_duration() ) );
+			properties.put( "bitrate", Integer.valueOf( probe.get_bitrate() ) );
+			properties.put( "mp3.length.frames", Long.valueOf( probe.get_frame_count() ) );
+			properties.put( "mp3.length.samples", Long.valueOf( samples ) );
+			properties.put( "mp3.length.exact", Boolean.valueOf( probe.is_exact() ) );
+			if( probe.is_exact() && samples <= Integer.MAX_VALUE ) {
+				length = (int)samples;
+			}
+		}
 		final AudioFormat af = new AudioFormat( Mp3_FormatConversionProvider.ENCODING,
-				rate, AudioSystem.NOT_SPECIFIED, decoder.getChannelCount(), 1, rate, false );
+				rate, AudioSystem.NOT_SPECIFIED, probe.get_channels(), 1, rate, false );
 		final AudioFileFormat aff = new AudioFileFormat(
-				new AudioFileFormat.Type("MPEG", ""), af, AudioSystem.NOT_SPECIFIED );
+				new AudioFileFormat.Type("MPEG", ""), af, length, properties );
 		return aff;
 	}
 
+	@Override
+	public AudioFileFormat getAudioFileFormat(final InputStream stream) throws UnsupportedAudioFileException, IOException {
+		return getAudioFileFormat( Jstream_probe.probe( stream, -1, false ) );
+	}
+
 	@Override
 	public AudioFileFormat getAudioFileFormat(final URL url)
 			throws UnsupportedAudioFileException, IOException {
@@ -60,17 +103,18 @@ public class Mp3_AudioFileReader extends AudioFileReader {
 	public AudioFileFormat getAudioFileFormat(final File file)
 			throws UnsupportedAudioFileException, IOException {
 
-		InputStream is = null;
+		RandomAccessFile raf = null;
 		try {
-			is = new BufferedInputStream( new FileInputStream( file ), MAX_BUFFER );
-			return getAudioFileFormat( is );
+			raf = new RandomAccessFile( file, "r" );
+			// the file size gives the length of a stream without a tag
+			return getAudioFileFormat( Jstream_probe.probe( raf.getChannel(), false ) );
 		} catch(final UnsupportedAudioFileException e) {
 			throw e;
 		} catch(final IOException e) {
 			throw e;
 		} finally {
-			if( is != null ) {
-				try{ is.close(); } catch(final IOException e) {}
+			if( raf != null ) {
+				try{ raf.close(); } catch(final IOException e) {}
 			}
 		}
 	}
@@ -85,7 +129,8 @@ public class Mp3_AudioFileReader extends AudioFileReader {
 			stream.mark( MAX_BUFFER );
 			final AudioFileFormat af = getAudioFileFormat( stream );
 			stream.reset();// to start read header again
-			return new AudioInputStream( stream, af.getFormat(), af.getFrameLength() );
+			// the frame length of the file format is in samples, the stream length is in bytes of the encoded stream
+			return new AudioInputStream( stream, af.getFormat(), AudioSystem.NOT_SPECIFIED );
 		} catch(final UnsupportedAudioFileException e) {
 			stream.reset();
 			throw e;
@@ -1,17 +1,19 @@
 package spi.file;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
 
 import javax.sound.sampled.AudioFileFormat.Type;
 import javax.sound.sampled.AudioFormat;
 import javax.sound.sampled.AudioInputStream;
 import javax.sound.sampled.spi.AudioFileWriter;
 
+import libmp3lame.Jchannel_output;
 import libmp3lame.Jid3tag;
 import libmp3lame.Jlame;
 import libmp3lame.Jlame_global_flags;
@@ -78,13 +80,8 @@ public class Mp3_AudioFileWriter extends AudioFileWriter {
 		//gfp.lame_set_free_format( true );
 	}
 
-	@Override
-	public int write(final AudioInputStream stream, final Type fileType, final OutputStream out) throws IOException {
-		if( ! fileType.equals( MPEG[0] ) ) {
-			throw new IllegalArgumentException();
-		}
-		final AudioFormat af = stream.getFormat();
-		final int channels = af.getChannels();
+	/** @return the encoder, lame_init_params is not called */
+	private static final Jlame_global_flags create_encoder(final AudioFormat af, final Type fileType) {
 		int bitrate_variant = DEFAULT_BITRATE;
 		float param = DEFAULT_BITRATE_PARAM;
 		if( fileType instanceof EncoderFileFormatType ) {// user input
@@ -104,47 +101,57 @@ public class Mp3_AudioFileWriter extends AudioFileWriter {
 		final Jlame_global_flags gf = Jlame.lame_init();
 		Jid3tag.id3tag_init( gf );
 		// set encoding parameters
-		gf.lame_set_num_channels( channels );
+		gf.lame_set_num_channels( af.getChannels() );
 		gf.lame_set_out_samplerate( (int)af.getSampleRate() );
 		setEncodingParameters( gf, bitrate_variant, param );
 		// end set encoding parameters
 		gf.lame_set_write_id3tag_automatic( false );
-		int ret = Jlame.lame_init_params( gf );
-		if( ret < 0 ) {
-			return ret;
+		return gf;
+	}
+
+	@Override
+	public int write(final AudioInputStream stream, final Type fileType, final OutputStream out) throws IOException {
+		if( ! fileType.equals( MPEG[0] ) ) {
+			throw new IllegalArgumentException();
 		}
-		//
-		final byte mp3buffer[] = new byte[LAME_BUF_SAMPLE_SIZE * 2 * 2];// 2 ch, 2 bytes per sample
-		final short pcm[] = new short[2 * LAME_BUF_SAMPLE_SIZE];// 2 ch
-		int written = 0;
-		int iread;
-		while( (iread = stream.read( mp3buffer )) > 0 ) {
-			ByteBuffer.wrap( mp3buffer, 0, iread ).order( ByteOrder.LITTLE_ENDIAN ).asShortBuffer().get( pcm, 0, iread >> 1 );
-			ret = Jlame.lame_encode_buffer_interleaved( gf, pcm, (iread / channels) >> 1, mp3buffer, 0, mp3buffer.length );
-
-			// was our output buffer big enough?
+		final AudioFormat af = stream.getFormat();
+		final int channels = af.getChannels();
+		final Jlame_global_flags gf = create_encoder( af, fileType );
+		try {
+			int ret = Jlame.lame_init_params( gf );
 			if( ret < 0 ) {
 				return ret;
 			}
-			out.write( mp3buffer, 0, ret );
-			written += ret;
-		}
+			//
+			final byte mp3buffer[] = new byte[LAME_BUF_SAMPLE_SIZE * 2 * 2];// 2 ch, 2 bytes per sample
+			final short pcm[] = new short[2 * LAME_BUF_SAMPLE_SIZE];// 2 ch
+			int written = 0;
+			int iread;
+			while( (iread = stream.read( mp3buffer )) > 0 ) {
+				ByteBuffer.wrap( mp3buffer, 0, iread ).order( ByteOrder.LITTLE_ENDIAN ).asShortBuffer().get( pcm, 0, iread >> 1 );
+				ret = Jlame.lame_encode_buffer_interleaved( gf, pcm, (iread / channels) >> 1, mp3buffer, 0, mp3buffer.length );
 
-		ret = Jlame.lame_encode_flush( gf, mp3buffer, mp3buffer.length );
+				// was our output buffer big enough?
+				if( ret < 0 ) {
+					return ret;
+				}
+				out.write( mp3buffer, 0, ret );
+				written += ret;
+			}
 
-		if( ret < 0 ) {
-			return ret;
-		}
+			ret = Jlame.lame_encode_flush( gf, mp3buffer, mp3buffer.length );
+
+			if( ret < 0 ) {
+				return ret;
+			}
 
-		out.write( mp3buffer, 0, ret );
-		written += ret;
-		ret = write_id3v1_tag( gf, out );
-		if( ret != 0 ) {
-			return -1;
+			out.write( mp3buffer, 0, ret );
+			written += ret;
+			written += write_id3v1_tag( gf, out );
+			return written;
+		} finally {
+			Jlame.lame_close( gf );
 		}
-		written += ret;
-		Jlame.lame_close( gf );
-		return written;
 	}
 
 	@Override
@@ -152,10 +159,12 @@ public class Mp3_AudioFileWriter extends AudioFileWriter {
 		if( ! fileType.equals( MPEG[0] ) ) {
 			throw new IllegalArgumentException();
 		}
-		FileOutputStream outs = null;
+		RandomAccessFile outs = null;
 		try {
-			outs = new FileOutputStream( file );
-			return write( stream, fileType, outs );
+			/* java: read and write access to update the LAME tag */
+			outs = new RandomAccessFile( file, "rw" );
+			outs.setLength( 0 );
+			return write( stream, fileType, outs.getChannel() );
 		} catch(final IOException e) {
 			throw e;
 		} finally {
@@ -164,4 +173,57 @@ public class Mp3_AudioFileWriter extends AudioFileWriter {
 			}
 		}
 	}
+
+	/**
+	 * java: the frames are written to the file without the intermediate byte array, see Jchannel_output.
+	 * The Xing/LAME frame, reserved by lame_init_params, is filled in after the flush.
+	 */
+	private static final int write(final AudioInputStream stream, final Type fileType, final FileChannel fc) throws IOException {
+		final AudioFormat af = stream.getFormat();
+		final int channels = af.getChannels();
+		final Jlame_global_flags gf = create_encoder( af, fileType );
+		try {
+			int ret = Jlame.lame_init_params( gf );
+			if( ret < 0 ) {
+				return ret;
+			}
+			//
+			final Jchannel_output out = new Jchannel_output( gf, fc, LAME_BUF_SAMPLE_SIZE, 4, true );
+			final byte buffer[] = new byte[LAME_BUF_SAMPLE_SIZE * 2 * 2];// 2 ch, 2 bytes per sample
+			final short pcm[] = new short[2 * LAME_BUF_SAMPLE_SIZE];// 2 ch
+			int iread;
+			while( (iread = stream.read( buffer )) > 0 ) {
+				ByteBuffer.wrap( buffer, 0, iread ).order( ByteOrder.LITTLE_ENDIAN ).asShortBuffer().get( pcm, 0, iread >> 1 );
+				ret = out.encode_buffer_interleaved( pcm, (iread / channels) >> 1 );
+				if( ret < 0 ) {
+					return ret;
+				}
+			}
+
+			ret = out.encode_flush();
+
+			if( ret < 0 ) {
+				return ret;
+			}
+			/* the Xing/LAME frame is written in place, the size is not changed */
+			ret = Jlame.lame_mp3_tags_fid( gf, fc );
+			if( ret < 0 ) {
+				return ret;
+			}
+
+			int written = (int)out.get_written();
+			final byte mp3buffer[] = new byte[128];
+			ret = Jid3tag.lame_get_id3v1_tag( gf, mp3buffer, mp3buffer.length );
+			if( ret > 0 && ret <= mp3buffer.length ) {
+				final ByteBuffer b = ByteBuffer.wrap( mp3buffer, 0, ret );
+				while( b.hasRemaining() ) {
+					fc.write( b );
+				}
+				written += ret;
+			}
+			return written;
+		} finally {
+			Jlame.lame_close( gf );
+		}
+	}
 }
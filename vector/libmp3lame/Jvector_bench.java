@@ -0,0 +1,279 @@
+package libmp3lame;
+
+import java.util.Random;
+
+import benchmark.Jbenchmark;
+import benchmark.Jencoder_bench;
+import benchmark.Jharness;
+import benchmark.Jsignal;
+
+/**
+ * Benchmarks of the vector kernels against the scalar kernels, see Jvector_kernels.
+ *
+ * Every kernel and every stage, which uses the kernels, is measured with the scalar kernels
+ * and with the vector kernels, the speedup is the ratio of the times.
+ * The stages use an encoder, which has encoded two seconds of the test signal.
+ *
+ * Usage: java --add-modules jdk.incubator.vector libmp3lame.Jvector_bench [options of Jharness]
+ * The class path needs the libraries, /benchmark and /vector.
+ */
+public final class Jvector_bench {
+	private static final int SETTINGS[] = { 44100, Jlame.JOINT_STEREO, Jlame.vbr_off, 5, 128 };
+	private static final String KERNELS[] = {
+			"window_subband", "mdct_bands long", "mdct_bands short", "fht 1024", "fht 256",
+			"mdct_sub48", "fft_long", "fft_short",
+			"quantize_lines_xrpow 576", "init_xrpow_core 576", "calc_noise_core 576", "vec_max 24", "calc_sfb_noise_x34 24",
+			"attack_hpf 576", "max_abs 64", "calc_energy long", "calc_energy short", "spread_energy long", "spread_energy short"
+		};
+	private static final int PRIME_SECONDS = 2;
+
+	private static final int bits(final float v) {
+		return Float.floatToRawIntBits( v );
+	}
+
+	private static final float[] random(final Random r, final int n) {
+		final float a[] = new float[n];
+		for( int i = 0; i < n; i++ ) {
+			a[i] = (r.nextFloat() - 0.5f) * 65536f;
+		}
+		return a;
+	}
+
+	/** @return the random values 0 ... max */
+	private static final float[] random_abs(final Random r, final int n, final float max) {
+		final float a[] = new float[n];
+		for( int i = 0; i < n; i++ ) {
+			a[i] = r.nextFloat() * max;
+		}
+		return a;
+	}
+
+	/** @return the benchmark of the kernel with the kernels k */
+	private static final Jbenchmark create(final int kernel, final String name, final Jencoder_kernels k, final Jlame_internal_flags gfc) {
+		final Random r = new Random( 1 );
+		switch( kernel ) {
+		case 0:
+			return new Jbenchmark( name ) {
+				private final float x1[] = random( r, 1200 );
+				private final float a[] = new float[Jencoder.SBLIMIT];
+				@Override
+				public int run() {
+					k.window_subband( this.x1, 286, this.a );
+					return bits( this.a[1] );
+				}
+			};
+		case 1:
+		case 2:
+			return new Jbenchmark( name ) {
+				private final float band0[][] = new float[18][];
+				private final float band1[][] = new float[18][];
+				private final float band1_init[][] = new float[18][];
+				private final Jgr_info gi = new Jgr_info();
+				{
+					for( int i = 0; i < 18; i++ ) {
+						this.band0[i] = random( r, Jencoder.SBLIMIT );
+						this.band1_init[i] = random( r, Jencoder.SBLIMIT );
+						this.band1[i] = this.band1_init[i].clone();
+					}
+					this.gi.block_type = kernel == 1 ? Jencoder.NORM_TYPE : Jencoder.SHORT_TYPE;
+				}
+				/** the low-pass filter scales the current samples */
+				@Override
+				public boolean reset() {
+					for( int i = 0; i < 18; i++ ) {
+						System.arraycopy( this.band1_init[i], 0, this.band1[i], 0, Jencoder.SBLIMIT );
+					}
+					return true;
+				}
+				@Override
+				public int run() {
+					k.mdct_bands( gfc, this.gi, this.band0, this.band1 );
+					return bits( this.gi.xr[1] );
+				}
+			};
+		case 3:
+		case 4:
+			return new Jbenchmark( name ) {
+				private final int n = kernel == 3 ? Jencoder.BLKSIZE : Jencoder.BLKSIZE_s;
+				private final float init[] = random( r, this.n );
+				private final float x[] = new float[this.n];
+				@Override
+				public boolean reset() {
+					System.arraycopy( this.init, 0, this.x, 0, this.n );
+					return true;
+				}
+				@Override
+				public int run() {
+					k.fht( this.x, 0, this.n / 2 );
+					return bits( this.x[1] );
+				}
+			};
+		}
+		final float inbuf[][] = new float[][] { gfc.sv_enc.mfbuf[0], gfc.sv_enc.mfbuf[1] };
+		final int bufp = 576 - Jencoder.FFTOFFSET;
+		switch( kernel ) {
+		case 5:
+			return new Jbenchmark( name ) {
+				@Override
+				public int run() {
+					Jencoder_kernels.kernels = k;
+					Jnewmdct.mdct_sub48( gfc, inbuf[0], inbuf[1], gfc.frame_data.tt );
+					return bits( gfc.frame_data.tt[0][0].xr[1] );
+				}
+			};
+		case 6:
+			return new Jbenchmark( name ) {
+				private final float x[] = new float[Jencoder.BLKSIZE];
+				@Override
+				public int run() {
+					Jencoder_kernels.kernels = k;
+					Jfft.fft_long( gfc, this.x, 0, inbuf, bufp );
+					return bits( this.x[1] );
+				}
+			};
+		case 7:
+			return new Jbenchmark( name ) {
+				private final float x[][] = new float[3][Jencoder.BLKSIZE_s];
+				@Override
+				public int run() {
+					Jencoder_kernels.kernels = k;
+					Jfft.fft_short( gfc, this.x, 0, inbuf, bufp );
+					return bits( this.x[0][1] );
+				}
+			};
+		case 8:
+			return new Jbenchmark( name ) {
+				private final float xp[] = random_abs( r, 576, 1000f );
+				private final int pi[] = new int[576];
+				@Override
+				public int run() {
+					k.quantize_lines_xrpow( 576, 0.7f, this.xp, 0, this.pi, 0 );
+					return this.pi[1];
+				}
+			};
+		case 9:
+			return new Jbenchmark( name ) {
+				private final Jgr_info gi = new Jgr_info();
+				private final float xrpow[] = new float[576];
+				{
+					System.arraycopy( random( r, 576 ), 0, this.gi.xr, 0, 576 );
+				}
+				@Override
+				public int run() {
+					this.gi.xrpow_max = 0;
+					return bits( k.init_xrpow_core( this.gi, this.xrpow, 575 ) );
+				}
+			};
+		case 10:
+			return new Jbenchmark( name ) {
+				private final Jgr_info gi = new Jgr_info();
+				{
+					System.arraycopy( random( r, 576 ), 0, this.gi.xr, 0, 576 );
+					for( int i = 0; i < 576; i++ ) {
+						this.gi.l3_enc[i] = r.nextInt( 16 );
+					}
+					this.gi.big_values = this.gi.count1 = 576;
+				}
+				@Override
+				public int run() {
+					return bits( k.calc_noise_core( this.gi, 0, 288, 1.5f ) );
+				}
+			};
+		case 11:
+		case 12:
+			return new Jbenchmark( name ) {
+				private final float xr[] = random( r, 576 );
+				private final float xr34[] = random_abs( r, 576, 1000f );
+				private final float x[] = new float[16];
+				private final int l3[] = new int[16];
+				private int offset = 0;
+				@Override
+				public int run() {
+					this.offset = this.offset < 576 - 48 ? this.offset + 24 : 0;
+					return bits( kernel == 11 ? k.vec_max( this.xr34, this.offset, 24 ) :
+						k.calc_sfb_noise_x34( this.xr, this.offset, this.xr34, this.offset, 24, 200, this.x, this.l3 ) );
+				}
+			};
+		case 13:
+		case 14:
+			return new Jbenchmark( name ) {
+				private final float firbuf[] = random( r, 576 + Jpsymodel.NSFIRLEN + 1 );
+				private final float hpfsmpl[] = new float[576];
+				private int pfi = 0;
+				@Override
+				public int run() {
+					if( kernel == 13 ) {
+						k.attack_hpf( this.firbuf, 0, this.hpfsmpl );
+						return bits( this.hpfsmpl[1] );
+					}
+					this.pfi = this.pfi < 576 - 576 / 9 ? this.pfi + 576 / 9 : 0;
+					return bits( k.max_abs( this.firbuf, this.pfi, 576 / 9, 1f ) );
+				}
+			};
+		case 15:
+		case 16:
+		case 17:
+		case 18:
+			return new Jbenchmark( name ) {
+				private final JPsyConst_CB2SB gd = (kernel & 1) != 0 ? gfc.cd_psy.l : gfc.cd_psy.s;
+				private final float fftenergy[] = random_abs( r, Jencoder.HBLKSIZE, 1e10f );
+				private final float eb[] = new float[Jencoder.CBANDS];
+				private final float max[] = new float[Jencoder.CBANDS];
+				private final float avg[] = new float[Jencoder.CBANDS];
+				private final byte mask_idx[] = new byte[Jencoder.CBANDS + 2];
+				private final float mask_tab[] = new float[Jencoder.CBANDS];
+				private final float ecb[] = new float[Jencoder.CBANDS * Jencoder.CBANDS];
+				{
+					Jpsymodel.calc_energy( this.gd, this.fftenergy, this.eb, this.max, this.avg );
+					for( int b = 0; b < Jencoder.CBANDS; b++ ) {
+						this.mask_idx[b] = (byte)r.nextInt( Jpsymodel.tab.length );
+					}
+				}
+				@Override
+				public int run() {
+					if( kernel < 17 ) {
+						k.calc_energy( this.gd, this.fftenergy, this.eb, this.max, this.avg );
+						return bits( this.eb[1] );
+					}
+					k.spread_energy( this.gd, this.eb, this.mask_idx, this.mask_tab, this.ecb );
+					return bits( this.ecb[1] );
+				}
+			};
+		}
+		return null;
+	}
+
+	/**
+	 * main.
+	 * @param args options of Jharness
+	 */
+	public static final void main(final String[] args) {
+		final Jencoder_kernels scalar = new Jencoder_kernels();
+		if( ! Jencoder_kernels.set_vector( true ) ) {
+			throw new IllegalStateException("the vector kernels are not available, --add-modules jdk.incubator.vector");
+		}
+		final Jencoder_kernels vector = Jencoder_kernels.kernels;
+		final Jlame_global_flags gf = Jencoder_bench.create( SETTINGS );
+		final int n = SETTINGS[0] * PRIME_SECONDS;
+		final short[][] pcm = Jsignal.generate( SETTINGS[0], n );
+		final byte[] mp3buf = new byte[(int)(1.25 * n) + 7200];
+		if( Jlame.lame_encode_buffer( gf, pcm[0], pcm[1], n, mp3buf, 0, mp3buf.length ) < 0 ) {
+			throw new IllegalStateException("lame_encode_buffer failed");
+		}
+
+		final Jharness harness = new Jharness( args );
+		harness.header();
+		final String suffix = " " + Jencoder_bench.name( SETTINGS );
+		for( int kernel = 0; kernel < KERNELS.length; kernel++ ) {
+			final String name = KERNELS[kernel] + suffix;
+			if( harness.matches( name ) ) {
+				final double s = harness.measure( create( kernel, name + " scalar", scalar, gf.internal_flags ) );
+				final double v = harness.measure( create( kernel, name + " vector", vector, gf.internal_flags ) );
+				if( s > 0 && v > 0 ) {
+					System.out.printf("%-64s %11.2fx\n", name + " speedup", s / v );
+				}
+			}
+		}
+		Jencoder_kernels.kernels = scalar;
+	}
+}
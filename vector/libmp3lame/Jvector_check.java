@@ -0,0 +1,382 @@
+package libmp3lame;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import benchmark.Jencoder_bench;
+import benchmark.Jsignal;
+
+/**
+ * Compares the vector kernels with the scalar kernels, see Jvector_kernels.
+ *
+ * Every kernel gets the same random input, the outputs must be the same bit for bit,
+ * the sums of calc_noise_core, init_xrpow_core and calc_energy must be the same within TOLERANCE.
+ * Then the test signal is encoded by the scalar kernels and by the vector kernels with the settings
+ * of the benchmarks: the mp3 streams of the exact vector kernels must be the same,
+ * the sizes of the streams of the vector kernels must be the same within SIZE_TOLERANCE.
+ *
+ * Usage: java --add-modules jdk.incubator.vector libmp3lame.Jvector_check [iterations]
+ * The class path needs the libraries, /benchmark and /vector.
+ */
+public final class Jvector_check {
+	/** sample rate, mode, vbr mode, quality, bitrate (or VBR quality), see Jencoder_bench */
+	private static final int SETTINGS[][] = {
+			{ 44100, Jlame.JOINT_STEREO, Jlame.vbr_off, 5, 128 },
+			{ 44100, Jlame.STEREO, Jlame.vbr_off, 2, 320 },
+			{ 22050, Jlame.JOINT_STEREO, Jlame.vbr_off, 5, 32 },
+			{ 44100, Jlame.JOINT_STEREO, Jlame.vbr_abr, 3, 160 },
+			{ 44100, Jlame.JOINT_STEREO, Jlame.vbr_mtrh, 0, 0 },
+			{ 48000, Jlame.MONO, Jlame.vbr_mtrh, 5, 4 },
+			{ 16000, Jlame.JOINT_STEREO, Jlame.vbr_rh, 2, 6 },
+			{ 8000, Jlame.MONO, Jlame.vbr_off, 7, 8 }
+		};
+	private static final float AMP[] = { 1f, 1f, 1f, 0.5f, 0.999f, 1e-13f, 0f, 0.01f };
+	/** the relative error of the sums, which are added by lanes */
+	private static final double TOLERANCE = 1e-4;
+	private static final double SIZE_TOLERANCE = 0.01;
+	//
+	private final Jencoder_kernels scalar = new Jencoder_kernels();
+	private final Jencoder_kernels vector;
+	private final Jencoder_kernels exact = new Jvector_kernels( true );
+	private final Random random = new Random( 1 );
+	private int failures = 0;
+	//
+	private Jvector_check() {
+		final boolean is_vector = Jencoder_kernels.set_vector( true );
+		this.vector = Jencoder_kernels.kernels;
+		Jencoder_kernels.set_vector( false );
+		if( ! is_vector ) {
+			throw new IllegalStateException("the vector kernels are not available, --add-modules jdk.incubator.vector");
+		}
+	}
+
+	private final float next() {
+		switch( this.random.nextInt( 16 ) ) {
+		case 0: return 0f;
+		case 1: return -0f;
+		case 2: return Float.MIN_VALUE * this.random.nextInt( 1000 );
+		case 3: return (this.random.nextFloat() - 0.5f) * 1e30f;
+		default: return (this.random.nextFloat() - 0.5f) * 65536f;
+		}
+	}
+
+	private final void fill(final float[] a) {
+		for( int i = 0; i < a.length; i++ ) {
+			a[i] = next();
+		}
+	}
+
+	private final void compare(final String name, final float[] expected, final float[] actual) {
+		for( int i = 0; i < expected.length; i++ ) {
+			if( Float.floatToIntBits( expected[i] ) != Float.floatToIntBits( actual[i] ) ) {
+				System.out.printf("%s: [%d] scalar %s, vector %s\n", name, i, expected[i], actual[i] );
+				this.failures++;
+				return;
+			}
+		}
+	}
+
+	private final void compare(final String name, final int[] expected, final int[] actual) {
+		for( int i = 0; i < expected.length; i++ ) {
+			if( expected[i] != actual[i] ) {
+				System.out.printf("%s: [%d] scalar %d, vector %d\n", name, i, expected[i], actual[i] );
+				this.failures++;
+				return;
+			}
+		}
+	}
+
+	private final void compare(final String name, final float expected, final float actual) {
+		if( Float.floatToIntBits( expected ) != Float.floatToIntBits( actual ) ) {
+			System.out.printf("%s: scalar %s, vector %s\n", name, expected, actual );
+			this.failures++;
+		}
+	}
+
+	private final void compare_sum(final String name, final float expected, final float actual) {
+		if( expected != actual && ! (Math.abs( expected - actual ) <= TOLERANCE * Math.abs( expected )) ) {
+			System.out.printf("%s: scalar %s, vector %s\n", name, expected, actual );
+			this.failures++;
+		}
+	}
+
+	/** fills a with the random values 0 ... max */
+	private final void fill_abs(final float[] a, final float max) {
+		for( int i = 0; i < a.length; i++ ) {
+			a[i] = this.random.nextFloat() * max;
+		}
+	}
+
+	private final void window_subband(final int iterations) {
+		final float x1[] = new float[1500];
+		final float a0[] = new float[Jencoder.SBLIMIT];
+		final float a1[] = new float[Jencoder.SBLIMIT];
+		for( int n = 0; n < iterations; n++ ) {
+			fill( x1 );
+			final int xoffset = 286 + this.random.nextInt( 600 );
+			this.scalar.window_subband( x1, xoffset, a0 );
+			this.vector.window_subband( x1, xoffset, a1 );
+			compare("window_subband", a0, a1 );
+		}
+	}
+
+	private final void mdct_bands(final int iterations) {
+		final Jlame_internal_flags gfc = Jencoder_bench.create( SETTINGS[0] ).internal_flags;
+		final float[] amp_filter = gfc.sv_enc.amp_filter;
+		final float band0[][] = new float[18][Jencoder.SBLIMIT];
+		final float band1[][] = new float[18][Jencoder.SBLIMIT];
+		final float band1_s[][] = new float[18][Jencoder.SBLIMIT];
+		final float band1_v[][] = new float[18][Jencoder.SBLIMIT];
+		final Jgr_info gi0 = new Jgr_info();
+		final Jgr_info gi1 = new Jgr_info();
+		final int types[] = { Jencoder.NORM_TYPE, Jencoder.START_TYPE, Jencoder.SHORT_TYPE, Jencoder.STOP_TYPE };
+		for( int n = 0; n < iterations; n++ ) {
+			for( int i = 0; i < 18; i++ ) {
+				fill( band0[i] );
+				fill( band1[i] );
+				System.arraycopy( band1[i], 0, band1_s[i], 0, Jencoder.SBLIMIT );
+				System.arraycopy( band1[i], 0, band1_v[i], 0, Jencoder.SBLIMIT );
+			}
+			for( int band = 0; band < Jencoder.SBLIMIT; band++ ) {
+				amp_filter[band] = AMP[this.random.nextInt( AMP.length )];
+			}
+			final int type = types[n & 3];
+			gi0.block_type = gi1.block_type = type;
+			gi0.mixed_block_flag = gi1.mixed_block_flag = type == Jencoder.SHORT_TYPE && this.random.nextInt( 4 ) == 0;
+			fill( gi1.xr );
+			this.scalar.mdct_bands( gfc, gi0, band0, band1_s );
+			this.vector.mdct_bands( gfc, gi1, band0, band1_v );
+			final String name = "mdct_bands type " + type + (gi0.mixed_block_flag ? " mixed" : "");
+			compare( name, gi0.xr, gi1.xr );
+			for( int i = 0; i < 18; i++ ) {
+				compare( name + " band1", band1_s[i], band1_v[i] );
+			}
+		}
+	}
+
+	private final void fht(final int iterations) {
+		final float x[] = new float[Jencoder.BLKSIZE + 8];
+		final float x0[] = new float[x.length];
+		final float x1[] = new float[x.length];
+		for( int n = 0; n < iterations; n++ ) {
+			fill( x );
+			final int size = (n & 1) == 0 ? Jencoder.BLKSIZE : Jencoder.BLKSIZE_s;
+			final int offset = (n >> 1) & 7;
+			System.arraycopy( x, 0, x0, 0, x.length );
+			System.arraycopy( x, 0, x1, 0, x.length );
+			this.scalar.fht( x0, offset, size / 2 );
+			this.vector.fht( x1, offset, size / 2 );
+			compare("fht " + size, x0, x1 );
+		}
+	}
+
+	private final void quantize_lines_xrpow(final int iterations) {
+		final float xp[] = new float[576];
+		final int pi0[] = new int[576];
+		final int pi1[] = new int[576];
+		for( int n = 0; n < iterations; n++ ) {
+			fill_abs( xp, 1000f );
+			/* count_bits: xrpow_max * istep <= IXMAX_VAL */
+			final float istep = this.random.nextFloat() * (Jquantize_pvt.IXMAX_VAL / 1000f);
+			final int offset = this.random.nextInt( 576 );
+			final int l = this.random.nextInt( 576 - offset + 1 );
+			Arrays.fill( pi0, -1 );
+			Arrays.fill( pi1, -1 );
+			this.scalar.quantize_lines_xrpow( l, istep, xp, offset, pi0, offset );
+			this.vector.quantize_lines_xrpow( l, istep, xp, offset, pi1, offset );
+			compare("quantize_lines_xrpow", pi0, pi1 );
+			final int l01 = Math.min( l, 575 - offset );// the scalar code rounds up to the pair
+			this.scalar.quantize_lines_xrpow_01( l01, istep, xp, offset, pi0, offset );
+			this.vector.quantize_lines_xrpow_01( l01, istep, xp, offset, pi1, offset );
+			compare("quantize_lines_xrpow_01", pi0, pi1 );
+		}
+	}
+
+	private final void init_xrpow_core(final int iterations) {
+		final Jgr_info gi0 = new Jgr_info();
+		final Jgr_info gi1 = new Jgr_info();
+		final Jgr_info gi2 = new Jgr_info();
+		final float xrpow0[] = new float[576];
+		final float xrpow1[] = new float[576];
+		final float xrpow2[] = new float[576];
+		for( int n = 0; n < iterations; n++ ) {
+			fill( gi0.xr );
+			System.arraycopy( gi0.xr, 0, gi1.xr, 0, 576 );
+			System.arraycopy( gi0.xr, 0, gi2.xr, 0, 576 );
+			final int upper = this.random.nextInt( 576 );
+			gi0.xrpow_max = gi1.xrpow_max = gi2.xrpow_max = 0;
+			final float sum0 = this.scalar.init_xrpow_core( gi0, xrpow0, upper );
+			final float sum1 = this.vector.init_xrpow_core( gi1, xrpow1, upper );
+			final float sum2 = this.exact.init_xrpow_core( gi2, xrpow2, upper );
+			compare("init_xrpow_core", xrpow0, xrpow1 );
+			compare("init_xrpow_core xrpow_max", gi0.xrpow_max, gi1.xrpow_max );
+			compare_sum("init_xrpow_core sum", sum0, sum1 );
+			compare("init_xrpow_core exact sum", sum0, sum2 );
+		}
+	}
+
+	private final void calc_noise_core(final int iterations) {
+		final Jgr_info gi = new Jgr_info();
+		for( int n = 0; n < iterations; n++ ) {
+			fill( gi.xr );
+			/* the quantized lines: big values, 0 or 1 up to count1, 0 */
+			gi.big_values = this.random.nextInt( 289 ) << 1;
+			gi.count1 = gi.big_values + (this.random.nextInt( (576 - gi.big_values) / 4 + 1 ) << 2);
+			for( int i = 0; i < 576; i++ ) {
+				gi.l3_enc[i] = i < gi.big_values ? this.random.nextInt( Jquantize_pvt.IXMAX_VAL + 1 ) :
+					i < gi.count1 ? this.random.nextInt( 2 ) : 0;
+			}
+			final int j = this.random.nextInt( 289 ) << 1;
+			final int l = this.random.nextInt( (576 - j) / 2 + 1 );
+			final float step = Jquantize_pvt.pow20[this.random.nextInt( Jquantize_pvt.pow20.length )];
+			final float noise0 = this.scalar.calc_noise_core( gi, j, l, step );
+			compare_sum("calc_noise_core", noise0, this.vector.calc_noise_core( gi, j, l, step ) );
+			compare("calc_noise_core exact", noise0, this.exact.calc_noise_core( gi, j, l, step ) );
+		}
+	}
+
+	private final void calc_sfb_noise_x34(final int iterations) {
+		final float xr[] = new float[576];
+		final float xr34[] = new float[576];
+		final float x[] = new float[16];
+		final int l3[] = new int[16];
+		for( int n = 0; n < iterations; n++ ) {
+			fill( xr );
+			final int sf = this.random.nextInt( 256 );
+			/* sfpow34 * xr34 <= IXMAX_VAL */
+			fill_abs( xr34, Jquantize_pvt.IXMAX_VAL / Jquantize_pvt.ipow20[sf] );
+			final int offset = this.random.nextInt( 576 );
+			final int bw = this.random.nextInt( Math.min( 576 - offset, 200 ) + 1 );
+			compare("vec_max", this.scalar.vec_max( xr34, offset, bw ), this.vector.vec_max( xr34, offset, bw ) );
+			compare("calc_sfb_noise_x34", this.scalar.calc_sfb_noise_x34( xr, offset, xr34, offset, bw, sf, x, l3 ),
+					this.vector.calc_sfb_noise_x34( xr, offset, xr34, offset, bw, sf, x, l3 ) );
+		}
+	}
+
+	private final void attack_hpf(final int iterations) {
+		final float firbuf[] = new float[1200];
+		final float hpf0[] = new float[576];
+		final float hpf1[] = new float[576];
+		for( int n = 0; n < iterations; n++ ) {
+			fill( firbuf );
+			final int offset = this.random.nextInt( firbuf.length - 576 - Jpsymodel.NSFIRLEN );
+			this.scalar.attack_hpf( firbuf, offset, hpf0 );
+			this.vector.attack_hpf( firbuf, offset, hpf1 );
+			compare("attack_hpf", hpf0, hpf1 );
+			final int pfi = this.random.nextInt( 576 - 576 / 9 + 1 );
+			final float p = this.random.nextInt( 4 ) == 0 ? 1e30f : 1f;
+			compare("max_abs", this.scalar.max_abs( hpf0, pfi, 576 / 9, p ), this.vector.max_abs( hpf0, pfi, 576 / 9, p ) );
+		}
+	}
+
+	/** the partitions of the long and the short blocks of the sample rates of SETTINGS */
+	private final void calc_energy(final int iterations) {
+		final float fftenergy[] = new float[Jencoder.HBLKSIZE];
+		final float eb0[] = new float[Jencoder.CBANDS];
+		final float eb1[] = new float[Jencoder.CBANDS];
+		final float max0[] = new float[Jencoder.CBANDS];
+		final float max1[] = new float[Jencoder.CBANDS];
+		final float avg0[] = new float[Jencoder.CBANDS];
+		final float avg1[] = new float[Jencoder.CBANDS];
+		final byte mask_idx[] = new byte[Jencoder.CBANDS + 2];
+		final float mask_tab[] = new float[Jencoder.CBANDS];
+		final float ecb0[] = new float[Jencoder.CBANDS * Jencoder.CBANDS];
+		final float ecb1[] = new float[Jencoder.CBANDS * Jencoder.CBANDS];
+		for( final int[] settings : SETTINGS ) {
+			final JPsyConst psy = Jencoder_bench.create( settings ).internal_flags.cd_psy;
+			for( final JPsyConst_CB2SB gd : new JPsyConst_CB2SB[] { psy.l, psy.s } ) {
+				final String name = (gd == psy.l ? " long " : " short ") + settings[0];
+				for( int n = 0; n < iterations; n += SETTINGS.length ) {
+					fill_abs( fftenergy, this.random.nextInt( 2 ) == 0 ? 1e10f : 1e-10f );
+					this.scalar.calc_energy( gd, fftenergy, eb0, max0, avg0 );
+					this.vector.calc_energy( gd, fftenergy, eb1, max1, avg1 );
+					for( int b = 0; b < gd.npart; b++ ) {
+						compare_sum("calc_energy eb" + name, eb0[b], eb1[b] );
+						compare_sum("calc_energy avg" + name, avg0[b], avg1[b] );
+					}
+					compare("calc_energy max" + name, max0, max1 );
+					this.exact.calc_energy( gd, fftenergy, eb1, max1, avg1 );
+					compare("calc_energy exact eb" + name, eb0, eb1 );
+					compare("calc_energy exact avg" + name, avg0, avg1 );
+					for( int b = 0; b < gd.npart; b++ ) {
+						mask_idx[b] = (byte)this.random.nextInt( Jpsymodel.tab.length );
+					}
+					Arrays.fill( ecb1, -1f );
+					this.scalar.spread_energy( gd, eb0, mask_idx, mask_tab, ecb0 );
+					this.vector.spread_energy( gd, eb0, mask_idx, mask_tab, ecb1 );
+					compare("spread_energy" + name, Arrays.copyOf( ecb0, gd.s3.length ), Arrays.copyOf( ecb1, gd.s3.length ) );
+				}
+			}
+		}
+	}
+
+	private static final byte[] encode(final int[] settings, final short[][] pcm) {
+		final Jlame_global_flags gf = Jencoder_bench.create( settings );
+		final int n = pcm[0].length;
+		final byte[] mp3buf = new byte[(int)(1.25 * n) + 7200 * 2];// and the flush
+		int size = 0;
+		for( int i = 0; i < n; i += 1152 ) {
+			final int samples = Math.min( 1152, n - i );
+			final int ret = Jlame.lame_encode_buffer( gf, Arrays.copyOfRange( pcm[0], i, i + samples ),
+					Arrays.copyOfRange( pcm[1], i, i + samples ), samples, mp3buf, size, mp3buf.length - size );
+			if( ret < 0 ) {
+				throw new IllegalStateException("lame_encode_buffer failed: " + ret );
+			}
+			size += ret;
+		}
+		final byte[] flush = new byte[7200];
+		final int ret = Jlame.lame_encode_flush( gf, flush, flush.length );
+		Jlame.lame_close( gf );
+		if( ret < 0 ) {
+			throw new IllegalStateException("lame_encode_flush failed: " + ret );
+		}
+		System.arraycopy( flush, 0, mp3buf, size, ret );
+		return Arrays.copyOf( mp3buf, size + ret );
+	}
+
+	private final void encode() {
+		for( final int[] settings : SETTINGS ) {
+			final short[][] pcm = Jsignal.generate( settings[0], settings[0] * 3 );
+			Jencoder_kernels.kernels = this.scalar;
+			final byte[] s = encode( settings, pcm );
+			Jencoder_kernels.kernels = this.exact;
+			final byte[] e = encode( settings, pcm );
+			Jencoder_kernels.kernels = this.vector;
+			final byte[] v = encode( settings, pcm );
+			Jencoder_kernels.kernels = this.scalar;
+			final boolean same = Arrays.equals( s, e );
+			final boolean close = Math.abs( s.length - v.length ) <= SIZE_TOLERANCE * s.length;
+			System.out.printf("encode %-40s exact %s, vector %s, %d bytes, %d bytes\n", Jencoder_bench.name( settings ),
+					same ? "same" : "DIFFERENT", Arrays.equals( s, v ) ? "same" : close ? "close" : "DIFFERENT", s.length, v.length );
+			if( ! same || ! close ) {
+				this.failures++;
+			}
+		}
+	}
+
+	/**
+	 * main.
+	 * @param args [iterations of the kernel tests]
+	 */
+	public static final void main(final String[] args) {
+		final int iterations = args.length > 0 ? Integer.parseInt( args[0] ) : 10000;
+		final Jvector_check check = new Jvector_check();
+		System.out.println("vector kernels: " + check.vector.getClass().getName() );
+		check.window_subband( iterations );
+		check.mdct_bands( iterations );
+		check.fht( iterations );
+		check.quantize_lines_xrpow( iterations );
+		check.init_xrpow_core( iterations );
+		check.calc_noise_core( iterations );
+		check.calc_sfb_noise_x34( iterations );
+		check.attack_hpf( iterations );
+		check.calc_energy( iterations );
+		System.out.println("kernels: " + (check.failures == 0 ? "same" : check.failures + " failures") );
+		check.encode();
+		if( check.failures != 0 ) {
+			System.out.println( check.failures + " failures");
+			System.exit( 1 );
+		}
+		System.out.println("OK");
+	}
+}
@@ -0,0 +1,832 @@
+package libmp3lame;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShuffle;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The encoder kernels by the Vector API, see Jencoder_kernels.
+ *
+ * The lanes do the same float operations in the same order as the scalar code, without FMA,
+ * so the results are the same bit for bit, see Jvector_check.
+ *
+ * window_subband: the lanes are the 15 rows of the polyphase window, the DCT of 32 points is scalar.
+ * mdct_bands: the lanes are the 32 subbands, the long or the short MDCT of all subbands together.
+ * The lines are stored as [line][subband] in JPsyWorkspace and copied to xr by the scalar code.
+ * Mixed blocks use the scalar code.
+ * fht: the lanes are the butterflies of a block, the butterflies after the last full vector are scalar.
+ * The twiddle factors are calculated once, by the recurrence of the scalar code.
+ *
+ * The quantization: the lanes are the lines, at least 256 bits. (int)x is by the float bits of x + 2**23, written out in every kernel,
+ * the lookups of adj43 and pow43 are scalar.
+ * calc_sfb_noise_x34 and the other kernels are exact, calc_noise_core and the sum of init_xrpow_core
+ * add the lanes separately, unless exact.
+ *
+ * The psy model: attack_hpf, the lanes are the filtered samples, max_abs and calc_energy the lines,
+ * spread_energy the terms of the convolution, eb and tab[mask_idx] are gathered by s3kk.
+ * The sums of calc_energy add the lanes separately, unless exact.
+ * The addition of the masking by vbrpsy_mask_add stays scalar, every term depends on the sum of the terms before.
+ *
+ * C2 of Java 17 allocates for the masked loads and stores and for the vectors,
+ * which are passed to the methods, which are not inlined: the kernels avoid them.
+ * The squares of calc_sfb_noise_x34 are added by the scalar code: the pairs added by rearrange
+ * crashed C2 of Java 17 with AVX-512 in the VBR encoder. The lookups of adj43 and pow43 are scalar too:
+ * the gathers by the index map, which was just stored, crashed C2 of Java 17 with AVX-512.
+ *
+ * Needs: --add-modules jdk.incubator.vector
+ */
+final class Jvector_kernels extends Jencoder_kernels {
+	/** the preferred species, but not more than 16 lanes: the padding of the window rows reads before xoffset */
+	private static final VectorSpecies<Float> S = FloatVector.SPECIES_PREFERRED.length() > 16 ?
+			FloatVector.SPECIES_512 : FloatVector.SPECIES_PREFERRED;
+	private static final int L = S.length();
+	private static final VectorShuffle<Float> REVERSE;
+	/* window_subband */
+	private static final int ROWS = 15;
+	private static final int WLEN = ((ROWS + L - 1) / L) * L;
+	/** enwindow[10 + 18 * m + d] as [d + 10][m] */
+	private static final float EWIN[][] = new float[18][WLEN];
+	/** a[2 * m] */
+	private static final int EVEN[] = new int[WLEN];
+	/** x1[x2i + c] * w, the first half: the offset c of s, x1[x1i - c] for t */
+	private static final int C_S[] = { -224, -160, -96, -32, 32, 96, 160, 224 };
+	/** the second half: x1[x1i + c] for s, x1[x2i - c] for t */
+	private static final int C_T[] = { -256, -192, -128, -64, 0, 64, 128, 192 };
+	/* mdct_bands */
+	/** xr[order[s] * 18]: the first line of the subband s */
+	private static final int ORDER18[] = new int[Jencoder.SBLIMIT];
+	/* fht */
+	private static final int STAGES = 4;// 1024 = 4**5
+	private static final float C1[][] = new float[STAGES][];
+	private static final float S1[][] = new float[STAGES][];
+	private static final float C2[][] = new float[STAGES][];
+	private static final float S2[][] = new float[STAGES][];
+	/*
+	 * quantization: S, at least 256 bits, and the int and double species of the same shape.
+	 * C2 of Java 17 allocates, if an operation of the Vector API is used with two shapes
+	 * of the same element type: the profiles of the shared code get both classes.
+	 */
+	private static final boolean QUANTIZE = S.vectorBitSize() >= 256;
+	private static final VectorSpecies<Integer> I = VectorSpecies.of( int.class, S.vectorShape() );
+	private static final VectorSpecies<Double> D = VectorSpecies.of( double.class, S.vectorShape() );
+	/**
+	 * x + MAGIC_FLOAT has the nearest integer of x in the low bits, 0 <= x < 2**23,
+	 * minus 1 if it is greater than x it is (int)x. The conversion of the Vector API allocates on Java 17.
+	 */
+	private static final FloatVector MAGIC_FLOAT = FloatVector.broadcast( S, 8388608f );
+	private static final FloatVector MAGIC_FLOAT1 = FloatVector.broadcast( S, 8388608f + 1f );
+	private static final IntVector MAGIC_INT = IntVector.broadcast( I, 0x4b000000 );
+	private static final FloatVector ONE = FloatVector.broadcast( S, 1f );
+	//
+	/** the sums of calc_noise_core and init_xrpow_core in the order of the scalar code */
+	private final boolean exact;
+
+	static {
+		final int[] rev = new int[L];
+		for( int j = 0; j < L; j++ ) {
+			rev[j] = L - 1 - j;
+		}
+		REVERSE = VectorShuffle.fromArray( S, rev, 0 );
+
+		for( int m = 0; m < ROWS; m++ ) {
+			for( int d = 0; d < 18; d++ ) {
+				EWIN[d][m] = Jnewmdct.enwindow[18 * m + d];
+			}
+		}
+		for( int m = 0; m < WLEN; m++ ) {
+			EVEN[m] = m << 1;
+		}
+
+		for( int s = 0; s < Jencoder.SBLIMIT; s++ ) {
+			ORDER18[s] = Jnewmdct.order[s] * 18;
+		}
+
+		/* the same recurrence as Jfft.fht */
+		final float[] tab = Jfft.costab;
+		for( int st = 0, kx = 2; st < STAGES; st++, kx <<= 2 ) {
+			final int tri = st << 1;
+			final float c1t[] = C1[st] = new float[kx];
+			final float s1t[] = S1[st] = new float[kx];
+			final float c2t[] = C2[st] = new float[kx];
+			final float s2t[] = S2[st] = new float[kx];
+			float c1 = tab[tri + 0];
+			float s1 = tab[tri + 1];
+			for( int i = 1; i < kx; i++ ) {
+				c1t[i] = c1;
+				s1t[i] = s1;
+				c2t[i] = 1 - (2 * s1) * s1;
+				s2t[i] = (2 * s1) * c1;
+				final float c2 = c1;
+				c1 = c2 * tab[tri + 0] - s1 * tab[tri + 1];
+				s1 = c2 * tab[tri + 1] + s1 * tab[tri + 0];
+			}
+		}
+	}
+
+	Jvector_kernels() {
+		this( "exact".equals( System.getProperty("libmp3lame.vector") ) );
+	}
+
+	/** @param exact true to add the sums of calc_noise_core and init_xrpow_core in the order of the scalar code */
+	Jvector_kernels(final boolean exact) {
+		if( L < 4 ) {
+			throw new UnsupportedOperationException("the vectors are too short: " + S );
+		}
+		this.exact = exact;
+	}
+
+	/** @return x[offset + L - 1 - j] in the lane j */
+	private static final FloatVector reversed(final float[] x, final int offset) {
+		return FloatVector.fromArray( S, x, offset ).rearrange( REVERSE );
+	}
+
+	@Override
+	final void window_subband(final float[] x1, final int xoffset, final float a[/* SBLIMIT */]) {
+		for( int m0 = 0; m0 < ROWS; m0 += L ) {
+			/* the lane m: x1i = xoffset - m, x2i = xoffset - 62 + m */
+			final int x1r = xoffset - m0 - (L - 1);// reversed
+			final int x2i = xoffset - 62 + m0;
+			FloatVector w = FloatVector.fromArray( S, EWIN[0], m0 );
+			FloatVector s = FloatVector.fromArray( S, x1, x2i + C_S[0] ).mul( w );
+			FloatVector t = reversed( x1, x1r - C_S[0] ).mul( w );
+			for( int j = 1; j < 8; j++ ) {
+				w = FloatVector.fromArray( S, EWIN[j], m0 );
+				s = s.add( FloatVector.fromArray( S, x1, x2i + C_S[j] ).mul( w ) );
+				t = t.add( reversed( x1, x1r - C_S[j] ).mul( w ) );
+			}
+			for( int j = 0; j < 8; j++ ) {
+				w = FloatVector.fromArray( S, EWIN[8 + j], m0 );
+				s = s.add( reversed( x1, x1r + C_T[j] ).mul( w ) );
+				t = t.sub( FloatVector.fromArray( S, x1, x2i - C_T[j] ).mul( w ) );
+			}
+			s = s.mul( FloatVector.fromArray( S, EWIN[16], m0 ) );
+			w = t.sub( s );
+			/* the padding lane 15 writes a[30], a[31], they are set by window_subband_dct32 before they are read */
+			t.add( s ).intoArray( a, 0, EVEN, m0 );
+			FloatVector.fromArray( S, EWIN[17], m0 ).mul( w ).intoArray( a, 1, EVEN, m0 );
+		}
+		Jnewmdct.window_subband_dct32( x1, xoffset - ROWS, a );
+	}
+
+	@Override
+	final void mdct_bands(final Jlame_internal_flags gfc, final Jgr_info gi, final float[][] band0, final float[][] band1) {
+		if( gi.mixed_block_flag ) {
+			super.mdct_bands( gfc, gi, band0, band1 );
+			return;
+		}
+		final float[] amp_filter = gfc.sv_enc.amp_filter;
+		final float[] xr = gi.xr;
+		final float[] lines = gfc.wk_psy.mdct_lines;
+		final int type = gi.block_type;
+		for( int band = 0; band < Jencoder.SBLIMIT; band++ ) {
+			final float amp = amp_filter[band];
+			if( amp < 1.0f && amp >= 1e-12f ) {
+				final int off = Jnewmdct.order[band];
+				int k = 0;
+				do {
+					band1[k][off] *= amp;
+				} while( ++k < 18 );
+			}
+		}
+		if( type == Jencoder.SHORT_TYPE ) {
+			/* the block l: band0[9 + k], band0[14 - k] / band0[15 + k], band1[2 - k] / band1[3 + k], band1[8 - k] */
+			short_block( lines, 0, band0, 9, band0, 14 );
+			short_block( lines, 1, band0, 15, band1, 2 );
+			short_block( lines, 2, band1, 3, band1, 8 );
+		} else {
+			final float[] work = gfc.wk_psy.mdct_vwork;
+			mdct_long_work( work, band0, band1, Jnewmdct.win[type] );
+			mdct_long_odd( lines, work );
+			mdct_long_even( lines, work );
+		}
+		/* the scattered stores of the Vector API are slow, the lines are transposed by the scalar code */
+		for( int s = 0; s < Jencoder.SBLIMIT; s++ ) {
+			final int mdct_enc = ORDER18[s];
+			for( int i = 0, j = s; i < 18; i++, j += Jencoder.SBLIMIT ) {
+				xr[mdct_enc + i] = lines[j];
+			}
+		}
+		for( int band = 0, mdct_enc = 0; band < Jencoder.SBLIMIT; band++, mdct_enc += 18 ) {
+			if( amp_filter[band] < 1e-12f ) {
+				int i = mdct_enc + 18;
+				do {
+					xr[--i] = 0;
+				} while( i > mdct_enc );
+			}
+		}
+		if( type != Jencoder.SHORT_TYPE ) {
+			/* Perform aliasing reduction butterfly */
+			final float[] wshort = Jnewmdct.wshort;
+			for( int mdct_enc = 18; mdct_enc < 576; mdct_enc += 18 ) {
+				int k = 7;
+				do {
+					final float w20 = wshort[20 + k];
+					final float w28 = wshort[28 + k];
+					final float bu = xr[mdct_enc + k] * w20 + xr[mdct_enc + -1 - k] * w28;
+					final float bd = xr[mdct_enc + k] * w28 - xr[mdct_enc + -1 - k] * w20;
+
+					xr[mdct_enc + -1 - k] = bu;
+					xr[mdct_enc + k] = bd;
+				} while( --k >= 0 );
+			}
+		}
+	}
+
+	/**
+	 * Jnewmdct.mdct_bands and Jnewmdct.mdct_short of the short block l of all subbands,
+	 * the line i of the subband s is lines[i * SBLIMIT + s].
+	 * The inputs: inout[3 * (k + 3) + l] = p[pb + k] * w - p[pb - 1 - k],
+	 * inout[3 * (k + 3) + l + 9] = q[qb - k] * w + q[qb + 1 + k], k = -3 ... -1.
+	 */
+	private static final void short_block(final float[] lines, final int l,
+			final float[][] p, final int pb, final float[][] q, final int qb)
+	{
+		final float[] w = Jnewmdct.wshort;
+		final float[] p0 = p[pb - 3], p1 = p[pb - 2], p2 = p[pb - 1], p3 = p[pb], p4 = p[pb + 1], p5 = p[pb + 2];
+		final float[] q0 = q[qb + 3], q1 = q[qb + 2], q2 = q[qb + 1], q3 = q[qb], q4 = q[qb - 1], q5 = q[qb - 2];
+		for( int c0 = 0; c0 < Jencoder.SBLIMIT; c0 += L ) {
+			final FloatVector i0 = FloatVector.fromArray( S, p0, c0 ).mul( w[0] ).sub( FloatVector.fromArray( S, p5, c0 ) );
+			final FloatVector i1 = FloatVector.fromArray( S, p1, c0 ).mul( w[1] ).sub( FloatVector.fromArray( S, p4, c0 ) );
+			final FloatVector i2 = FloatVector.fromArray( S, p2, c0 ).mul( w[2] ).sub( FloatVector.fromArray( S, p3, c0 ) );
+			final FloatVector i3 = FloatVector.fromArray( S, q0, c0 ).mul( w[0] ).add( FloatVector.fromArray( S, q5, c0 ) );
+			final FloatVector i4 = FloatVector.fromArray( S, q1, c0 ).mul( w[1] ).add( FloatVector.fromArray( S, q4, c0 ) );
+			final FloatVector i5 = FloatVector.fromArray( S, q2, c0 ).mul( w[2] ).add( FloatVector.fromArray( S, q3, c0 ) );
+
+			FloatVector ts0 = i2.mul( w[0] ).sub( i5 );
+			FloatVector tc0 = i0.mul( w[2] ).sub( i3 );
+			FloatVector tc1 = ts0.add( tc0 );
+			FloatVector tc2 = ts0.sub( tc0 );
+
+			ts0 = i5.mul( w[0] ).add( i2 );
+			tc0 = i3.mul( w[2] ).add( i0 );
+			FloatVector ts1 = ts0.add( tc0 );
+			FloatVector ts2 = ts0.neg().add( tc0 );
+
+			tc0 = i1.mul( w[1] ).sub( i4 ).mul( 2.069978111953089e-11f ); /* tritab_s[1] */
+			ts0 = i4.mul( w[1] ).add( i1 ).mul( 2.069978111953089e-11f ); /* tritab_s[1] */
+
+			tc1.mul( 1.907525191737280e-11f ).add( tc0 ).intoArray( lines, (l + 3 * 0) * Jencoder.SBLIMIT + c0 );
+			ts1.neg().mul( 1.907525191737280e-11f ).add( ts0 ).intoArray( lines, (l + 3 * 5) * Jencoder.SBLIMIT + c0 );
+
+			tc2 = tc2.mul( 0.86602540378443870761f ).mul( 1.907525191737281e-11f );
+			ts1 = ts1.mul( 0.5f ).mul( 1.907525191737281e-11f ).add( ts0 );
+			tc2.sub( ts1 ).intoArray( lines, (l + 3 * 1) * Jencoder.SBLIMIT + c0 );
+			tc2.add( ts1 ).intoArray( lines, (l + 3 * 2) * Jencoder.SBLIMIT + c0 );
+
+			tc1 = tc1.mul( 0.5f ).mul( 1.907525191737281e-11f ).sub( tc0 );
+			ts2 = ts2.mul( 0.86602540378443870761f ).mul( 1.907525191737281e-11f );
+			tc1.add( ts2 ).intoArray( lines, (l + 3 * 3) * Jencoder.SBLIMIT + c0 );
+			tc1.sub( ts2 ).intoArray( lines, (l + 3 * 4) * Jencoder.SBLIMIT + c0 );
+		}
+	}
+
+	/** Jnewmdct.mdct_bands of all subbands, work[k + 9] of the subband s is work[(k + 9) * SBLIMIT + s] */
+	private static final void mdct_long_work(final float[] work, final float[][] band0, final float[][] band1, final float[] wt) {
+		final float[] wshort = Jnewmdct.wshort;
+		for( int j = 0; j < 9; j++ ) {// k = j - 9
+			final float[] b10 = band1[j], b11 = band1[17 - j], b00 = band0[j], b01 = band0[17 - j];
+			final float wa0 = wt[j + 18], wa1 = wt[j + 27], wb0 = wt[j], wb1 = wt[j + 9];
+			final float w = wshort[j + 3];
+			for( int c0 = 0; c0 < Jencoder.SBLIMIT; c0 += L ) {
+				final FloatVector a = FloatVector.fromArray( S, b10, c0 ).mul( wa0 ).add( FloatVector.fromArray( S, b11, c0 ).mul( wa1 ) );
+				final FloatVector b = FloatVector.fromArray( S, b00, c0 ).mul( wb0 ).sub( FloatVector.fromArray( S, b01, c0 ).mul( wb1 ) );
+				a.sub( b.mul( w ) ).intoArray( work, j * Jencoder.SBLIMIT + c0 );
+				a.mul( w ).add( b ).intoArray( work, (j + 9) * Jencoder.SBLIMIT + c0 );
+			}
+		}
+	}
+
+	/** Jnewmdct.mdct_long of all subbands, the lines 1,2, 5,6, 9,10, 13,14, 17 */
+	private static final void mdct_long_odd(final float[] lines, final float[] work) {
+		final float[] wshort = Jnewmdct.wshort;
+		final float w0 = wshort[12 + 0], w1 = wshort[12 + 1], w2 = wshort[12 + 2], w3 = wshort[12 + 3];
+		final float w4 = wshort[12 + 4], w5 = wshort[12 + 5], w6 = wshort[12 + 6], w7 = wshort[12 + 7];
+		final int n = Jencoder.SBLIMIT;
+		for( int c0 = 0; c0 < n; c0 += L ) {
+			final FloatVector tc1 = FloatVector.fromArray( S, work, 17 * n + c0 ).sub( FloatVector.fromArray( S, work, 9 * n + c0 ) );
+			final FloatVector tc3 = FloatVector.fromArray( S, work, 15 * n + c0 ).sub( FloatVector.fromArray( S, work, 11 * n + c0 ) );
+			final FloatVector tc4 = FloatVector.fromArray( S, work, 14 * n + c0 ).sub( FloatVector.fromArray( S, work, 12 * n + c0 ) );
+			final FloatVector ts5 = FloatVector.fromArray( S, work, 0 * n + c0 ).add( FloatVector.fromArray( S, work, 8 * n + c0 ) );
+			FloatVector ts6 = FloatVector.fromArray( S, work, 1 * n + c0 ).add( FloatVector.fromArray( S, work, 7 * n + c0 ) );
+			final FloatVector ts7 = FloatVector.fromArray( S, work, 2 * n + c0 ).add( FloatVector.fromArray( S, work, 6 * n + c0 ) );
+			final FloatVector ts8 = FloatVector.fromArray( S, work, 3 * n + c0 ).add( FloatVector.fromArray( S, work, 5 * n + c0 ) );
+			final FloatVector in4 = FloatVector.fromArray( S, work, 4 * n + c0 );
+
+			final FloatVector t578 = ts5.add( ts7 ).sub( ts8 );
+			t578.sub( ts6.sub( in4 ) ).intoArray( lines, 17 * n + c0 );
+			FloatVector st = t578.mul( w7 ).add( ts6.sub( in4 ) );
+			FloatVector ct = tc1.sub( tc3 ).sub( tc4 ).mul( w6 );
+			ct.add( st ).intoArray( lines, 5 * n + c0 );
+			ct.sub( st ).intoArray( lines, 6 * n + c0 );
+
+			final FloatVector tc2 = FloatVector.fromArray( S, work, 16 * n + c0 ).sub( FloatVector.fromArray( S, work, 10 * n + c0 ) ).mul( w6 );
+			ts6 = ts6.mul( w7 ).add( in4 );
+			ct = tc1.mul( w0 ).add( tc2 ).add( tc3.mul( w1 ) ).add( tc4.mul( w2 ) );
+			st = ts5.neg().mul( w4 ).add( ts6 ).sub( ts7.mul( w5 ) ).add( ts8.mul( w3 ) );
+			ct.add( st ).intoArray( lines, 1 * n + c0 );
+			ct.sub( st ).intoArray( lines, 2 * n + c0 );
+
+			ct = tc1.mul( w1 ).sub( tc2 ).sub( tc3.mul( w2 ) ).add( tc4.mul( w0 ) );
+			st = ts5.neg().mul( w5 ).add( ts6 ).sub( ts7.mul( w3 ) ).add( ts8.mul( w4 ) );
+			ct.add( st ).intoArray( lines, 9 * n + c0 );
+			ct.sub( st ).intoArray( lines, 10 * n + c0 );
+
+			ct = tc1.mul( w2 ).sub( tc2 ).add( tc3.mul( w0 ) ).sub( tc4.mul( w1 ) );
+			st = ts5.mul( w3 ).sub( ts6 ).add( ts7.mul( w4 ) ).sub( ts8.mul( w5 ) );
+			ct.add( st ).intoArray( lines, 13 * n + c0 );
+			ct.sub( st ).intoArray( lines, 14 * n + c0 );
+		}
+	}
+
+	/** Jnewmdct.mdct_long of all subbands, the lines 0, 3,4, 7,8, 11,12, 15,16 */
+	private static final void mdct_long_even(final float[] lines, final float[] work) {
+		final float[] wshort = Jnewmdct.wshort;
+		final float w0 = wshort[12 + 0], w1 = wshort[12 + 1], w2 = wshort[12 + 2], w3 = wshort[12 + 3];
+		final float w4 = wshort[12 + 4], w5 = wshort[12 + 5], w6 = wshort[12 + 6], w7 = wshort[12 + 7];
+		final int n = Jencoder.SBLIMIT;
+		for( int c0 = 0; c0 < n; c0 += L ) {
+			final FloatVector ts1 = FloatVector.fromArray( S, work, 8 * n + c0 ).sub( FloatVector.fromArray( S, work, 0 * n + c0 ) );
+			final FloatVector ts3 = FloatVector.fromArray( S, work, 6 * n + c0 ).sub( FloatVector.fromArray( S, work, 2 * n + c0 ) );
+			final FloatVector ts4 = FloatVector.fromArray( S, work, 5 * n + c0 ).sub( FloatVector.fromArray( S, work, 3 * n + c0 ) );
+			final FloatVector tc5 = FloatVector.fromArray( S, work, 17 * n + c0 ).add( FloatVector.fromArray( S, work, 9 * n + c0 ) );
+			FloatVector tc6 = FloatVector.fromArray( S, work, 16 * n + c0 ).add( FloatVector.fromArray( S, work, 10 * n + c0 ) );
+			final FloatVector tc7 = FloatVector.fromArray( S, work, 15 * n + c0 ).add( FloatVector.fromArray( S, work, 11 * n + c0 ) );
+			final FloatVector tc8 = FloatVector.fromArray( S, work, 14 * n + c0 ).add( FloatVector.fromArray( S, work, 12 * n + c0 ) );
+			final FloatVector in13 = FloatVector.fromArray( S, work, 13 * n + c0 );
+
+			final FloatVector t578 = tc5.add( tc7 ).add( tc8 );
+			t578.add( tc6.add( in13 ) ).intoArray( lines, 0 * n + c0 );
+			FloatVector ct = t578.mul( w7 ).sub( tc6.add( in13 ) );
+			FloatVector st = ts1.sub( ts3 ).add( ts4 ).mul( w6 );
+			ct.add( st ).intoArray( lines, 11 * n + c0 );
+			ct.sub( st ).intoArray( lines, 12 * n + c0 );
+
+			final FloatVector ts2 = FloatVector.fromArray( S, work, 7 * n + c0 ).sub( FloatVector.fromArray( S, work, 1 * n + c0 ) ).mul( w6 );
+			tc6 = in13.sub( tc6.mul( w7 ) );
+			ct = tc5.mul( w3 ).sub( tc6 ).add( tc7.mul( w4 ) ).add( tc8.mul( w5 ) );
+			st = ts1.mul( w2 ).add( ts2 ).add( ts3.mul( w0 ) ).add( ts4.mul( w1 ) );
+			ct.add( st ).intoArray( lines, 3 * n + c0 );
+			ct.sub( st ).intoArray( lines, 4 * n + c0 );
+
+			ct = tc5.neg().mul( w5 ).add( tc6 ).sub( tc7.mul( w3 ) ).sub( tc8.mul( w4 ) );
+			st = ts1.mul( w1 ).add( ts2 ).sub( ts3.mul( w2 ) ).sub( ts4.mul( w0 ) );
+			ct.add( st ).intoArray( lines, 7 * n + c0 );
+			ct.sub( st ).intoArray( lines, 8 * n + c0 );
+
+			ct = tc5.neg().mul( w4 ).add( tc6 ).sub( tc7.mul( w5 ) ).sub( tc8.mul( w3 ) );
+			st = ts1.mul( w0 ).sub( ts2 ).add( ts3.mul( w1 ) ).sub( ts4.mul( w2 ) );
+			ct.add( st ).intoArray( lines, 15 * n + c0 );
+			ct.sub( st ).intoArray( lines, 16 * n + c0 );
+		}
+	}
+
+	@Override
+	final void fht(final float[] fz, final int foffset, int n) {
+		int st = 0;
+		n <<= 1;            /* to get BLKSIZE, because of 3DNow! ASM routine */
+		final int fn = n + foffset;
+		int k4 = 4;
+		do {
+			final int kx = k4 >> 1;
+			final int k1 = k4;
+			final int k2 = k4 << 1;
+			final int k3 = k2 + k1;
+			k4 = k2 << 1;
+			int fi = foffset;
+			int gi = fi + kx;
+			do {
+				float f1 = fz[fi + 0] - fz[fi + k1];
+				float f0 = fz[fi + 0] + fz[fi + k1];
+				float f3 = fz[fi + k2] - fz[fi + k3];
+				float f2 = fz[fi + k2] + fz[fi + k3];
+				fz[fi + k2] = f0 - f2;
+				fz[fi + 0] = f0 + f2;
+				fz[fi + k3] = f1 - f3;
+				fz[fi + k1] = f1 + f3;
+				f1 = fz[gi + 0] - fz[gi + k1];
+				f0 = fz[gi + 0] + fz[gi + k1];
+				f3 = Jutil.SQRT2 * fz[gi + k3];
+				f2 = Jutil.SQRT2 * fz[gi + k2];
+				fz[gi + k2] = f0 - f2;
+				fz[gi + 0] = f0 + f2;
+				fz[gi + k3] = f1 - f3;
+				fz[gi + k1] = f1 + f3;
+				gi += k4;
+				fi += k4;
+			} while( fi < fn );
+			/* the masked loads and stores of the Vector API allocate, the last (kx - 1) % L butterflies are scalar */
+			final int tail = kx - ((kx - 1) & (L - 1));
+			for( int f = foffset; f < fn; f += k4 ) {
+				for( int i = 1; i < tail; i += L ) {
+					fht_vector( fz, f, st, i, kx );
+				}
+			}
+			fht_scalar( fz, foffset, fn, st, kx, tail );
+			st++;
+		} while( k4 < n );
+	}
+
+	/** the butterflies i = i0 ... kx - 1 of the stage st, Jfft.fht */
+	private static final void fht_scalar(final float[] fz, final int foffset, final int fn, final int st, final int kx, final int i0) {
+		final int k1 = kx << 1;
+		final int k2 = k1 << 1;
+		final int k3 = k2 + k1;
+		final int k4 = k2 << 1;
+		final float c1t[] = C1[st], s1t[] = S1[st], c2t[] = C2[st], s2t[] = S2[st];
+		for( int i = i0; i < kx; i++ ) {
+			final float c1 = c1t[i], s1 = s1t[i], c2 = c2t[i], s2 = s2t[i];
+			int fi = i + foffset;
+			int gi = k1 - i + foffset;
+			do {
+				float b = s2 * fz[fi + k1] - c2 * fz[gi + k1];
+				float a = c2 * fz[fi + k1] + s2 * fz[gi + k1];
+				final float f1 = fz[fi + 0] - a;
+				final float f0 = fz[fi + 0] + a;
+				final float g1 = fz[gi + 0] - b;
+				final float g0 = fz[gi + 0] + b;
+				b = s2 * fz[fi + k3] - c2 * fz[gi + k3];
+				a = c2 * fz[fi + k3] + s2 * fz[gi + k3];
+				final float f3 = fz[fi + k2] - a;
+				final float f2 = fz[fi + k2] + a;
+				final float g3 = fz[gi + k2] - b;
+				final float g2 = fz[gi + k2] + b;
+				b = s1 * f2 - c1 * g3;
+				a = c1 * f2 + s1 * g3;
+				fz[fi + k2] = f0 - a;
+				fz[fi + 0] = f0 + a;
+				fz[gi + k3] = g1 - b;
+				fz[gi + k1] = g1 + b;
+				b = c1 * g2 - s1 * f3;
+				a = s1 * g2 + c1 * f3;
+				fz[gi + k2] = g0 - a;
+				fz[gi + 0] = g0 + a;
+				fz[fi + k3] = f1 - b;
+				fz[fi + k1] = f1 + b;
+				gi += k4;
+				fi += k4;
+			} while( fi < fn );
+		}
+	}
+
+	/**
+	 * The butterflies i ... i + L - 1 of the block f of the stage st.
+	 * The lane j: fi = f + i + j, gi = f + k1 - i - j, the gi side is reversed.
+	 */
+	private static final void fht_vector(final float[] fz, final int f, final int st, final int i, final int kx) {
+		final int k1 = kx << 1;
+		final int k2 = k1 << 1;
+		final int k3 = k2 + k1;
+		final int fi = f + i;
+		final int gr = f + k1 - i - (L - 1);
+		final FloatVector c1 = FloatVector.fromArray( S, C1[st], i );
+		final FloatVector s1 = FloatVector.fromArray( S, S1[st], i );
+		final FloatVector c2 = FloatVector.fromArray( S, C2[st], i );
+		final FloatVector s2 = FloatVector.fromArray( S, S2[st], i );
+		final FloatVector fk1 = FloatVector.fromArray( S, fz, fi + k1 );
+		final FloatVector gk1 = reversed( fz, gr + k1 );
+		FloatVector b = s2.mul( fk1 ).sub( c2.mul( gk1 ) );
+		FloatVector a = c2.mul( fk1 ).add( s2.mul( gk1 ) );
+		final FloatVector f0_ = FloatVector.fromArray( S, fz, fi );
+		final FloatVector g0_ = reversed( fz, gr );
+		final FloatVector f1 = f0_.sub( a );
+		final FloatVector f0 = f0_.add( a );
+		final FloatVector g1 = g0_.sub( b );
+		final FloatVector g0 = g0_.add( b );
+		final FloatVector fk3 = FloatVector.fromArray( S, fz, fi + k3 );
+		final FloatVector gk3 = reversed( fz, gr + k3 );
+		b = s2.mul( fk3 ).sub( c2.mul( gk3 ) );
+		a = c2.mul( fk3 ).add( s2.mul( gk3 ) );
+		final FloatVector fk2 = FloatVector.fromArray( S, fz, fi + k2 );
+		final FloatVector gk2 = reversed( fz, gr + k2 );
+		final FloatVector f3 = fk2.sub( a );
+		final FloatVector f2 = fk2.add( a );
+		final FloatVector g3 = gk2.sub( b );
+		final FloatVector g2 = gk2.add( b );
+		b = s1.mul( f2 ).sub( c1.mul( g3 ) );
+		a = c1.mul( f2 ).add( s1.mul( g3 ) );
+		f0.sub( a ).intoArray( fz, fi + k2 );
+		f0.add( a ).intoArray( fz, fi );
+		g1.sub( b ).rearrange( REVERSE ).intoArray( fz, gr + k3 );
+		g1.add( b ).rearrange( REVERSE ).intoArray( fz, gr + k1 );
+		b = c1.mul( g2 ).sub( s1.mul( f3 ) );
+		a = s1.mul( g2 ).add( c1.mul( f3 ) );
+		g0.sub( a ).rearrange( REVERSE ).intoArray( fz, gr + k2 );
+		g0.add( a ).rearrange( REVERSE ).intoArray( fz, gr );
+		f1.sub( b ).intoArray( fz, fi + k3 );
+		f1.add( b ).intoArray( fz, fi + k1 );
+	}
+
+	@Override
+	final void quantize_lines_xrpow(final int l, final float istep, final float[] xp, final int xoffset, final int[] pi, final int pioffset) {
+		if( ! QUANTIZE ) {
+			super.quantize_lines_xrpow( l, istep, xp, xoffset, pi, pioffset );
+			return;
+		}
+		final float[] adj43 = Jquantize_pvt.adj43;
+		final int n = l & ~1;// the pairs of the scalar code
+		final int nv = n & -L;
+		final FloatVector vistep = FloatVector.broadcast( S, istep );
+		for( int i = 0; i < nv; i += L ) {
+			final FloatVector x = FloatVector.fromArray( S, xp, xoffset + i ).mul( vistep );
+			/* (int)x, the lookup of adj43 is scalar */
+			final FloatVector y = x.add( MAGIC_FLOAT );
+			y.blend( y.sub( ONE ), y.sub( MAGIC_FLOAT ).compare( VectorOperators.GT, x ) ).reinterpretAsInts().sub( MAGIC_INT ).intoArray( pi, pioffset + i );
+			for( int k = pioffset + i, j = xoffset + i, ke = k + L; k < ke; k++, j++ ) {
+				pi[k] = (int)(xp[j] * istep + adj43[pi[k]]);
+			}
+		}
+		for( int i = nv; i < n; i++ ) {
+			float x = xp[xoffset + i] * istep;
+			x += adj43[(int)x];
+			pi[pioffset + i] = (int)x;
+		}
+	}
+
+	@Override
+	final void quantize_lines_xrpow_01(final int l, final float istep, final float[] xr, final int xroffset, final int[] ix, final int ixoffset) {
+		if( ! QUANTIZE ) {
+			super.quantize_lines_xrpow_01( l, istep, xr, xroffset, ix, ixoffset );
+			return;
+		}
+		final float compareval0 = (1.0f - 0.4054f) / istep;
+		final int n = (l + 1) & ~1;// the pairs of the scalar code
+		final int nv = n & -L;
+		final FloatVector vcompareval0 = FloatVector.broadcast( S, compareval0 );
+		for( int i = 0; i < nv; i += L ) {
+			final VectorMask<Float> zero = FloatVector.fromArray( S, xr, xroffset + i ).compare( VectorOperators.LT, vcompareval0 );
+			MAGIC_FLOAT1.blend( MAGIC_FLOAT, zero ).reinterpretAsInts().sub( MAGIC_INT ).intoArray( ix, ixoffset + i );
+		}
+		for( int i = nv; i < n; i++ ) {
+			ix[ixoffset + i] = (compareval0 > xr[xroffset + i]) ? 0 : 1;
+		}
+	}
+
+	@Override
+	final float init_xrpow_core(final Jgr_info cod_info, final float xrpow[/*576*/], final int upper) {
+		if( ! QUANTIZE ) {
+			return super.init_xrpow_core( cod_info, xrpow, upper );
+		}
+		final float[] xr = cod_info.xr;
+		final int n = upper + 1;
+		final int nv = n & -L;
+		FloatVector vmax = FloatVector.zero( S );
+		FloatVector vsum = FloatVector.zero( S );
+		for( int i = 0; i < nv; i += L ) {
+			final FloatVector t = FloatVector.fromArray( S, xr, i ).abs();
+			vsum = vsum.add( t );
+			/* (float)Math.sqrt( tmp * Math.sqrt( tmp ) ) by the halves of the lanes, the other half of p0 and p1 is 0 */
+			DoubleVector d = (DoubleVector)t.convertShape( VectorOperators.F2D, D, 0 );
+			final FloatVector p0 = (FloatVector)d.mul( d.sqrt() ).sqrt().convertShape( VectorOperators.D2F, S, 0 );
+			d = (DoubleVector)t.convertShape( VectorOperators.F2D, D, 1 );
+			final FloatVector p1 = (FloatVector)d.mul( d.sqrt() ).sqrt().convertShape( VectorOperators.D2F, S, -1 );
+			final FloatVector p = p0.add( p1 );
+			p.intoArray( xrpow, i );
+			vmax = vmax.max( p );
+		}
+		float sum = 0;
+		if( this.exact ) {
+			for( int i = 0; i < nv; i++ ) {
+				final float tmp = xr[i];
+				sum += tmp < 0 ? -tmp : tmp;
+			}
+		} else {
+			sum = vsum.reduceLanes( VectorOperators.ADD );
+		}
+		float xrpow_max = Math.max( cod_info.xrpow_max, vmax.reduceLanes( VectorOperators.MAX ) );
+		for( int i = nv; i < n; i++ ) {
+			float tmp = xr[i];
+			if( tmp < 0 ) {
+				tmp = -tmp;
+			}
+			sum += tmp;
+			final float p = (float)Math.sqrt( tmp * Math.sqrt( tmp ) );
+			xrpow[i] = p;
+			if( p > xrpow_max ) {
+				xrpow_max = p;
+			}
+		}
+		cod_info.xrpow_max = xrpow_max;
+		return sum;
+	}
+
+	@Override
+	final float calc_noise_core(final Jgr_info cod_info, final int j, final int l, final float step) {
+		if( this.exact || ! QUANTIZE ) {
+			return super.calc_noise_core( cod_info, j, l, step );
+		}
+		final float[] xr = cod_info.xr;
+		final int n = l << 1;
+		final int nv = n & -L;
+		FloatVector vsum = FloatVector.zero( S );
+		float noise = 0;
+		if( j > cod_info.count1 ) {
+			for( int i = j, end = j + nv; i < end; i += L ) {
+				final FloatVector t = FloatVector.fromArray( S, xr, i );
+				vsum = vsum.add( t.mul( t ) );
+			}
+			for( int i = j + nv, end = j + n; i < end; i++ ) {
+				final float t = xr[i];
+				noise += t * t;
+			}
+		} else {
+			/* after big_values ix is 0 or 1: pow43[0] * step = 0, pow43[1] * step = step */
+			final int[] ix = cod_info.l3_enc;
+			final float[] pow43 = Jquantize_pvt.pow43;
+			final FloatVector vstep = FloatVector.broadcast( S, step );
+			for( int i = j, end = j + nv; i < end; i += L ) {
+				final FloatVector t = FloatVector.fromArray( S, xr, i ).abs().sub( FloatVector.fromArray( S, pow43, 0, ix, i ).mul( vstep ) );
+				vsum = vsum.add( t.mul( t ) );
+			}
+			for( int i = j + nv, end = j + n; i < end; i++ ) {
+				float t = xr[i];
+				if( t < 0 ) {
+					t = -t;
+				}
+				t -= pow43[ ix[i] ] * step;
+				noise += t * t;
+			}
+		}
+		return vsum.reduceLanes( VectorOperators.ADD ) + noise;
+	}
+
+	@Override
+	final float vec_max(final float[] xr34, final int xoffset, final int bw) {
+		if( ! QUANTIZE || bw < (L << 2) ) {// the reduction of the lanes is slower than the scalar code of the short bands
+			return super.vec_max( xr34, xoffset, bw );
+		}
+		final int nv = bw & -L;
+		FloatVector vmax = FloatVector.zero( S );
+		for( int i = xoffset, end = xoffset + nv; i < end; i += L ) {
+			vmax = vmax.max( FloatVector.fromArray( S, xr34, i ) );
+		}
+		float xfsf = vmax.reduceLanes( VectorOperators.MAX );
+		for( int i = xoffset + nv, end = xoffset + bw; i < end; i++ ) {
+			if( xfsf < xr34[i] ) {
+				xfsf = xr34[i];
+			}
+		}
+		return xfsf;
+	}
+
+	/**
+	 * The groups of 4 lines are added in the order of the scalar code:
+	 * the squares are stored in x and added as (x0 * x0 + x1 * x1) + (x2 * x2 + x3 * x3).
+	 */
+	@Override
+	final float calc_sfb_noise_x34(final float[] xr, final int xroffset, final float[] xr34, final int xr34offset, final int bw, final int sf,
+			final float x[], final int l3[])
+	{
+		if( ! QUANTIZE || bw < L || x.length < L || l3.length < L ) {
+			return super.calc_sfb_noise_x34( xr, xroffset, xr34, xr34offset, bw, sf, x, l3 );
+		}
+		final float sfpow = Jquantize_pvt.pow20[sf + Jquantize_pvt.Q_MAX2]; /*pow(2.0,sf/4.0 ); */
+		final float sfpow34 = Jquantize_pvt.ipow20[sf]; /*pow(sfpow,-3.0/4.0 ); */
+		final float[] adj43 = Jquantize_pvt.adj43;
+		final float[] pow43 = Jquantize_pvt.pow43;
+		final int nv = bw & -L;
+		final FloatVector vsfpow = FloatVector.broadcast( S, sfpow );
+		final FloatVector vsfpow34 = FloatVector.broadcast( S, sfpow34 );
+		float xfsf = 0;
+		for( int i = 0; i < nv; i += L ) {
+			/* k_34_4, l3 is the index map of adj43 and pow43 */
+			FloatVector v = FloatVector.fromArray( S, xr34, xr34offset + i ).mul( vsfpow34 );
+			FloatVector y = v.add( MAGIC_FLOAT );
+			y.blend( y.sub( ONE ), y.sub( MAGIC_FLOAT ).compare( VectorOperators.GT, v ) ).reinterpretAsInts().sub( MAGIC_INT ).intoArray( l3, 0 );
+			for( int k = 0; k < L; k++ ) {
+				x[k] = adj43[l3[k]];
+			}
+			v = v.add( FloatVector.fromArray( S, x, 0 ) );
+			y = v.add( MAGIC_FLOAT );
+			y.blend( y.sub( ONE ), y.sub( MAGIC_FLOAT ).compare( VectorOperators.GT, v ) ).reinterpretAsInts().sub( MAGIC_INT ).intoArray( l3, 0 );
+			for( int k = 0; k < L; k++ ) {
+				x[k] = pow43[l3[k]];
+			}
+			v = FloatVector.fromArray( S, xr, xroffset + i ).abs().sub( FloatVector.fromArray( S, x, 0 ).mul( vsfpow ) );
+			v.mul( v ).intoArray( x, 0 );// v.lane() of a loop boxes v
+			for( int k = 0; k < L; k += 4 ) {
+				xfsf += (x[k] + x[k + 1]) + (x[k + 2] + x[k + 3]);
+			}
+		}
+		for( int i = nv; i < bw; i += 4 ) {
+			xfsf += noise_x34_4( xr, xroffset + i, xr34, xr34offset + i, bw - i, sfpow, sfpow34 );
+		}
+		return xfsf;
+	}
+
+	/** the noise of the group of 4 lines of calc_sfb_noise_x34, the lines after n are 0 */
+	private static final float noise_x34_4(final float[] xr, final int xroffset, final float[] xr34, final int xr34offset, final int n,
+			final float sfpow, final float sfpow34)
+	{
+		float x0 = 0, x1 = 0, x2 = 0, x3 = 0;
+		switch( n ) {
+		default: x3 = noise_x34( xr[xroffset + 3], xr34[xr34offset + 3], sfpow, sfpow34 );
+		case 3: x2 = noise_x34( xr[xroffset + 2], xr34[xr34offset + 2], sfpow, sfpow34 );
+		case 2: x1 = noise_x34( xr[xroffset + 1], xr34[xr34offset + 1], sfpow, sfpow34 );
+		case 1: x0 = noise_x34( xr[xroffset + 0], xr34[xr34offset + 0], sfpow, sfpow34 );
+		}
+		return (x0 * x0 + x1 * x1) + (x2 * x2 + x3 * x3 );
+	}
+
+	/** k_34_4 and the error of one line of calc_sfb_noise_x34 */
+	private static final float noise_x34(float v, final float x34, final float sfpow, final float sfpow34) {
+		float x = sfpow34 * x34;
+		x += Jquantize_pvt.adj43[(int)x];
+		if( v < 0 ) {
+			v = -v;
+		}
+		return v - sfpow * Jquantize_pvt.pow43[(int)x];
+	}
+
+	/** 576 is a multiple of L */
+	@Override
+	final void attack_hpf(final float[] firbuf, final int boffset, final float[] hpfsmpl) {
+		final float[] fircoef = Jpsymodel.fircoef;
+		for( int i = 0, bi = boffset; i < 576; i += L, bi += L ) {
+			FloatVector sum1 = FloatVector.fromArray( S, firbuf, bi + 10 );
+			FloatVector sum2 = FloatVector.zero( S );
+			for( int j = 0, bij = bi + Jpsymodel.NSFIRLEN; j < ((Jpsymodel.NSFIRLEN - 1) / 2) - 1; j++, bij-- ) {
+				sum1 = sum1.add( FloatVector.fromArray( S, firbuf, bi + j ).add( FloatVector.fromArray( S, firbuf, bij ) )
+						.mul( FloatVector.broadcast( S, fircoef[j] ) ) );
+				j++; bij--;
+				sum2 = sum2.add( FloatVector.fromArray( S, firbuf, bi + j ).add( FloatVector.fromArray( S, firbuf, bij ) )
+						.mul( FloatVector.broadcast( S, fircoef[j] ) ) );
+			}
+			sum1.add( sum2 ).intoArray( hpfsmpl, i );
+		}
+	}
+
+	@Override
+	final float max_abs(final float[] pf, final int pfi, final int n, final float p) {
+		final int nv = n & -L;
+		FloatVector vmax = FloatVector.broadcast( S, p );
+		for( int i = pfi, end = pfi + nv; i < end; i += L ) {
+			vmax = vmax.max( FloatVector.fromArray( S, pf, i ).abs() );
+		}
+		return Jpsymodel.max_abs( pf, pfi + nv, n - nv, vmax.reduceLanes( VectorOperators.MAX ) );
+	}
+
+	/** the partitions of less than L lines are scalar */
+	@Override
+	final void calc_energy(final JPsyConst_CB2SB l, final float[] fftenergy, final float[] eb, final float[] max, final float[] avg) {
+		if( this.exact ) {
+			super.calc_energy( l, fftenergy, eb, max, avg );
+			return;
+		}
+		final int[] numlines = l.numlines;
+		final float[] rn = l.rnumlines;
+		for( int b = 0, j = 0, be = l.npart; b < be; ++b ) {
+			final int n = numlines[b];
+			float ebb = 0, m = 0;
+			int i = j;
+			final int end = j + n;
+			if( n >= L ) {
+				FloatVector vsum = FloatVector.zero( S );
+				FloatVector vmax = FloatVector.zero( S );
+				for( final int vend = j + (n & -L); i < vend; i += L ) {
+					final FloatVector el = FloatVector.fromArray( S, fftenergy, i );
+					vsum = vsum.add( el );
+					vmax = vmax.max( el );
+				}
+				ebb = vsum.reduceLanes( VectorOperators.ADD );
+				m = vmax.reduceLanes( VectorOperators.MAX );
+			}
+			for( ; i < end; ++i ) {
+				final float el = fftenergy[i];
+				ebb += el;
+				if( m < el ) {
+					m = el;
+				}
+			}
+			j = end;
+			eb[b] = ebb;
+			max[b] = m;
+			avg[b] = ebb * rn[b];
+		}
+	}
+
+	@Override
+	final void spread_energy(final JPsyConst_CB2SB gd, final float[] eb, final byte[] mask_idx, final float[] mask_tab, final float[] ecb) {
+		final int npart = gd.npart;
+		final float[] tab = Jpsymodel.tab;
+		for( int kk = 0; kk < npart; kk++ ) {
+			mask_tab[kk] = tab[ mask_idx[kk] ];
+		}
+		final float[] s3 = gd.s3;
+		final int[] s3kk = gd.s3kk;
+		final int n = s3.length;
+		final int nv = n & -L;
+		int k = 0;
+		for( ; k < nv; k += L ) {
+			FloatVector.fromArray( S, s3, k ).mul( FloatVector.fromArray( S, eb, 0, s3kk, k ) )
+					.mul( FloatVector.fromArray( S, mask_tab, 0, s3kk, k ) ).intoArray( ecb, k );
+		}
+		for( ; k < n; k++ ) {
+			final int kk = s3kk[k];
+			ecb[k] = s3[k] * eb[kk] * mask_tab[kk];
+		}
+	}
+}
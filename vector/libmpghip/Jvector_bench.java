@@ -0,0 +1,155 @@
+package libmpghip;
+
+import java.util.Random;
+
+import benchmark.Jbenchmark;
+import benchmark.Jdecoder_bench;
+import benchmark.Jencoder_bench;
+import benchmark.Jharness;
+
+/**
+ * Benchmarks of the vector kernels of the decoder against the scalar kernels, see Jvector_kernels.
+ *
+ * Every kernel and the decoding of the streams are measured with the scalar kernels
+ * and with the vector kernels, the speedup is the ratio of the times.
+ * synth granule synthesizes 18 slots of the two channels, as decode_layer3_frame does,
+ * synth slot a slot of the two channels, as the Layer I and Layer II decoders do.
+ * decodeMP3 decodes the stream of two seconds, see Jdecoder_bench.
+ *
+ * Usage: java --add-modules jdk.incubator.vector libmpghip.Jvector_bench [options of Jharness]
+ * The class path needs the libraries, /benchmark and /vector.
+ */
+public final class Jvector_bench {
+	private static final int SETTINGS[] = Jdecoder_bench.LAYER3[0];
+	private static final int LAYER2[] = { 2, 44100, 1, 192 };
+	private static final String KERNELS[] = {
+			"synth granule", "synth slot", "III_hybrid long", "III_hybrid start",
+			"decodeMP3 layer3 " + Jencoder_bench.name( SETTINGS ), "decodeMP3 layer2 " + LAYER2[3] + " " + LAYER2[1]
+		};
+	private static final int SECONDS = 2;
+	private static final int CHUNK_SIZE = 1024;
+
+	private static final int bits(final float v) {
+		return Float.floatToRawIntBits( v );
+	}
+
+	private static final float[] random(final Random r, final int n) {
+		final float a[] = new float[n];
+		for( int i = 0; i < n; i++ ) {
+			a[i] = (r.nextFloat() - 0.5f) * 65536f;
+		}
+		return a;
+	}
+
+	/** @return the decoder, which is initialized with the kernels k */
+	private static final Jmpstr_tag create(final Jdecoder_kernels k) {
+		final Jdecoder_kernels current = Jdecoder_kernels.kernels;
+		Jdecoder_kernels.kernels = k;
+		final Jmpstr_tag mp = new Jmpstr_tag();
+		mp.InitMP3();
+		Jdecoder_kernels.kernels = current;
+		return mp;
+	}
+
+	/** @return the benchmark of the kernel with the kernels k */
+	private static final Jbenchmark create(final int kernel, final String name, final Jdecoder_kernels k, final byte[][] streams) {
+		final Random r = new Random( 1 );
+		switch( kernel ) {
+		case 0:
+		case 1:
+			return new Jbenchmark( name ) {
+				private final Jmpstr_tag mp = create( k );
+				private final int slots = kernel == 0 ? Jmpg123.SSLIMIT : 1;
+				private final float band[][] = { random( r, Jmpg123.SSLIMIT * Jmpg123.SBLIMIT ), random( r, Jmpg123.SSLIMIT * Jmpg123.SBLIMIT ) };
+				private final float sums[] = new float[Jmpg123.SSLIMIT * 32];
+				@Override
+				public int run() {
+					k.synth( this.mp, this.band[0], 0, this.slots, 0, this.sums );
+					k.synth( this.mp, this.band[1], 0, this.slots, 1, this.sums );
+					return bits( this.sums[1] );
+				}
+			};
+		case 2:
+		case 3:
+			return new Jbenchmark( name ) {
+				private final Jmpstr_tag mp = create( k );
+				private final Jgr_info gr_info = new Jgr_info();
+				private final float fsIn[] = random( r, Jmpg123.SBLIMIT * Jmpg123.SSLIMIT );
+				private final float tsOut[] = new float[Jmpg123.SSLIMIT * Jmpg123.SBLIMIT];
+				{
+					this.gr_info.block_type = kernel == 2 ? 0 : 1;
+					this.gr_info.maxb = Jmpg123.SBLIMIT;
+				}
+				@Override
+				public int run() {
+					k.III_hybrid( this.mp, this.fsIn, this.tsOut, 0, this.gr_info );
+					return bits( this.tsOut[1] );
+				}
+			};
+		case 4:
+		case 5:
+			return new Jbenchmark( name ) {
+				private final byte[] mp3 = streams[kernel - 4];
+				private final Jmpstr_tag decoder = create( k );
+				private final byte[] in = new byte[CHUNK_SIZE];
+				private final short[] out = new short[1152 * 2];
+				private final int[] done = new int[1];
+				@Override
+				public boolean reset() {
+					final Jdecoder_kernels current = Jdecoder_kernels.kernels;
+					Jdecoder_kernels.kernels = k;
+					this.decoder.InitMP3();
+					Jdecoder_kernels.kernels = current;
+					return true;
+				}
+				@Override
+				public int run() {
+					final Jmpstr_tag d = this.decoder;// java
+					int samples = 0;
+					for( int offset = 0; offset < this.mp3.length; offset += CHUNK_SIZE ) {
+						final int size = Math.min( CHUNK_SIZE, this.mp3.length - offset );
+						System.arraycopy( this.mp3, offset, this.in, 0, size );
+						int ret = d.decodeMP3( this.in, size, this.out, this.out.length, this.done );
+						while( ret == Jmpg123.MP3_OK ) {
+							samples += this.done[0];
+							ret = d.decodeMP3( null, 0, this.out, this.out.length, this.done );
+						}
+					}
+					return samples;
+				}
+			};
+		}
+		return null;
+	}
+
+	/**
+	 * main.
+	 * @param args options of Jharness
+	 */
+	public static final void main(final String[] args) {
+		final Jdecoder_kernels scalar = new Jdecoder_kernels();
+		final Jdecoder_kernels current = Jdecoder_kernels.kernels;
+		if( ! Jdecoder_kernels.set_vector( true ) ) {
+			throw new IllegalStateException("the vector kernels are not available, --add-modules jdk.incubator.vector");
+		}
+		final Jdecoder_kernels vector = Jdecoder_kernels.kernels;
+		Jdecoder_kernels.kernels = current;
+		final byte[][] streams = {
+				Jdecoder_bench.encode( SETTINGS, SECONDS ),
+				Jlayer12_stream.generate( LAYER2[0], LAYER2[1], LAYER2[2], LAYER2[3], LAYER2[1] * SECONDS / 1152 )
+			};
+
+		final Jharness harness = new Jharness( args );
+		harness.header();
+		for( int kernel = 0; kernel < KERNELS.length; kernel++ ) {
+			final String name = KERNELS[kernel];
+			if( harness.matches( name ) ) {
+				final double s = harness.measure( create( kernel, name + " scalar", scalar, streams ) );
+				final double v = harness.measure( create( kernel, name + " vector", vector, streams ) );
+				if( s > 0 && v > 0 ) {
+					System.out.printf("%-64s %11.2fx\n", name + " speedup", s / v );
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,208 @@
+package libmpghip;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import benchmark.Jdecoder_bench;
+import benchmark.Jencoder_bench;
+
+/**
+ * Compares the vector kernels of the decoder with the scalar kernels, see Jvector_kernels.
+ *
+ * Every kernel gets the same random input, the outputs must be the same bit for bit:
+ * synth with 1 ... 18 slots of the mono and the stereo streams, III_hybrid with all block types.
+ * The decoders keep their state between the calls, so the synthesis buffers and the overlap of the blocks
+ * are compared too. Then the streams of Jdecoder_bench are decoded by decodeMP3 and decodeMP3_unclipped
+ * with the scalar kernels and with the vector kernels, the samples must be the same.
+ *
+ * Usage: java --add-modules jdk.incubator.vector libmpghip.Jvector_check [iterations]
+ * The class path needs the libraries, /benchmark and /vector.
+ */
+public final class Jvector_check {
+	private static final int SECONDS = 2;
+	private static final int CHUNK_SIZE = 1024;
+	//
+	private final Jdecoder_kernels scalar = new Jdecoder_kernels();
+	private final Jdecoder_kernels vector;
+	private final Random random = new Random( 1 );
+	private int failures = 0;
+	//
+	private Jvector_check() {
+		final boolean is_vector = Jdecoder_kernels.set_vector( true );
+		this.vector = Jdecoder_kernels.kernels;
+		Jdecoder_kernels.set_vector( false );
+		if( ! is_vector ) {
+			throw new IllegalStateException("the vector kernels are not available, --add-modules jdk.incubator.vector");
+		}
+	}
+
+	/** @return the decoder, which is initialized with the kernels k */
+	private static final Jmpstr_tag create(final Jdecoder_kernels k) {
+		final Jdecoder_kernels current = Jdecoder_kernels.kernels;
+		Jdecoder_kernels.kernels = k;
+		final Jmpstr_tag mp = new Jmpstr_tag();
+		mp.InitMP3();
+		Jdecoder_kernels.kernels = current;
+		return mp;
+	}
+
+	private final float next() {
+		switch( this.random.nextInt( 16 ) ) {
+		case 0: return 0f;
+		case 1: return -0f;
+		case 2: return Float.MIN_VALUE * this.random.nextInt( 1000 );
+		case 3: return (this.random.nextFloat() - 0.5f) * 1e30f;
+		default: return (this.random.nextFloat() - 0.5f) * 65536f;
+		}
+	}
+
+	private final void fill(final float[] a) {
+		for( int i = 0; i < a.length; i++ ) {
+			a[i] = next();
+		}
+	}
+
+	/** @return false if the arrays are different up to n */
+	private final boolean compare(final String name, final float[] expected, final float[] actual, final int n) {
+		for( int i = 0; i < n; i++ ) {
+			if( Float.floatToIntBits( expected[i] ) != Float.floatToIntBits( actual[i] ) ) {
+				System.out.printf("%s: [%d] scalar %s, vector %s\n", name, i, expected[i], actual[i] );
+				this.failures++;
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private final void synth(final int iterations) {
+		final Jmpstr_tag mp0 = create( this.scalar );
+		final Jmpstr_tag mp1 = create( this.vector );
+		final float band[][] = new float[2][Jmpg123.SSLIMIT * Jmpg123.SBLIMIT + Jmpg123.SBLIMIT];
+		final float sums0[] = new float[Jmpg123.SSLIMIT * 32];
+		final float sums1[] = new float[Jmpg123.SSLIMIT * 32];
+		for( int n = 0; n < iterations; n++ ) {
+			fill( band[0] );
+			fill( band[1] );
+			final int slots = (n & 1) == 0 ? Jmpg123.SSLIMIT : 1 + this.random.nextInt( Jmpg123.SSLIMIT );
+			final int boffset = this.random.nextInt( Jmpg123.SBLIMIT + 1 );
+			final int channels = this.random.nextInt( 4 ) == 0 ? 1 : 2;
+			for( int channel = 0; channel < channels; channel++ ) {
+				this.scalar.synth( mp0, band[channel], boffset, slots, channel, sums0 );
+				this.vector.synth( mp1, band[channel], boffset, slots, channel, sums1 );
+				if( ! compare("synth " + slots + " slots, channel " + channel, sums0, sums1, slots << 5 ) ) {
+					return;
+				}
+			}
+			if( mp0.synth_bo != mp1.synth_bo ) {
+				System.out.printf("synth: synth_bo scalar %d, vector %d\n", mp0.synth_bo, mp1.synth_bo );
+				this.failures++;
+				return;
+			}
+		}
+	}
+
+	private final void III_hybrid(final int iterations) {
+		final Jmpstr_tag mp0 = create( this.scalar );
+		final Jmpstr_tag mp1 = create( this.vector );
+		final Jgr_info gr_info = new Jgr_info();
+		final float fsIn[] = new float[Jmpg123.SBLIMIT * Jmpg123.SSLIMIT];
+		final float fs0[] = new float[fsIn.length];
+		final float fs1[] = new float[fsIn.length];
+		final float ts0[] = new float[Jmpg123.SSLIMIT * Jmpg123.SBLIMIT];
+		final float ts1[] = new float[Jmpg123.SSLIMIT * Jmpg123.SBLIMIT];
+		for( int n = 0; n < iterations; n++ ) {
+			fill( fsIn );
+			System.arraycopy( fsIn, 0, fs0, 0, fsIn.length );
+			System.arraycopy( fsIn, 0, fs1, 0, fsIn.length );
+			final int ch = this.random.nextInt( 2 );
+			gr_info.block_type = n & 3;
+			gr_info.mixed_block_flag = gr_info.block_type == 2 && this.random.nextInt( 4 ) == 0 ? 1 : 0;
+			gr_info.maxb = this.random.nextInt( Jmpg123.SBLIMIT + 1 );
+			this.scalar.III_hybrid( mp0, fs0, ts0, ch, gr_info );
+			this.vector.III_hybrid( mp1, fs1, ts1, ch, gr_info );
+			final String name = "III_hybrid block_type " + gr_info.block_type + (gr_info.mixed_block_flag != 0 ? " mixed" : "") +
+					" maxb " + gr_info.maxb;
+			if( ! compare( name, ts0, ts1, ts0.length ) ||
+					! compare( name + " block 0", mp0.hybrid_block[0][ch], mp1.hybrid_block[0][ch], fsIn.length ) ||
+					! compare( name + " block 1", mp0.hybrid_block[1][ch], mp1.hybrid_block[1][ch], fsIn.length ) ) {
+				return;
+			}
+		}
+	}
+
+	/** @return the samples of the stream, decoded by decodeMP3 or decodeMP3_unclipped with the kernels k */
+	private static final Object decode(final byte[] mp3, final Jdecoder_kernels k, final boolean unclipped) {
+		final Jmpstr_tag d = create( k );
+		final byte[] in = new byte[CHUNK_SIZE];
+		final short[] out = new short[1152 * 2];
+		final float[] out_unclipped = new float[1152 * 2];
+		final int[] done = new int[1];
+		final short[] pcm = new short[unclipped ? 0 : mp3.length * 200];
+		final float[] pcm_unclipped = new float[unclipped ? mp3.length * 200 : 0];
+		int samples = 0;
+		for( int offset = 0; offset < mp3.length; offset += CHUNK_SIZE ) {
+			final int size = Math.min( CHUNK_SIZE, mp3.length - offset );
+			System.arraycopy( mp3, offset, in, 0, size );
+			int ret = unclipped ?
+					d.decodeMP3_unclipped( in, size, out_unclipped, out_unclipped.length, done ) :
+					d.decodeMP3( in, size, out, out.length, done );
+			while( ret == Jmpg123.MP3_OK ) {
+				if( unclipped ) {
+					System.arraycopy( out_unclipped, 0, pcm_unclipped, samples, done[0] );
+				} else {
+					System.arraycopy( out, 0, pcm, samples, done[0] );
+				}
+				samples += done[0];
+				ret = unclipped ?
+						d.decodeMP3_unclipped( null, 0, out_unclipped, out_unclipped.length, done ) :
+						d.decodeMP3( null, 0, out, out.length, done );
+			}
+			if( ret == Jmpg123.MP3_ERR ) {
+				throw new IllegalStateException("decodeMP3 failed");
+			}
+		}
+		return unclipped ? (Object)Arrays.copyOf( pcm_unclipped, samples ) : (Object)Arrays.copyOf( pcm, samples );
+	}
+
+	private final void decode(final String name, final byte[] mp3) {
+		final boolean same = Arrays.equals( (short[])decode( mp3, this.scalar, false ), (short[])decode( mp3, this.vector, false ) );
+		final float[] s = (float[])decode( mp3, this.scalar, true );
+		final float[] v = (float[])decode( mp3, this.vector, true );
+		final boolean same_unclipped = s.length == v.length && compare( name + " unclipped", s, v, s.length );
+		System.out.printf("decode %-40s %s, unclipped %s, %d samples\n", name,
+				same ? "same" : "DIFFERENT", same_unclipped ? "same" : "DIFFERENT", s.length );
+		if( ! same || s.length != v.length ) {// compare counts the different samples of the same length
+			this.failures++;
+		}
+	}
+
+	private final void decode() {
+		for( final int[] settings : Jdecoder_bench.LAYER3 ) {
+			decode( Jencoder_bench.name( settings ), Jdecoder_bench.encode( settings, SECONDS ) );
+		}
+		for( final int[] settings : Jdecoder_bench.LAYER12 ) {
+			final int samples = settings[0] == 1 ? 384 : 1152;
+			decode("layer" + settings[0] + " " + settings[3] + " " + settings[1] + " " + settings[2],
+					Jlayer12_stream.generate( settings[0], settings[1], settings[2], settings[3], settings[1] * SECONDS / samples ) );
+		}
+	}
+
+	/**
+	 * main.
+	 * @param args [iterations of the kernel tests]
+	 */
+	public static final void main(final String[] args) {
+		final int iterations = args.length > 0 ? Integer.parseInt( args[0] ) : 10000;
+		final Jvector_check check = new Jvector_check();
+		System.out.println("vector kernels: " + check.vector.getClass().getName() );
+		check.synth( iterations );
+		check.III_hybrid( iterations );
+		System.out.println("kernels: " + (check.failures == 0 ? "same" : check.failures + " failures") );
+		check.decode();
+		if( check.failures != 0 ) {
+			System.out.println( check.failures + " failures");
+			System.exit( 1 );
+		}
+		System.out.println("OK");
+	}
+}
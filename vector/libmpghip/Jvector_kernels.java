@@ -0,0 +1,498 @@
+package libmpghip;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorShuffle;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The decoder kernels by the Vector API, see Jdecoder_kernels.
+ *
+ * The lanes do the same float operations in the same order as the scalar code, without FMA,
+ * so the results are the same bit for bit, see Jvector_check.
+ *
+ * synth: dct64 of up to 16 slots at once, the lanes are the slots. The slots, which do not fill a vector,
+ * use the scalar dct64. The results are written as [k][slot] and copied slot by slot
+ * to the synthesis buffers, which are transposed: buf[column * 17 + k], so the windowing of a slot
+ * reads the rows of a column with one load. The lanes of the windowing are the output samples,
+ * the middle sample is scalar.
+ * III_hybrid: dct36 of the long blocks, the lanes are the subbands, the samples are gathered
+ * and scattered with the stride 18. The short and the mixed blocks use the scalar code,
+ * as the antialias, they are rare or short.
+ *
+ * C2 of Java 17 allocates for the masked loads and stores and for the vectors,
+ * which are passed to or returned by the methods, which are not inlined: the kernels avoid them,
+ * the large kernels are split into the methods, which pass the vectors by the arrays.
+ * The gathers of the inputs of dct64 were not intrinsified in the large method, the slots are transposed
+ * to [i][lane] by the scalar code instead.
+ *
+ * Needs: --add-modules jdk.incubator.vector
+ */
+final class Jvector_kernels extends Jdecoder_kernels {
+	/** the preferred species, but not more than 16 lanes: 16 slots at once */
+	private static final VectorSpecies<Float> S = FloatVector.SPECIES_PREFERRED.length() > 16 ?
+			FloatVector.SPECIES_512 : FloatVector.SPECIES_PREFERRED;
+	private static final int L = S.length();
+	private static final VectorShuffle<Float> REVERSE;
+	/* synth */
+	/** the slots of dct64 at once, the columns of JDecWorkspace.synth_out0 and synth_out1 */
+	private static final int SLOTS = 16;
+	/** the stride of the columns of the transposed synthesis buffers */
+	private static final int ROWS = 17;
+	/** the first half of the window: [bo1 >> 1][t][j] = decwin[16 - bo1 + 32 * j + t], the sample j, the column t */
+	private static final float WIN_J[] = new float[8 * 16 * 16];
+	/**
+	 * the second half of the window: [bo1 >> 1][c][q], the row q + 1 of the column c,
+	 * -decwin[16 + bo1 + 32 * r] for the column 15, decwin[15 + bo1 + 32 * r - c] for the others,
+	 * 0 for the row 16, the lane of the middle sample
+	 */
+	private static final float WIN_R[] = new float[8 * 16 * 16];
+	/* III_hybrid */
+	/** the windows of dct36 as [k][subband], win of the block type for the even subbands, win1 for the odd subbands */
+	private static final float WIN36[][] = new float[4][36 * Jmpg123.SBLIMIT];
+	/** the stride of the samples of the subbands of dct36 */
+	private static final int STRIDE_SS[] = new int[L];
+
+	static {
+		final int[] rev = new int[L];
+		for( int j = 0; j < L; j++ ) {
+			rev[j] = L - 1 - j;
+			STRIDE_SS[j] = Jmpg123.SSLIMIT * j;
+		}
+		REVERSE = VectorShuffle.fromArray( S, rev, 0 );
+
+		final float[] decwin = Jdct64.sDecwin;
+		for( int bo1 = 1; bo1 < 16; bo1 += 2 ) {
+			final int o = (bo1 >> 1) << 8;
+			for( int c = 0; c < 16; c++ ) {
+				for( int j = 0; j < 16; j++ ) {
+					WIN_J[o + (c << 4) + j] = decwin[16 - bo1 + 32 * j + c];
+				}
+				for( int q = 0; q < 15; q++ ) {
+					final int r = q + 1;
+					WIN_R[o + (c << 4) + q] = c == 15 ? -decwin[16 + bo1 + 32 * r] : decwin[15 + bo1 + 32 * r - c];
+				}
+			}
+		}
+
+		for( int bt = 0; bt < 4; bt++ ) {
+			for( int k = 0; k < 36; k++ ) {
+				for( int sb = 0; sb < Jmpg123.SBLIMIT; sb++ ) {
+					WIN36[bt][k * Jmpg123.SBLIMIT + sb] = ((sb & 1) == 0 ? Jlayer3.win : Jlayer3.win1)[bt][k];
+				}
+			}
+		}
+	}
+
+	Jvector_kernels() {
+		if( L < 4 ) {
+			throw new UnsupportedOperationException("the vectors are too short: " + S );
+		}
+	}
+
+	@Override
+	final void synth(final Jmpstr_tag mp, final float[] band, final int boffset, final int slots, final int channel, final float[] sums) {
+		final JDecWorkspace wk = mp.wk;
+		final float[] out0 = wk.synth_out0;
+		final float[] out1 = wk.synth_out1;
+		final float[][] buf = mp.synth_buffs[channel];
+		int bo = mp.synth_bo;
+		if( 0 != channel ) {
+			bo += slots;
+		}
+		for( int s0 = 0; s0 < slots; s0 += SLOTS ) {
+			final int n = Math.min( SLOTS, slots - s0 );
+			final int offset = boffset + Jmpg123.SBLIMIT * s0;
+			int s = 0;
+			for( ; s + L <= n; s += L ) {
+				dct64( band, offset + Jmpg123.SBLIMIT * s, out0, out1, s, wk.synth_b1, wk.synth_b2 );
+			}
+			for( ; s < n; s++ ) {
+				Jdct64.dct64( out0, s, out1, s, band, offset + Jmpg123.SBLIMIT * s, wk.dct64_b1, wk.dct64_b2 );
+			}
+			for( s = 0; s < n; s++ ) {
+				bo--;
+				bo &= 0xf;
+				final int soffset = (s0 + s) << 5;
+				if( (bo & 0x1) != 0 ) {
+					column( out0, ROWS, s, buf[1], ((bo + 1) & 0xf) * ROWS );
+					column( out1, 16, s, buf[0], bo * ROWS );
+					window( buf[0], bo, sums, soffset );
+				} else {
+					column( out0, ROWS, s, buf[0], bo * ROWS );
+					column( out1, 16, s, buf[1], (bo + 1) * ROWS );
+					window( buf[1], bo + 1, sums, soffset );
+				}
+			}
+		}
+		mp.synth_bo = bo;
+	}
+
+	/** copies the column s of src[k][16] to dst[doffset + k] */
+	private static final void column(final float[] src, final int rows, final int s, final float[] dst, final int doffset) {
+		for( int k = 0, i = s; k < rows; k++, i += 16 ) {
+			dst[doffset + k] = src[i];
+		}
+	}
+
+	/** Jdct64.window with the transposed buffer */
+	private static final void window(final float[] buf0, final int bo1, final float[] sums, final int soffset) {
+		final float[] wj = WIN_J;
+		final float[] wr = WIN_R;
+		final int wo = (bo1 >> 1) << 8;
+		/* the samples 0 ... 15: the rows 0 ... 15, the sum of the columns 0 ... 15 */
+		for( int j0 = 0; j0 < 16; j0 += L ) {
+			int w = wo + j0;
+			int b = j0;
+			FloatVector sum = FloatVector.fromArray( S, wj, w ).mul( FloatVector.fromArray( S, buf0, b ) );
+			for( int t = 1; t < 15; t += 2 ) {
+				w += 16;
+				b += ROWS;
+				sum = sum.sub( FloatVector.fromArray( S, wj, w ).mul( FloatVector.fromArray( S, buf0, b ) ) );
+				w += 16;
+				b += ROWS;
+				sum = sum.add( FloatVector.fromArray( S, wj, w ).mul( FloatVector.fromArray( S, buf0, b ) ) );
+			}
+			sum = sum.sub( FloatVector.fromArray( S, wj, w + 16 ).mul( FloatVector.fromArray( S, buf0, b + ROWS ) ) );
+			sum.intoArray( sums, soffset + j0 );
+		}
+		/* the samples 31 ... 17: the rows 1 ... 15, the sum of the columns 15 ... 0. The lane of the row 16 is the sample 16 */
+		for( int q0 = 0; q0 < 16; q0 += L ) {
+			int w = wo + (15 << 4) + q0;
+			int b = 15 * ROWS + 1 + q0;
+			FloatVector sum = FloatVector.fromArray( S, wr, w ).mul( FloatVector.fromArray( S, buf0, b ) );
+			do {
+				w -= 16;
+				b -= ROWS;
+				sum = sum.sub( FloatVector.fromArray( S, wr, w ).mul( FloatVector.fromArray( S, buf0, b ) ) );
+			} while( b > ROWS );
+			sum.rearrange( REVERSE ).intoArray( sums, soffset + 32 - q0 - L );
+		}
+		/* the sample 16: the row 16, the even columns */
+		final float[] decwin = Jdct64.sDecwin;
+		final int window = 16 - bo1 + 0x20 * 16;
+		final int b0 = 16;
+		float sum  = decwin[ window + 0x0] * buf0[ b0 + 0x0 * ROWS];
+		sum += decwin[ window + 0x2] * buf0[ b0 + 0x2 * ROWS];
+		sum += decwin[ window + 0x4] * buf0[ b0 + 0x4 * ROWS];
+		sum += decwin[ window + 0x6] * buf0[ b0 + 0x6 * ROWS];
+		sum += decwin[ window + 0x8] * buf0[ b0 + 0x8 * ROWS];
+		sum += decwin[ window + 0xA] * buf0[ b0 + 0xA * ROWS];
+		sum += decwin[ window + 0xC] * buf0[ b0 + 0xC * ROWS];
+		sum += decwin[ window + 0xE] * buf0[ b0 + 0xE * ROWS];
+		sums[soffset + 16] = sum;
+	}
+
+	/**
+	 * A stage of dct64: the butterflies of the blocks of n, the even blocks subtract the upper half
+	 * from the lower half, the odd blocks the lower half from the upper half. a and b are [i][lane].
+	 */
+	private static final void stage(final float[] a, final float[] b, final int n, final float[] costab) {
+		final int h = n >> 1;
+		for( int block = 0; block < 32; block += n << 1 ) {
+			for( int i = 0; i < h; i++ ) {
+				final int lo = (block + i) * L;
+				final int hi = (block + n - 1 - i) * L;
+				final FloatVector x = FloatVector.fromArray( S, a, lo );
+				final FloatVector y = FloatVector.fromArray( S, a, hi );
+				x.add( y ).intoArray( b, lo );
+				x.sub( y ).mul( costab[i] ).intoArray( b, hi );
+			}
+			/* a phi of two vectors is boxed by C2 of Java 17 */
+			for( int i = 0; i < h; i++ ) {
+				final int lo = (block + n + i) * L;
+				final int hi = (block + n + n - 1 - i) * L;
+				final FloatVector x = FloatVector.fromArray( S, a, lo );
+				final FloatVector y = FloatVector.fromArray( S, a, hi );
+				x.add( y ).intoArray( b, lo );
+				y.sub( x ).mul( costab[i] ).intoArray( b, hi );
+			}
+		}
+	}
+
+	/** Jdct64.dct64 of L slots, the lanes are the slots: band[boffset + SBLIMIT * lane], out0 and out1 as [k][16] at the column s */
+	private static final void dct64(final float[] band, final int boffset, final float[] out0, final float[] out1, final int s,
+			final float[] b1, final float[] b2) {
+		final float[][] pnts = Jdct64.sPnts;
+		/* the samples as [i][lane] */
+		for( int j = 0, o = boffset; j < L; j++, o += Jmpg123.SBLIMIT ) {
+			for( int i = 0, k = j; i < Jmpg123.SBLIMIT; i++, k += L ) {
+				b2[k] = band[o + i];
+			}
+		}
+		{
+			final float[] costab = pnts[0];
+			for( int i = 0; i < 16; i++ ) {
+				final FloatVector x = FloatVector.fromArray( S, b2, i * L );
+				final FloatVector y = FloatVector.fromArray( S, b2, (31 - i) * L );
+				x.add( y ).intoArray( b1, i * L );
+				x.sub( y ).mul( costab[i] ).intoArray( b1, (31 - i) * L );
+			}
+		}
+		stage( b1, b2, 16, pnts[1] );
+		stage( b2, b1, 8, pnts[2] );
+		stage( b1, b2, 4, pnts[3] );
+		stage( b2, b1, 2, pnts[4] );
+
+		for( int g = 0; g < 32; g += 8 ) {
+			final FloatVector v3 = FloatVector.fromArray( S, b1, (g + 3) * L );
+			final FloatVector v5 = FloatVector.fromArray( S, b1, (g + 5) * L );
+			final FloatVector v7 = FloatVector.fromArray( S, b1, (g + 7) * L );
+			FloatVector.fromArray( S, b1, (g + 2) * L ).add( v3 ).intoArray( b1, (g + 2) * L );
+			final FloatVector v6 = FloatVector.fromArray( S, b1, (g + 6) * L ).add( v7 );
+			FloatVector.fromArray( S, b1, (g + 4) * L ).add( v6 ).intoArray( b1, (g + 4) * L );
+			v6.add( v5 ).intoArray( b1, (g + 6) * L );
+			v5.add( v7 ).intoArray( b1, (g + 5) * L );
+		}
+
+		FloatVector.fromArray( S, b1, 0x00 * L ).intoArray( out0, 0x10 * 16 + s );
+		FloatVector.fromArray( S, b1, 0x04 * L ).intoArray( out0, 0x10 * 12 + s );
+		FloatVector.fromArray( S, b1, 0x02 * L ).intoArray( out0, 0x10 * 8 + s );
+		FloatVector.fromArray( S, b1, 0x06 * L ).intoArray( out0, 0x10 * 4 + s );
+		final FloatVector v01 = FloatVector.fromArray( S, b1, 0x01 * L );
+		v01.intoArray( out0, 0x10 * 0 + s );
+		v01.intoArray( out1, 0x10 * 0 + s );
+		FloatVector.fromArray( S, b1, 0x05 * L ).intoArray( out1, 0x10 * 4 + s );
+		FloatVector.fromArray( S, b1, 0x03 * L ).intoArray( out1, 0x10 * 8 + s );
+		FloatVector.fromArray( S, b1, 0x07 * L ).intoArray( out1, 0x10 * 12 + s );
+
+		{
+			final FloatVector v08 = FloatVector.fromArray( S, b1, 0x08 * L );
+			final FloatVector v09 = FloatVector.fromArray( S, b1, 0x09 * L );
+			final FloatVector v0A = FloatVector.fromArray( S, b1, 0x0A * L );
+			final FloatVector v0B = FloatVector.fromArray( S, b1, 0x0B * L );
+			final FloatVector v0C = FloatVector.fromArray( S, b1, 0x0C * L );
+			final FloatVector v0D = FloatVector.fromArray( S, b1, 0x0D * L );
+			final FloatVector v0E = FloatVector.fromArray( S, b1, 0x0E * L );
+			final FloatVector v0F = FloatVector.fromArray( S, b1, 0x0F * L );
+			v08.add( v0C ).intoArray( out0, 0x10 * 14 + s );
+			v0C.add( v0A ).intoArray( out0, 0x10 * 10 + s );
+			v0A.add( v0E ).intoArray( out0, 0x10 * 6 + s );
+			v0E.add( v09 ).intoArray( out0, 0x10 * 2 + s );
+			v09.add( v0D ).intoArray( out1, 0x10 * 2 + s );
+			v0D.add( v0B ).intoArray( out1, 0x10 * 6 + s );
+			v0B.add( v0F ).intoArray( out1, 0x10 * 10 + s );
+			v0F.intoArray( out1, 0x10 * 14 + s );
+		}
+
+		{
+			final FloatVector v10 = FloatVector.fromArray( S, b1, 0x10 * L );
+			final FloatVector v11 = FloatVector.fromArray( S, b1, 0x11 * L );
+			final FloatVector v12 = FloatVector.fromArray( S, b1, 0x12 * L );
+			final FloatVector v13 = FloatVector.fromArray( S, b1, 0x13 * L );
+			final FloatVector v14 = FloatVector.fromArray( S, b1, 0x14 * L );
+			final FloatVector v15 = FloatVector.fromArray( S, b1, 0x15 * L );
+			final FloatVector v16 = FloatVector.fromArray( S, b1, 0x16 * L );
+			final FloatVector v17 = FloatVector.fromArray( S, b1, 0x17 * L );
+			final FloatVector v1C = FloatVector.fromArray( S, b1, 0x1C * L );
+			final FloatVector v1A = FloatVector.fromArray( S, b1, 0x1A * L );
+			final FloatVector v1E = FloatVector.fromArray( S, b1, 0x1E * L );
+			final FloatVector v19 = FloatVector.fromArray( S, b1, 0x19 * L );
+			final FloatVector v1D = FloatVector.fromArray( S, b1, 0x1D * L );
+			final FloatVector v1B = FloatVector.fromArray( S, b1, 0x1B * L );
+			final FloatVector v1F = FloatVector.fromArray( S, b1, 0x1F * L );
+			final FloatVector v18 = FloatVector.fromArray( S, b1, 0x18 * L ).add( v1C );
+			v10.add( v18 ).intoArray( out0, 0x10 * 15 + s );
+			v18.add( v14 ).intoArray( out0, 0x10 * 13 + s );
+			final FloatVector w1C = v1C.add( v1A );
+			v14.add( w1C ).intoArray( out0, 0x10 * 11 + s );
+			w1C.add( v12 ).intoArray( out0, 0x10 * 9 + s );
+			final FloatVector w1A = v1A.add( v1E );
+			v12.add( w1A ).intoArray( out0, 0x10 * 7 + s );
+			w1A.add( v16 ).intoArray( out0, 0x10 * 5 + s );
+			final FloatVector w1E = v1E.add( v19 );
+			v16.add( w1E ).intoArray( out0, 0x10 * 3 + s );
+			w1E.add( v11 ).intoArray( out0, 0x10 * 1 + s );
+			final FloatVector w19 = v19.add( v1D );
+			v11.add( w19 ).intoArray( out1, 0x10 * 1 + s );
+			w19.add( v15 ).intoArray( out1, 0x10 * 3 + s );
+			final FloatVector w1D = v1D.add( v1B );
+			v15.add( w1D ).intoArray( out1, 0x10 * 5 + s );
+			w1D.add( v13 ).intoArray( out1, 0x10 * 7 + s );
+			final FloatVector w1B = v1B.add( v1F );
+			v13.add( w1B ).intoArray( out1, 0x10 * 9 + s );
+			w1B.add( v17 ).intoArray( out1, 0x10 * 11 + s );
+			v17.add( v1F ).intoArray( out1, 0x10 * 13 + s );
+			v1F.intoArray( out1, 0x10 * 15 + s );
+		}
+	}
+
+	@Override
+	final void III_hybrid(final Jmpstr_tag mp, final float fsIn[], final float tsOut[], final int ch, final Jgr_info gr_infos) {
+		final int bt = gr_infos.block_type;
+		if( gr_infos.mixed_block_flag != 0 || bt == 2 ) {
+			super.III_hybrid( mp, fsIn, tsOut, ch, gr_infos );
+			return;
+		}
+		final int[] blc = mp.hybrid_blc;
+		int b = blc[ch];
+		final float[] block1 = mp.hybrid_block[b][ch];
+		b = -b + 1;
+		final float[] block2 = mp.hybrid_block[b][ch];
+		blc[ch] = b;
+
+		final float[] w = WIN36[bt];
+		/* the scalar code does the pairs of the subbands */
+		final int sblimit = (gr_infos.maxb + 1) & ~1;
+		final float[] in = mp.wk.hybrid_in;
+		final float[] sums = mp.wk.hybrid_sums;
+		for( int sb0 = 0; sb0 < sblimit; sb0 += L ) {
+			dct36( fsIn, block1, block2, sb0, w, tsOut, in, sums );
+		}
+		/* the subbands above sblimit, the lanes above sblimit are overwritten */
+		for( int sb = sblimit, rawout = sblimit * Jmpg123.SSLIMIT; sb < Jmpg123.SBLIMIT; sb++ ) {
+			for( int i = sb, ie = sb + Jmpg123.SSLIMIT * Jmpg123.SBLIMIT; i < ie; i += Jmpg123.SBLIMIT ) {
+				tsOut[ i ] = block1[ rawout ];
+				block2[ rawout++ ] = 0.0f;
+			}
+		}
+	}
+
+	/**
+	 * Jlayer3.dct36 of the subbands sb0 ... sb0 + L - 1, the lanes are the subbands.
+	 * The input, the overlap out1 and out2 are gathered and scattered with the stride 18.
+	 * The steps are small methods, which pass the vectors by the arrays in and sums as [k][lane]:
+	 * the single method was too large for C2, which did not intrinsify its vectors in the decoder.
+	 */
+	private static final void dct36(final float[] fsIn, final float[] out1, final float[] out2, final int sb0, final float[] w, final float[] ts,
+			final float[] in, final float[] sums) {
+		final int o = sb0 * Jmpg123.SSLIMIT;
+		dct36_in( fsIn, o, in );
+		dct36_08( in, sums );
+		dct36_17( in, sums );
+		dct36_26( in, sums );
+		dct36_35( in, sums );
+		dct36_4( in, sums );
+		for( int v = 0; v < 9; v++ ) {
+			macro0( v, sums, out1, o, w, sb0, ts, out2 );
+		}
+	}
+
+	/** the sums of the inputs of dct36 to in */
+	private static final void dct36_in(final float[] fsIn, final int o, final float[] in) {
+		for( int k = 0; k < Jmpg123.SSLIMIT; k++ ) {
+			FloatVector.fromArray( S, fsIn, o + k, STRIDE_SS, 0 ).intoArray( in, k * L );
+		}
+		for( int k = 17 * L; k > 0; k -= L ) {
+			FloatVector.fromArray( S, in, k ).add( FloatVector.fromArray( S, in, k - L ) ).intoArray( in, k );
+		}
+		for( int k = 17 * L; k > 2 * L; k -= 2 * L ) {
+			FloatVector.fromArray( S, in, k ).add( FloatVector.fromArray( S, in, k - 2 * L ) ).intoArray( in, k );
+		}
+	}
+
+	/** the outputs 0 and 8 of dct36 */
+	private static final void dct36_08(final float[] in, final float[] sums) {
+		final float[] cos9 = Jlayer3.COS9;
+		final FloatVector i0 = FloatVector.fromArray( S, in, 0 ), i1 = FloatVector.fromArray( S, in, L );
+		final FloatVector i2 = FloatVector.fromArray( S, in, 2 * L ), i3 = FloatVector.fromArray( S, in, 3 * L );
+		final FloatVector i4 = FloatVector.fromArray( S, in, 4 * L ), i5 = FloatVector.fromArray( S, in, 5 * L );
+		final FloatVector i6 = FloatVector.fromArray( S, in, 6 * L ), i7 = FloatVector.fromArray( S, in, 7 * L );
+		final FloatVector i8 = FloatVector.fromArray( S, in, 8 * L ), i9 = FloatVector.fromArray( S, in, 9 * L );
+		final FloatVector i10 = FloatVector.fromArray( S, in, 10 * L ), i11 = FloatVector.fromArray( S, in, 11 * L );
+		final FloatVector i12 = FloatVector.fromArray( S, in, 12 * L ), i13 = FloatVector.fromArray( S, in, 13 * L );
+		final FloatVector i14 = FloatVector.fromArray( S, in, 14 * L ), i15 = FloatVector.fromArray( S, in, 15 * L );
+		final FloatVector i16 = FloatVector.fromArray( S, in, 16 * L ), i17 = FloatVector.fromArray( S, in, 17 * L );
+		final float c1 = cos9[1], c2 = cos9[2], c3 = cos9[3], c4 = cos9[4], c5 = cos9[5], c6 = cos9[6], c7 = cos9[7], c8 = cos9[8];
+		final FloatVector tmp1a = i2.mul( c1 ).add( i6.mul( c3 ) ).add( i10.mul( c5 ) ).add( i14.mul( c7 ) );
+		final FloatVector tmp1b = i3.mul( c1 ).add( i7.mul( c3 ) ).add( i11.mul( c5 ) ).add( i15.mul( c7 ) );
+		final FloatVector tmp2a = i0.add( i4.mul( c2 ) ).add( i8.mul( c4 ) ).add( i12.mul( c6 ) ).add( i16.mul( c8 ) );
+		final FloatVector tmp2b = i1.add( i5.mul( c2 ) ).add( i9.mul( c4 ) ).add( i13.mul( c6 ) ).add( i17.mul( c8 ) );
+		tmp1a.add( tmp2a ).intoArray( sums, 0 );
+		tmp1b.add( tmp2b ).mul( Jlayer3.tfcos36[0] ).intoArray( sums, L );
+		tmp2a.sub( tmp1a ).intoArray( sums, 16 * L );
+		tmp2b.sub( tmp1b ).mul( Jlayer3.tfcos36[8] ).intoArray( sums, 17 * L );
+	}
+
+	/** the outputs 1 and 7 of dct36 */
+	private static final void dct36_17(final float[] in, final float[] sums) {
+		final float[] cos9 = Jlayer3.COS9;
+		final FloatVector i0 = FloatVector.fromArray( S, in, 0 ), i1 = FloatVector.fromArray( S, in, L );
+		final FloatVector i2 = FloatVector.fromArray( S, in, 2 * L ), i3 = FloatVector.fromArray( S, in, 3 * L );
+		final FloatVector i4 = FloatVector.fromArray( S, in, 4 * L ), i5 = FloatVector.fromArray( S, in, 5 * L );
+		final FloatVector i8 = FloatVector.fromArray( S, in, 8 * L ), i9 = FloatVector.fromArray( S, in, 9 * L );
+		final FloatVector i10 = FloatVector.fromArray( S, in, 10 * L ), i11 = FloatVector.fromArray( S, in, 11 * L );
+		final FloatVector i12 = FloatVector.fromArray( S, in, 12 * L ), i13 = FloatVector.fromArray( S, in, 13 * L );
+		final FloatVector i14 = FloatVector.fromArray( S, in, 14 * L ), i15 = FloatVector.fromArray( S, in, 15 * L );
+		final FloatVector i16 = FloatVector.fromArray( S, in, 16 * L ), i17 = FloatVector.fromArray( S, in, 17 * L );
+		final FloatVector tmp1a = i2.sub( i10 ).sub( i14 ).mul( cos9[3] );
+		final FloatVector tmp1b = i3.sub( i11 ).sub( i15 ).mul( cos9[3] );
+		final FloatVector tmp2a = i4.sub( i8 ).sub( i16 ).mul( cos9[6] ).sub( i12 ).add( i0 );
+		final FloatVector tmp2b = i5.sub( i9 ).sub( i17 ).mul( cos9[6] ).sub( i13 ).add( i1 );
+		tmp1a.add( tmp2a ).intoArray( sums, 2 * L );
+		tmp1b.add( tmp2b ).mul( Jlayer3.tfcos36[1] ).intoArray( sums, 3 * L );
+		tmp2a.sub( tmp1a ).intoArray( sums, 14 * L );
+		tmp2b.sub( tmp1b ).mul( Jlayer3.tfcos36[7] ).intoArray( sums, 15 * L );
+	}
+
+	/** the outputs 2 and 6 of dct36 */
+	private static final void dct36_26(final float[] in, final float[] sums) {
+		final float[] cos9 = Jlayer3.COS9;
+		final FloatVector i0 = FloatVector.fromArray( S, in, 0 ), i1 = FloatVector.fromArray( S, in, L );
+		final FloatVector i2 = FloatVector.fromArray( S, in, 2 * L ), i3 = FloatVector.fromArray( S, in, 3 * L );
+		final FloatVector i4 = FloatVector.fromArray( S, in, 4 * L ), i5 = FloatVector.fromArray( S, in, 5 * L );
+		final FloatVector i6 = FloatVector.fromArray( S, in, 6 * L ), i7 = FloatVector.fromArray( S, in, 7 * L );
+		final FloatVector i8 = FloatVector.fromArray( S, in, 8 * L ), i9 = FloatVector.fromArray( S, in, 9 * L );
+		final FloatVector i10 = FloatVector.fromArray( S, in, 10 * L ), i11 = FloatVector.fromArray( S, in, 11 * L );
+		final FloatVector i12 = FloatVector.fromArray( S, in, 12 * L ), i13 = FloatVector.fromArray( S, in, 13 * L );
+		final FloatVector i14 = FloatVector.fromArray( S, in, 14 * L ), i15 = FloatVector.fromArray( S, in, 15 * L );
+		final FloatVector i16 = FloatVector.fromArray( S, in, 16 * L ), i17 = FloatVector.fromArray( S, in, 17 * L );
+		final float c1 = cos9[1], c2 = cos9[2], c3 = cos9[3], c4 = cos9[4], c5 = cos9[5], c6 = cos9[6], c7 = cos9[7], c8 = cos9[8];
+		final FloatVector tmp1a = i2.mul( c5 ).sub( i6.mul( c3 ) ).sub( i10.mul( c7 ) ).add( i14.mul( c1 ) );
+		final FloatVector tmp1b = i3.mul( c5 ).sub( i7.mul( c3 ) ).sub( i11.mul( c7 ) ).add( i15.mul( c1 ) );
+		final FloatVector tmp2a = i0.sub( i4.mul( c8 ) ).sub( i8.mul( c2 ) ).add( i12.mul( c6 ) ).add( i16.mul( c4 ) );
+		final FloatVector tmp2b = i1.sub( i5.mul( c8 ) ).sub( i9.mul( c2 ) ).add( i13.mul( c6 ) ).add( i17.mul( c4 ) );
+		tmp1a.add( tmp2a ).intoArray( sums, 4 * L );
+		tmp1b.add( tmp2b ).mul( Jlayer3.tfcos36[2] ).intoArray( sums, 5 * L );
+		tmp2a.sub( tmp1a ).intoArray( sums, 12 * L );
+		tmp2b.sub( tmp1b ).mul( Jlayer3.tfcos36[6] ).intoArray( sums, 13 * L );
+	}
+
+	/** the outputs 3 and 5 of dct36 */
+	private static final void dct36_35(final float[] in, final float[] sums) {
+		final float[] cos9 = Jlayer3.COS9;
+		final FloatVector i0 = FloatVector.fromArray( S, in, 0 ), i1 = FloatVector.fromArray( S, in, L );
+		final FloatVector i2 = FloatVector.fromArray( S, in, 2 * L ), i3 = FloatVector.fromArray( S, in, 3 * L );
+		final FloatVector i4 = FloatVector.fromArray( S, in, 4 * L ), i5 = FloatVector.fromArray( S, in, 5 * L );
+		final FloatVector i6 = FloatVector.fromArray( S, in, 6 * L ), i7 = FloatVector.fromArray( S, in, 7 * L );
+		final FloatVector i8 = FloatVector.fromArray( S, in, 8 * L ), i9 = FloatVector.fromArray( S, in, 9 * L );
+		final FloatVector i10 = FloatVector.fromArray( S, in, 10 * L ), i11 = FloatVector.fromArray( S, in, 11 * L );
+		final FloatVector i12 = FloatVector.fromArray( S, in, 12 * L ), i13 = FloatVector.fromArray( S, in, 13 * L );
+		final FloatVector i14 = FloatVector.fromArray( S, in, 14 * L ), i15 = FloatVector.fromArray( S, in, 15 * L );
+		final FloatVector i16 = FloatVector.fromArray( S, in, 16 * L ), i17 = FloatVector.fromArray( S, in, 17 * L );
+		final float c1 = cos9[1], c2 = cos9[2], c3 = cos9[3], c4 = cos9[4], c5 = cos9[5], c6 = cos9[6], c7 = cos9[7], c8 = cos9[8];
+		final FloatVector tmp1a = i2.mul( c7 ).sub( i6.mul( c3 ) ).add( i10.mul( c1 ) ).sub( i14.mul( c5 ) );
+		final FloatVector tmp1b = i3.mul( c7 ).sub( i7.mul( c3 ) ).add( i11.mul( c1 ) ).sub( i15.mul( c5 ) );
+		final FloatVector tmp2a = i0.sub( i4.mul( c4 ) ).add( i8.mul( c8 ) ).add( i12.mul( c6 ) ).sub( i16.mul( c2 ) );
+		final FloatVector tmp2b = i1.sub( i5.mul( c4 ) ).add( i9.mul( c8 ) ).add( i13.mul( c6 ) ).sub( i17.mul( c2 ) );
+		tmp1a.add( tmp2a ).intoArray( sums, 6 * L );
+		tmp1b.add( tmp2b ).mul( Jlayer3.tfcos36[3] ).intoArray( sums, 7 * L );
+		tmp2a.sub( tmp1a ).intoArray( sums, 10 * L );
+		tmp2b.sub( tmp1b ).mul( Jlayer3.tfcos36[5] ).intoArray( sums, 11 * L );
+	}
+
+	/** the output 4 of dct36 */
+	private static final void dct36_4(final float[] in, final float[] sums) {
+		final FloatVector i0 = FloatVector.fromArray( S, in, 0 ), i1 = FloatVector.fromArray( S, in, L );
+		final FloatVector i4 = FloatVector.fromArray( S, in, 4 * L ), i5 = FloatVector.fromArray( S, in, 5 * L );
+		final FloatVector i8 = FloatVector.fromArray( S, in, 8 * L ), i9 = FloatVector.fromArray( S, in, 9 * L );
+		final FloatVector i12 = FloatVector.fromArray( S, in, 12 * L ), i13 = FloatVector.fromArray( S, in, 13 * L );
+		final FloatVector i16 = FloatVector.fromArray( S, in, 16 * L ), i17 = FloatVector.fromArray( S, in, 17 * L );
+		i0.sub( i4 ).add( i8 ).sub( i12 ).add( i16 ).intoArray( sums, 8 * L );
+		i1.sub( i5 ).add( i9 ).sub( i13 ).add( i17 ).mul( Jlayer3.tfcos36[4] ).intoArray( sums, 9 * L );
+	}
+
+	/** MACRO0 of dct36: the outputs v of sum0 and sum1 */
+	private static final void macro0(final int v, final float[] sums,
+			final float[] out1, final int o, final float[] w, final int sb0, final float[] ts, final float[] out2) {
+		final FloatVector sum0 = FloatVector.fromArray( S, sums, 2 * v * L );
+		final FloatVector sum1 = FloatVector.fromArray( S, sums, (2 * v + 1) * L );
+		final FloatVector tmp = sum0.add( sum1 );
+		tmp.mul( FloatVector.fromArray( S, w, (27 + v) * Jmpg123.SBLIMIT + sb0 ) ).intoArray( out2, o + 9 + v, STRIDE_SS, 0 );
+		tmp.mul( FloatVector.fromArray( S, w, (26 - v) * Jmpg123.SBLIMIT + sb0 ) ).intoArray( out2, o + 8 - v, STRIDE_SS, 0 );
+		final FloatVector s0 = sum0.sub( sum1 );
+		FloatVector.fromArray( S, out1, o + 8 - v, STRIDE_SS, 0 ).add( s0.mul( FloatVector.fromArray( S, w, (8 - v) * Jmpg123.SBLIMIT + sb0 ) ) )
+				.intoArray( ts, sb0 + Jmpg123.SBLIMIT * (8 - v) );
+		FloatVector.fromArray( S, out1, o + 9 + v, STRIDE_SS, 0 ).add( s0.mul( FloatVector.fromArray( S, w, (9 + v) * Jmpg123.SBLIMIT + sb0 ) ) )
+				.intoArray( ts, sb0 + Jmpg123.SBLIMIT * (9 + v) );
+	}
+}